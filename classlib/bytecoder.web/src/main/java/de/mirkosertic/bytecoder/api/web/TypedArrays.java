@@ -0,0 +1,41 @@
+/*
+ * Copyright 2018 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.api.web;
+
+/**
+ * Bulk copies between Java primitive arrays and host typed arrays.
+ */
+public final class TypedArrays {
+
+    private TypedArrays() {
+    }
+
+    public static native void copyToFloatArray(float[] aSource, int aSourceOffset, FloatArray aTarget, int aTargetOffset, int aLength);
+
+    public static native void copyFromFloatArray(FloatArray aSource, int aSourceOffset, float[] aTarget, int aTargetOffset, int aLength);
+
+    public static native void copyToIntArray(int[] aSource, int aSourceOffset, IntArray aTarget, int aTargetOffset, int aLength);
+
+    public static native void copyFromIntArray(IntArray aSource, int aSourceOffset, int[] aTarget, int aTargetOffset, int aLength);
+
+    public static native void copyToInt8Array(byte[] aSource, int aSourceOffset, Int8Array aTarget, int aTargetOffset, int aLength);
+
+    public static native void copyFromInt8Array(Int8Array aSource, int aSourceOffset, byte[] aTarget, int aTargetOffset, int aLength);
+
+    public static native void copyToInt16Array(short[] aSource, int aSourceOffset, Int16Array aTarget, int aTargetOffset, int aLength);
+
+    public static native void copyFromInt16Array(Int16Array aSource, int aSourceOffset, short[] aTarget, int aTargetOffset, int aLength);
+}
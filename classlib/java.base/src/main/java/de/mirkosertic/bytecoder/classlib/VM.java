@@ -94,6 +94,11 @@ public class VM {
         return false;
     }
 
+    @Export("divisionByZero")
+    public static ArithmeticException divisionByZero() {
+        return new ArithmeticException("/ by zero");
+    }
+
     @Export("toByte")
     public static Byte toByte(final byte v) {
         return Byte.valueOf(v);
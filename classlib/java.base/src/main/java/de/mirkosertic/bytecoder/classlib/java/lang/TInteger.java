@@ -114,6 +114,14 @@ public class TInteger extends Number implements Comparable<Integer> {
         return i & 0x3f;
     }
 
+    public static int rotateLeft(final int i, final int distance) {
+        return (i << distance) | (i >>> -distance);
+    }
+
+    public static int rotateRight(final int i, final int distance) {
+        return (i >>> distance) | (i << -distance);
+    }
+
     public static Integer valueOf(final int i) {
         return new Integer(i);
     }
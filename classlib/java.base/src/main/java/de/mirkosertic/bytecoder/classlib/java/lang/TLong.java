@@ -122,6 +122,14 @@ public class TLong extends Number implements Comparable<Long> {
         return (int)i & 0x7f;
     }
 
+    public static long rotateLeft(final long i, final int distance) {
+        return (i << distance) | (i >>> -distance);
+    }
+
+    public static long rotateRight(final long i, final int distance) {
+        return (i >>> distance) | (i << -distance);
+    }
+
     public static int signum(final long value) {
         if (value < 0) {
             return -1;
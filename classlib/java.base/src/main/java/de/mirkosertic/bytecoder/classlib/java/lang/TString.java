@@ -15,6 +15,8 @@
  */
 package de.mirkosertic.bytecoder.classlib.java.lang;
 
+import de.mirkosertic.bytecoder.api.EmulatedByRuntime;
+import de.mirkosertic.bytecoder.api.Export;
 import de.mirkosertic.bytecoder.api.SubstitutesInClass;
 
 import java.util.Locale;
@@ -22,6 +24,10 @@ import java.util.Locale;
 @SubstitutesInClass(completeReplace = true)
 public class TString implements CharSequence, Comparable<String> {
 
+    // Only used by Wasm, where the characters live in a GC array and the host string in nativeObject
+    // is created on demand. The JS backend emulates all methods touching this field by the runtime.
+    private char[] value;
+
     public TString() {
     }
 
@@ -62,11 +68,53 @@ public class TString implements CharSequence, Comparable<String> {
 
     native void initializeWith(byte[] data, int offset, int count, byte coder);
 
-    native void initializeWith(final String value);
+    @EmulatedByRuntime
+    void initializeWith(final String other) {
+        this.value = ((TString) (Object) other).value();
+    }
+
+    @EmulatedByRuntime
+    void initializeWith(final char[] data, final int offset, final int count) {
+        final char[] chars = new char[count];
+        System.arraycopy(data, offset, chars, 0, count);
+        this.value = chars;
+    }
 
-    native void initializeWith(char[] data, int offset, int count);
+    @EmulatedByRuntime
+    void initializeWith(final int[] data, final int offset, final int count) {
+        int length = count;
+        for (int i = offset; i < offset + count; i++) {
+            if (data[i] >= 0x10000) {
+                length++;
+            }
+        }
+        final char[] chars = new char[length];
+        int pos = 0;
+        for (int i = offset; i < offset + count; i++) {
+            final int codePoint = data[i];
+            if (codePoint >= 0x10000) {
+                chars[pos++] = highSurrogate(codePoint);
+                chars[pos++] = lowSurrogate(codePoint);
+            } else {
+                chars[pos++] = (char) codePoint;
+            }
+        }
+        this.value = chars;
+    }
+
+    private native char[] nativeChars();
+
+    private char[] value() {
+        if (value == null) {
+            value = nativeChars();
+        }
+        return value;
+    }
 
-    native void initializeWith(int[] data, int offset, int count);
+    @Export("stringChars")
+    public char[] stringChars() {
+        return value();
+    }
 
     public String toString() {
         return (String) (Object) this;
@@ -113,9 +161,18 @@ public class TString implements CharSequence, Comparable<String> {
         return b ? "true" : "false";
     }
 
-    public native char[] toCharArray();
+    @EmulatedByRuntime
+    public char[] toCharArray() {
+        final char[] chars = value();
+        final char[] result = new char[chars.length];
+        System.arraycopy(chars, 0, result, 0, chars.length);
+        return result;
+    }
 
-    public native void getChars(int srcBegin, int srcEnd, char dst[], int dstBegin);
+    @EmulatedByRuntime
+    public void getChars(final int srcBegin, final int srcEnd, final char[] dst, final int dstBegin) {
+        System.arraycopy(value(), srcBegin, dst, dstBegin, srcEnd - srcBegin);
+    }
 
     public static native String format(final String pattern, Object[] values);
 
@@ -131,45 +188,135 @@ public class TString implements CharSequence, Comparable<String> {
         return equals0(o.toString());
     }
 
-    public native boolean equals0(final String str);
+    @EmulatedByRuntime
+    public boolean equals0(final String str) {
+        final char[] v1 = value();
+        final char[] v2 = ((TString) (Object) str).value();
+        if (v1.length != v2.length) {
+            return false;
+        }
+        for (int i = 0; i < v1.length; i++) {
+            if (v1[i] != v2[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-    public native int indexOf(final int c);
+    @EmulatedByRuntime
+    public int indexOf(final int c) {
+        final char[] chars = value();
+        if (c >= 0x10000) {
+            final char high = highSurrogate(c);
+            final char low = lowSurrogate(c);
+            for (int i = 0; i < chars.length - 1; i++) {
+                if (chars[i] == high && chars[i + 1] == low) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-    public native int lastIndexOf(final int c);
+    @EmulatedByRuntime
+    public int lastIndexOf(final int c) {
+        final char[] chars = value();
+        if (c >= 0x10000) {
+            final char high = highSurrogate(c);
+            final char low = lowSurrogate(c);
+            for (int i = chars.length - 2; i >= 0; i--) {
+                if (chars[i] == high && chars[i + 1] == low) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        for (int i = chars.length - 1; i >= 0; i--) {
+            if (chars[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-    public native int lastIndexOf(final String str);
+    private static char highSurrogate(final int codePoint) {
+        return (char) (0xD800 + ((codePoint - 0x10000) >>> 10));
+    }
 
-    public int compareTo(final String anotherString) {
-        final char[] currentvalues = toCharArray();
-        final char[] othervalues = anotherString.toCharArray();
+    private static char lowSurrogate(final int codePoint) {
+        return (char) (0xDC00 + ((codePoint - 0x10000) & 0x3FF));
+    }
 
-        final int len1 = currentvalues.length;
-        final int len2 = othervalues.length;
-        final int lim = Math.min(len1, len2);
-        final char[] v1 = currentvalues;
-        final char[] v2 = othervalues;
+    @EmulatedByRuntime
+    public int lastIndexOf(final String str) {
+        final char[] chars = value();
+        final char[] other = ((TString) (Object) str).value();
+        for (int i = chars.length - other.length; i >= 0; i--) {
+            if (regionMatches(chars, i, other)) {
+                return i;
+            }
+        }
+        return -1;
+    }
 
-        int k = 0;
-        while (k < lim) {
+    private static boolean regionMatches(final char[] chars, final int offset, final char[] other) {
+        if (offset < 0 || offset + other.length > chars.length) {
+            return false;
+        }
+        for (int i = 0; i < other.length; i++) {
+            if (chars[offset + i] != other[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @EmulatedByRuntime
+    public int compareTo(final String anotherString) {
+        final char[] v1 = value();
+        final char[] v2 = ((TString) (Object) anotherString).value();
+        final int lim = Math.min(v1.length, v2.length);
+
+        for (int k = 0; k < lim; k++) {
             final char c1 = v1[k];
             final char c2 = v2[k];
             if (c1 != c2) {
                 return c1 - c2;
             }
-            k++;
         }
-        return len1 - len2;
+        return v1.length - v2.length;
     }
 
     public native String repeat(int amount);
 
-    public native String substring(int pos, int len);
+    @EmulatedByRuntime
+    public String substring(final int beginIndex, final int endIndex) {
+        return new String(value(), beginIndex, endIndex - beginIndex);
+    }
 
-    public native String substring(int pos);
+    @EmulatedByRuntime
+    public String substring(final int beginIndex) {
+        final char[] chars = value();
+        return new String(chars, beginIndex, chars.length - beginIndex);
+    }
 
-    public native boolean startsWith(final String value);
+    @EmulatedByRuntime
+    public boolean startsWith(final String prefix) {
+        return regionMatches(value(), 0, ((TString) (Object) prefix).value());
+    }
 
-    public native boolean endsWith(final String value);
+    @EmulatedByRuntime
+    public boolean endsWith(final String suffix) {
+        final char[] chars = value();
+        final char[] other = ((TString) (Object) suffix).value();
+        return regionMatches(chars, chars.length - other.length, other);
+    }
 
     public native String replaceAll(final String regex, final String replacement);
 
@@ -179,10 +326,16 @@ public class TString implements CharSequence, Comparable<String> {
 
     public native String trim();
 
-    public native int length();
+    @EmulatedByRuntime
+    public int length() {
+        return value().length;
+    }
 
     @Override
-    public native char charAt(int index);
+    @EmulatedByRuntime
+    public char charAt(final int index) {
+        return value()[index];
+    }
 
     @Override
     public CharSequence subSequence(final int start, final int end) {
@@ -192,11 +345,11 @@ public class TString implements CharSequence, Comparable<String> {
     public native byte[] getBytes();
 
     @Override
+    @EmulatedByRuntime
     public int hashCode() {
-        final byte[] value = getBytes();
         int h = 0;
-        for (int i = 0; i < value.length; i++) {
-            h = 31 * h + value[i];
+        for (final char c : value()) {
+            h = 31 * h + c;
         }
         return h;
     }
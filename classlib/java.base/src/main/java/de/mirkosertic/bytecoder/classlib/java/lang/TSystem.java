@@ -15,6 +15,7 @@
  */
 package de.mirkosertic.bytecoder.classlib.java.lang;
 
+import de.mirkosertic.bytecoder.api.EmulatedByRuntime;
 import de.mirkosertic.bytecoder.api.SubstitutesInClass;
 
 import java.io.FileDescriptor;
@@ -46,48 +47,56 @@ public class TSystem {
 
     public static native long currentTimeMillis();
 
+    @EmulatedByRuntime
     public static void arraycopy(final char[] aSource, final int aSourcePos, final char[] aTarget, final int aTargetPos, final int aLength) {
         for (int i=0;i<aLength;i++) {
             aTarget[aTargetPos + i] = aSource[aSourcePos + i];
         }
     }
 
+    @EmulatedByRuntime
     public static void arraycopy(final byte[] aSource, final int aSourcePos, final byte[] aTarget, final int aTargetPos, final int aLength) {
         for (int i=0;i<aLength;i++) {
             aTarget[aTargetPos + i] = aSource[aSourcePos + i];
         }
     }
 
+    @EmulatedByRuntime
     public static void arraycopy(final double[] aSource, final int aSourcePos, final double[] aTarget, final int aTargetPos, final int aLength) {
         for (int i=0;i<aLength;i++) {
             aTarget[aTargetPos + i] = aSource[aSourcePos + i];
         }
     }
 
+    @EmulatedByRuntime
     public static void arraycopy(final float[] aSource, final int aSourcePos, final float[] aTarget, final int aTargetPos, final int aLength) {
         for (int i=0;i<aLength;i++) {
             aTarget[aTargetPos + i] = aSource[aSourcePos + i];
         }
     }
 
+    @EmulatedByRuntime
     public static void arraycopy(final int[] aSource, final int aSourcePos, final int[] aTarget, final int aTargetPos, final int aLength) {
         for (int i=0;i<aLength;i++) {
             aTarget[aTargetPos + i] = aSource[aSourcePos + i];
         }
     }
 
+    @EmulatedByRuntime
     public static void arraycopy(final long[] aSource, final int aSourcePos, final long[] aTarget, final int aTargetPos, final int aLength) {
         for (int i=0;i<aLength;i++) {
             aTarget[aTargetPos + i] = aSource[aSourcePos + i];
         }
     }
 
+    @EmulatedByRuntime
     public static void arraycopy(final short[] aSource, final int aSourcePos, final short[] aTarget, final int aTargetPos, final int aLength) {
         for (int i=0;i<aLength;i++) {
             aTarget[aTargetPos + i] = aSource[aSourcePos + i];
         }
     }
 
+    @EmulatedByRuntime
     public static void arraycopy(final boolean[] aSource, final int aSourcePos, final boolean[] aTarget, final int aTargetPos, final int aLength) {
         for (int i=0;i<aLength;i++) {
             aTarget[aTargetPos + i] = aSource[aSourcePos + i];
@@ -15,6 +15,7 @@
  */
 package de.mirkosertic.bytecoder.classlib.java.util;
 
+import de.mirkosertic.bytecoder.api.EmulatedByRuntime;
 import de.mirkosertic.bytecoder.api.SubstitutesInClass;
 import de.mirkosertic.bytecoder.classlib.VM;
 
@@ -142,51 +143,61 @@ public class TArrays {
         return theResult;
     }
 
+    @EmulatedByRuntime
     public static void fill(final char[] a, final int fromIndex, final int toIndex, final char val) {
         for (int i = fromIndex; i < toIndex; i++)
             a[i] = val;
     }
 
+    @EmulatedByRuntime
     public static void fill(final int[] a, final int fromIndex, final int toIndex, final int val) {
         for (int i = fromIndex; i < toIndex; i++)
             a[i] = val;
     }
 
+    @EmulatedByRuntime
     public static void fill(final byte[] a, final int fromIndex, final int toIndex, final byte val) {
         for (int i = fromIndex; i < toIndex; i++)
             a[i] = val;
     }
 
+    @EmulatedByRuntime
     public static void fill(final Object[] a, final int fromIndex, final int toIndex, final Object val) {
         for (int i = fromIndex; i < toIndex; i++)
             a[i] = val;
     }
 
+    @EmulatedByRuntime
     public static void fill(final int[] a, final int val) {
         for (int i = 0, len = a.length; i < len; i++)
             a[i] = val;
     }
 
+    @EmulatedByRuntime
     public static void fill(final byte[] a, final byte val) {
         for (int i = 0, len = a.length; i < len; i++)
             a[i] = val;
     }
 
+    @EmulatedByRuntime
     public static void fill(final short[] a, final short val) {
         for (int i = 0, len = a.length; i < len; i++)
             a[i] = val;
     }
 
+    @EmulatedByRuntime
     public static void fill(final long[] a, final long val) {
         for (int i = 0, len = a.length; i < len; i++)
             a[i] = val;
     }
 
+    @EmulatedByRuntime
     public static void fill(final float[] a, final float val) {
         for (int i = 0, len = a.length; i < len; i++)
             a[i] = val;
     }
 
+    @EmulatedByRuntime
     public static void fill(final double[] a, final double val) {
         for (int i = 0, len = a.length; i < len; i++)
             a[i] = val;
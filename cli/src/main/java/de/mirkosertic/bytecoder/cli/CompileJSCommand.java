@@ -22,6 +22,7 @@ import de.mirkosertic.bytecoder.core.backend.CompileResult;
 import de.mirkosertic.bytecoder.core.backend.js.JSBackend;
 import de.mirkosertic.bytecoder.core.backend.js.JSCompileResult;
 import de.mirkosertic.bytecoder.core.backend.js.JSIntrinsics;
+import de.mirkosertic.bytecoder.core.backend.js.JSLongRepresentation;
 import de.mirkosertic.bytecoder.core.ir.AnalysisException;
 import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
 import de.mirkosertic.bytecoder.core.loader.BytecoderLoader;
@@ -67,6 +68,15 @@ public class CompileJSCommand implements Callable<Integer> {
     @Option(names = "-filenameprefix", required = false, description = "The prefix for generated files. Defaults to 'bytecoder'")
     protected String filenamePrefix = "bytecoder";
 
+    @Option(names = "-parallel", required = false, description = "Shall methods be optimized in parallel using all available cores? Defaults to 'false'")
+    protected boolean parallel = false;
+
+    @Option(names = "-exceptionsWithoutStackTrace", required = false, description = "List of full qualified exception class names thrown without capturing a JavaScript stack trace. The static type at the throw site decides, so subclasses are covered, but a listed exception thrown as a more general type is not.")
+    protected String[] exceptionsWithoutStackTrace = new String[0];
+
+    @Option(names = "-longs", required = false, description = "The representation of long values. Can be 'NUMBER' or 'BIGINT'. Defaults to 'NUMBER'.")
+    protected String longRepresentation = "NUMBER";
+
     @Override
     public Integer call() throws Exception {
 
@@ -94,9 +104,9 @@ public class CompileJSCommand implements Callable<Integer> {
             compileUnit.logStatistics();
 
             final CompileOptions compileOptions =
-                    new CompileOptions(logger, Optimizations.valueOf(optimizationLevel), additionalResources, filenamePrefix, false);
+                    new CompileOptions(logger, Optimizations.valueOf(optimizationLevel), additionalResources, filenamePrefix, false, parallel, exceptionsWithoutStackTrace);
 
-            final JSBackend backend = new JSBackend();
+            final JSBackend backend = new JSBackend(JSLongRepresentation.valueOf(longRepresentation));
             final JSCompileResult result = backend.generateCodeFor(compileUnit, compileOptions);
 
             for (final CompileResult.Content content : result.getContent()) {
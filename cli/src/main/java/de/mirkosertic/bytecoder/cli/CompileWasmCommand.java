@@ -66,6 +66,9 @@ public class CompileWasmCommand implements Callable<Integer> {
     @Option(names = "-filenameprefix", required = false, description = "The prefix for generated files. Defaults to 'bytecoder'")
     protected String filenamePrefix = "bytecoder";
 
+    @Option(names = "-parallel", required = false, description = "Shall methods be optimized in parallel using all available cores? Defaults to 'false'")
+    protected boolean parallel = false;
+
     @Option(names = "-debugoutput", required = false, description = "Shall debug information be included in the output? Defaults to 'false'")
     protected boolean debugoutput = false;
 
@@ -96,7 +99,7 @@ public class CompileWasmCommand implements Callable<Integer> {
             compileUnit.logStatistics();
 
             final CompileOptions compileOptions =
-                    new CompileOptions(logger, Optimizations.valueOf(optimizationLevel), additionalResources, filenamePrefix, debugoutput);
+                    new CompileOptions(logger, Optimizations.valueOf(optimizationLevel), additionalResources, filenamePrefix, debugoutput, parallel);
 
             final WasmBackend backend = new WasmBackend();
             final WasmCompileResult result = backend.generateCodeFor(compileUnit, compileOptions);
@@ -22,7 +22,8 @@ import de.mirkosertic.bytecoder.api.Logger;
 import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -66,7 +67,7 @@ public class ReflectionConfiguration {
     private final Map<String, ReflectiveClass> reflectiveClasses;
 
     public ReflectionConfiguration() {
-        reflectiveClasses = new HashMap<>();
+        reflectiveClasses = new LinkedHashMap<>();
     }
 
     public ReflectiveClass resolve(final String className) {
@@ -84,6 +85,6 @@ public class ReflectionConfiguration {
     }
 
     public Set<ReflectiveClass> configuredClasses() {
-        return new HashSet<>(reflectiveClasses.values());
+        return new LinkedHashSet<>(reflectiveClasses.values());
     }
 }
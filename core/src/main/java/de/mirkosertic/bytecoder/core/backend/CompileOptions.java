@@ -30,12 +30,27 @@ public class CompileOptions {
 
     private final boolean debugOutput;
 
+    private final boolean parallelCompilation;
+
+    private final String[] exceptionsWithoutStackTrace;
+
     public CompileOptions(final Logger logger, final Optimizer optimizer, final String[] additionalResources, final String filenamePrefix, final boolean debugOutput) {
+        this(logger, optimizer, additionalResources, filenamePrefix, debugOutput, false);
+    }
+
+    public CompileOptions(final Logger logger, final Optimizer optimizer, final String[] additionalResources, final String filenamePrefix, final boolean debugOutput, final boolean parallelCompilation) {
+        this(logger, optimizer, additionalResources, filenamePrefix, debugOutput, parallelCompilation, new String[0]);
+    }
+
+    public CompileOptions(final Logger logger, final Optimizer optimizer, final String[] additionalResources, final String filenamePrefix, final boolean debugOutput, final boolean parallelCompilation,
+                          final String[] exceptionsWithoutStackTrace) {
         this.logger = logger;
         this.optimizer = optimizer;
         this.additionalResources = additionalResources;
         this.filenamePrefix = filenamePrefix;
         this.debugOutput = debugOutput;
+        this.parallelCompilation = parallelCompilation;
+        this.exceptionsWithoutStackTrace = exceptionsWithoutStackTrace;
     }
 
     public Logger getLogger() {
@@ -57,4 +72,12 @@ public class CompileOptions {
     public boolean isDebugOutput() {
         return debugOutput;
     }
+
+    public boolean isParallelCompilation() {
+        return parallelCompilation;
+    }
+
+    public String[] getExceptionsWithoutStackTrace() {
+        return exceptionsWithoutStackTrace;
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend;
+
+import de.mirkosertic.bytecoder.core.ir.ControlTokenConsumer;
+import de.mirkosertic.bytecoder.core.ir.InstanceOf;
+import de.mirkosertic.bytecoder.core.ir.Node;
+import de.mirkosertic.bytecoder.core.ir.Projection;
+import de.mirkosertic.bytecoder.core.ir.ResolveCallsite;
+import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
+import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
+import de.mirkosertic.bytecoder.core.ir.TypeReference;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import org.objectweb.asm.Type;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Numbers the types a program actually tests against, these are the targets of instanceof, the
+ * types of catch handlers and the record types of generated equals methods. Each class stores a
+ * bitset over these numbers, so the size of a bitset depends on the number of tested types and
+ * not on the size of the class hierarchy. Method bodies must be scanned before they are optimized,
+ * as nodes inlined later are always copies of nodes seen in their original method.
+ */
+public class InstanceOfTypes {
+
+    private final Map<ResolvedClass, Integer> bitIndex;
+
+    public InstanceOfTypes(final CompileUnit compileUnit, final List<ResolvedClass> resolvedClasses) {
+        final Set<ResolvedClass> tested = new HashSet<>();
+        for (final ResolvedClass cl : resolvedClasses) {
+            for (final ResolvedMethod m : cl.resolvedMethods) {
+                if (m.owner == cl && m.methodBody != null) {
+                    for (final Node node : m.methodBody.nodes()) {
+                        collectTestedTypes(compileUnit, node, tested);
+                    }
+                }
+            }
+        }
+
+        // Numbered in class order, so the output stays deterministic
+        bitIndex = new HashMap<>();
+        for (final ResolvedClass cl : resolvedClasses) {
+            if (tested.contains(cl)) {
+                bitIndex.put(cl, bitIndex.size());
+            }
+        }
+    }
+
+    private static void collectTestedTypes(final CompileUnit compileUnit, final Node node, final Set<ResolvedClass> tested) {
+        if (node instanceof InstanceOf) {
+            addTested(compileUnit, ((TypeReference) node.incomingDataFlows[1]).type, tested);
+        } else if (node instanceof ResolveCallsite) {
+            for (final Node arg : node.incomingDataFlows) {
+                if (arg instanceof TypeReference) {
+                    addTested(compileUnit, ((TypeReference) arg).type, tested);
+                }
+            }
+        }
+        if (node instanceof ControlTokenConsumer) {
+            for (final Projection projection : ((ControlTokenConsumer) node).controlFlowsTo.keySet()) {
+                if (projection instanceof Projection.ExceptionHandler) {
+                    addTested(compileUnit, ((Projection.ExceptionHandler) projection).type, tested);
+                }
+            }
+        }
+    }
+
+    private static void addTested(final CompileUnit compileUnit, final Type type, final Set<ResolvedClass> tested) {
+        if (type != null && type.getSort() == Type.OBJECT) {
+            final ResolvedClass cl = compileUnit.findClass(type);
+            if (cl != null) {
+                tested.add(cl);
+            }
+        }
+    }
+
+    public int size() {
+        return bitIndex.size();
+    }
+
+    public boolean isTested(final ResolvedClass cl) {
+        return bitIndex.containsKey(cl);
+    }
+
+    public int bitIndexOf(final ResolvedClass cl) {
+        final Integer index = bitIndex.get(cl);
+        if (index == null) {
+            throw new IllegalStateException("No instanceof check against " + cl.type + " was found while scanning the program");
+        }
+        return index;
+    }
+
+    public int[] bitsetFor(final ResolvedClass cl) {
+        final BitSet bits = new BitSet();
+        for (final ResolvedClass type : cl.allTypesOf()) {
+            final Integer index = bitIndex.get(type);
+            if (index != null) {
+                bits.set(index);
+            }
+        }
+        final int[] words = new int[(bits.length() + 31) / 32];
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            words[i >>> 5] |= 1 << (i & 31);
+        }
+        return words;
+    }
+}
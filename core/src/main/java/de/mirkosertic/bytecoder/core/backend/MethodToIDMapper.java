@@ -19,8 +19,8 @@ package de.mirkosertic.bytecoder.core.backend;
 import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
 import org.objectweb.asm.Type;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 
 public class MethodToIDMapper {
@@ -48,19 +48,14 @@ public class MethodToIDMapper {
         }
     }
 
-    private final List<Entry> knownEntries;
+    private final Map<Entry, Integer> knownEntries;
 
     public MethodToIDMapper() {
-        knownEntries = new ArrayList<>();
+        knownEntries = new HashMap<>();
     }
 
     public int resolveIdFor(final ResolvedMethod method) {
         final Entry e = new Entry(method.methodNode.name, method.methodType);
-        final int i = knownEntries.indexOf(e);
-        if (i >= 0) {
-            return i;
-        }
-        knownEntries.add(e);
-        return knownEntries.size() - 1;
+        return knownEntries.computeIfAbsent(e, k -> knownEntries.size());
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend;
+
+import de.mirkosertic.bytecoder.core.backend.sequencer.DominatorTree;
+import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
+import de.mirkosertic.bytecoder.core.optimizer.Optimizer;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs the optimizer and builds the dominator tree for a set of method graphs. If all optimizers
+ * support it, this runs on a ForkJoinPool. Linking of the CompileUnit is frozen meanwhile, so a
+ * pass trying to resolve new classes or methods fails instead of corrupting the CompileUnit. Code
+ * generation stays sequential, as it appends to shared structures like the constant pool or the
+ * Wasm module. This includes sequencing, as the Sequencer writes directly to the code generator.
+ */
+public class OptimizedMethods {
+
+    private final CompileUnit compileUnit;
+    private final Optimizer optimizer;
+    private final Map<ResolvedMethod, DominatorTree> dominatorTrees;
+
+    public OptimizedMethods(final CompileUnit compileUnit, final CompileOptions options, final List<ResolvedMethod> methods) {
+        this.compileUnit = compileUnit;
+        this.optimizer = options.getOptimizer();
+        this.dominatorTrees = new HashMap<>();
+
+        optimizer.prepare(compileUnit);
+
+        if (options.isParallelCompilation() && !optimizer.supportsParallelOptimization()) {
+            options.getLogger().warn("Optimizer {} does not support parallel optimization, methods are optimized sequentially", optimizer);
+        } else if (options.isParallelCompilation()) {
+            final ForkJoinPool pool = new ForkJoinPool();
+            compileUnit.setLinkingFrozen(true);
+            try {
+                final List<ForkJoinTask<DominatorTree>> tasks = new ArrayList<>();
+                for (final ResolvedMethod method : methods) {
+                    tasks.add(pool.submit(() -> optimize(method)));
+                }
+                for (int i = 0; i < methods.size(); i++) {
+                    dominatorTrees.put(methods.get(i), tasks.get(i).join());
+                }
+            } finally {
+                compileUnit.setLinkingFrozen(false);
+                pool.shutdown();
+            }
+        }
+    }
+
+    private DominatorTree optimize(final ResolvedMethod method) {
+        while (optimizer.optimize(compileUnit, method)) {
+            //
+        }
+        return new DominatorTree(method.methodBody);
+    }
+
+    public DominatorTree dominatorTreeFor(final ResolvedMethod method) {
+        // Methods not known up front are optimized on demand
+        return dominatorTrees.computeIfAbsent(method, this::optimize);
+    }
+}
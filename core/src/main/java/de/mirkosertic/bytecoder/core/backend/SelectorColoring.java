@@ -0,0 +1,106 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend;
+
+import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
+import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Assigns every method id a slot in the per class dispatch tables. Two method ids share
+ * a slot only if no class implements both, computed by greedy coloring of the conflict graph.
+ */
+public class SelectorColoring {
+
+    private final Map<Integer, Integer> slots;
+
+    private int slotCount;
+
+    public SelectorColoring(final List<ResolvedClass> classes, final VTableResolver vTableResolver, final MethodToIDMapper methodToIDMapper) {
+        this.slots = new HashMap<>();
+
+        final List<Set<Integer>> selectorsPerClass = new ArrayList<>();
+        final Map<Integer, List<Integer>> classesPerSelector = new HashMap<>();
+        for (final ResolvedClass cl : classes) {
+            final Set<Integer> selectors = new HashSet<>(vTableResolver.resolveFor(cl).getMethods().keySet());
+            // Abstract methods are included, as lambda instances implement them with their own dispatch table
+            for (final ResolvedMethod m : cl.abstractResolvedMethods()) {
+                selectors.add(methodToIDMapper.resolveIdFor(m));
+            }
+            final int classIndex = selectorsPerClass.size();
+            selectorsPerClass.add(selectors);
+            for (final Integer selector : selectors) {
+                classesPerSelector.computeIfAbsent(selector, k -> new ArrayList<>()).add(classIndex);
+            }
+        }
+
+        final List<Integer> selectorOrder = new ArrayList<>(classesPerSelector.keySet());
+        selectorOrder.sort((o1, o2) -> {
+            final int c = Integer.compare(classesPerSelector.get(o2).size(), classesPerSelector.get(o1).size());
+            if (c != 0) {
+                return c;
+            }
+            return Integer.compare(o1, o2);
+        });
+
+        final BitSet[] usedSlots = new BitSet[selectorsPerClass.size()];
+        for (int i = 0; i < usedSlots.length; i++) {
+            usedSlots[i] = new BitSet();
+        }
+
+        final BitSet conflicts = new BitSet();
+        for (final Integer selector : selectorOrder) {
+            conflicts.clear();
+            final List<Integer> classIndices = classesPerSelector.get(selector);
+            for (final int classIndex : classIndices) {
+                conflicts.or(usedSlots[classIndex]);
+            }
+            final int slot = conflicts.nextClearBit(0);
+            for (final int classIndex : classIndices) {
+                usedSlots[classIndex].set(slot);
+            }
+            slots.put(selector, slot);
+            slotCount = Math.max(slotCount, slot + 1);
+        }
+    }
+
+    public int slotFor(final int methodId) {
+        // Selectors not implemented by any class get a slot outside all dispatch tables
+        return slots.computeIfAbsent(methodId, k -> slotCount++);
+    }
+
+    public int[] dispatchTableFor(final Set<Integer> methodIds) {
+        int size = 0;
+        for (final Integer methodId : methodIds) {
+            size = Math.max(size, slotFor(methodId) + 1);
+        }
+        final int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = -1;
+        }
+        for (final Integer methodId : methodIds) {
+            result[slotFor(methodId)] = methodId;
+        }
+        return result;
+    }
+}
@@ -22,7 +22,9 @@ import de.mirkosertic.bytecoder.core.backend.CompileOptions;
 import de.mirkosertic.bytecoder.core.backend.CompileResult;
 import de.mirkosertic.bytecoder.core.backend.GeneratedMethod;
 import de.mirkosertic.bytecoder.core.backend.GeneratedMethodsRegistry;
+import de.mirkosertic.bytecoder.core.backend.InstanceOfTypes;
 import de.mirkosertic.bytecoder.core.backend.MethodToIDMapper;
+import de.mirkosertic.bytecoder.core.backend.OptimizedMethods;
 import de.mirkosertic.bytecoder.core.backend.VTable;
 import de.mirkosertic.bytecoder.core.backend.VTableResolver;
 import de.mirkosertic.bytecoder.core.backend.sequencer.DominatorTree;
@@ -32,7 +34,6 @@ import de.mirkosertic.bytecoder.core.ir.Graph;
 import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
 import de.mirkosertic.bytecoder.core.ir.ResolvedField;
 import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
-import de.mirkosertic.bytecoder.core.optimizer.Optimizer;
 import de.mirkosertic.bytecoder.core.parser.CompileUnit;
 import de.mirkosertic.bytecoder.core.parser.ConstantPool;
 import org.apache.commons.io.IOUtils;
@@ -47,7 +48,9 @@ import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -59,6 +62,16 @@ import static de.mirkosertic.bytecoder.core.backend.js.JSHelpers.generateMethodN
 
 public class JSBackend {
 
+    private final JSLongRepresentation longRepresentation;
+
+    public JSBackend() {
+        this(JSLongRepresentation.NUMBER);
+    }
+
+    public JSBackend(final JSLongRepresentation longRepresentation) {
+        this.longRepresentation = longRepresentation;
+    }
+
     private void generateHeader(final CompileUnit compileUnit, final PrintWriter pw) {
 
         try {
@@ -68,15 +81,19 @@ public class JSBackend {
             throw new RuntimeException(e);
         }
 
+        if (longRepresentation == JSLongRepresentation.BIGINT) {
+            pw.println("bytecoder.bigintlongs = true;");
+        }
+
         pw.println("bytecoder.imports[\"java.lang.Class\"][\"Ljava$lang$Class$$forName$Ljava$lang$String$$Z$Ljava$lang$ClassLoader$\"] = function(className, initialize, classLoader) {");
 
         for (final ReflectionConfiguration.ReflectiveClass rc : compileUnit.getReflectionConfiguration().configuredClasses()) {
             if (rc.supportsClassForName()) {
                 final Type cl = Type.getObjectType(rc.getName().replace('.', '/'));
-                final int idx = compileUnit.getConstantPool().getPooledStrings().indexOf(rc.getName());
-                pw.print("  if (bytecoder.stringconstants[");
+                final int idx = compileUnit.getConstantPool().indexOf(rc.getName());
+                pw.print("  if (bytecoder.stringconstant(");
                 pw.print(idx);
-                pw.println("].Z$equals$Ljava$lang$Object$(className)) {");
+                pw.println(").Z$equals$Ljava$lang$Object$(className)) {");
                 pw.print("    return ");
                 pw.print(generateClassName(cl));
                 pw.println(".$rt;");
@@ -100,7 +117,21 @@ public class JSBackend {
 
         generateHeader(compileUnit, pw);
 
-        for (final ResolvedClass cl : compileUnit.computeClassDependencies()) {
+        final List<ResolvedClass> resolvedClasses = compileUnit.computeClassDependencies();
+        final List<ResolvedMethod> methodsToOptimize = new ArrayList<>();
+        for (final ResolvedClass cl : resolvedClasses) {
+            for (final ResolvedMethod m : cl.resolvedMethods) {
+                if (m.owner == cl && m.methodBody != null && !Modifier.isNative(m.methodNode.access) && !AnnotationUtils.hasAnnotation("Lde/mirkosertic/bytecoder/api/EmulatedByRuntime;", m.methodNode.visibleAnnotations)) {
+                    methodsToOptimize.add(m);
+                }
+            }
+        }
+        final InstanceOfTypes instanceOfTypes = new InstanceOfTypes(compileUnit, resolvedClasses);
+        final OptimizedMethods optimizedMethods = new OptimizedMethods(compileUnit, compileOptions, methodsToOptimize);
+
+        final Set<String> exceptionsWithoutStackTrace = new HashSet<>(Arrays.asList(compileOptions.getExceptionsWithoutStackTrace()));
+
+        for (final ResolvedClass cl : resolvedClasses) {
 
             final String className = generateClassName(cl.type);
 
@@ -129,11 +160,19 @@ public class JSBackend {
             }
             pw.println("  }");
 
-            generateClassInitFor(pw, compileUnit, cl);
+            generateClassInitFor(pw, compileUnit, cl, instanceOfTypes);
 
             generateLambdaLogicFor(pw, compileUnit, cl);
 
-            generateMethodsImplementationsFor(pw, compileUnit, cl, compileOptions, generatedMethodsRegistry);
+            if (Throwable.class.getName().equals(cl.type.getClassName())) {
+                // The stack is only formatted on first access, see bytecoder.registerStack
+                pw.println();
+                pw.println("  get stack() {");
+                pw.println("    return bytecoder.stackOf(this);");
+                pw.println("  }");
+            }
+
+            generateMethodsImplementationsFor(pw, compileUnit, cl, optimizedMethods, generatedMethodsRegistry, exceptionsWithoutStackTrace);
 
             pw.println("}");
             pw.println();
@@ -167,16 +206,16 @@ public class JSBackend {
             }
         }
 
-        // Generate string pool
+        // Generate string pool, the String instances are created on first access
         final ConstantPool constantPool = compileUnit.getConstantPool();
         final List<String> pooledStrings = constantPool.getPooledStrings();
+        pw.println("bytecoder.stringliterals = [");
         for (int i = 0; i < pooledStrings.size(); i++) {
-            pw.print("bytecoder.stringconstants[");
-            pw.print(i);
-            pw.print("] = bytecoder.toBytecoderString('");
+            pw.print("  '");
             pw.print(StringEscapeUtils.escapeEcmaScript(pooledStrings.get(i)));
-            pw.println("');");
+            pw.println("',");
         }
+        pw.println("];");
 
         // Generate string concatenation
         final List<GeneratedMethod> generatedMethods = generatedMethodsRegistry.getMethods();
@@ -241,23 +280,26 @@ public class JSBackend {
         pw.println("  }");
     }
 
-    private void generateClassInitFor(final PrintWriter pw, final CompileUnit compileUnit, final ResolvedClass cl) {
+    private void generateClassInitFor(final PrintWriter pw, final CompileUnit compileUnit, final ResolvedClass cl, final InstanceOfTypes instanceOfTypes) {
         pw.println();
+        // Subclasses inherit static fields, so classes never tested against get an invalid id
+        pw.print("  static $tid = ");
+        pw.print(instanceOfTypes.isTested(cl) ? instanceOfTypes.bitIndexOf(cl) : -1);
+        pw.println(";");
         pw.println("  static #rt = undefined;");
         pw.println("  static get $rt() {");
         pw.println("    if (!this.#rt) {");
         pw.println("      this.#rt = bytecoder.newRuntimeClassFor(");
         pw.println("        "+generateClassName(cl.type)+",");
         pw.println("        '"+cl.type.getClassName()+"',");
+        // Bitset over the tested types this class implements, see bytecoder.instanceOf
+        final int[] typeBits = instanceOfTypes.bitsetFor(cl);
         pw.print("         [");
-        boolean f = true;
-        for (final ResolvedClass type : cl.allTypesOf()) {
-            if (f) {
-                f = false;
-            } else {
+        for (int i = 0; i < typeBits.length; i++) {
+            if (i > 0) {
                 pw.print(",");
             }
-            pw.print(generateClassName(type.type));
+            pw.print(typeBits[i]);
         }
         pw.println("]);");
 
@@ -309,6 +351,13 @@ public class JSBackend {
                     case Type.BOOLEAN:
                         pw.print(" = false");
                         break;
+                    case Type.LONG:
+                        if (longRepresentation == JSLongRepresentation.BIGINT) {
+                            pw.print(" = 0n");
+                        } else {
+                            pw.print(" = 0");
+                        }
+                        break;
                     case Type.ARRAY:
                     case Type.OBJECT:
                     case Type.METHOD:
@@ -325,7 +374,8 @@ public class JSBackend {
         }
     }
 
-    public void generateMethodsImplementationsFor(final PrintWriter pw, final CompileUnit compileUnit, final ResolvedClass cl, final CompileOptions compileOptions, final GeneratedMethodsRegistry generatedMethodsRegistry) {
+    public void generateMethodsImplementationsFor(final PrintWriter pw, final CompileUnit compileUnit, final ResolvedClass cl, final OptimizedMethods optimizedMethods, final GeneratedMethodsRegistry generatedMethodsRegistry,
+                                                  final Set<String> exceptionsWithoutStackTrace) {
 
         for (final ResolvedMethod m : cl.resolvedMethods) {
             if (m.owner == cl) {
@@ -333,7 +383,7 @@ public class JSBackend {
                     generateNativeMethodWithPrefix(pw, compileUnit, cl, m);
                 } else {
                     if (m.methodBody != null) {
-                        generateMethodWithPrefix(pw, compileUnit, cl, m, compileOptions, generatedMethodsRegistry);
+                        generateMethodWithPrefix(pw, compileUnit, cl, m, optimizedMethods, generatedMethodsRegistry, exceptionsWithoutStackTrace);
                     } else if (cl.isOpaqueReferenceType()) {
                         generateOpaqueAdapterMethodWithPrefix(pw, compileUnit, cl, m);
                     }
@@ -550,8 +600,14 @@ public class JSBackend {
                     pw.print("arg");
                     pw.print(i);
                 } else if (argType == Type.LONG_TYPE) {
-                    pw.print("arg");
-                    pw.print(i);
+                    if (longRepresentation == JSLongRepresentation.BIGINT) {
+                        pw.print("Number(arg");
+                        pw.print(i);
+                        pw.print(")");
+                    } else {
+                        pw.print("arg");
+                        pw.print(i);
+                    }
                 } else if (argType == Type.FLOAT_TYPE) {
                     pw.print("arg");
                     pw.print(i);
@@ -616,8 +672,9 @@ public class JSBackend {
                                     break;
                                 }
                                 case Type.LONG: {
-                                    pw.print("arg");
+                                    pw.print("bytecoder.tolong(arg");
                                     pw.print(j);
+                                    pw.print(")");
                                     break;
                                 }
                                 case Type.FLOAT: {
@@ -679,7 +736,8 @@ public class JSBackend {
         pw.println("  }");
     }
 
-    public void generateMethodWithPrefix(final PrintWriter pw, final CompileUnit compileUnit, final ResolvedClass cl, final ResolvedMethod m, final CompileOptions options, final GeneratedMethodsRegistry generatedMethodsRegistry) {
+    public void generateMethodWithPrefix(final PrintWriter pw, final CompileUnit compileUnit, final ResolvedClass cl, final ResolvedMethod m, final OptimizedMethods optimizedMethods, final GeneratedMethodsRegistry generatedMethodsRegistry,
+                                         final Set<String> exceptionsWithoutStackTrace) {
         pw.println();
 
         final String methodName = generateMethodName(m.methodNode.name, m.methodType);
@@ -704,14 +762,7 @@ public class JSBackend {
         pw.println(") {");
 
         final Graph g = m.methodBody;
-        final Optimizer o = options.getOptimizer();
-
-
-        while (o.optimize(compileUnit, m)) {
-            //
-        }
-
-        final DominatorTree dt = new DominatorTree(g);
+        final DominatorTree dt = optimizedMethods.dominatorTreeFor(m);
 
         if (cl.classNode.sourceFile != null) {
             pw.print("    // source file is ");
@@ -719,7 +770,7 @@ public class JSBackend {
         }
 
         try {
-            new Sequencer(g, dt, new JSStructuredControlflowCodeGenerator(compileUnit, cl, pw, generatedMethodsRegistry));
+            new Sequencer(g, dt, new JSStructuredControlflowCodeGenerator(compileUnit, cl, pw, generatedMethodsRegistry, longRepresentation, exceptionsWithoutStackTrace));
         } catch (final CodeGenerationFailure e) {
             throw e;
         } catch (final RuntimeException e) {
@@ -20,5 +20,6 @@ import de.mirkosertic.bytecoder.core.parser.CoreIntrinsics;
 public class JSIntrinsics extends CoreIntrinsics {
 
     public JSIntrinsics() {
+        super(new JavaLangMathIntrinsic());
     }
 }
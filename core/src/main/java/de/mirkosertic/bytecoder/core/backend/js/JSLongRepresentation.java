@@ -0,0 +1,30 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend.js;
+
+/**
+ * How Java long values are represented in the generated JavaScript.
+ */
+public enum JSLongRepresentation {
+    /**
+     * Plain JavaScript numbers. Fast, but only exact up to 2^53.
+     */
+    NUMBER,
+    /**
+     * BigInt values, wrapped to 64 bits after every arithmetic operation. Exact Java semantics.
+     */
+    BIGINT
+}
@@ -44,6 +44,7 @@ import de.mirkosertic.bytecoder.core.ir.InstanceOf;
 import de.mirkosertic.bytecoder.core.ir.InvokeDynamicExpression;
 import de.mirkosertic.bytecoder.core.ir.LineNumberDebugInfo;
 import de.mirkosertic.bytecoder.core.ir.LookupSwitch;
+import de.mirkosertic.bytecoder.core.ir.MathFunction;
 import de.mirkosertic.bytecoder.core.ir.MethodArgument;
 import de.mirkosertic.bytecoder.core.ir.MethodInvocation;
 import de.mirkosertic.bytecoder.core.ir.MethodInvocationExpression;
@@ -102,6 +103,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
@@ -124,12 +126,23 @@ public class JSStructuredControlflowCodeGenerator implements StructuredControlfl
 
     private final GeneratedMethodsRegistry generatedMethodsRegistry;
 
-    public JSStructuredControlflowCodeGenerator(final CompileUnit compileUnit, final ResolvedClass cl, final PrintWriter pw, final GeneratedMethodsRegistry generatedMethodsRegistry) {
+    private final JSLongRepresentation longRepresentation;
+
+    private final Set<String> exceptionsWithoutStackTrace;
+
+    public JSStructuredControlflowCodeGenerator(final CompileUnit compileUnit, final ResolvedClass cl, final PrintWriter pw, final GeneratedMethodsRegistry generatedMethodsRegistry, final JSLongRepresentation longRepresentation,
+                                                final Set<String> exceptionsWithoutStackTrace) {
         this.compileUnit = compileUnit;
         this.cl = cl;
         this.pw = pw;
         this.variableToName = new HashMap<>();
         this.generatedMethodsRegistry = generatedMethodsRegistry;
+        this.longRepresentation = longRepresentation;
+        this.exceptionsWithoutStackTrace = exceptionsWithoutStackTrace;
+    }
+
+    private boolean isBigIntLong(final Type type) {
+        return longRepresentation == JSLongRepresentation.BIGINT && type.getSort() == Type.LONG;
     }
 
     @Override
@@ -214,9 +227,34 @@ public class JSStructuredControlflowCodeGenerator implements StructuredControlfl
     @Override
     public void write(final Unwind node) {
         writeIndent();
-        pw.print("throw bytecoder.registerStack(");
-        writeExpression(node.incomingDataFlows[0]);
-        pw.println(", new Error().stack);");
+        final Value exception = (Value) node.incomingDataFlows[0];
+        if (capturesStackTrace(exception.type)) {
+            // Creating the Error is cheap, its stack is only formatted if somebody asks for it
+            pw.print("throw bytecoder.registerStack(");
+            writeExpression(exception);
+            pw.println(", new Error());");
+        } else {
+            pw.print("throw ");
+            writeExpression(exception);
+            pw.println(";");
+        }
+    }
+
+    /**
+     * The decision is made on the static type of the thrown value, as the Error has to be created before the
+     * exception is thrown. A listed exception thrown through a variable of a more general type, like
+     * {@code Throwable t = new Listed(); throw t;}, still captures a stack trace.
+     */
+    private boolean capturesStackTrace(final Type exceptionType) {
+        if (exceptionsWithoutStackTrace.isEmpty() || exceptionType.getSort() != Type.OBJECT) {
+            return true;
+        }
+        for (ResolvedClass c = compileUnit.findClass(exceptionType); c != null; c = c.superClass) {
+            if (exceptionsWithoutStackTrace.contains(c.type.getClassName())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -926,16 +964,46 @@ public class JSStructuredControlflowCodeGenerator implements StructuredControlfl
 
     private void writeExpression(final NewArray node) {
 
-        pw.print("bytecoder.newarray((");
+        if (node.type.getDimensions() > 1 || node.type.getElementType().getSort() == Type.OBJECT) {
+            pw.print("bytecoder.newarray((");
+            writeExpression(node.incomingDataFlows[0]);
+            pw.print("),null)");
+            return;
+        }
+
+        // Primitive arrays are backed by typed arrays, which also gives us Java overflow semantics on store
+        pw.print("bytecoder.newtypedarray((");
         writeExpression(node.incomingDataFlows[0]);
         pw.print("),");
         switch (node.type.getElementType().getSort()) {
-            case Type.OBJECT:
-                pw.print("null");
+            case Type.BOOLEAN:
+            case Type.BYTE:
+                pw.print("Int8Array");
                 break;
-            default:
-                pw.print("0");
+            case Type.CHAR:
+                pw.print("Uint16Array");
+                break;
+            case Type.SHORT:
+                pw.print("Int16Array");
                 break;
+            case Type.INT:
+                pw.print("Int32Array");
+                break;
+            case Type.FLOAT:
+                pw.print("Float32Array");
+                break;
+            case Type.LONG:
+                if (longRepresentation == JSLongRepresentation.BIGINT) {
+                    pw.print("BigInt64Array");
+                } else {
+                    pw.print("Float64Array");
+                }
+                break;
+            case Type.DOUBLE:
+                pw.print("Float64Array");
+                break;
+            default:
+                throw new IllegalStateException("Not supported array type " + node.type);
         }
         pw.print(")");
     }
@@ -959,9 +1027,9 @@ public class JSStructuredControlflowCodeGenerator implements StructuredControlfl
     }
 
     private void writeExpression(final ObjectString node) {
-        pw.print("bytecoder.stringconstants[");
+        pw.print("bytecoder.stringconstant(");
         pw.print(node.value.index);
-        pw.print("]");
+        pw.print(")");
     }
 
     private void writeExpression(final ReferenceTest node) {
@@ -999,14 +1067,72 @@ public class JSStructuredControlflowCodeGenerator implements StructuredControlfl
 
     private void writeExpression(final And node) {
         pw.print("(");
-        writeExpression(node.incomingDataFlows[0]);
+        writeInt32Operand(node, node.incomingDataFlows[0]);
         pw.print(" & ");
-        writeExpression(node.incomingDataFlows[1]);
+        writeInt32Operand(node, node.incomingDataFlows[1]);
+        pw.print(")");
+    }
+
+    private void writeExpression(final MathFunction node) {
+        switch (node.kind) {
+            case ABS:
+                pw.print("Math.abs(");
+                break;
+            case MIN:
+                pw.print("Math.min(");
+                break;
+            case MAX:
+                pw.print("Math.max(");
+                break;
+            case SQRT:
+                pw.print("Math.sqrt(");
+                break;
+            case FLOOR:
+                pw.print("Math.floor(");
+                break;
+            case CEIL:
+                pw.print("Math.ceil(");
+                break;
+            case CLZ:
+                pw.print("Math.clz32(");
+                break;
+            default:
+                throw new IllegalArgumentException("Not supported math function " + node.kind);
+        }
+        for (int i = 0; i < node.incomingDataFlows.length; i++) {
+            if (i > 0) {
+                pw.print(", ");
+            }
+            writeExpression(node.incomingDataFlows[i]);
+        }
         pw.print(")");
     }
 
     private void writeExpression(final TypeConversion node) {
-        if (node.type.getSort() == Type.INT || node.type.getSort() == Type.LONG) {
+        final Type source = ((Value) node.incomingDataFlows[0]).type;
+        if (node.type.getSort() == Type.LONG) {
+            if (source.getSort() == Type.FLOAT || source.getSort() == Type.DOUBLE) {
+                pw.print("bytecoder.d2l(");
+                writeExpression(node.incomingDataFlows[0]);
+                pw.print(")");
+            } else if (isBigIntLong(node.type) && !isBigIntLong(source)) {
+                pw.print("BigInt(");
+                writeExpression(node.incomingDataFlows[0]);
+                pw.print(")");
+            } else {
+                writeExpression(node.incomingDataFlows[0]);
+            }
+        } else if (isBigIntLong(source)) {
+            if (node.type.getSort() == Type.INT) {
+                pw.print("Number(BigInt.asIntN(32, ");
+                writeExpression(node.incomingDataFlows[0]);
+                pw.print("))");
+            } else {
+                pw.print("Number(");
+                writeExpression(node.incomingDataFlows[0]);
+                pw.print(")");
+            }
+        } else if (node.type.getSort() == Type.INT) {
             pw.print("(");
             writeExpression(node.incomingDataFlows[0]);
             pw.print(" | 0");
@@ -1022,41 +1148,82 @@ public class JSStructuredControlflowCodeGenerator implements StructuredControlfl
     }
 
     private void writeExpression(final SHR node) {
-        pw.print("(");
-        writeExpression(node.incomingDataFlows[0]);
-        pw.print(" >> ");
-        writeExpression(node.incomingDataFlows[1]);
-        pw.print(")");
+        if (isBigIntLong(node.type)) {
+            pw.print("(");
+            writeExpression(node.incomingDataFlows[0]);
+            pw.print(" >> BigInt(");
+            writeExpression(node.incomingDataFlows[1]);
+            pw.print(" & 63))");
+        } else {
+            pw.print("(");
+            writeInt32Operand(node, node.incomingDataFlows[0]);
+            pw.print(" >> ");
+            writeInt32Operand(node, node.incomingDataFlows[1]);
+            pw.print(")");
+        }
     }
 
     private void writeExpression(final SHL node) {
-        pw.print("(");
-        writeExpression(node.incomingDataFlows[0]);
-        pw.print(" << ");
-        writeExpression(node.incomingDataFlows[1]);
-        pw.print(")");
+        if (isBigIntLong(node.type)) {
+            pw.print("BigInt.asIntN(64, ");
+            writeExpression(node.incomingDataFlows[0]);
+            pw.print(" << BigInt(");
+            writeExpression(node.incomingDataFlows[1]);
+            pw.print(" & 63))");
+        } else {
+            pw.print("(");
+            writeInt32Operand(node, node.incomingDataFlows[0]);
+            pw.print(" << ");
+            writeInt32Operand(node, node.incomingDataFlows[1]);
+            pw.print(")");
+        }
     }
 
     private void writeExpression(final Or node) {
         pw.print("(");
-        writeExpression(node.incomingDataFlows[0]);
+        writeInt32Operand(node, node.incomingDataFlows[0]);
         pw.print(" | ");
-        writeExpression(node.incomingDataFlows[1]);
+        writeInt32Operand(node, node.incomingDataFlows[1]);
         pw.print(")");
     }
 
     private void writeExpression(final Neg node) {
-        pw.print("(0 - ");
-        writeExpression(node.incomingDataFlows[0]);
-        pw.print(")");
+        if (isInt32(node.type)) {
+            pw.print("((0 - ");
+            writeExpression(node.incomingDataFlows[0]);
+            pw.print(") | 0)");
+        } else if (isBigIntLong(node.type)) {
+            pw.print("BigInt.asIntN(64, 0n - ");
+            writeExpression(node.incomingDataFlows[0]);
+            pw.print(")");
+        } else {
+            pw.print("(0 - ");
+            writeExpression(node.incomingDataFlows[0]);
+            pw.print(")");
+        }
     }
 
     private void writeExpression(final Mul node) {
-        pw.print("(");
-        writeExpression(node.incomingDataFlows[0]);
-        pw.print(" * ");
-        writeExpression(node.incomingDataFlows[1]);
-        pw.print(")");
+        if (isInt32(node.type)) {
+            // Math.imul truncates its operands and computes the exact low 32 bits of the product
+            pw.print("Math.imul(");
+            writeInt32Operand(node, node.incomingDataFlows[0]);
+            pw.print(", ");
+            writeInt32Operand(node, node.incomingDataFlows[1]);
+            pw.print(")");
+        } else if (isBigIntLong(node.type)) {
+            pw.print("BigInt.asIntN(64, ");
+            writeExpression(node.incomingDataFlows[0]);
+            pw.print(" * ");
+            writeExpression(node.incomingDataFlows[1]);
+            pw.print(")");
+        } else {
+            pw.print("(");
+            writeExpression(node.incomingDataFlows[0]);
+            pw.print(" * ");
+            writeExpression(node.incomingDataFlows[1]);
+            pw.print(")");
+        }
     }
 
     private void writeExpression(final RuntimeClassOf runtimeClassOf) {
@@ -1193,6 +1360,9 @@ public class JSStructuredControlflowCodeGenerator implements StructuredControlfl
 
     private void writeExpression(final PrimitiveLong node) {
         pw.print(node.value);
+        if (longRepresentation == JSLongRepresentation.BIGINT) {
+            pw.print("n");
+        }
     }
 
     private void writeExpression(final PrimitiveDouble node) {
@@ -1205,28 +1375,72 @@ public class JSStructuredControlflowCodeGenerator implements StructuredControlfl
 
     private void writeExpression(final XOr node) {
         pw.print("(");
-        writeExpression(node.incomingDataFlows[0]);
+        writeInt32Operand(node, node.incomingDataFlows[0]);
         pw.print(" ^ ");
-        writeExpression(node.incomingDataFlows[1]);
+        writeInt32Operand(node, node.incomingDataFlows[1]);
         pw.print(")");
     }
 
     private void writeExpression(final USHR node) {
+        if (isBigIntLong(node.type)) {
+            pw.print("BigInt.asIntN(64, BigInt.asUintN(64, ");
+            writeExpression(node.incomingDataFlows[0]);
+            pw.print(") >> BigInt(");
+            writeExpression(node.incomingDataFlows[1]);
+            pw.print(" & 63))");
+        } else if (isInt32(node.type)) {
+            // >>> yields an unsigned 32 bit value, | 0 turns it back into an int32
+            pw.print("((");
+            writeInt32Operand(node, node.incomingDataFlows[0]);
+            pw.print(" >>> ");
+            writeInt32Operand(node, node.incomingDataFlows[1]);
+            pw.print(") | 0)");
+        } else {
+            pw.print("(");
+            writeInt32Operand(node, node.incomingDataFlows[0]);
+            pw.print(" >>> ");
+            writeInt32Operand(node, node.incomingDataFlows[1]);
+            pw.print(")");
+        }
+    }
+
+    private void writeExpression(final Rem node) {
+        if (node.type.getSort() != Type.FLOAT && node.type.getSort() != Type.DOUBLE && !isNonZeroConstant(node.incomingDataFlows[1])) {
+            // A remainder by zero would be NaN or a RangeError, the runtime throws ArithmeticException instead
+            if (isInt32(node.type)) {
+                writeCheckedDivision("bytecoder.irem(", node);
+            } else if (isBigIntLong(node.type)) {
+                writeCheckedDivision("bytecoder.lrem(", node);
+            } else {
+                writeCheckedDivision("bytecoder.nrem(", node);
+            }
+            return;
+        }
         pw.print("(");
         writeExpression(node.incomingDataFlows[0]);
-        pw.print(" >>> ");
+        pw.print(" % ");
         writeExpression(node.incomingDataFlows[1]);
         pw.print(")");
     }
 
-    private void writeExpression(final Rem node) {
-        pw.print("(");
+    private void writeCheckedDivision(final String function, final Node node) {
+        pw.print(function);
         writeExpression(node.incomingDataFlows[0]);
-        pw.print(" % ");
+        pw.print(", ");
         writeExpression(node.incomingDataFlows[1]);
         pw.print(")");
     }
 
+    private static boolean isNonZeroConstant(final Node node) {
+        if (node instanceof PrimitiveInt) {
+            return ((PrimitiveInt) node).value != 0;
+        }
+        if (node instanceof PrimitiveLong) {
+            return ((PrimitiveLong) node).value != 0;
+        }
+        return false;
+    }
+
     private void writeExpression(final InstanceOf node) {
         pw.print("bytecoder.instanceOf(");
         writeExpression(node.incomingDataFlows[0]);
@@ -1849,6 +2063,8 @@ public class JSStructuredControlflowCodeGenerator implements StructuredControlfl
             writeExpression((And) node);
         } else if (node instanceof TypeConversion) {
             writeExpression((TypeConversion) node);
+        } else if (node instanceof MathFunction) {
+            writeExpression((MathFunction) node);
         } else if (node instanceof ArrayLength) {
             writeExpression((ArrayLength) node);
         } else if (node instanceof SHR) {
@@ -1916,21 +2132,70 @@ public class JSStructuredControlflowCodeGenerator implements StructuredControlfl
     }
 
     private void writeExpression(final Sub node) {
-        pw.print("(");
-        writeExpression(node.incomingDataFlows[0]);
-        pw.print(" - ");
-        writeExpression(node.incomingDataFlows[1]);
-        pw.print(")");
+        if (isInt32(node.type)) {
+            pw.print("(");
+            writeUntruncated(node, " - ");
+            pw.print(" | 0)");
+        } else if (isBigIntLong(node.type)) {
+            pw.print("BigInt.asIntN(64, ");
+            writeUntruncated(node, " - ");
+            pw.print(")");
+        } else {
+            writeUntruncated(node, " - ");
+        }
     }
 
     private void writeExpression(final Add node) {
+        if (isInt32(node.type)) {
+            pw.print("(");
+            writeUntruncated(node, " + ");
+            pw.print(" | 0)");
+        } else if (isBigIntLong(node.type)) {
+            pw.print("BigInt.asIntN(64, ");
+            writeUntruncated(node, " + ");
+            pw.print(")");
+        } else {
+            writeUntruncated(node, " + ");
+        }
+    }
+
+    private void writeUntruncated(final Value node, final String operator) {
         pw.print("(");
-        writeExpression(node.incomingDataFlows[0]);
-        pw.print(" + ");
-        writeExpression(node.incomingDataFlows[1]);
+        writeInt32Operand(node, node.incomingDataFlows[0]);
+        pw.print(operator);
+        writeInt32Operand(node, node.incomingDataFlows[1]);
         pw.print(")");
     }
 
+    private static boolean isInt32(final Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+            case Type.BYTE:
+            case Type.CHAR:
+            case Type.SHORT:
+            case Type.INT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void writeInt32Operand(final Value consumer, final Node operand) {
+        // Int additions and subtractions feeding a consumer that truncates to int32 anyway are written
+        // without their own | 0. Sums of int32 values stay exact in a double, so the result is the same.
+        if (isInt32(consumer.type) && operand instanceof Value && isInt32(((Value) operand).type)) {
+            if (operand instanceof Add) {
+                writeUntruncated((Value) operand, " + ");
+                return;
+            }
+            if (operand instanceof Sub) {
+                writeUntruncated((Value) operand, " - ");
+                return;
+            }
+        }
+        writeExpression(operand);
+    }
+
     private void writeExpression(final Div node) {
         if (node.type == Type.DOUBLE_TYPE || node.type == Type.FLOAT_TYPE) {
             pw.print("(");
@@ -1938,8 +2203,31 @@ public class JSStructuredControlflowCodeGenerator implements StructuredControlfl
             pw.print(" / ");
             writeExpression(node.incomingDataFlows[1]);
             pw.print(")");
+        } else if (!isNonZeroConstant(node.incomingDataFlows[1])) {
+            // A division by zero would give 0, Infinity or a RangeError, the runtime throws ArithmeticException instead
+            if (isInt32(node.type)) {
+                writeCheckedDivision("bytecoder.idiv(", node);
+            } else if (isBigIntLong(node.type)) {
+                writeCheckedDivision("bytecoder.ldiv(", node);
+            } else {
+                writeCheckedDivision("bytecoder.ndiv(", node);
+            }
+        } else if (isInt32(node.type)) {
+            // Java int division truncates towards zero, which is exactly what | 0 does
+            pw.print("((");
+            writeExpression(node.incomingDataFlows[0]);
+            pw.print(" / ");
+            writeExpression(node.incomingDataFlows[1]);
+            pw.print(") | 0)");
+        } else if (isBigIntLong(node.type)) {
+            // BigInt division already truncates towards zero, only MIN_VALUE / -1 needs wrapping
+            pw.print("BigInt.asIntN(64, ");
+            writeExpression(node.incomingDataFlows[0]);
+            pw.print(" / ");
+            writeExpression(node.incomingDataFlows[1]);
+            pw.print(")");
         } else {
-            pw.print("Math.floor(");
+            pw.print("Math.trunc(");
             writeExpression(node.incomingDataFlows[0]);
             pw.print(" / ");
             writeExpression(node.incomingDataFlows[1]);
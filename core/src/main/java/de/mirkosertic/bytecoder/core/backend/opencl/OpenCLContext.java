@@ -23,7 +23,7 @@ import de.mirkosertic.bytecoder.api.opencl.OpenCLType;
 import de.mirkosertic.bytecoder.core.backend.CompileOptions;
 import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
 import de.mirkosertic.bytecoder.core.loader.BytecoderLoader;
-import de.mirkosertic.bytecoder.core.optimizer.Optimizations;
+import de.mirkosertic.bytecoder.core.optimizer.VirtualToDirectInvocation;
 import de.mirkosertic.bytecoder.core.parser.CompileUnit;
 import org.jocl.Pointer;
 import org.jocl.Sizeof;
@@ -94,7 +94,8 @@ class OpenCLContext implements Context {
         this.platform = platform;
         this.cachedKernels = new HashMap<>();
         this.backend = new OpenCLCompileBackend();
-        this.compileOptions = new CompileOptions(logger, Optimizations.ALL, new String[0], null, true);
+        // Kernels are not covered by the backend test suites, so they keep the pass set they were written against
+        this.compileOptions = new CompileOptions(logger, new VirtualToDirectInvocation(), new String[0], null, true);
 
         final cl_context_properties contextProperties = new cl_context_properties();
         contextProperties.addProperty(CL_CONTEXT_PLATFORM, platform.selectedPlatform.id);
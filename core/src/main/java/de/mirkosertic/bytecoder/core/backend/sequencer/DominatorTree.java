@@ -18,16 +18,20 @@ package de.mirkosertic.bytecoder.core.backend.sequencer;
 import de.mirkosertic.bytecoder.core.ir.ControlTokenConsumer;
 import de.mirkosertic.bytecoder.core.ir.EdgeType;
 import de.mirkosertic.bytecoder.core.ir.Graph;
-import de.mirkosertic.bytecoder.core.ir.Node;
 import de.mirkosertic.bytecoder.core.ir.Projection;
 import de.mirkosertic.bytecoder.core.ir.Region;
 
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -39,6 +43,15 @@ public class DominatorTree {
     private final Map<ControlTokenConsumer, ControlTokenConsumer> idom;
 
     private final List<ControlTokenConsumer> rpo;
+    private final Map<ControlTokenConsumer, Integer> rpoIndex;
+
+    // Dominator tree, indexed by reverse post order number
+    private int[] idoms;
+    private int[][] children;
+
+    // Pre and post order numbers of a DFS walk on the dominator tree, used for O(1) dominance checks
+    private int[] treePre;
+    private int[] treePost;
 
     public DominatorTree(final Graph graph) {
         this.graph = graph;
@@ -46,27 +59,42 @@ public class DominatorTree {
         preOrder = new DFS(start).getTopoligicalOrder();
         idom = new HashMap<>();
         rpo = new ArrayList<>();
-        computeDominators();
+        rpoIndex = new HashMap<>();
         computeRPO(start);
+        computeDominators();
+        computeIntervals();
     }
 
-    private void computeRPO(final ControlTokenConsumer consumer) {
+    private void computeRPO(final ControlTokenConsumer start) {
         final List<ControlTokenConsumer> finished = new ArrayList<>();
         final Set<ControlTokenConsumer> visited = new HashSet<>();
-        computeRPO(consumer, finished, visited);
-
-        Collections.reverse(finished);
-        rpo.addAll(finished);
-    }
-
-    private void computeRPO(final ControlTokenConsumer current, final List<ControlTokenConsumer> finished, final Set<ControlTokenConsumer> visited) {
-        if (visited.add(current)) {
-            for (final Map.Entry<Projection, ControlTokenConsumer> entry : current.controlFlowsTo.entrySet()) {
-                if (entry.getKey().edgeType() == EdgeType.FORWARD) {
-                    computeRPO(entry.getValue(), finished, visited);
+        final Deque<ControlTokenConsumer> path = new ArrayDeque<>();
+        final Deque<Iterator<Map.Entry<Projection, ControlTokenConsumer>>> pending = new ArrayDeque<>();
+        visited.add(start);
+        path.push(start);
+        pending.push(start.controlFlowsTo.entrySet().iterator());
+        while (!path.isEmpty()) {
+            final Iterator<Map.Entry<Projection, ControlTokenConsumer>> it = pending.peek();
+            ControlTokenConsumer next = null;
+            while (next == null && it.hasNext()) {
+                final Map.Entry<Projection, ControlTokenConsumer> entry = it.next();
+                if (entry.getKey().edgeType() == EdgeType.FORWARD && visited.add(entry.getValue())) {
+                    next = entry.getValue();
                 }
             }
-            finished.add(current);
+            if (next != null) {
+                path.push(next);
+                pending.push(next.controlFlowsTo.entrySet().iterator());
+            } else {
+                finished.add(path.pop());
+                pending.pop();
+            }
+        }
+
+        Collections.reverse(finished);
+        for (final ControlTokenConsumer c : finished) {
+            rpoIndex.put(c, rpo.size());
+            rpo.add(c);
         }
     }
 
@@ -78,22 +106,44 @@ public class DominatorTree {
         return rpo;
     }
 
+    public int rpoIndexOf(final ControlTokenConsumer node) {
+        final Integer index = rpoIndex.get(node);
+        if (index == null) {
+            return -1;
+        }
+        return index;
+    }
+
     private void computeDominators() {
-        final ControlTokenConsumer firstElement = preOrder.get(0);
-        idom.put(firstElement, firstElement);
+        // Cooper, Harvey and Kennedy, "A Simple, Fast Dominance Algorithm", on reverse post order numbers
+        final int size = rpo.size();
+        final int[][] predecessors = new int[size][];
+        for (int i = 0; i < size; i++) {
+            final Set<ControlTokenConsumer> from = rpo.get(i).controlComingFrom;
+            final int[] p = new int[from.size()];
+            int count = 0;
+            for (final ControlTokenConsumer pre : from) {
+                final int index = rpoIndexOf(pre);
+                if (index >= 0) {
+                    p[count++] = index;
+                }
+            }
+            predecessors[i] = Arrays.copyOf(p, count);
+        }
+
+        idoms = new int[size];
+        Arrays.fill(idoms, -1);
+        idoms[0] = 0;
 
         boolean changed;
         do {
             changed = false;
-            for (final ControlTokenConsumer v : preOrder) {
-                if (v.equals(firstElement))
-                    continue;
-                final ControlTokenConsumer oldIdom = getIDom(v);
-                ControlTokenConsumer newIdom = null;
-                for (final ControlTokenConsumer pre : v.controlComingFrom) {
-                    if (getIDom(pre) == null)
+            for (int v = 1; v < size; v++) {
+                int newIdom = -1;
+                for (final int pre : predecessors[v]) {
+                    if (idoms[pre] == -1)
                         /* not yet analyzed */ continue;
-                    if (newIdom == null) {
+                    if (newIdom == -1) {
                         /* If we only have one (defined) predecessor pre, IDom(v) = pre */
                         newIdom = pre;
                     } else {
@@ -101,27 +151,67 @@ public class DominatorTree {
                         newIdom = intersectIDoms(pre, newIdom);
                     }
                 }
-                if (newIdom == null) {
-                    throw new AssertionError("newIDom == null !, for " + v);
+                if (newIdom == -1) {
+                    throw new AssertionError("newIDom == null !, for " + rpo.get(v));
                 }
-                if (!newIdom.equals(oldIdom)) {
+                if (newIdom != idoms[v]) {
                     changed = true;
-                    this.idom.put(v, newIdom);
+                    idoms[v] = newIdom;
                 }
             }
         } while (changed);
+
+        final int[] childCount = new int[size];
+        for (int v = 1; v < size; v++) {
+            childCount[idoms[v]]++;
+        }
+        children = new int[size][];
+        for (int v = 0; v < size; v++) {
+            children[v] = new int[childCount[v]];
+            childCount[v] = 0;
+        }
+        for (int v = 0; v < size; v++) {
+            idom.put(rpo.get(v), rpo.get(idoms[v]));
+            if (v > 0) {
+                children[idoms[v]][childCount[idoms[v]]++] = v;
+            }
+        }
+    }
+
+    private void computeIntervals() {
+        final int size = rpo.size();
+        treePre = new int[size];
+        treePost = new int[size];
+        final int[] stack = new int[size];
+        final int[] nextChild = new int[size];
+        int counter = 0;
+        int top = 0;
+        stack[0] = 0;
+        treePre[0] = counter++;
+        while (top >= 0) {
+            final int v = stack[top];
+            if (nextChild[v] < children[v].length) {
+                final int child = children[v][nextChild[v]++];
+                treePre[child] = counter++;
+                stack[++top] = child;
+            } else {
+                treePost[v] = counter++;
+                top--;
+            }
+        }
     }
 
     public ControlTokenConsumer getIDom(final ControlTokenConsumer node) {
         return idom.get(node);
     }
 
-    private ControlTokenConsumer intersectIDoms(ControlTokenConsumer v1, ControlTokenConsumer v2) {
+    private int intersectIDoms(int v1, int v2) {
         while (v1 != v2) {
-            if (preOrder.indexOf(v1) < preOrder.indexOf(v2)) {
-                v2 = getIDom(v2);
-            } else {
-                v1 = getIDom(v1);
+            while (v1 > v2) {
+                v1 = idoms[v1];
+            }
+            while (v2 > v1) {
+                v2 = idoms[v2];
             }
         }
         return v1;
@@ -137,16 +227,16 @@ public class DominatorTree {
         if(dominator.equals(dominated)) {
             return true; // Domination is reflexive ;)
         }
-        ControlTokenConsumer dom = getIDom(dominated);
-        // as long as dominated >= dominator
-        while(dom != null && preOrder.indexOf(dom) >= preOrder.indexOf(dominator) && ! dom.equals(dominator)) {
-            dom = getIDom(dom);
+        final int a = rpoIndexOf(dominator);
+        final int b = rpoIndexOf(dominated);
+        if (a == -1 || b == -1) {
+            return false;
         }
-        return dominator.equals(dom);
+        return treePre[a] <= treePre[b] && treePost[b] <= treePost[a];
     }
 
     public Set<ControlTokenConsumer> getStrictDominators(final ControlTokenConsumer n) {
-        final Set<ControlTokenConsumer> strictDoms = new HashSet<>();
+        final Set<ControlTokenConsumer> strictDoms = new LinkedHashSet<>();
         ControlTokenConsumer dominated = n;
         ControlTokenConsumer iDom = getIDom(n);
         while(iDom != dominated) {
@@ -158,28 +248,37 @@ public class DominatorTree {
     }
 
     public Set<ControlTokenConsumer> immediatelyDominatedNodesOf(final ControlTokenConsumer n) {
-        final Set<ControlTokenConsumer> result = new HashSet<>();
-        for (final Map.Entry<ControlTokenConsumer, ControlTokenConsumer> entry : idom.entrySet()) {
-            if (entry.getValue() == n) {
-                result.add(entry.getKey());
+        final Set<ControlTokenConsumer> result = new LinkedHashSet<>();
+        final int index = rpoIndexOf(n);
+        if (index >= 0) {
+            for (final int child : children[index]) {
+                result.add(rpo.get(child));
+            }
+            if (index == 0) {
+                // The start node is its own immediate dominator
+                result.add(n);
             }
         }
         return result;
     }
 
     public Set<ControlTokenConsumer> domSetOf(final ControlTokenConsumer n) {
-        final Set<ControlTokenConsumer> theDomSet = new HashSet<>();
-        addToDomSet(n, theDomSet);
-        return theDomSet;
-    }
-
-    private void addToDomSet(final ControlTokenConsumer n, final Set<ControlTokenConsumer> domset) {
-        domset.add(n);
-        for (final Map.Entry<ControlTokenConsumer, ControlTokenConsumer> idomEntry : idom.entrySet()) {
-            if (idomEntry.getValue() == n && preOrder.indexOf(idomEntry.getKey()) > preOrder.indexOf(n)) {
-                addToDomSet(idomEntry.getKey(), domset);
+        final Set<ControlTokenConsumer> theDomSet = new LinkedHashSet<>();
+        final int index = rpoIndexOf(n);
+        if (index == -1) {
+            theDomSet.add(n);
+            return theDomSet;
+        }
+        final Deque<Integer> workList = new ArrayDeque<>();
+        workList.push(index);
+        while (!workList.isEmpty()) {
+            final int v = workList.pop();
+            theDomSet.add(rpo.get(v));
+            for (final int child : children[v]) {
+                workList.push(child);
             }
         }
+        return theDomSet;
     }
 
     public void writeDebugTo(final OutputStream fileOutputStream) {
@@ -188,12 +287,11 @@ public class DominatorTree {
 
     public void writeDebugTo(final OutputStream fileOutputStream, final ControlTokenConsumer sourceHighlight, final Set<ControlTokenConsumer> destHighlight) {
         final PrintWriter pw = new PrintWriter(fileOutputStream);
-        final List<Node> graphNodes = graph.nodes();
         pw.println("digraph debugoutput {");
         for (final ControlTokenConsumer n : preOrder) {
-            final String label = graphNodes.indexOf(n) + " " + n.getClass().getSimpleName() + " " + n.additionalDebugInfo() + " Order : " + rpo.indexOf(n);
+            final String label = graph.indexOf(n) + " " + n.getClass().getSimpleName() + " " + n.additionalDebugInfo() + " Order : " + rpoIndexOf(n);
 
-            pw.print(" node_" + graphNodes.indexOf(n) + "[label=\"" + label + "\" ");
+            pw.print(" node_" + graph.indexOf(n) + "[label=\"" + label + "\" ");
             if (n == sourceHighlight) {
                 pw.print("shape=\"box\" fillcolor=\"green\" style=\"filled\"");
             } else {
@@ -207,13 +305,13 @@ public class DominatorTree {
 
             final ControlTokenConsumer id = idom.get(n);
             if (id != n) {
-                pw.print(" node_" + graphNodes.indexOf(n) + " -> node_" + graphNodes.indexOf(id) + "[dir=\"forward\"");
+                pw.print(" node_" + graph.indexOf(n) + " -> node_" + graph.indexOf(id) + "[dir=\"forward\"");
                 pw.print(" color=\"black\" penwidth=\"2\"");
                 pw.println("];");
             }
 
             for (final Map.Entry<Projection, ControlTokenConsumer> entry : n.controlFlowsTo.entrySet()) {
-                pw.print(" node_" + graphNodes.indexOf(n) + " -> node_" + graphNodes.indexOf(entry.getValue()) + "[dir=\"forward\"");
+                pw.print(" node_" + graph.indexOf(n) + " -> node_" + graph.indexOf(entry.getValue()) + "[dir=\"forward\"");
                 if (entry.getKey().isControlFlow()) {
                     pw.print(" color=\"red\" penwidth=\"1\"");
                 } else {
@@ -29,7 +29,6 @@ import de.mirkosertic.bytecoder.core.ir.LookupSwitch;
 import de.mirkosertic.bytecoder.core.ir.MethodInvocation;
 import de.mirkosertic.bytecoder.core.ir.MonitorEnter;
 import de.mirkosertic.bytecoder.core.ir.MonitorExit;
-import de.mirkosertic.bytecoder.core.ir.Node;
 import de.mirkosertic.bytecoder.core.ir.Projection;
 import de.mirkosertic.bytecoder.core.ir.Region;
 import de.mirkosertic.bytecoder.core.ir.Return;
@@ -233,21 +232,19 @@ public class Sequencer {
                 return;
             }
         }
-        throw new IllegalStateException("GOTO " + graph.nodes().indexOf(target) + " from " + graph.nodes().indexOf(currentToken) + " to " + target.getClass().getSimpleName() + " " + target.additionalDebugInfo());
+        throw new IllegalStateException("GOTO " + graph.indexOf(target) + " from " + graph.indexOf(currentToken) + " to " + target.getClass().getSimpleName() + " " + target.additionalDebugInfo());
     }
 
     private void visitBranchingNodeTemplate(final ControlTokenConsumer node, final Stack<Block> activeStack, final Consumer<Stack<Block>> nodeCallback) {
 
-        final List<Node> nodes = graph.nodes();
-        final List<ControlTokenConsumer> rpo = dominatorTree.getRpo();
         final List<ControlTokenConsumer> orderedBlocks = dominatorTree.immediatelyDominatedNodesOf(node)
                 .stream()
                 // We are only interested in merge nodes
                 .filter(t -> t.controlComingFrom.size() > 1)
                 // And sort them in reverse post order
                 .sorted((o1, o2) -> {
-                    final int a = rpo.indexOf(o1);
-                    final int b = rpo.indexOf(o2);
+                    final int a = dominatorTree.rpoIndexOf(o1);
+                    final int b = dominatorTree.rpoIndexOf(o2);
                     if ((a == -1) || (b == 1)) {
                         throw new IllegalStateException("Don't know what to do");
                     }
@@ -258,7 +255,7 @@ public class Sequencer {
         final boolean hasIncomingBackEdges = node.hasIncomingBackEdges();
 
         final String prefix = node.getClass().getSimpleName() + "_";
-        final int selfIndex = nodes.indexOf(node);
+        final int selfIndex = graph.indexOf(node);
 
         if (hasIncomingBackEdges) {
             final Block b = new Block(prefix + selfIndex, Block.Type.LOOP, node, null);
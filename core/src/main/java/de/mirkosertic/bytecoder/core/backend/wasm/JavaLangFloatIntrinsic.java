@@ -22,36 +22,25 @@ import de.mirkosertic.bytecoder.core.ir.Value;
 import de.mirkosertic.bytecoder.core.parser.CompileUnit;
 import de.mirkosertic.bytecoder.core.parser.GraphParser;
 import de.mirkosertic.bytecoder.core.parser.Intrinsic;
-import org.objectweb.asm.Opcodes;
+import de.mirkosertic.bytecoder.core.parser.IntrinsicRegistry;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.MethodInsnNode;
 
 public class JavaLangFloatIntrinsic implements Intrinsic {
 
     @Override
-    public Value intrinsifyMethodInvocationWithReturnValue(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
-        if (node.getOpcode() == Opcodes.INVOKESTATIC) {
-            final Type targetClass = Type.getObjectType(node.owner);
-            if (Float.class.getName().equals(targetClass.getClassName())) {
-                if ("floatToIntBits".equals(node.name)) {
-                    final Reinterpret reinterpret = graph.newReinterpret(Type.INT_TYPE);
-                    reinterpret.addIncomingData(incomingData[1]);
-                    return reinterpret;
-                }
-
-                if ("floatToRawIntBits".equals(node.name)) {
-                    final Reinterpret reinterpret = graph.newReinterpret(Type.INT_TYPE);
-                    reinterpret.addIncomingData(incomingData[1]);
-                    return reinterpret;
-                }
+    public void register(final IntrinsicRegistry registry) {
+        final String owner = Type.getInternalName(Float.class);
+        registry.register(owner, "floatToIntBits", "(F)I", this);
+        registry.register(owner, "floatToRawIntBits", "(F)I", this);
+        registry.register(owner, "intBitsToFloat", "(I)F", this);
+    }
 
-                if ("intBitsToFloat".equals(node.name)) {
-                    final Reinterpret reinterpret = graph.newReinterpret(Type.FLOAT_TYPE);
-                    reinterpret.addIncomingData(incomingData[1]);
-                    return reinterpret;
-                }
-            }
-        }
-        return null;
+    @Override
+    public Value intrinsifyMethodInvocationWithReturnValue(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
+        // All registered methods reinterpret the bits of the argument as the return type
+        final Reinterpret reinterpret = graph.newReinterpret(Type.getReturnType(node.desc));
+        reinterpret.addIncomingData(incomingData[1]);
+        return reinterpret;
     }
 }
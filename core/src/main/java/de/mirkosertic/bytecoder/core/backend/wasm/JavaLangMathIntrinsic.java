@@ -0,0 +1,90 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend.wasm;
+
+import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
+import de.mirkosertic.bytecoder.core.ir.Graph;
+import de.mirkosertic.bytecoder.core.ir.MathFunction;
+import de.mirkosertic.bytecoder.core.ir.Value;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import de.mirkosertic.bytecoder.core.parser.GraphParser;
+import de.mirkosertic.bytecoder.core.parser.Intrinsic;
+import de.mirkosertic.bytecoder.core.parser.IntrinsicRegistry;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.MethodInsnNode;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class JavaLangMathIntrinsic implements Intrinsic {
+
+    private static final Map<String, MathFunction.Kind> MATH_FUNCTIONS = new HashMap<>();
+    private static final Map<String, MathFunction.Kind> BIT_FUNCTIONS = new HashMap<>();
+
+    static {
+        MATH_FUNCTIONS.put("abs(F)F", MathFunction.Kind.ABS);
+        MATH_FUNCTIONS.put("abs(D)D", MathFunction.Kind.ABS);
+        MATH_FUNCTIONS.put("abs(I)I", MathFunction.Kind.ABS);
+        MATH_FUNCTIONS.put("abs(J)J", MathFunction.Kind.ABS);
+        for (final String type : new String[] {"I", "J", "F", "D"}) {
+            MATH_FUNCTIONS.put("min(" + type + type + ")" + type, MathFunction.Kind.MIN);
+            MATH_FUNCTIONS.put("max(" + type + type + ")" + type, MathFunction.Kind.MAX);
+        }
+        MATH_FUNCTIONS.put("sqrt(D)D", MathFunction.Kind.SQRT);
+        MATH_FUNCTIONS.put("floor(D)D", MathFunction.Kind.FLOOR);
+        MATH_FUNCTIONS.put("ceil(D)D", MathFunction.Kind.CEIL);
+        MATH_FUNCTIONS.put("rint(D)D", MathFunction.Kind.RINT);
+        MATH_FUNCTIONS.put("copySign(FF)F", MathFunction.Kind.COPYSIGN);
+        MATH_FUNCTIONS.put("copySign(DD)D", MathFunction.Kind.COPYSIGN);
+
+        BIT_FUNCTIONS.put("numberOfLeadingZeros(I)I", MathFunction.Kind.CLZ);
+        BIT_FUNCTIONS.put("numberOfTrailingZeros(I)I", MathFunction.Kind.CTZ);
+        BIT_FUNCTIONS.put("bitCount(I)I", MathFunction.Kind.POPCNT);
+        BIT_FUNCTIONS.put("rotateLeft(II)I", MathFunction.Kind.ROTL);
+        BIT_FUNCTIONS.put("rotateRight(II)I", MathFunction.Kind.ROTR);
+        BIT_FUNCTIONS.put("numberOfLeadingZeros(J)I", MathFunction.Kind.CLZ);
+        BIT_FUNCTIONS.put("numberOfTrailingZeros(J)I", MathFunction.Kind.CTZ);
+        BIT_FUNCTIONS.put("bitCount(J)I", MathFunction.Kind.POPCNT);
+        BIT_FUNCTIONS.put("rotateLeft(JI)J", MathFunction.Kind.ROTL);
+        BIT_FUNCTIONS.put("rotateRight(JI)J", MathFunction.Kind.ROTR);
+    }
+
+    @Override
+    public void register(final IntrinsicRegistry registry) {
+        for (final String key : MATH_FUNCTIONS.keySet()) {
+            final int descStart = key.indexOf('(');
+            registry.register(Type.getInternalName(Math.class), key.substring(0, descStart), key.substring(descStart), this);
+            registry.register(Type.getInternalName(StrictMath.class), key.substring(0, descStart), key.substring(descStart), this);
+        }
+        for (final String key : BIT_FUNCTIONS.keySet()) {
+            final int descStart = key.indexOf('(');
+            final Class<?> owner = key.charAt(descStart + 1) == 'J' ? Long.class : Integer.class;
+            registry.register(Type.getInternalName(owner), key.substring(0, descStart), key.substring(descStart), this);
+        }
+    }
+
+    @Override
+    public Value intrinsifyMethodInvocationWithReturnValue(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
+        // Integer and Long variants differ in their descriptor, and no Math method shares a bit function name
+        final String method = node.name + node.desc;
+        final MathFunction.Kind kind = MATH_FUNCTIONS.containsKey(method) ? MATH_FUNCTIONS.get(method) : BIT_FUNCTIONS.get(method);
+        final MathFunction function = graph.newMathFunction(Type.getReturnType(node.desc), kind);
+        for (int i = 1; i < incomingData.length; i++) {
+            function.addIncomingData(incomingData[i]);
+        }
+        return function;
+    }
+}
@@ -22,14 +22,19 @@ import de.mirkosertic.bytecoder.core.backend.CodeGenerationFailure;
 import de.mirkosertic.bytecoder.core.backend.CompileOptions;
 import de.mirkosertic.bytecoder.core.backend.CompileResult;
 import de.mirkosertic.bytecoder.core.backend.MethodToIDMapper;
+import de.mirkosertic.bytecoder.core.backend.InstanceOfTypes;
+import de.mirkosertic.bytecoder.core.backend.OptimizedMethods;
 import de.mirkosertic.bytecoder.core.backend.OpaqueReferenceTypeHelpers;
 import de.mirkosertic.bytecoder.core.backend.GeneratedMethod;
 import de.mirkosertic.bytecoder.core.backend.GeneratedMethodsRegistry;
+import de.mirkosertic.bytecoder.core.backend.SelectorColoring;
 import de.mirkosertic.bytecoder.core.backend.VTableResolver;
 import de.mirkosertic.bytecoder.core.backend.sequencer.DominatorTree;
 import de.mirkosertic.bytecoder.core.backend.sequencer.Sequencer;
+import de.mirkosertic.bytecoder.core.backend.wasm.ast.ArrayType;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.ConstExpressions;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.ExportableFunction;
+import de.mirkosertic.bytecoder.core.backend.wasm.ast.Expressions;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.Exporter;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.Function;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.FunctionType;
@@ -40,6 +45,7 @@ import de.mirkosertic.bytecoder.core.backend.wasm.ast.Iff;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.ImportReference;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.Local;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.Loop;
+import de.mirkosertic.bytecoder.core.backend.wasm.ast.Memory;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.Module;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.Param;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.PrimitiveType;
@@ -53,12 +59,10 @@ import de.mirkosertic.bytecoder.core.ir.Graph;
 import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
 import de.mirkosertic.bytecoder.core.ir.ResolvedField;
 import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
-import de.mirkosertic.bytecoder.core.optimizer.Optimizer;
 import de.mirkosertic.bytecoder.core.parser.CompileUnit;
 import de.mirkosertic.bytecoder.core.parser.ConstantPool;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.text.StringEscapeUtils;
 import org.objectweb.asm.Type;
 
 import java.io.ByteArrayOutputStream;
@@ -74,14 +78,65 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 public class WasmBackend {
 
-    private WasmValue initCodeForPrimitiveRuntimeClass(final StructType type, final int typeId) {
+    static final int PAGE_SIZE = 65536;
+
+    private interface MemoryStoreOperation {
+        void store(Expressions flow, WasmValue address, WasmValue value);
+    }
+
+    private void generateArrayTransfer(final Module module, final String elements, final String arrayTypeName, final PrimitiveType elementType, final int shift,
+                                       final UnaryOperator<WasmValue> load, final MemoryStoreOperation store) {
+        final StructType objectType = module.getTypes().structTypeByName(WasmHelpers.generateClassName(Type.getType(Object.class)));
+        final StructType arrayStructType = module.getTypes().structTypeByName(arrayTypeName);
+        final ReferencableType arrayType = module.getTypes().arrayType(elementType);
+        final String suffix = Character.toUpperCase(elements.charAt(0)) + elements.substring(1);
+
+        for (final boolean toMemory : new boolean[] {true, false}) {
+            final String name = toMemory ? elements + "ToMemory" : "memoryTo" + suffix;
+
+            final List<Param> params = new ArrayList<>();
+            params.add(ConstExpressions.param("arr", ConstExpressions.ref.type(objectType, true)));
+            params.add(ConstExpressions.param("offset", PrimitiveType.i32));
+            params.add(ConstExpressions.param("length", PrimitiveType.i32));
+            final ExportableFunction transfer = module.getFunctions().newFunction(name, params);
+            final Local offset = transfer.localByLabel("offset");
+            final Local length = transfer.localByLabel("length");
+            final Local data = transfer.newLocal("data", ConstExpressions.ref.type(arrayType, true));
+            final Local i = transfer.newLocal("i", PrimitiveType.i32);
+
+            transfer.flow.setLocal(data, ConstExpressions.struct.get(arrayStructType,
+                    ConstExpressions.ref.cast(arrayStructType, ConstExpressions.getLocal(transfer.localByLabel("arr"))), "data"));
+
+            // The staging buffer always starts at address zero, the host copies larger arrays in chunks
+            final Loop loop = transfer.flow.loop("copy");
+            final Iff next = loop.flow.iff("next", ConstExpressions.i32.lt_s(ConstExpressions.getLocal(i), ConstExpressions.getLocal(length)));
+            final WasmValue address = ConstExpressions.i32.shl(ConstExpressions.getLocal(i), ConstExpressions.i32.c(shift));
+            final WasmValue index = ConstExpressions.i32.add(ConstExpressions.getLocal(offset), ConstExpressions.getLocal(i));
+            if (toMemory) {
+                // Packed elements are truncated by the narrow store anyway, so the cheaper zero extension is sufficient
+                final WasmValue element = elementType == PrimitiveType.i8 || elementType == PrimitiveType.i16
+                        ? ConstExpressions.array.get_u(arrayType, ConstExpressions.getLocal(data), index)
+                        : ConstExpressions.array.get(arrayType, ConstExpressions.getLocal(data), index);
+                store.store(next.flow, address, element);
+            } else {
+                next.flow.array.set(arrayType, ConstExpressions.getLocal(data), index, load.apply(address));
+            }
+            next.flow.setLocal(i, ConstExpressions.i32.add(ConstExpressions.getLocal(i), ConstExpressions.i32.c(1)));
+            next.flow.branch(loop);
+
+            transfer.exportAs(name);
+        }
+    }
+
+    private WasmValue initCodeForPrimitiveRuntimeClass(final Module module, final StructType type, final int typeId) {
         final List<WasmValue> initArgs = new ArrayList<>();
         initArgs.add(ConstExpressions.i32.c(typeId));
-        initArgs.add(ConstExpressions.ref.ref(ConstExpressions.weakFunctionReference(WasmHelpers.generateClassName(Type.getType(Class.class)) + "_vt")));
+        initArgs.add(WasmHelpers.dispatchTableOf(module, Type.getType(Class.class)));
         initArgs.add(ConstExpressions.ref.externNullRef());
         initArgs.add(ConstExpressions.ref.nullRef()); // TODO: Impltypes definieren
         return ConstExpressions.struct.newInstance(type, initArgs);
@@ -94,10 +149,8 @@ public class WasmBackend {
         final Module module = new Module("bytecoder", compileOptions.getFilenamePrefix() + ".wasm.map");
 
         final TypesSection types = module.getTypes();
-        // Type for _vt function resolvers
-        final List<WasmType> vtArgs = new ArrayList<>();
-        vtArgs.add(PrimitiveType.i32);
-        final FunctionType vtType = types.functionType(vtArgs, PrimitiveType.i32);
+        // Type for the per class dispatch tables, containing function table indices
+        final ReferencableType dispatchTableType = types.arrayType(PrimitiveType.i32);
 
         // Type for runtime types
         final StructType rtType = types.structType("runtimetype", Collections.emptyList());
@@ -224,9 +277,50 @@ public class WasmBackend {
                 .flow.ret(ConstExpressions.i32.c(-1));
         compare_f64.flow.ret(ConstExpressions.i32.c(0));
 
+        // Integer min and max are plain selects, the arguments are locals so they are evaluated once
+        for (final PrimitiveType type : new PrimitiveType[] {PrimitiveType.i32, PrimitiveType.i64}) {
+            for (final boolean min : new boolean[] {true, false}) {
+                final List<Param> minMaxParams = new ArrayList<>();
+                minMaxParams.add(ConstExpressions.param("a", type));
+                minMaxParams.add(ConstExpressions.param("b", type));
+                final ExportableFunction minMax = module.getFunctions().newFunction((min ? "min_" : "max_") + type.name(), minMaxParams, type);
+                final WasmValue a = ConstExpressions.getLocal(minMax.localByLabel("a"));
+                final WasmValue b = ConstExpressions.getLocal(minMax.localByLabel("b"));
+                final WasmValue lessThan = type == PrimitiveType.i32
+                        ? ConstExpressions.i32.lt_s(a, b)
+                        : ConstExpressions.i64.lt_s(a, b);
+                minMax.flow.ret(min ? ConstExpressions.select(a, b, lessThan) : ConstExpressions.select(b, a, lessThan));
+            }
+        }
+
+        // Integer abs selects between the value and its negation, abs(MIN_VALUE) wraps to MIN_VALUE like in Java
+        for (final PrimitiveType type : new PrimitiveType[] {PrimitiveType.i32, PrimitiveType.i64}) {
+            final List<Param> absParams = new ArrayList<>();
+            absParams.add(ConstExpressions.param("a", type));
+            final ExportableFunction abs = module.getFunctions().newFunction("abs_" + type.name(), absParams, type);
+            final WasmValue a = ConstExpressions.getLocal(abs.localByLabel("a"));
+            if (type == PrimitiveType.i32) {
+                abs.flow.ret(ConstExpressions.select(a, ConstExpressions.i32.sub(ConstExpressions.i32.c(0), a), ConstExpressions.i32.ge_s(a, ConstExpressions.i32.c(0))));
+            } else {
+                abs.flow.ret(ConstExpressions.select(a, ConstExpressions.i64.sub(ConstExpressions.i64.c(0L), a), ConstExpressions.i64.ge_s(a, ConstExpressions.i64.c(0L))));
+            }
+        }
+
         // Store to uniquely assign an identifier to a method
         final MethodToIDMapper methodToIDMapper = new MethodToIDMapper();
         final VTableResolver vTableResolver = new VTableResolver(methodToIDMapper);
+        final SelectorColoring selectorColoring = new SelectorColoring(resolvedClasses, vTableResolver, methodToIDMapper);
+
+        // Dispatch tables are created first, as they are referenced by the runtime class globals
+        for (final ResolvedClass cl : resolvedClasses) {
+            WasmHelpers.createDispatchTable(module, cl, selectorColoring, vTableResolver.resolveFor(cl));
+        }
+
+        final Map<ResolvedClass, Integer> typeIds = new HashMap<>();
+        for (final ResolvedClass cl : resolvedClasses) {
+            typeIds.put(cl, typeIds.size());
+        }
+        final InstanceOfTypes instanceOfTypes = new InstanceOfTypes(compileUnit, resolvedClasses);
 
         // Here goes all the init logic
         final ExportableFunction bootstrap = functionsSection.newFunction("bootstrap");
@@ -240,7 +334,7 @@ public class WasmBackend {
             final List<StructType.Field> instanceFields = new ArrayList<>();
             if (cl.superClass == null) {
                 instanceFields.add(new StructType.Field("typeId", PrimitiveType.i32));
-                instanceFields.add(new StructType.Field("vt_resolver", ConstExpressions.ref.type(vtType, true), false));
+                instanceFields.add(new StructType.Field("vtable", ConstExpressions.ref.type(dispatchTableType, true), false));
                 instanceFields.add(new StructType.Field("nativeObject", ConstExpressions.ref.host()));
                 instanceFields.add(new StructType.Field("implTypes", ConstExpressions.ref.type(implTypesArray, true), false));
             }
@@ -332,23 +426,21 @@ public class WasmBackend {
                 rtTypeMappings.put(cl, types.structSubtype(className + "_rtt", runtimeClassType, classFields));
             }
 
-            WasmHelpers.createVTableResolver(module, cl, vTableResolver.resolveFor(cl));
-
-            final List<WasmValue> typeIds = cl.allTypesOf().stream().map(t -> ConstExpressions.i32.c(resolvedClasses.indexOf(t))).collect(Collectors.toList());
+            final List<WasmValue> implTypeIds = WasmHelpers.typeBitset(instanceOfTypes.bitsetFor(cl));
 
             final ReferencableType rttType = rtTypeMappings.get(cl);
             final List<WasmValue> initArgs = new ArrayList<>();
             initArgs.add(ConstExpressions.i32.c(WasmHelpers.TYPE_ID_RUNTIMECLASS));
-            initArgs.add(ConstExpressions.ref.ref(ConstExpressions.weakFunctionReference(WasmHelpers.generateClassName(Type.getType(Class.class)) + "_vt")));
+            initArgs.add(WasmHelpers.dispatchTableOf(module, Type.getType(Class.class)));
             initArgs.add(ConstExpressions.ref.externNullRef());
             initArgs.add(ConstExpressions.ref.nullRef());
-            initArgs.add(ConstExpressions.i32.c(resolvedClasses.indexOf(cl))); // type id
+            initArgs.add(ConstExpressions.i32.c(typeIds.get(cl))); // type id
             initArgs.add(ConstExpressions.array.newInstance(
                     implTypesArray,
-                    typeIds
+                    implTypeIds
             )); // class impl types
             initArgs.add(ConstExpressions.i32.c(0)); // initstatus
-            initArgs.add(ConstExpressions.i32.c(resolvedClasses.indexOf(cl))); // Factory for
+            initArgs.add(ConstExpressions.i32.c(typeIds.get(cl))); // Factory for
             initArgs.add(ConstExpressions.ref.nullRef()); // $VALUES
 
             initArgs.addAll(classFieldDefaults);
@@ -427,50 +519,51 @@ public class WasmBackend {
         final StructType javaLangObjectType = objectTypeMappings.get(objectClass);
         globalsSection.newConstantGlobal("primitive_boolean",
                 ConstExpressions.ref.type(javaLangObjectType, false),
-                initCodeForPrimitiveRuntimeClass(javaLangObjectType, WasmHelpers.TYPE_ID_BOOLEAN)
+                initCodeForPrimitiveRuntimeClass(module, javaLangObjectType, WasmHelpers.TYPE_ID_BOOLEAN)
         );
         globalsSection.newConstantGlobal("primitive_byte",
                 ConstExpressions.ref.type(javaLangObjectType, false),
-                initCodeForPrimitiveRuntimeClass(javaLangObjectType, WasmHelpers.TYPE_ID_BYTE)
+                initCodeForPrimitiveRuntimeClass(module, javaLangObjectType, WasmHelpers.TYPE_ID_BYTE)
         );
         globalsSection.newConstantGlobal("primitive_char",
                 ConstExpressions.ref.type(javaLangObjectType, false),
-                initCodeForPrimitiveRuntimeClass(javaLangObjectType, WasmHelpers.TYPE_ID_CHAR)
+                initCodeForPrimitiveRuntimeClass(module, javaLangObjectType, WasmHelpers.TYPE_ID_CHAR)
         );
         globalsSection.newConstantGlobal("primitive_short",
                 ConstExpressions.ref.type(javaLangObjectType, false),
-                initCodeForPrimitiveRuntimeClass(javaLangObjectType, WasmHelpers.TYPE_ID_SHORT)
+                initCodeForPrimitiveRuntimeClass(module, javaLangObjectType, WasmHelpers.TYPE_ID_SHORT)
         );
         globalsSection.newConstantGlobal("primitive_int",
                 ConstExpressions.ref.type(javaLangObjectType, false),
-                initCodeForPrimitiveRuntimeClass(javaLangObjectType, WasmHelpers.TYPE_ID_INT)
+                initCodeForPrimitiveRuntimeClass(module, javaLangObjectType, WasmHelpers.TYPE_ID_INT)
         );
         globalsSection.newConstantGlobal("primitive_long",
                 ConstExpressions.ref.type(javaLangObjectType, false),
-                initCodeForPrimitiveRuntimeClass(javaLangObjectType, WasmHelpers.TYPE_ID_LONG)
+                initCodeForPrimitiveRuntimeClass(module, javaLangObjectType, WasmHelpers.TYPE_ID_LONG)
         );
         globalsSection.newConstantGlobal("primitive_float",
                 ConstExpressions.ref.type(javaLangObjectType, false),
-                initCodeForPrimitiveRuntimeClass(javaLangObjectType, WasmHelpers.TYPE_ID_FLOAT)
+                initCodeForPrimitiveRuntimeClass(module, javaLangObjectType, WasmHelpers.TYPE_ID_FLOAT)
         );
         globalsSection.newConstantGlobal("primitive_double",
                 ConstExpressions.ref.type(javaLangObjectType, false),
-                initCodeForPrimitiveRuntimeClass(javaLangObjectType, WasmHelpers.TYPE_ID_DOUBLE)
+                initCodeForPrimitiveRuntimeClass(module, javaLangObjectType, WasmHelpers.TYPE_ID_DOUBLE)
         );
         globalsSection.newConstantGlobal("primitive_void",
                 ConstExpressions.ref.type(javaLangObjectType, false),
-                initCodeForPrimitiveRuntimeClass(javaLangObjectType, WasmHelpers.TYPE_ID_VOID)
+                initCodeForPrimitiveRuntimeClass(module, javaLangObjectType, WasmHelpers.TYPE_ID_VOID)
         );
 
         final ConstantPool cs = compileUnit.getConstantPool();
-        final List<String> pooledStrings = cs.getPooledStrings();
-        for (int i = 0; i < pooledStrings.size(); i++) {
-            final StructType stringType = objectTypeMappings.get(compileUnit.findClass(Type.getType(String.class)));
-            globalsSection.newMutableGlobal("stringpool_" + i,
-                    ConstExpressions.ref.type(stringType, true),
-                    ConstExpressions.ref.nullRef()
-            );
-        }
+        final WasmStringPool stringPool = new WasmStringPool(cs.getPooledStrings(), PAGE_SIZE);
+
+        // String constants are created on first use from their characters in linear memory
+        final ReferencableType stringPoolType = types.arrayType(
+                ConstExpressions.ref.type(objectTypeMappings.get(compileUnit.findClass(Type.getType(String.class))), true));
+        globalsSection.newMutableGlobal("stringpool",
+                ConstExpressions.ref.type(stringPoolType, true),
+                ConstExpressions.ref.nullRef()
+        );
 
         // Store for last thrown exception
         globalsSection.newMutableGlobal("lastcaughtexception",
@@ -486,6 +579,8 @@ public class WasmBackend {
             types.structSubtype(name, arrayBaseType, instanceFields);
         };
 
+        arrayTypeFactory.accept("i8_array", PrimitiveType.i8);
+        arrayTypeFactory.accept("i16_array", PrimitiveType.i16);
         arrayTypeFactory.accept("i32_array", PrimitiveType.i32);
         arrayTypeFactory.accept("i64_array", PrimitiveType.i64);
         arrayTypeFactory.accept("f32_array", PrimitiveType.f32);
@@ -501,8 +596,8 @@ public class WasmBackend {
             instanceOfParams.add(ConstExpressions.param("runtimeTypeId", PrimitiveType.i32));
             final ExportableFunction instanceOfCheck = module.getFunctions().newFunction("instanceOf", instanceOfParams, PrimitiveType.i32);
             final Local obj = instanceOfCheck.localByLabel("obj");
-            final Local idx = instanceOfCheck.newLocal("idx", PrimitiveType.i32);
-            final Local len = instanceOfCheck.newLocal("len", PrimitiveType.i32);
+            final Local typeId = instanceOfCheck.localByLabel("runtimeTypeId");
+            final Local word = instanceOfCheck.newLocal("word", PrimitiveType.i32);
 
             final ReferencableType implTypesArray = types.arrayType(PrimitiveType.i32);
             final WasmType arrayType = ConstExpressions.ref.type(implTypesArray, true);
@@ -520,34 +615,51 @@ public class WasmBackend {
                             "implTypes"
                     )
             );
+
+            // implTypes is a bitset over the tested types, see InstanceOfTypes, so the check is a single bit test
             nullCheck.falseFlow.setLocal(
-                    len,
-                    ConstExpressions.array.len(implTypesArray, ConstExpressions.getLocal(arr))
-            );
-            nullCheck.falseFlow.setLocal(
-                    idx,
-                    ConstExpressions.i32.c(0)
+                    word,
+                    ConstExpressions.i32.shr_u(ConstExpressions.getLocal(typeId), ConstExpressions.i32.c(5))
             );
-            final Loop l = nullCheck.falseFlow.loop("iter");
-
-            final Iff idxcheck = l.flow.iff("idxcheck", ConstExpressions.i32.eq(
-                    ConstExpressions.getLocal(idx),
-                    ConstExpressions.getLocal(len)
-            ));
-            idxcheck.flow.ret(ConstExpressions.i32.c(0));
-
-            final Iff ischeck = idxcheck.falseFlow.iff("ischeck", ConstExpressions.i32.eq(
-                    ConstExpressions.getLocal(instanceOfCheck.localByLabel("runtimeTypeId")),
-                    ConstExpressions.array.get(implTypesArray, ConstExpressions.getLocal(arr), ConstExpressions.getLocal(idx))
+            final Iff rangeCheck = nullCheck.falseFlow.iff("rangecheck", ConstExpressions.i32.ge_s(
+                    ConstExpressions.getLocal(word),
+                    ConstExpressions.array.len(implTypesArray, ConstExpressions.getLocal(arr))
             ));
-            ischeck.flow.ret(ConstExpressions.i32.c(1));
+            rangeCheck.flow.ret(ConstExpressions.i32.c(0));
+
+            rangeCheck.falseFlow.ret(
+                    ConstExpressions.i32.and(
+                            ConstExpressions.i32.shr_u(
+                                    ConstExpressions.array.get(implTypesArray, ConstExpressions.getLocal(arr), ConstExpressions.getLocal(word)),
+                                    ConstExpressions.i32.and(ConstExpressions.getLocal(typeId), ConstExpressions.i32.c(31))
+                            ),
+                            ConstExpressions.i32.c(1)
+                    )
+            );
 
-            ischeck.falseFlow.setLocal(idx, ConstExpressions.i32.add(ConstExpressions.getLocal(idx), ConstExpressions.i32.c(1)));
-            ischeck.falseFlow.branch(l);
+            instanceOfCheck.flow.unreachable();
+        }
 
-            nullCheck.falseFlow.ret(ConstExpressions.i32.c(0));
+        {
+            // The first page is the staging buffer for bulk transfers of primitive arrays between Wasm and the host,
+            // the string constant pool follows it
+            final int pages = (stringPool.getBaseOffset() + stringPool.getData().length + PAGE_SIZE - 1) / PAGE_SIZE;
+            final Memory memory = module.getMems().newMemory(pages, pages);
+            memory.exportAs("memory");
+            if (stringPool.size() > 0) {
+                module.getData().newSegment(stringPool.getBaseOffset(), stringPool.getData());
+            }
 
-            instanceOfCheck.flow.unreachable();
+            generateArrayTransfer(module, "bytes", "i8_array", PrimitiveType.i8, 0,
+                    ConstExpressions.i32::load8_s, (flow, address, value) -> flow.memory.i32_store8(address, value));
+            generateArrayTransfer(module, "chars", "i16_array", PrimitiveType.i16, 1,
+                    ConstExpressions.i32::load16_u, (flow, address, value) -> flow.memory.i32_store16(address, value));
+            generateArrayTransfer(module, "shorts", "i16_array", PrimitiveType.i16, 1,
+                    ConstExpressions.i32::load16_s, (flow, address, value) -> flow.memory.i32_store16(address, value));
+            generateArrayTransfer(module, "ints", "i32_array", PrimitiveType.i32, 2,
+                    ConstExpressions.i32::load, (flow, address, value) -> flow.memory.i32_store(address, value));
+            generateArrayTransfer(module, "floats", "f32_array", PrimitiveType.f32, 2,
+                    ConstExpressions.f32::load, (flow, address, value) -> flow.memory.f32_store(address, value));
         }
 
         {
@@ -558,33 +670,44 @@ public class WasmBackend {
             params.add(ConstExpressions.param("obj", ConstExpressions.ref.type(objectType, true)));
             final ExportableFunction runtimetypeof = module.getFunctions().newFunction("runtimetypeof", params, ConstExpressions.ref.type(objectType, false));
             final Local obj = runtimetypeof.localByLabel("obj");
-            final Local id = runtimetypeof.newLocal("id", PrimitiveType.i32);
-
-            runtimetypeof.flow.setLocal(
-                    id,
-                    ConstExpressions.struct.get(
-                            objectType,
-                            ConstExpressions.getLocal(obj),
-                            "typeId"
-                    )
-            );
 
+            // Runtime classes are indexed by type id, so the lookup is a single array access
+            final List<WasmValue> runtimeClasses = new ArrayList<>();
             for (final ResolvedClass rl : resolvedClasses) {
-                final int typeId = resolvedClasses.indexOf(rl);
-                final Iff i = runtimetypeof.flow.iff("check_" + typeId, ConstExpressions.i32.eq(
-                        ConstExpressions.i32.c(typeId), ConstExpressions.getLocal(id)
-                ));
-
-                final Global rttTypeGlobal = module.getGlobals().globalsIndex().globalByLabel(WasmHelpers.generateClassName(rl.type)  + "_cls");
-                i.flow.ret(ConstExpressions.getGlobal(rttTypeGlobal));
+                runtimeClasses.add(ConstExpressions.getGlobal(module.getGlobals().globalsIndex().globalByLabel(WasmHelpers.generateClassName(rl.type)  + "_cls")));
             }
+            final ArrayType runtimeClassesType = module.getTypes().arrayType(ConstExpressions.ref.type(runtimeClassType, false));
+            final Global runtimeClassesGlobal = module.getGlobals().newConstantGlobal("runtimetypes",
+                    ConstExpressions.ref.type(runtimeClassesType, false),
+                    ConstExpressions.array.newInstance(runtimeClassesType, runtimeClasses)
+            );
 
-            runtimetypeof.flow.unreachable();
+            runtimetypeof.flow.ret(
+                    ConstExpressions.array.get(
+                            runtimeClassesType,
+                            ConstExpressions.getGlobal(runtimeClassesGlobal),
+                            ConstExpressions.struct.get(
+                                    objectType,
+                                    ConstExpressions.getLocal(obj),
+                                    "typeId"
+                            )
+                    )
+            );
         }
 
         final OpaqueTypesAdapterMethods adapterMethods = new OpaqueTypesAdapterMethods();
         final GeneratedMethodsRegistry generatedMethodsRegistry = new GeneratedMethodsRegistry();
 
+        final List<ResolvedMethod> methodsToOptimize = new ArrayList<>();
+        for (final ResolvedClass cl : resolvedClasses) {
+            for (final ResolvedMethod method : cl.resolvedMethods) {
+                if (method.owner == cl && method.methodBody != null && !Modifier.isNative(method.methodNode.access) && !Modifier.isAbstract(method.methodNode.access)) {
+                    methodsToOptimize.add(method);
+                }
+            }
+        }
+        final OptimizedMethods optimizedMethods = new OptimizedMethods(compileUnit, compileOptions, methodsToOptimize);
+
         for (final ResolvedClass cl : resolvedClasses) {
             // Class objects for
 
@@ -764,6 +887,8 @@ public class WasmBackend {
                                         final ResolvedClass argClass = compileUnit.findClass(argument);
                                         if (argClass.isCallback()) {
                                             callArgs.add(ConstExpressions.getLocal(implFunction.localByLabel("arg" + i)));
+                                        } else if (String.class.getName().equals(argument.getClassName())) {
+                                            callArgs.add(WasmHelpers.stringToJS(ConstExpressions.getLocal(implFunction.localByLabel("arg" + i))));
                                         } else {
                                             callArgs.add(
                                                 ConstExpressions.struct.get(
@@ -823,19 +948,14 @@ public class WasmBackend {
                         }
 
                         final Graph g = method.methodBody;
-                        final Optimizer o = compileOptions.getOptimizer();
-                        while (o.optimize(compileUnit, method)) {
-                            //
-                        }
-
-                        final DominatorTree dt = new DominatorTree(g);
+                        final DominatorTree dt = optimizedMethods.dominatorTreeFor(method);
 
                         if (cl.classNode.sourceFile != null) {
                             implFunction.flow.comment("source file is " + cl.classNode.sourceFile);
                         }
 
                         try {
-                            new Sequencer(g, dt, new WasmStructuredControlflowCodeGenerator(compileUnit, module, rtTypeMappings, objectTypeMappings, implFunction, toWASMType, toFunctionType, methodToIDMapper, g, resolvedClasses, vTableResolver, generatedMethodsRegistry));
+                            new Sequencer(g, dt, new WasmStructuredControlflowCodeGenerator(compileUnit, module, stringPool, rtTypeMappings, objectTypeMappings, implFunction, toWASMType, toFunctionType, methodToIDMapper, g, instanceOfTypes, vTableResolver, selectorColoring, generatedMethodsRegistry));
                         } catch (final CodeGenerationFailure e) {
                             throw e;
                         } catch (final RuntimeException e) {
@@ -878,7 +998,7 @@ public class WasmBackend {
                             "typeId"
                     )
             );
-            initArgs.add(ConstExpressions.ref.ref(module.functionIndex().firstByLabel(WasmHelpers.generateClassName(stringClass.type) + "_vt")));
+            initArgs.add(WasmHelpers.dispatchTableOf(module, stringClass.type));
             initArgs.add(ConstExpressions.getLocal(newStringFunction.localByLabel("str")));
 
             final Global stringGlobal = module.getGlobals().globalsIndex().globalByLabel(WasmHelpers.generateClassName(stringClass.type)  + "_cls");
@@ -891,6 +1011,8 @@ public class WasmBackend {
               )
             );
 
+            WasmStructuredControlflowCodeGenerator.addDefaultFieldValues(stringType, initArgs);
+
             newStringFunction.flow.ret(
                     ConstExpressions.struct.newInstance(
                             stringType,
@@ -900,33 +1022,92 @@ public class WasmBackend {
             newStringFunction.exportAs("newBytecoderString");
         }
 
-        final List<Param> resolveStringConstantParams = new ArrayList<>();
-        resolveStringConstantParams.add(ConstExpressions.param("constantId", PrimitiveType.i32));
+        {
+            // Strings created in Wasm only carry their characters, the host string is created on first use
+            final StructType objectType = objectTypeMappings.get(objectClass);
+
+            final List<Param> materializeParams = new ArrayList<>();
+            materializeParams.add(ConstExpressions.param("str", ConstExpressions.ref.type(objectType, true)));
+            final Function materializeFunction = module.getImports().importFunction(
+                    new ImportReference("bytecoder", "materializeString"),
+                    "materializeString",
+                    materializeParams,
+                    ConstExpressions.ref.host());
 
-        final Function resolveStringConstantFunction = module.getImports().importFunction(
-                    new ImportReference("bytecoder", "resolveStringConstant"),
-                 "resolveStringConstant",
-                    resolveStringConstantParams,
+            final List<Param> toJSParams = new ArrayList<>();
+            toJSParams.add(ConstExpressions.param("str", ConstExpressions.ref.type(objectType, true)));
+            final ExportableFunction toJSFunction = module.getFunctions().newFunction(WasmHelpers.STRING_TO_JS_FUNCTION,
+                    toJSParams,
                     ConstExpressions.ref.host());
 
-        for (int i = 0; i < pooledStrings.size(); i++) {
-            final Global stringpoolGlobal = module.globalsIndex().globalByLabel("stringpool_" + i);
+            final Iff materialize = toJSFunction.flow.iff("materialize", ConstExpressions.ref.isnull(
+                    ConstExpressions.struct.get(objectType, ConstExpressions.getLocal(toJSFunction.localByLabel("str")), "nativeObject")
+            ));
+            final List<WasmValue> materializeArgs = new ArrayList<>();
+            materializeArgs.add(ConstExpressions.getLocal(toJSFunction.localByLabel("str")));
+            materialize.flow.setStruct(objectType, ConstExpressions.getLocal(toJSFunction.localByLabel("str")), "nativeObject",
+                    ConstExpressions.call(materializeFunction, materializeArgs));
+
+            toJSFunction.flow.ret(
+                    ConstExpressions.struct.get(objectType, ConstExpressions.getLocal(toJSFunction.localByLabel("str")), "nativeObject")
+            );
+        }
+
+        {
+            final ResolvedClass arrayClass = compileUnit.findClass(Type.getType(Array.class));
+            final Global arrayGlobal = module.globalsIndex().globalByLabel(WasmHelpers.generateClassName(arrayClass.type) + "_cls");
+            final StructType charArrayType = module.getTypes().structTypeByName("i16_array");
+            final ReferencableType charDataType = module.getTypes().arrayType(PrimitiveType.i16);
+            final Global stringGlobal = module.globalsIndex().globalByLabel(WasmHelpers.generateClassName(stringClass.type)  + "_cls");
+
+            final List<Param> newStringParams = new ArrayList<>();
+            newStringParams.add(ConstExpressions.param("offset", PrimitiveType.i32));
+            newStringParams.add(ConstExpressions.param("length", PrimitiveType.i32));
+            newStringParams.add(ConstExpressions.param("latin1", PrimitiveType.i32));
+            final ExportableFunction newStringFunction = module.getFunctions().newFunction("newStringConstant",
+                    newStringParams,
+                    ConstExpressions.ref.type(stringType, true));
+            final Local offset = newStringFunction.localByLabel("offset");
+            final Local data = newStringFunction.newLocal("data", ConstExpressions.ref.type(charDataType, true));
+            final Local i = newStringFunction.newLocal("i", PrimitiveType.i32);
+            final Local str = newStringFunction.newLocal("str", ConstExpressions.ref.type(stringType, true));
+
+            newStringFunction.flow.setLocal(data, ConstExpressions.array.newInstanceDefault(charDataType,
+                    ConstExpressions.getLocal(newStringFunction.localByLabel("length"))));
+
+            final Loop loop = newStringFunction.flow.loop("copy");
+            final Iff next = loop.flow.iff("next", ConstExpressions.i32.lt_s(ConstExpressions.getLocal(i),
+                    ConstExpressions.getLocal(newStringFunction.localByLabel("length"))));
+            final Iff latin1 = next.flow.iff("latin1", ConstExpressions.getLocal(newStringFunction.localByLabel("latin1")));
+            latin1.flow.array.set(charDataType, ConstExpressions.getLocal(data), ConstExpressions.getLocal(i),
+                    ConstExpressions.i32.load8_u(ConstExpressions.i32.add(ConstExpressions.getLocal(offset), ConstExpressions.getLocal(i))));
+            latin1.falseFlow.array.set(charDataType, ConstExpressions.getLocal(data), ConstExpressions.getLocal(i),
+                    ConstExpressions.i32.load16_u(ConstExpressions.i32.add(ConstExpressions.getLocal(offset),
+                            ConstExpressions.i32.shl(ConstExpressions.getLocal(i), ConstExpressions.i32.c(1)))));
+            next.flow.setLocal(i, ConstExpressions.i32.add(ConstExpressions.getLocal(i), ConstExpressions.i32.c(1)));
+            next.flow.branch(loop);
+
+            final List<WasmValue> charsArgs = new ArrayList<>();
+            charsArgs.add(ConstExpressions.i32.c(typeIds.get(arrayClass)));
+            charsArgs.add(WasmHelpers.dispatchTableOf(module, arrayClass.type));
+            charsArgs.add(ConstExpressions.ref.externNullRef());
+            charsArgs.add(ConstExpressions.struct.get(
+                    rtTypeMappings.get(arrayClass),
+                    ConstExpressions.getGlobal(arrayGlobal),
+                    "implTypes"
+            ));
+            charsArgs.add(ConstExpressions.getLocal(data));
 
             final List<WasmValue> initArgs = new ArrayList<>();
             initArgs.add(
                     ConstExpressions.struct.get(
                             rtTypeMappings.get(stringClass),
                             ConstExpressions.call(stringInitFunction, new ArrayList<>()),
-                            "factoryFor"
-                        ));
-            initArgs.add(ConstExpressions.ref.ref(module.functionIndex().firstByLabel(WasmHelpers.generateClassName(stringClass.type) + "_vt")));
-
-            final Global stringGlobal = module.getGlobals().globalsIndex().globalByLabel(WasmHelpers.generateClassName(stringClass.type)  + "_cls");
-
-            final List<WasmValue> resolveArgs = new ArrayList<>();
-            resolveArgs.add(ConstExpressions.i32.c(i));
-            initArgs.add(ConstExpressions.call(resolveStringConstantFunction, resolveArgs));
-
+                            "typeId"
+                    )
+            );
+            initArgs.add(WasmHelpers.dispatchTableOf(module, stringClass.type));
+            initArgs.add(ConstExpressions.ref.externNullRef());
             initArgs.add(
                     ConstExpressions.struct.get(
                             rtTypeMappings.get(stringClass),
@@ -935,13 +1116,40 @@ public class WasmBackend {
                     )
             );
 
-            bootstrap.flow.setGlobal(
-                    stringpoolGlobal,
-                    ConstExpressions.struct.newInstance(
-                            stringType,
-                            initArgs
-                    )
-            );
+            WasmStructuredControlflowCodeGenerator.addDefaultFieldValues(stringType, initArgs);
+
+            newStringFunction.flow.setLocal(str, ConstExpressions.struct.newInstance(stringType, initArgs));
+            newStringFunction.flow.setStruct(stringType, ConstExpressions.getLocal(str), WasmHelpers.generateFieldName("value"),
+                    ConstExpressions.struct.newInstance(charArrayType, charsArgs));
+            newStringFunction.flow.ret(ConstExpressions.getLocal(str));
+
+            final Global stringPoolGlobal = module.globalsIndex().globalByLabel("stringpool");
+
+            final List<Param> stringConstantParams = new ArrayList<>();
+            stringConstantParams.add(ConstExpressions.param("index", PrimitiveType.i32));
+            stringConstantParams.add(ConstExpressions.param("offset", PrimitiveType.i32));
+            stringConstantParams.add(ConstExpressions.param("length", PrimitiveType.i32));
+            stringConstantParams.add(ConstExpressions.param("latin1", PrimitiveType.i32));
+            final ExportableFunction stringConstantFunction = module.getFunctions().newFunction("stringConstant",
+                    stringConstantParams,
+                    ConstExpressions.ref.type(stringType, true));
+            final Local index = stringConstantFunction.localByLabel("index");
+            final Local constant = stringConstantFunction.newLocal("constant", ConstExpressions.ref.type(stringType, true));
+
+            stringConstantFunction.flow.setLocal(constant, ConstExpressions.array.get(stringPoolType,
+                    ConstExpressions.getGlobal(stringPoolGlobal), ConstExpressions.getLocal(index)));
+            final Iff create = stringConstantFunction.flow.iff("create", ConstExpressions.ref.isnull(ConstExpressions.getLocal(constant)));
+            final List<WasmValue> newStringArgs = new ArrayList<>();
+            newStringArgs.add(ConstExpressions.getLocal(stringConstantFunction.localByLabel("offset")));
+            newStringArgs.add(ConstExpressions.getLocal(stringConstantFunction.localByLabel("length")));
+            newStringArgs.add(ConstExpressions.getLocal(stringConstantFunction.localByLabel("latin1")));
+            create.flow.setLocal(constant, ConstExpressions.call(newStringFunction, newStringArgs));
+            create.flow.array.set(stringPoolType, ConstExpressions.getGlobal(stringPoolGlobal), ConstExpressions.getLocal(index),
+                    ConstExpressions.getLocal(constant));
+            stringConstantFunction.flow.ret(ConstExpressions.getLocal(constant));
+
+            bootstrap.flow.setGlobal(stringPoolGlobal,
+                    ConstExpressions.array.newInstanceDefault(stringPoolType, ConstExpressions.i32.c(stringPool.size())));
         }
         bootstrap.exportAs("bootstrap");
 
@@ -954,20 +1162,6 @@ public class WasmBackend {
             throw new RuntimeException("Failed to load Wasm runtime js code", e);
         }
 
-        // Generate string constant pool resolver
-        jsContentPrintWriter.println("bytecoder.imports[\"bytecoder\"].resolveStringConstant = function(index) {");
-        jsContentPrintWriter.println("  switch(index) {");
-        for (int i = 0; i < pooledStrings.size(); i++) {
-            jsContentPrintWriter.print("      case ");
-            jsContentPrintWriter.print(i);
-            jsContentPrintWriter.print(": return '");
-            jsContentPrintWriter.print(StringEscapeUtils.escapeEcmaScript(pooledStrings.get(i)));
-            jsContentPrintWriter.println("';");
-        }
-        jsContentPrintWriter.println("  }");
-        jsContentPrintWriter.println("  throw 'Unknown string index ' + index;");
-        jsContentPrintWriter.println("};");
-
         // We need to create adapter methods for callback types
         for (final ResolvedClass cl : resolvedClasses) {
             if (cl.isCallback() && Modifier.isAbstract(cl.classNode.access) && !Callback.class.getName().equals(cl.type.getClassName())) {
@@ -1011,9 +1205,6 @@ public class WasmBackend {
                 // Virtual call
                 final List<WasmValue> indirectCallArgs = new ArrayList<>();
 
-                final List<WasmType> vlResolveArgs = new ArrayList<>();
-                vlResolveArgs.add(PrimitiveType.i32);
-                final FunctionType vtResolveType = module.getTypes().functionType(vlResolveArgs, PrimitiveType.i32);
                 indirectCallArgs.add(ConstExpressions.getLocal(callback.localByLabel("receiver")));
                 if (isObjectArgument) {
                     indirectCallArgs.add(ConstExpressions.getLocal(callback.localByLabel("eventInstance")));
@@ -1021,18 +1212,8 @@ public class WasmBackend {
                     indirectCallArgs.add(ConstExpressions.getLocal(callback.localByLabel("event")));
                 }
 
-                final List<WasmValue> resolverArgs = new ArrayList<>();
-                resolverArgs.add(ConstExpressions.i32.c(methodToIDMapper.resolveIdFor(rm)));
-
-                final StructType objectType = module.getTypes().structTypeByName(WasmHelpers.generateClassName(Type.getType(Object.class)));
-
-                resolverArgs.add(ConstExpressions.struct.get(
-                        objectType,
-                        ConstExpressions.getLocal(callback.localByLabel("receiver")),
-                        "vt_resolver"
-                ));
-
-                final WasmValue resolver = ConstExpressions.ref.callRef(vtResolveType, resolverArgs);
+                final WasmValue resolver = WasmHelpers.resolveDispatchTarget(module, selectorColoring, methodToIDMapper.resolveIdFor(rm),
+                        ConstExpressions.getLocal(callback.localByLabel("receiver")));
                 final FunctionType ft = toFunctionType.apply(rm);
 
                 callback.flow.voidCallIndirect(ft, indirectCallArgs, resolver);
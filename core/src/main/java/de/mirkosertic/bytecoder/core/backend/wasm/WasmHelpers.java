@@ -15,13 +15,15 @@
  */
 package de.mirkosertic.bytecoder.core.backend.wasm;
 
+import de.mirkosertic.bytecoder.core.backend.SelectorColoring;
 import de.mirkosertic.bytecoder.core.backend.VTable;
+import de.mirkosertic.bytecoder.core.backend.wasm.ast.ArrayType;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.ConstExpressions;
-import de.mirkosertic.bytecoder.core.backend.wasm.ast.ExportableFunction;
-import de.mirkosertic.bytecoder.core.backend.wasm.ast.Iff;
+import de.mirkosertic.bytecoder.core.backend.wasm.ast.Global;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.Module;
-import de.mirkosertic.bytecoder.core.backend.wasm.ast.Param;
 import de.mirkosertic.bytecoder.core.backend.wasm.ast.PrimitiveType;
+import de.mirkosertic.bytecoder.core.backend.wasm.ast.StructType;
+import de.mirkosertic.bytecoder.core.backend.wasm.ast.WasmValue;
 import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
 import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
 import org.objectweb.asm.Type;
@@ -45,6 +47,16 @@ public class WasmHelpers {
     public static final int TYPE_ID_DOUBLE = -26;
     public static final int TYPE_ID_VOID = -27;
 
+    public static final String STRING_TO_JS_FUNCTION = "stringToJS";
+
+    public static List<WasmValue> typeBitset(final int[] bitset) {
+        final List<WasmValue> words = new ArrayList<>();
+        for (final int word : bitset) {
+            words.add(ConstExpressions.i32.c(word));
+        }
+        return words;
+    }
+
     public static String generateClassName(final Type type) {
         return type.getClassName().replace('.', '$');
     }
@@ -70,31 +82,25 @@ public class WasmHelpers {
                 .replace('[', '$');
     }
 
-    public static ExportableFunction createVTableResolver(final Module module, final String methodName, final Map<Integer, String> methods) {
-        final List<Param> params = new ArrayList<>();
-        params.add(ConstExpressions.param("methodid", PrimitiveType.i32));
-        final ExportableFunction vtFunction = module.getFunctions().newFunction(methodName, params, PrimitiveType.i32);
-
-        for (final Map.Entry<Integer, String> entry : methods.entrySet()) {
-            final int methodId = entry.getKey();
-
-            final String implMethodName = entry.getValue();
-
-            final Iff iff = vtFunction.flow.iff("check_" + methodId, ConstExpressions.i32.eq(
-                    ConstExpressions.i32.c(methodId),
-                    ConstExpressions.getLocal(vtFunction.localByLabel("methodid"))
-            ));
-            iff.flow.ret(ConstExpressions.weakFunctionTableReference(implMethodName));
+    public static Global createDispatchTable(final Module module, final String globalName, final SelectorColoring selectorColoring, final Map<Integer, String> methods) {
+        final int[] slots = selectorColoring.dispatchTableFor(methods.keySet());
+        final List<WasmValue> entries = new ArrayList<>();
+        for (final int methodId : slots) {
+            if (methodId < 0) {
+                // Out of table bounds, so invoking an unassigned slot traps
+                entries.add(ConstExpressions.i32.c(-1));
+            } else {
+                entries.add(ConstExpressions.weakFunctionTableReference(methods.get(methodId)));
+            }
         }
 
-        vtFunction.flow.unreachable();
-        // Forward declaration by putting it to the table
-        vtFunction.toTable();
-
-        return vtFunction;
+        final ArrayType dispatchTableType = module.getTypes().arrayType(PrimitiveType.i32);
+        return module.getGlobals().newConstantGlobal(globalName,
+                ConstExpressions.ref.type(dispatchTableType, false),
+                ConstExpressions.array.newInstance(dispatchTableType, entries));
     }
 
-    public static ExportableFunction createVTableResolver(final Module module, final ResolvedClass resolvedClass, final VTable vTable) {
+    public static Global createDispatchTable(final Module module, final ResolvedClass resolvedClass, final SelectorColoring selectorColoring, final VTable vTable) {
         final Map<Integer, String> implMethods = new HashMap<>();
         for (final Map.Entry<Integer, ResolvedMethod> entry : vTable.getMethods().entrySet()) {
             final ResolvedMethod rm = entry.getValue();
@@ -107,9 +113,30 @@ public class WasmHelpers {
 
         final String className = generateClassName(resolvedClass.type);
 
-        return createVTableResolver(module,
-                className + "_vt",
+        return createDispatchTable(module,
+                className + "_vtable",
+                selectorColoring,
                 implMethods
         );
     }
+
+    public static WasmValue dispatchTableOf(final Module module, final Type type) {
+        return ConstExpressions.getGlobal(module.getGlobals().globalsIndex().globalByLabel(generateClassName(type) + "_vtable"));
+    }
+
+    public static WasmValue resolveDispatchTarget(final Module module, final SelectorColoring selectorColoring, final int methodId, final WasmValue receiver) {
+        final StructType objectType = module.getTypes().structTypeByName(generateClassName(Type.getType(Object.class)));
+        final ArrayType dispatchTableType = module.getTypes().arrayType(PrimitiveType.i32);
+        return ConstExpressions.array.get(
+                dispatchTableType,
+                ConstExpressions.struct.get(objectType, receiver, "vtable"),
+                ConstExpressions.i32.c(selectorColoring.slotFor(methodId))
+        );
+    }
+
+    public static WasmValue stringToJS(final WasmValue str) {
+        final List<WasmValue> args = new ArrayList<>();
+        args.add(str);
+        return ConstExpressions.call(ConstExpressions.weakFunctionReference(STRING_TO_JS_FUNCTION), args);
+    }
 }
@@ -21,6 +21,7 @@ public class WasmIntrinsics extends CoreIntrinsics {
 
     public WasmIntrinsics() {
         super(new JavaLangFloatIntrinsic(),
-              new JavaLangDoubleIntrinsic());
+              new JavaLangDoubleIntrinsic(),
+              new JavaLangMathIntrinsic());
     }
 }
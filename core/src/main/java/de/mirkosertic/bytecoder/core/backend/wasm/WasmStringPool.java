@@ -0,0 +1,81 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend.wasm;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+/**
+ * Layout of the string constant pool in linear memory. Strings with Latin-1 characters only
+ * take one byte per character, all others are stored as UTF-16LE.
+ */
+public class WasmStringPool {
+
+    private final List<String> strings;
+    private final int baseOffset;
+    private final int[] offsets;
+    private final boolean[] latin1;
+    private final byte[] data;
+
+    public WasmStringPool(final List<String> strings, final int baseOffset) {
+        this.strings = strings;
+        this.baseOffset = baseOffset;
+        this.offsets = new int[strings.size()];
+        this.latin1 = new boolean[strings.size()];
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (int i = 0; i < strings.size(); i++) {
+            final String str = strings.get(i);
+            latin1[i] = str.chars().allMatch(c -> c <= 0xff);
+            if (!latin1[i] && bos.size() % 2 != 0) {
+                bos.write(0);
+            }
+            offsets[i] = bos.size();
+            for (int j = 0; j < str.length(); j++) {
+                final char c = str.charAt(j);
+                bos.write(c);
+                if (!latin1[i]) {
+                    bos.write(c >> 8);
+                }
+            }
+        }
+        this.data = bos.toByteArray();
+    }
+
+    public int size() {
+        return strings.size();
+    }
+
+    public int offsetOf(final int index) {
+        return baseOffset + offsets[index];
+    }
+
+    public int lengthOf(final int index) {
+        return strings.get(index).length();
+    }
+
+    public boolean isLatin1(final int index) {
+        return latin1[index];
+    }
+
+    public int getBaseOffset() {
+        return baseOffset;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+}
@@ -19,7 +19,9 @@ import de.mirkosertic.bytecoder.classlib.Array;
 import de.mirkosertic.bytecoder.classlib.VM;
 import de.mirkosertic.bytecoder.core.backend.GeneratedMethod;
 import de.mirkosertic.bytecoder.core.backend.GeneratedMethodsRegistry;
+import de.mirkosertic.bytecoder.core.backend.InstanceOfTypes;
 import de.mirkosertic.bytecoder.core.backend.MethodToIDMapper;
+import de.mirkosertic.bytecoder.core.backend.SelectorColoring;
 import de.mirkosertic.bytecoder.core.backend.VTable;
 import de.mirkosertic.bytecoder.core.backend.VTableResolver;
 import de.mirkosertic.bytecoder.core.backend.sequencer.Sequencer;
@@ -70,6 +72,7 @@ import de.mirkosertic.bytecoder.core.ir.InstanceOf;
 import de.mirkosertic.bytecoder.core.ir.InvokeDynamicExpression;
 import de.mirkosertic.bytecoder.core.ir.LineNumberDebugInfo;
 import de.mirkosertic.bytecoder.core.ir.LookupSwitch;
+import de.mirkosertic.bytecoder.core.ir.MathFunction;
 import de.mirkosertic.bytecoder.core.ir.MethodArgument;
 import de.mirkosertic.bytecoder.core.ir.MethodInvocation;
 import de.mirkosertic.bytecoder.core.ir.MethodInvocationExpression;
@@ -94,6 +97,7 @@ import de.mirkosertic.bytecoder.core.ir.PrimitiveFloat;
 import de.mirkosertic.bytecoder.core.ir.PrimitiveInt;
 import de.mirkosertic.bytecoder.core.ir.PrimitiveLong;
 import de.mirkosertic.bytecoder.core.ir.PrimitiveShort;
+import de.mirkosertic.bytecoder.core.ir.Projection;
 import de.mirkosertic.bytecoder.core.ir.ReadClassField;
 import de.mirkosertic.bytecoder.core.ir.ReadInstanceField;
 import de.mirkosertic.bytecoder.core.ir.Reference;
@@ -197,11 +201,11 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
     static class NestingLevelSwitch extends NestingLevel<LabeledContainer> {
 
-        final WasmValue valueToCheck;
+        final Map<Integer, Expressions> caseFlows;
 
-        public NestingLevelSwitch(final NestingLevel<?> parent, final Expressions activeFlow, final LabeledContainer activeContainer, final WasmValue valueToCheck) {
+        public NestingLevelSwitch(final NestingLevel<?> parent, final Expressions activeFlow, final LabeledContainer activeContainer, final Map<Integer, Expressions> caseFlows) {
             super(parent, activeFlow, activeContainer);
-            this.valueToCheck = valueToCheck;
+            this.caseFlows = caseFlows;
         }
     }
 
@@ -216,6 +220,8 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
     private final Module module;
 
+    private final WasmStringPool stringPool;
+
     private final Map<ResolvedClass, StructType> objectTypeMappings;
 
     private final Map<ResolvedClass, StructType> rtMappings;
@@ -230,17 +236,24 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
     private final Map<AbstractVar, Local> varLocalMap;
 
+    private final Map<AbstractVar, Local> arrayDataLocalMap;
+
+    private final WasmTypeInference typeInference;
+
     private NestingLevel<?> activeLevel;
 
     private final Graph graph;
 
-    private final List<ResolvedClass> resolvedClasses;
+    private final InstanceOfTypes instanceOfTypes;
 
     private final VTableResolver vTableResolver;
 
+    private final SelectorColoring selectorColoring;
+
     private final GeneratedMethodsRegistry generatedMethodsRegistry;
 
     public WasmStructuredControlflowCodeGenerator(final CompileUnit compileUnit, final Module module,
+                                                  final WasmStringPool stringPool,
                                                   final Map<ResolvedClass, StructType> rtMappings,
                                                   final Map<ResolvedClass, StructType> objectTypeMappings,
                                                   final ExportableFunction exportableFunction,
@@ -248,11 +261,13 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                                                   final Function<ResolvedMethod, FunctionType> functionTypeConverter,
                                                   final MethodToIDMapper methodToIDMapper,
                                                   final Graph graph,
-                                                  final List<ResolvedClass> resolvedClasses,
+                                                  final InstanceOfTypes instanceOfTypes,
                                                   final VTableResolver vTableResolver,
+                                                  final SelectorColoring selectorColoring,
                                                   final GeneratedMethodsRegistry generatedMethodsRegistry) {
         this.compileUnit = compileUnit;
         this.module = module;
+        this.stringPool = stringPool;
         this.exportableFunction = exportableFunction;
         this.rtMappings = rtMappings;
         this.objectTypeMappings = objectTypeMappings;
@@ -260,10 +275,13 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         this.functionTypeConverter = functionTypeConverter;
         this.methodToIDMapper = methodToIDMapper;
         this.varLocalMap = new HashMap<>();
+        this.arrayDataLocalMap = new HashMap<>();
+        this.typeInference = new WasmTypeInference(compileUnit, module, objectTypeMappings, graph);
         this.activeLevel = new NestingLevel<>(exportableFunction.flow, exportableFunction);
         this.graph = graph;
-        this.resolvedClasses = resolvedClasses;
+        this.instanceOfTypes = instanceOfTypes;
         this.vTableResolver = vTableResolver;
+        this.selectorColoring = selectorColoring;
         this.generatedMethodsRegistry = generatedMethodsRegistry;
     }
 
@@ -278,10 +296,17 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
             } else {
                 varName = "var" + i;
             }
-            final WasmType type = typeConverter.apply(v.type);
+            final StructType structType = typeInference.typeOf(v);
+            final WasmType type = structType != null ? ConstExpressions.ref.type(structType, true) : typeConverter.apply(v.type);
             final Local local = exportableFunction.newLocal(varName, type);
 
             varLocalMap.put(v, local);
+
+            if (structType != null && typeInference.isArrayType(structType)) {
+                // The element storage of an array is final, so it can be kept in a local next to the array itself
+                final RefType dataType = (RefType) structType.fieldByName("data").getType();
+                arrayDataLocalMap.put(v, exportableFunction.newLocal(varName + "_data", ConstExpressions.ref.type(dataType.getType(), true)));
+            }
         }
     }
 
@@ -327,28 +352,12 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
         final List<WasmValue> indirectCallArgs = new ArrayList<>();
 
-        final List<WasmType> vtArgs = new ArrayList<>();
-        vtArgs.add(PrimitiveType.i32);
-        final FunctionType vtType = module.getTypes().functionType(vtArgs, PrimitiveType.i32);
-
         for (final Node arg : node.incomingDataFlows) {
             indirectCallArgs.add(toWasmValue((Value) arg));
         }
 
-        final List<WasmValue> resolverArgs = new ArrayList<>();
-        resolverArgs.add(ConstExpressions.i32.c(methodToIDMapper.resolveIdFor(rm)));
-
-        //final StructType classType = rtMappings.get(cl);
-        final StructType objectType = module.getTypes().structTypeByName(WasmHelpers.generateClassName(Type.getType(Object.class)));
-
-        resolverArgs.add(ConstExpressions.struct.get(
-                objectType,
-                //ConstExpressions.ref.cast(objectType, toWasmValue((Value) node.incomingDataFlows[0])),
-                toWasmValue((Value) node.incomingDataFlows[0]),
-                "vt_resolver"
-        ));
-
-        final WasmValue resolver = ConstExpressions.ref.callRef(vtType, resolverArgs);
+        final WasmValue resolver = WasmHelpers.resolveDispatchTarget(module, selectorColoring, methodToIDMapper.resolveIdFor(rm),
+                toWasmValue((Value) node.incomingDataFlows[0]));
         final FunctionType ft = functionTypeConverter.apply(node.method);
 
         activeLevel.activeFlow.voidCallIndirect(ft, indirectCallArgs, resolver);
@@ -373,27 +382,12 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
         final List<WasmValue> indirectCallArgs = new ArrayList<>();
 
-        final List<WasmType> vtArgs = new ArrayList<>();
-        vtArgs.add(PrimitiveType.i32);
-        final FunctionType vtType = module.getTypes().functionType(vtArgs, PrimitiveType.i32);
-
         for (final Node arg : node.incomingDataFlows) {
             indirectCallArgs.add(toWasmValue((Value) arg));
         }
 
-        final List<WasmValue> resolverArgs = new ArrayList<>();
-        resolverArgs.add(ConstExpressions.i32.c(methodToIDMapper.resolveIdFor(rm)));
-
-        final StructType objectType = module.getTypes().structTypeByName(WasmHelpers.generateClassName(Type.getType(Object.class)));
-
-        resolverArgs.add(ConstExpressions.struct.get(
-                objectType,
-                //ConstExpressions.ref.cast(objectType, toWasmValue((Value) node.incomingDataFlows[0])),
-                toWasmValue((Value) node.incomingDataFlows[0]),
-                "vt_resolver"
-        ));
-
-        final WasmValue resolver = ConstExpressions.ref.callRef(vtType, resolverArgs);
+        final WasmValue resolver = WasmHelpers.resolveDispatchTarget(module, selectorColoring, methodToIDMapper.resolveIdFor(rm),
+                toWasmValue((Value) node.incomingDataFlows[0]));
         final FunctionType ft = functionTypeConverter.apply(node.method);
 
         activeLevel.activeFlow.voidCallIndirect(ft, indirectCallArgs, resolver);
@@ -416,8 +410,12 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
     private WasmValue toWasmValue(final ObjectString value) {
         final int index = value.value.index;
-        final Global global = module.getGlobals().globalsIndex().globalByLabel("stringpool_" + index);
-        return ConstExpressions.getGlobal(global);
+        final List<WasmValue> args = new ArrayList<>();
+        args.add(ConstExpressions.i32.c(index));
+        args.add(ConstExpressions.i32.c(stringPool.offsetOf(index)));
+        args.add(ConstExpressions.i32.c(stringPool.lengthOf(index)));
+        args.add(ConstExpressions.i32.c(stringPool.isLatin1(index) ? 1 : 0));
+        return ConstExpressions.call(ConstExpressions.weakFunctionReference("stringConstant"), args);
     }
 
     private WasmValue toWasmValue(final PrimitiveShort value) {
@@ -454,6 +452,21 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         return ConstExpressions.getLocal(local);
     }
 
+    private WasmValue castTo(final StructType type, final Value value) {
+        final StructType knownType = typeInference.exactTypeOf(value);
+        if (value instanceof NullReference || (knownType != null && knownType.isSubtypeOf(type))) {
+            return toWasmValue(value);
+        }
+        return ConstExpressions.ref.cast(type, toWasmValue(value));
+    }
+
+    private WasmValue arrayData(final StructType arrayType, final Value array) {
+        if (array instanceof AbstractVar && typeInference.typeOf((AbstractVar) array) == arrayType) {
+            return ConstExpressions.getLocal(arrayDataLocalMap.get(array));
+        }
+        return ConstExpressions.struct.get(arrayType, castTo(arrayType, array), "data");
+    }
+
     private WasmValue toWasmValue(final NullReference value) {
         return ConstExpressions.ref.nullRef();
     }
@@ -485,7 +498,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 )
         );
 
-        initArgs.add(ConstExpressions.ref.ref(module.functionIndex().firstByLabel(WasmHelpers.generateClassName(cl.type) + "_vt")));
+        initArgs.add(WasmHelpers.dispatchTableOf(module, cl.type));
 
         initArgs.add(externRef);
 
@@ -497,6 +510,13 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 )
         );
 
+        addDefaultFieldValues(type, initArgs);
+
+        return ConstExpressions.struct.newInstance(type, initArgs);
+    }
+
+    public static void addDefaultFieldValues(final StructType type, final List<WasmValue> initArgs) {
+        // The first four fields are typeId, vtable, nativeObject and implTypes, all others get their default
         for (int i = 4; i < type.getFields().size(); i++) {
             final StructType.Field f = type.getFields().get(i);
             if (f.getType() instanceof PrimitiveType) {
@@ -524,8 +544,6 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 throw new IllegalArgumentException("Field type " + f.getType() + " not supported!");
             }
         }
-
-        return ConstExpressions.struct.newInstance(type, initArgs);
     }
 
     private WasmValue toWasmValue(final New value) {
@@ -537,7 +555,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         final ResolvedClass cl = compileUnit.findClass(value.resolvedField.owner.type);
         final StructType type = objectTypeMappings.get(cl);
         return ConstExpressions.struct.get(type,
-                ConstExpressions.ref.cast(type, toWasmValue((Value) value.incomingDataFlows[0])),
+                castTo(type, (Value) value.incomingDataFlows[0]),
                 value.resolvedField.name);
     }
 
@@ -597,19 +615,8 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
             indirectCallArgs.add(toWasmValue((Value) arg));
         }
 
-        final List<WasmValue> resolverArgs = new ArrayList<>();
-        resolverArgs.add(ConstExpressions.i32.c(methodToIDMapper.resolveIdFor(rm)));
-        final StructType objectType = module.getTypes().structTypeByName(WasmHelpers.generateClassName(Type.getType(Object.class)));
-        resolverArgs.add(ConstExpressions.struct.get(
-                objectType,
-                toWasmValue((Value) value.incomingDataFlows[0]),
-                "vt_resolver"
-        ));
-
-        final List<WasmType> vtArgs = new ArrayList<>();
-        vtArgs.add(PrimitiveType.i32);
-        final FunctionType vtType = module.getTypes().functionType(vtArgs, PrimitiveType.i32);
-        final WasmValue resolver = ConstExpressions.ref.callRef(vtType, resolverArgs);
+        final WasmValue resolver = WasmHelpers.resolveDispatchTarget(module, selectorColoring, methodToIDMapper.resolveIdFor(rm),
+                toWasmValue((Value) value.incomingDataFlows[0]));
         final FunctionType ft = functionTypeConverter.apply(rm);
 
         return ConstExpressions.call(ft, indirectCallArgs, resolver);
@@ -621,33 +628,19 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
         final List<WasmValue> indirectCallArgs = new ArrayList<>();
 
-        final List<WasmType> vtArgs = new ArrayList<>();
-        vtArgs.add(PrimitiveType.i32);
-        final FunctionType vtType = module.getTypes().functionType(vtArgs, PrimitiveType.i32);
-
         for (final Node arg : value.incomingDataFlows) {
             indirectCallArgs.add(toWasmValue((Value) arg));
         }
 
-        final List<WasmValue> resolverArgs = new ArrayList<>();
-        resolverArgs.add(ConstExpressions.i32.c(methodToIDMapper.resolveIdFor(rm)));
-
         final StructType objectType = module.getTypes().structTypeByName(WasmHelpers.generateClassName(Type.getType(Object.class)));
 
-        resolverArgs.add(ConstExpressions.struct.get(
-                objectType,
-                ConstExpressions.ref.cast(objectType, toWasmValue((Value) value.incomingDataFlows[0])),
-                "vt_resolver"
-        ));
-
-        final WasmValue resolver = ConstExpressions.ref.callRef(vtType, resolverArgs);
+        final WasmValue resolver = WasmHelpers.resolveDispatchTarget(module, selectorColoring, methodToIDMapper.resolveIdFor(rm),
+                castTo(objectType, (Value) value.incomingDataFlows[0]));
         final FunctionType ft = functionTypeConverter.apply(rm);
 
         return ConstExpressions.call(ft, indirectCallArgs, resolver);
     }
 
-    static int lambdaCounter = 0;
-
     static class LambdaInstance {
 
         final WasmValue instance;
@@ -681,9 +674,8 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         }
         implMethods.put(methodToIDMapper.resolveIdFor(lambdaMethod), implFunction.getLabel());
 
-        final String lambdaName = type.getClassName() + "$lambda$" + lambdaCounter++;
-        final String lambdavtName = lambdaName + "_vt";
-        final ExportableFunction lambdaVt = WasmHelpers.createVTableResolver(module, lambdavtName, implMethods);
+        final String lambdaName = type.getClassName() + "$lambda$" + module.nextLabelIndex();
+        final Global lambdaVTable = WasmHelpers.createDispatchTable(module, lambdaName + "_vtable", selectorColoring, implMethods);
 
         final StructType baseType = module.getTypes().structTypeByName(WasmHelpers.generateClassName(type));
         final StructSubtype lambdaSubType = module.getTypes().structSubtype(lambdaName, baseType, closureFields);
@@ -709,7 +701,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 )
         );
 
-        initArgs.add(ConstExpressions.ref.ref(lambdaVt));
+        initArgs.add(ConstExpressions.getGlobal(lambdaVTable));
 
         initArgs.add(ConstExpressions.ref.externNullRef());
 
@@ -860,12 +852,12 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
             lambdaMethodArgs.add(ConstExpressions.param("arg" + i, typeConverter.apply(argInstanceMethodType.type.getArgumentTypes()[i])));
         }
         if (argImplMethod.kind == Reference.Kind.INVOKECONSTRUCTOR) {
-            lambdaMethod = module.getFunctions().newFunction("lambda" + lambdaCounter++, lambdaMethodArgs, typeConverter.apply(implementationMethod.owner.type));
+            lambdaMethod = module.getFunctions().newFunction("lambda" + module.nextLabelIndex(), lambdaMethodArgs, typeConverter.apply(implementationMethod.owner.type));
         } else {
             if (implementationMethod.methodType.getReturnType() == Type.VOID_TYPE) {
-                lambdaMethod = module.getFunctions().newFunction("lambda" + lambdaCounter++, lambdaMethodArgs);
+                lambdaMethod = module.getFunctions().newFunction("lambda" + module.nextLabelIndex(), lambdaMethodArgs);
             } else {
-                lambdaMethod = module.getFunctions().newFunction("lambda" + lambdaCounter++, lambdaMethodArgs, typeConverter.apply(argInstanceMethodType.type.getReturnType()));
+                lambdaMethod = module.getFunctions().newFunction("lambda" + module.nextLabelIndex(), lambdaMethodArgs, typeConverter.apply(argInstanceMethodType.type.getReturnType()));
             }
         }
         lambdaMethod.toTable();
@@ -950,19 +942,8 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                     );
                 }
 
-                final List<WasmValue> resolverArgs = new ArrayList<>();
-                resolverArgs.add(ConstExpressions.i32.c(methodToIDMapper.resolveIdFor(implementationMethod)));
-                final StructType objectType = module.getTypes().structTypeByName(WasmHelpers.generateClassName(Type.getType(Object.class)));
-                resolverArgs.add(ConstExpressions.struct.get(
-                        objectType,
-                        arguments.get(0),
-                        "vt_resolver"
-                ));
-
-                final List<WasmType> vtArgs = new ArrayList<>();
-                vtArgs.add(PrimitiveType.i32);
-                final FunctionType vtType = module.getTypes().functionType(vtArgs, PrimitiveType.i32);
-                final WasmValue resolver = ConstExpressions.ref.callRef(vtType, resolverArgs);
+                final WasmValue resolver = WasmHelpers.resolveDispatchTarget(module, selectorColoring, methodToIDMapper.resolveIdFor(implementationMethod),
+                        arguments.get(0));
                 final FunctionType ft = functionTypeConverter.apply(implementationMethod);
 
                 if (implementationMethod.methodType.getReturnType() == Type.VOID_TYPE) {
@@ -1006,19 +987,8 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                     argumentTypes.add(l.getType());
                 }
 
-                final List<WasmValue> resolverArgs = new ArrayList<>();
-                resolverArgs.add(ConstExpressions.i32.c(methodToIDMapper.resolveIdFor(implementationMethod)));
-                final StructType objectType = module.getTypes().structTypeByName(WasmHelpers.generateClassName(Type.getType(Object.class)));
-                resolverArgs.add(ConstExpressions.struct.get(
-                        objectType,
-                        arguments.get(0),
-                        "vt_resolver"
-                ));
-
-                final List<WasmType> vtArgs = new ArrayList<>();
-                vtArgs.add(PrimitiveType.i32);
-                final FunctionType vtType = module.getTypes().functionType(vtArgs, PrimitiveType.i32);
-                final WasmValue resolver = ConstExpressions.ref.callRef(vtType, resolverArgs);
+                final WasmValue resolver = WasmHelpers.resolveDispatchTarget(module, selectorColoring, methodToIDMapper.resolveIdFor(implementationMethod),
+                        arguments.get(0));
 
                 if (implementationMethod.methodType.getReturnType() == Type.VOID_TYPE) {
                     final FunctionType ft = module.getTypes().functionType(argumentTypes);
@@ -1150,18 +1120,14 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
                     final String functionName = vmClassName + "$" + methodName;
 
-                    final ResolvedClass objectClass = compileUnit.findClass(Type.getType(Object.class));
-
                     final List<WasmValue> toStringArgs = new ArrayList<>();
                     toStringArgs.add(ConstExpressions.ref.nullRef());
                     toStringArgs.add(toWasmValue(v));
 
-                    arguments.add(ConstExpressions.struct.get(
-                            objectTypeMappings.get(objectClass),
+                    arguments.add(WasmHelpers.stringToJS(
                             ConstExpressions.call(
                                     ConstExpressions.weakFunctionReference(functionName), toStringArgs
-                            ),
-                            "nativeObject"
+                            )
                     ));
                     params.add(ConstExpressions.param("dynarg" + (i - 1), ConstExpressions.ref.host()));
                     break;
@@ -1249,7 +1215,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                         ConstExpressions.getGlobal(stringGlobal),
                         "factoryFor"
                 ));
-        initArgs.add(ConstExpressions.ref.ref(module.functionIndex().firstByLabel(WasmHelpers.generateClassName(stringClass.type) + "_vt")));
+        initArgs.add(WasmHelpers.dispatchTableOf(module, stringClass.type));
 
         initArgs.add(ConstExpressions.call(concatFunction, arguments));
 
@@ -1300,18 +1266,14 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
                     final String functionName = vmClassName + "$" + methodName;
 
-                    final ResolvedClass objectClass = compileUnit.findClass(Type.getType(Object.class));
-
                     final List<WasmValue> toStringArgs = new ArrayList<>();
                     toStringArgs.add(ConstExpressions.ref.nullRef());
                     toStringArgs.add(fieldValue);
 
-                    arguments.add(ConstExpressions.struct.get(
-                            objectTypeMappings.get(objectClass),
+                    arguments.add(WasmHelpers.stringToJS(
                             ConstExpressions.call(
                                     ConstExpressions.weakFunctionReference(functionName), toStringArgs
-                            ),
-                            "nativeObject"
+                            )
                     ));
                     params.add(ConstExpressions.param("dynarg" + (i - 1), ConstExpressions.ref.host()));
                     break;
@@ -1386,7 +1348,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                         ConstExpressions.getGlobal(stringGlobal),
                         "factoryFor"
                 ));
-        initArgs.add(ConstExpressions.ref.ref(module.functionIndex().firstByLabel(WasmHelpers.generateClassName(stringClass.type) + "_vt")));
+        initArgs.add(WasmHelpers.dispatchTableOf(module, stringClass.type));
 
         initArgs.add(ConstExpressions.call(concatFunction, arguments));
 
@@ -1416,7 +1378,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         final ResolvedClass resolvedClass = compileUnit.findClass(sourceType.type);
         final StructType structType = objectTypeMappings.get(resolvedClass);
 
-        final WasmValue source = ConstExpressions.ref.cast(structType, toWasmValue((Value) node.incomingDataFlows[1]));
+        final WasmValue source = castTo(structType, (Value) node.incomingDataFlows[1]);
 
         for (int i = 1; i < node.incomingDataFlows.length; i++) {
             final Value v = (Value) node.incomingDataFlows[i];
@@ -1683,7 +1645,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                     case Type.DOUBLE:
                         return ConstExpressions.f64.convert_si32(toWasmValue(incoming));
                     default:
-                        throw new IllegalStateException("Not implemented type conversion for " + incoming.type + " to " + targetType + " for node #" + graph.nodes().indexOf(incoming));
+                        throw new IllegalStateException("Not implemented type conversion for " + incoming.type + " to " + targetType + " for node #" + graph.indexOf(incoming));
                 }
             case Type.LONG:
                 switch (targetType.getSort()) {
@@ -1700,7 +1662,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                     case Type.DOUBLE:
                         return ConstExpressions.f64.convert_si64(toWasmValue(incoming));
                     default:
-                        throw new IllegalStateException("Not implemented type conversion for " + incoming.type + " to " + targetType + " for node #" + graph.nodes().indexOf(incoming));
+                        throw new IllegalStateException("Not implemented type conversion for " + incoming.type + " to " + targetType + " for node #" + graph.indexOf(incoming));
                 }
             case Type.FLOAT:
                 switch (targetType.getSort()) {
@@ -1717,7 +1679,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                     case Type.DOUBLE:
                         return ConstExpressions.f64.promote_f32(toWasmValue(incoming));
                     default:
-                        throw new IllegalStateException("Not implemented type conversion for " + incoming.type + " to " + targetType + " for node #" + graph.nodes().indexOf(incoming));
+                        throw new IllegalStateException("Not implemented type conversion for " + incoming.type + " to " + targetType + " for node #" + graph.indexOf(incoming));
                 }
             case Type.DOUBLE:
                 switch (targetType.getSort()) {
@@ -1734,10 +1696,10 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                     case Type.DOUBLE:
                         return toWasmValue(incoming);
                     default:
-                        throw new IllegalStateException("Not implemented type conversion for " + incoming.type + " to " + targetType + " for node #" + graph.nodes().indexOf(incoming));
+                        throw new IllegalStateException("Not implemented type conversion for " + incoming.type + " to " + targetType + " for node #" + graph.indexOf(incoming));
                 }
             default:
-                throw new IllegalStateException("Not implemented type conversion for " + incoming.type + " to " + targetType + " for node #" + graph.nodes().indexOf(incoming));
+                throw new IllegalStateException("Not implemented type conversion for " + incoming.type + " to " + targetType + " for node #" + graph.indexOf(incoming));
         }
     }
 
@@ -1755,9 +1717,15 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         final WasmValue emptyArray;
         switch (elementType.getSort()) {
             case Type.BYTE:
+            case Type.BOOLEAN:
+                typeToInstantiate = "i8_array";
+                emptyArray = ConstExpressions.array.newInstanceDefault(module.getTypes().arrayType(PrimitiveType.i8), toWasmValue(length));
+                break;
             case Type.CHAR:
             case Type.SHORT:
-            case Type.BOOLEAN:
+                typeToInstantiate = "i16_array";
+                emptyArray = ConstExpressions.array.newInstanceDefault(module.getTypes().arrayType(PrimitiveType.i16), toWasmValue(length));
+                break;
             case Type.INT:
                 typeToInstantiate = "i32_array";
                 emptyArray = ConstExpressions.array.newInstanceDefault(module.getTypes().arrayType(PrimitiveType.i32), toWasmValue(length));
@@ -1791,8 +1759,12 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         final String arrayClsName = WasmHelpers.generateClassName(arrayCls.type);
         final Global global = module.getGlobals().globalsIndex().globalByLabel(arrayClsName  + "_cls");
 
-        initArguments.add(ConstExpressions.i32.c(resolvedClasses.indexOf(arrayCls)));
-        initArguments.add(ConstExpressions.ref.ref(module.functionIndex().firstByLabel(WasmHelpers.generateClassName(arrayClass) + "_vt")));
+        initArguments.add(ConstExpressions.struct.get(
+                rtMappings.get(arrayCls),
+                ConstExpressions.getGlobal(global),
+                "factoryFor"
+        ));
+        initArguments.add(WasmHelpers.dispatchTableOf(module, arrayClass));
         initArguments.add(ConstExpressions.ref.externNullRef());
         initArguments.add(ConstExpressions.struct.get(
                 rtMappings.get(arrayCls),
@@ -1846,7 +1818,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         final List<WasmValue> params = new ArrayList<>();
         params.add(value);
         final ResolvedClass questionType = compileUnit.findClass(typeToCheck);
-        params.add(ConstExpressions.i32.c(resolvedClasses.indexOf(questionType)));
+        params.add(ConstExpressions.i32.c(questionType != null ? instanceOfTypes.bitIndexOf(questionType) : -1));
         return ConstExpressions.call(ConstExpressions.weakFunctionReference("instanceOf"), params);
     }
 
@@ -1916,40 +1888,52 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
             final StructType type = module.getTypes().structTypeByName("obj_array");
             return ConstExpressions.array.len(
                     module.getTypes().arrayType(typeConverter.apply(Type.getType(Object.class))),
-                    ConstExpressions.struct.get(type, ConstExpressions.ref.cast(type, toWasmValue(array)), "data")
+                    arrayData(type, array)
             );
         }
         switch (array.type.getElementType().getSort()) {
             case Type.BOOLEAN:
-            case Type.BYTE:
+            case Type.BYTE: {
+                final StructType type = module.getTypes().structTypeByName("i8_array");
+                return ConstExpressions.array.len(
+                        module.getTypes().arrayType(PrimitiveType.i8),
+                        arrayData(type, array)
+                );
+            }
             case Type.CHAR:
-            case Type.SHORT:
+            case Type.SHORT: {
+                final StructType type = module.getTypes().structTypeByName("i16_array");
+                return ConstExpressions.array.len(
+                        module.getTypes().arrayType(PrimitiveType.i16),
+                        arrayData(type, array)
+                );
+            }
             case Type.INT: {
                 final StructType type = module.getTypes().structTypeByName("i32_array");
                 return ConstExpressions.array.len(
                         module.getTypes().arrayType(PrimitiveType.i32),
-                        ConstExpressions.struct.get(type, ConstExpressions.ref.cast(type, toWasmValue(array)), "data")
+                        arrayData(type, array)
                 );
             }
             case Type.FLOAT: {
                 final StructType type = module.getTypes().structTypeByName("f32_array");
                 return ConstExpressions.array.len(
                         module.getTypes().arrayType(PrimitiveType.f32),
-                        ConstExpressions.struct.get(type, ConstExpressions.ref.cast(type, toWasmValue(array)), "data")
+                        arrayData(type, array)
                 );
             }
             case Type.LONG: {
                 final StructType type = module.getTypes().structTypeByName("i64_array");
                 return ConstExpressions.array.len(
                         module.getTypes().arrayType(PrimitiveType.i64),
-                        ConstExpressions.struct.get(type, ConstExpressions.ref.cast(type, toWasmValue(array)), "data")
+                        arrayData(type, array)
                 );
             }
             case Type.DOUBLE: {
                 final StructType type = module.getTypes().structTypeByName("f64_array");
                 return ConstExpressions.array.len(
                         module.getTypes().arrayType(PrimitiveType.f64),
-                        ConstExpressions.struct.get(type, ConstExpressions.ref.cast(type, toWasmValue(array)), "data")
+                        arrayData(type, array)
                 );
             }
             case Type.OBJECT:
@@ -1957,7 +1941,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 final StructType type = module.getTypes().structTypeByName("obj_array");
                 return ConstExpressions.array.len(
                         module.getTypes().arrayType(typeConverter.apply(Type.getType(Object.class))),
-                        ConstExpressions.struct.get(type, ConstExpressions.ref.cast(type, toWasmValue(array)), "data")
+                        arrayData(type, array)
                 );
             }
             default:
@@ -2042,6 +2026,17 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         }
     }
 
+    private WasmValue hostReferenceOf(final Value value) {
+        if (value.type.equals(Type.getType(String.class))) {
+            return WasmHelpers.stringToJS(toWasmValue(value));
+        }
+        return ConstExpressions.struct.get(
+                objectTypeMappings.get(compileUnit.findClass(Type.getType(Object.class))),
+                toWasmValue(value),
+                "nativeObject"
+        );
+    }
+
     private WasmValue toWasmValue(final Cast value) {
         final Type targetType = value.type;
         if (targetType.getSort() == Type.OBJECT) {
@@ -2054,16 +2049,12 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                         compileUnit,
                         objectTypeMappings,
                         rtMappings,
-                        ConstExpressions.struct.get(
-                                objectTypeMappings.get(compileUnit.findClass(Type.getType(Object.class))),
-                                toWasmValue((Value) value.incomingDataFlows[0]),
-                                "nativeObject"
-                        )
+                        hostReferenceOf((Value) value.incomingDataFlows[0])
                 );
             }
         }
         final RefType refType = (RefType) typeConverter.apply(value.type);
-        return ConstExpressions.ref.cast((StructType) refType.getType(), toWasmValue((Value) value.incomingDataFlows[0]));
+        return castTo((StructType) refType.getType(), (Value) value.incomingDataFlows[0]);
     }
 
     private WasmValue toWasmValue(final RuntimeClassOf value) {
@@ -2083,6 +2074,97 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         ));
     }
 
+    private WasmValue toWasmValue(final MathFunction value) {
+        final Value v = (Value) value.incomingDataFlows[0];
+        final WasmValue arg0 = toWasmValue(v);
+        final WasmValue arg1 = value.incomingDataFlows.length > 1 ? toWasmValue((Value) value.incomingDataFlows[1]) : null;
+        switch (v.type.getSort()) {
+            case Type.FLOAT: {
+                switch (value.kind) {
+                    case ABS:
+                        return ConstExpressions.f32.abs(arg0);
+                    case MIN:
+                        return ConstExpressions.f32.min(arg0, arg1);
+                    case MAX:
+                        return ConstExpressions.f32.max(arg0, arg1);
+                    case COPYSIGN:
+                        return ConstExpressions.f32.copysign(arg0, arg1);
+                }
+                break;
+            }
+            case Type.DOUBLE: {
+                switch (value.kind) {
+                    case ABS:
+                        return ConstExpressions.f64.abs(arg0);
+                    case MIN:
+                        return ConstExpressions.f64.min(arg0, arg1);
+                    case MAX:
+                        return ConstExpressions.f64.max(arg0, arg1);
+                    case SQRT:
+                        return ConstExpressions.f64.sqrt(arg0);
+                    case FLOOR:
+                        return ConstExpressions.f64.floor(arg0);
+                    case CEIL:
+                        return ConstExpressions.f64.ceil(arg0);
+                    case RINT:
+                        return ConstExpressions.f64.nearest(arg0);
+                    case COPYSIGN:
+                        return ConstExpressions.f64.copysign(arg0, arg1);
+                }
+                break;
+            }
+            case Type.LONG: {
+                switch (value.kind) {
+                    case ABS:
+                        return ConstExpressions.call(ConstExpressions.weakFunctionReference("abs_i64"), Collections.singletonList(arg0));
+                    case MIN:
+                    case MAX: {
+                        final List<WasmValue> arguments = new ArrayList<>();
+                        arguments.add(arg0);
+                        arguments.add(arg1);
+                        return ConstExpressions.call(ConstExpressions.weakFunctionReference(value.kind == MathFunction.Kind.MIN ? "min_i64" : "max_i64"), arguments);
+                    }
+                    case CLZ:
+                        return ConstExpressions.i32.wrap_i64(ConstExpressions.i64.clz(arg0));
+                    case CTZ:
+                        return ConstExpressions.i32.wrap_i64(ConstExpressions.i64.ctz(arg0));
+                    case POPCNT:
+                        return ConstExpressions.i32.wrap_i64(ConstExpressions.i64.popcount(arg0));
+                    case ROTL:
+                        return ConstExpressions.i64.rotl(arg0, ConstExpressions.i64.extend_i32s(arg1));
+                    case ROTR:
+                        return ConstExpressions.i64.rotr(arg0, ConstExpressions.i64.extend_i32s(arg1));
+                }
+                break;
+            }
+            default: {
+                switch (value.kind) {
+                    case ABS:
+                        return ConstExpressions.call(ConstExpressions.weakFunctionReference("abs_i32"), Collections.singletonList(arg0));
+                    case MIN:
+                    case MAX: {
+                        final List<WasmValue> arguments = new ArrayList<>();
+                        arguments.add(arg0);
+                        arguments.add(arg1);
+                        return ConstExpressions.call(ConstExpressions.weakFunctionReference(value.kind == MathFunction.Kind.MIN ? "min_i32" : "max_i32"), arguments);
+                    }
+                    case CLZ:
+                        return ConstExpressions.i32.clz(arg0);
+                    case CTZ:
+                        return ConstExpressions.i32.ctz(arg0);
+                    case POPCNT:
+                        return ConstExpressions.i32.popcount(arg0);
+                    case ROTL:
+                        return ConstExpressions.i32.rotl(arg0, arg1);
+                    case ROTR:
+                        return ConstExpressions.i32.rotr(arg0, arg1);
+                }
+                break;
+            }
+        }
+        throw new IllegalArgumentException("Not supported math function " + value.kind + " for " + v.type);
+    }
+
     private WasmValue toWasmValue(final Reinterpret value) {
         final Value v = (Value) value.incomingDataFlows[0];
         switch (value.type.getSort()) {
@@ -2304,15 +2386,43 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         final Value array = (Value) value.incomingDataFlows[0];
         final Value index = (Value) value.incomingDataFlows[1];
         switch (value.type.getSort()) {
-            case Type.BOOLEAN:
-            case Type.BYTE:
-            case Type.CHAR:
-            case Type.SHORT:
+            case Type.BYTE: {
+                final StructType arrayType = module.getTypes().structTypeByName("i8_array");
+                return ConstExpressions.array.get_s(
+                        module.getTypes().arrayType(PrimitiveType.i8),
+                        arrayData(arrayType, array),
+                        toWasmValue(index)
+                );
+            }
+            case Type.BOOLEAN: {
+                final StructType arrayType = module.getTypes().structTypeByName("i8_array");
+                return ConstExpressions.array.get_u(
+                        module.getTypes().arrayType(PrimitiveType.i8),
+                        arrayData(arrayType, array),
+                        toWasmValue(index)
+                );
+            }
+            case Type.CHAR: {
+                final StructType arrayType = module.getTypes().structTypeByName("i16_array");
+                return ConstExpressions.array.get_u(
+                        module.getTypes().arrayType(PrimitiveType.i16),
+                        arrayData(arrayType, array),
+                        toWasmValue(index)
+                );
+            }
+            case Type.SHORT: {
+                final StructType arrayType = module.getTypes().structTypeByName("i16_array");
+                return ConstExpressions.array.get_s(
+                        module.getTypes().arrayType(PrimitiveType.i16),
+                        arrayData(arrayType, array),
+                        toWasmValue(index)
+                );
+            }
             case Type.INT: {
                 final StructType arrayType = module.getTypes().structTypeByName("i32_array");
                 return ConstExpressions.array.get(
                         module.getTypes().arrayType(PrimitiveType.i32),
-                        ConstExpressions.struct.get(arrayType, ConstExpressions.ref.cast(arrayType, toWasmValue(array)), "data"),
+                        arrayData(arrayType, array),
                         toWasmValue(index)
                 );
             }
@@ -2320,7 +2430,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 final StructType arrayType = module.getTypes().structTypeByName("f32_array");
                 return ConstExpressions.array.get(
                         module.getTypes().arrayType(PrimitiveType.f32),
-                        ConstExpressions.struct.get(arrayType, ConstExpressions.ref.cast(arrayType, toWasmValue(array)), "data"),
+                        arrayData(arrayType, array),
                         toWasmValue(index)
                 );
             }
@@ -2328,7 +2438,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 final StructType arrayType = module.getTypes().structTypeByName("i64_array");
                 return ConstExpressions.array.get(
                         module.getTypes().arrayType(PrimitiveType.i64),
-                        ConstExpressions.struct.get(arrayType, ConstExpressions.ref.cast(arrayType, toWasmValue(array)), "data"),
+                        arrayData(arrayType, array),
                         toWasmValue(index)
                 );
             }
@@ -2336,7 +2446,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 final StructType arrayType = module.getTypes().structTypeByName("f64_array");
                 return ConstExpressions.array.get(
                         module.getTypes().arrayType(PrimitiveType.f64),
-                        ConstExpressions.struct.get(arrayType, ConstExpressions.ref.cast(arrayType, toWasmValue(array)), "data"),
+                        arrayData(arrayType, array),
                         toWasmValue(index)
                 );
             }
@@ -2345,7 +2455,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 final StructType arrayType = module.getTypes().structTypeByName("obj_array");
                 return ConstExpressions.array.get(
                         module.getTypes().arrayType(typeConverter.apply(Type.getType(Object.class))),
-                        ConstExpressions.struct.get(arrayType, ConstExpressions.ref.cast(arrayType, toWasmValue(array)), "data"),
+                        arrayData(arrayType, array),
                         toWasmValue(index)
                 );
             }
@@ -2443,6 +2553,8 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
             return toWasmValue((EnumValuesOf) value);
         } else if (value instanceof Reinterpret) {
             return toWasmValue((Reinterpret) value);
+        } else if (value instanceof MathFunction) {
+            return toWasmValue((MathFunction) value);
         }
         throw new IllegalArgumentException("Not implemented " + value.getClass());
     }
@@ -2461,9 +2573,18 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 activeLevel.activeFlow.setLocal(local, convertToType(value, targetVar.type));
             } else {
                 if (value.type.getSort() == targetVar.type.getSort()) {
-                    activeLevel.activeFlow.setLocal(local, toWasmValue(value));
+                    final StructType structType = typeInference.typeOf(targetVar);
+                    if (structType != null) {
+                        activeLevel.activeFlow.setLocal(local, castTo(structType, value));
+                        final Local data = arrayDataLocalMap.get(targetVar);
+                        if (data != null) {
+                            writeArrayData(data, structType, local, value);
+                        }
+                    } else {
+                        activeLevel.activeFlow.setLocal(local, toWasmValue(value));
+                    }
                 } else {
-                    activeLevel.activeFlow.comment("Unable to assign " + value.type + " to " + targetVar.type + " for " + targetVar +" from " + value);
+                    activeLevel.activeFlow.comment("Unable to assign " + value.type + " to " + targetVar.type + " for " + targetVar.getClass() + " from " + value.getClass());
                 }
             }
         } else {
@@ -2471,6 +2592,23 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         }
     }
 
+    private void writeArrayData(final Local data, final StructType arrayType, final Local array, final Value value) {
+        if (value instanceof NullReference) {
+            activeLevel.activeFlow.setLocal(data, ConstExpressions.ref.nullRef());
+        } else if (value instanceof AbstractVar && arrayDataLocalMap.containsKey(value)) {
+            activeLevel.activeFlow.setLocal(data, ConstExpressions.getLocal(arrayDataLocalMap.get(value)));
+        } else if (typeInference.isNonNull(value)) {
+            activeLevel.activeFlow.setLocal(data, ConstExpressions.struct.get(arrayType, ConstExpressions.getLocal(array), "data"));
+        } else {
+            // Null arrays must still fail on first access, so the storage is only read if there is an array
+            final Iff nullCheck = activeLevel.activeFlow.iff("arraydata" + arrayDataCounter++, ConstExpressions.ref.isnull(ConstExpressions.getLocal(array)));
+            nullCheck.flow.setLocal(data, ConstExpressions.ref.nullRef());
+            nullCheck.falseFlow.setLocal(data, ConstExpressions.struct.get(arrayType, ConstExpressions.getLocal(array), "data"));
+        }
+    }
+
+    int arrayDataCounter;
+
     int ifcounter;
 
     @Override
@@ -2550,12 +2688,12 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
     @Override
     public void write(final MonitorEnter node) {
-        activeLevel.activeFlow.comment("Monitor enter on " + node.incomingDataFlows[0]);
+        activeLevel.activeFlow.comment("Monitor enter on " + node.incomingDataFlows[0].nodeType);
     }
 
     @Override
     public void write(final MonitorExit node) {
-        activeLevel.activeFlow.comment("Monitor exit on " + node.incomingDataFlows[0]);
+        activeLevel.activeFlow.comment("Monitor exit on " + node.incomingDataFlows[0].nodeType);
     }
 
     @Override
@@ -2590,16 +2728,16 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 final StructType objectType = module.getTypes().structTypeByName(WasmHelpers.generateClassName(Type.getType(Object.class)));
                 activeLevel.activeFlow.setStruct(
                         structType,
-                        ConstExpressions.ref.cast(structType, toWasmValue((Value) node.outgoingDataFlows()[0])),
+                        castTo(structType, (Value) node.outgoingDataFlows()[0]),
                         WasmHelpers.generateFieldName(field.name),
-                        ConstExpressions.ref.cast(objectType, toWasmValue((Value) node.incomingDataFlows[0]))
+                        castTo(objectType, (Value) node.incomingDataFlows[0])
                 );
                 break;
             }
             default: {
                 activeLevel.activeFlow.setStruct(
                         structType,
-                        ConstExpressions.ref.cast(structType, toWasmValue((Value) graph.outgoingDataFlowsFor(node)[0])),
+                        castTo(structType, (Value) graph.outgoingDataFlowsFor(node)[0]),
                         WasmHelpers.generateFieldName(field.name),
                         toWasmValue((Value) node.incomingDataFlows[0])
                 );
@@ -2621,16 +2759,16 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 final StructType objectType = module.getTypes().structTypeByName(WasmHelpers.generateClassName(Type.getType(Object.class)));
                 activeLevel.activeFlow.setStruct(
                         structType,
-                        ConstExpressions.ref.cast(structType, toWasmValue((Value) node.outgoingDataFlows()[0])),
+                        castTo(structType, (Value) node.outgoingDataFlows()[0]),
                         WasmHelpers.generateFieldName(field.name),
-                        ConstExpressions.ref.cast(objectType, toWasmValue((Value) node.incomingDataFlows[0]))
+                        castTo(objectType, (Value) node.incomingDataFlows[0])
                 );
                 break;
             }
             default: {
                 activeLevel.activeFlow.setStruct(
                         structType,
-                        ConstExpressions.ref.cast(structType, toWasmValue((Value) node.outgoingDataFlows()[0])),
+                        castTo(structType, (Value) node.outgoingDataFlows()[0]),
                         WasmHelpers.generateFieldName(field.name),
                         toWasmValue((Value) node.incomingDataFlows[0])
                 );
@@ -2646,16 +2784,55 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         final Value index = (Value) node.incomingDataFlows[1];
         final Value value = (Value) node.incomingDataFlows[2];
 
-        switch (value.type.getSort()) {
+        // The stored value is usually typed as int, even for byte, char or short arrays, so
+        // the array type decides about the storage layout
+        final Type elementType;
+        if (array.type.getSort() == Type.ARRAY) {
+            elementType = array.type.getDimensions() == 1 ? array.type.getElementType() : Type.getType(Object.class);
+        } else {
+            switch (value.type.getSort()) {
+                case Type.BOOLEAN:
+                case Type.BYTE:
+                case Type.CHAR:
+                case Type.SHORT:
+                case Type.INT:
+                    writePackedArrayStoreDispatch(array, index, value);
+                    return;
+                default:
+                    // Only one layout can hold a long, float, double or reference
+                    elementType = value.type;
+                    break;
+            }
+        }
+
+        switch (elementType.getSort()) {
             case Type.BOOLEAN:
-            case Type.BYTE:
+            case Type.BYTE: {
+                final StructType arrayType = module.getTypes().structTypeByName("i8_array");
+                activeLevel.activeFlow.array.set(
+                        module.getTypes().arrayType(PrimitiveType.i8),
+                        arrayData(arrayType, array),
+                        toWasmValue(index),
+                        toWasmValue(value)
+                );
+                break;
+            }
             case Type.CHAR:
-            case Type.SHORT:
+            case Type.SHORT: {
+                final StructType arrayType = module.getTypes().structTypeByName("i16_array");
+                activeLevel.activeFlow.array.set(
+                        module.getTypes().arrayType(PrimitiveType.i16),
+                        arrayData(arrayType, array),
+                        toWasmValue(index),
+                        toWasmValue(value)
+                );
+                break;
+            }
             case Type.INT: {
                 final StructType arrayType = module.getTypes().structTypeByName("i32_array");
                 activeLevel.activeFlow.array.set(
                         module.getTypes().arrayType(PrimitiveType.i32),
-                        ConstExpressions.struct.get(arrayType, ConstExpressions.ref.cast(arrayType, toWasmValue(array)), "data"),
+                        arrayData(arrayType, array),
                         toWasmValue(index),
                         toWasmValue(value)
                 );
@@ -2665,7 +2842,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 final StructType arrayType = module.getTypes().structTypeByName("f32_array");
                 activeLevel.activeFlow.array.set(
                         module.getTypes().arrayType(PrimitiveType.f32),
-                        ConstExpressions.struct.get(arrayType, ConstExpressions.ref.cast(arrayType, toWasmValue(array)), "data"),
+                        arrayData(arrayType, array),
                         toWasmValue(index),
                         toWasmValue(value)
                 );
@@ -2675,7 +2852,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 final StructType arrayType = module.getTypes().structTypeByName("i64_array");
                 activeLevel.activeFlow.array.set(
                         module.getTypes().arrayType(PrimitiveType.i64),
-                        ConstExpressions.struct.get(arrayType, ConstExpressions.ref.cast(arrayType, toWasmValue(array)), "data"),
+                        arrayData(arrayType, array),
                         toWasmValue(index),
                         toWasmValue(value)
                 );
@@ -2685,7 +2862,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 final StructType arrayType = module.getTypes().structTypeByName("f64_array");
                 activeLevel.activeFlow.array.set(
                         module.getTypes().arrayType(PrimitiveType.f64),
-                        ConstExpressions.struct.get(arrayType, ConstExpressions.ref.cast(arrayType, toWasmValue(array)), "data"),
+                        arrayData(arrayType, array),
                         toWasmValue(index),
                         toWasmValue(value)
                 );
@@ -2696,17 +2873,59 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
                 final StructType arrayType = module.getTypes().structTypeByName("obj_array");
                 activeLevel.activeFlow.array.set(
                         module.getTypes().arrayType(typeConverter.apply(Type.getType(Object.class))),
-                        ConstExpressions.struct.get(arrayType, ConstExpressions.ref.cast(arrayType, toWasmValue(array)), "data"),
+                        arrayData(arrayType, array),
                         toWasmValue(index),
                         toWasmValue(value)
                 );
                 break;
             }
             default:
-                throw new IllegalStateException("Not implemented arraystore for " + value.type + " sort " + value.type.getSort());
+                throw new IllegalStateException("Not implemented arraystore for " + elementType + " sort " + elementType.getSort());
         }
     }
 
+    int arrayStoreCount = 0;
+
+    /**
+     * Stores an int typed value into an array of unknown type. Such an array might be an i8, i16 or
+     * i32 array, so the layout is picked at runtime by testing the array struct type.
+     */
+    private void writePackedArrayStoreDispatch(final Value array, final Value index, final Value value) {
+        final int storeNum = arrayStoreCount++;
+
+        final Local arrayLocal = exportableFunction.newLocal("arraystore_array" + storeNum, typeConverter.apply(Type.getType(Object.class)));
+        final Local indexLocal = exportableFunction.newLocal("arraystore_index" + storeNum, PrimitiveType.i32);
+        final Local valueLocal = exportableFunction.newLocal("arraystore_value" + storeNum, PrimitiveType.i32);
+        activeLevel.activeFlow.setLocal(arrayLocal, toWasmValue(array));
+        activeLevel.activeFlow.setLocal(indexLocal, toWasmValue(index));
+        activeLevel.activeFlow.setLocal(valueLocal, toWasmValue(value));
+
+        final StructType i8ArrayType = module.getTypes().structTypeByName("i8_array");
+        final StructType i16ArrayType = module.getTypes().structTypeByName("i16_array");
+        final StructType i32ArrayType = module.getTypes().structTypeByName("i32_array");
+
+        final Iff isI8 = activeLevel.activeFlow.iff("arraystore_i8_" + storeNum, ConstExpressions.ref.test(i8ArrayType, ConstExpressions.getLocal(arrayLocal)));
+        isI8.flow.array.set(
+                module.getTypes().arrayType(PrimitiveType.i8),
+                ConstExpressions.struct.get(i8ArrayType, ConstExpressions.ref.cast(i8ArrayType, ConstExpressions.getLocal(arrayLocal)), "data"),
+                ConstExpressions.getLocal(indexLocal),
+                ConstExpressions.getLocal(valueLocal)
+        );
+        final Iff isI16 = isI8.falseFlow.iff("arraystore_i16_" + storeNum, ConstExpressions.ref.test(i16ArrayType, ConstExpressions.getLocal(arrayLocal)));
+        isI16.flow.array.set(
+                module.getTypes().arrayType(PrimitiveType.i16),
+                ConstExpressions.struct.get(i16ArrayType, ConstExpressions.ref.cast(i16ArrayType, ConstExpressions.getLocal(arrayLocal)), "data"),
+                ConstExpressions.getLocal(indexLocal),
+                ConstExpressions.getLocal(valueLocal)
+        );
+        isI16.falseFlow.array.set(
+                module.getTypes().arrayType(PrimitiveType.i32),
+                ConstExpressions.struct.get(i32ArrayType, ConstExpressions.ref.cast(i32ArrayType, ConstExpressions.getLocal(arrayLocal)), "data"),
+                ConstExpressions.getLocal(indexLocal),
+                ConstExpressions.getLocal(valueLocal)
+        );
+    }
+
     @Override
     public void writeBreakTo(final String label) {
         activeLevel.activeFlow.branch(activeLevel.findByLabelInHierarchy(label));
@@ -2753,30 +2972,11 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
         final NestingLevelTry t = (NestingLevelTry) activeLevel;
 
-        final String className = WasmHelpers.generateClassName(type);
-
         final Global g = module.getGlobals().globalsIndex().globalByLabel("lastcaughtexception");
 
         final List<WasmValue> callArguments = new ArrayList<>();
         callArguments.add(ConstExpressions.getGlobal(g));
-
-        final ResolvedClass cl = compileUnit.findClass(type);
-        final WasmValue typeToCheck;
-        if (!cl.requiresClassInitializer()) {
-            final Global cls = module.getGlobals().globalsIndex().globalByLabel(className + "_cls");
-            typeToCheck = ConstExpressions.getGlobal(cls);
-        } else {
-            final Callable initFunction = ConstExpressions.weakFunctionReference(className + "_i");
-            typeToCheck = ConstExpressions.call(initFunction, Collections.emptyList());
-        }
-
-        callArguments.add(
-                ConstExpressions.struct.get(
-                        rtMappings.get(cl),
-                        typeToCheck,
-                        "factoryFor"
-                )
-        );
+        callArguments.add(ConstExpressions.i32.c(instanceOfTypes.bitIndexOf(compileUnit.findClass(type))));
 
         final Iff check = t.activeContainer.catchBlock.flow.iff("catchcheck_" + catchcheckcount++,
                 ConstExpressions.call(ConstExpressions.weakFunctionReference("instanceOf"), callArguments));
@@ -2821,21 +3021,33 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         activeLevel.writeDebug("writeTableSwitch");
 
         final WasmValue valueToCheck = toWasmValue((Value) node.incomingDataFlows[0]);
-        final WasmValue minCheck = ConstExpressions.i32.ge_s(valueToCheck, ConstExpressions.i32.c(node.min));
-        final WasmValue maxCheck = ConstExpressions.i32.le_s(valueToCheck, ConstExpressions.i32.c(node.max));
+
+        final List<Integer> caseIndices = new ArrayList<>();
+        for (final Projection projection : node.controlFlowsTo.keySet()) {
+            if (projection instanceof Projection.IndexedProjection) {
+                caseIndices.add(((Projection.IndexedProjection) projection).index);
+            }
+        }
+        Collections.sort(caseIndices);
 
         final int switchNum = tableSwitchCount++;
 
-        final Block outer = activeLevel.activeFlow.block("tableswitch_outer" +  switchNum);
-        final Local calc = exportableFunction.newLocal("tableswitch_idx" + switchNum, PrimitiveType.i32);
-        outer.flow.setLocal(calc, ConstExpressions.i32.sub(valueToCheck, ConstExpressions.i32.c(node.min)));
-        final Block inner = outer.flow.block("tableswitch_inner" + switchNum);
-        final Iff min = inner.flow.iff("tableswitch_min" + switchNum, minCheck);
-        min.falseFlow.branch(inner);
-        final Iff max = min.flow.iff("tableswitch_max" + switchNum, maxCheck);
-        max.falseFlow.branch(inner);
+        final Block outer = activeLevel.activeFlow.block("tableswitch_outer" + switchNum);
+        final Block defaultBlock = outer.flow.block("tableswitch_default" + switchNum);
+        final Map<Integer, Expressions> caseFlows = new HashMap<>();
+        final Map<Integer, Block> caseBlocks = new HashMap<>();
+        final Block dispatch = nestSwitchCases("tableswitch_case" + switchNum + "_", caseIndices, defaultBlock, caseFlows, caseBlocks);
 
-        activeLevel = new NestingLevelSwitch(activeLevel, max.flow, min, ConstExpressions.getLocal(calc));
+        // The selector is rebased to zero, everything out of range is handled by the default label of the br_table
+        final List<LabeledContainer> targets = new ArrayList<>();
+        for (int i = 0; i <= node.max - node.min; i++) {
+            final Block target = caseBlocks.get(i);
+            targets.add(target != null ? target : defaultBlock);
+        }
+        final WasmValue index = node.min == 0 ? valueToCheck : ConstExpressions.i32.sub(valueToCheck, ConstExpressions.i32.c(node.min));
+        dispatch.flow.branchTable(targets, defaultBlock, index);
+
+        activeLevel = new NestingLevelSwitch(activeLevel, dispatch.flow, outer, caseFlows);
     }
 
     @Override
@@ -2858,7 +3070,7 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
         }
 
         final NestingLevelSwitch level = (NestingLevelSwitch) activeLevel;
-        level.activeFlow = level.activeFlow.parent().parent().parent().parent().flow;
+        level.activeFlow = level.activeContainer.flow;
 
         activeLevel.writeDebug("startTableSwitchDefaultBlock");
     }
@@ -2880,12 +3092,85 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
         activeLevel.writeDebug("writeLookupSwitch");
 
-        final WasmValue valueToCheck = toWasmValue((Value) node.incomingDataFlows[0]);
+        final List<Integer> keys = new ArrayList<>();
+        for (final Projection projection : node.controlFlowsTo.keySet()) {
+            if (projection instanceof Projection.KeyedProjection) {
+                keys.add(((Projection.KeyedProjection) projection).key);
+            }
+        }
+        Collections.sort(keys);
+
+        final int switchNum = lookupSwitchCount++;
+
+        final Block outer = activeLevel.activeFlow.block("lookupswitch_outer" + switchNum);
+        final Local value = exportableFunction.newLocal("lookupswitch_value" + switchNum, PrimitiveType.i32);
+        outer.flow.setLocal(value, toWasmValue((Value) node.incomingDataFlows[0]));
+        final Block defaultBlock = outer.flow.block("lookupswitch_default" + switchNum);
+        final Map<Integer, Expressions> caseFlows = new HashMap<>();
+        final Map<Integer, Block> caseBlocks = new HashMap<>();
+        final Block dispatch = nestSwitchCases("lookupswitch_case" + switchNum + "_", keys, defaultBlock, caseFlows, caseBlocks);
 
-        final Block bouter = activeLevel.activeFlow.block("lookupswitchb_" + lookupSwitchCount++);
-        final Block binner = bouter.flow.block("lookupswitchbi_" + lookupSwitchCount++);
+        if (isDenseLookupSwitch(keys)) {
+            final int min = keys.get(0);
+            final int max = keys.get(keys.size() - 1);
+            final List<LabeledContainer> targets = new ArrayList<>();
+            for (long key = min; key <= max; key++) {
+                final Block target = caseBlocks.get((int) key);
+                targets.add(target != null ? target : defaultBlock);
+            }
+            final WasmValue index = ConstExpressions.i32.sub(ConstExpressions.getLocal(value), ConstExpressions.i32.c(min));
+            dispatch.flow.branchTable(targets, defaultBlock, index);
+        } else {
+            writeLookupSwitchDecisionTree(dispatch.flow, value, keys, 0, keys.size() - 1, caseBlocks, defaultBlock);
+        }
 
-        activeLevel = new NestingLevelSwitch(activeLevel, binner.flow, bouter, valueToCheck);
+        activeLevel = new NestingLevelSwitch(activeLevel, dispatch.flow, outer, caseFlows);
+    }
+
+    private static final int MIN_CASES_FOR_BRTABLE = 3;
+
+    private static final int MAX_CASES_PER_DECISION_LEAF = 3;
+
+    private static boolean isDenseLookupSwitch(final List<Integer> sortedKeys) {
+        if (sortedKeys.size() < MIN_CASES_FOR_BRTABLE) {
+            return false;
+        }
+        // At least every second slot of the jump table must point to a real case
+        final long range = (long) sortedKeys.get(sortedKeys.size() - 1) - sortedKeys.get(0) + 1;
+        return range <= 2L * sortedKeys.size();
+    }
+
+    private Block nestSwitchCases(final String labelPrefix, final List<Integer> sortedKeys, final Block defaultBlock,
+                                  final Map<Integer, Expressions> caseFlows, final Map<Integer, Block> caseBlocks) {
+        // Every case gets its own block, the code of the case is placed directly after the end of its block.
+        // The smallest key is nested innermost, so the cases are emitted in ascending order.
+        Block current = defaultBlock;
+        for (int i = sortedKeys.size() - 1; i >= 0; i--) {
+            final int key = sortedKeys.get(i);
+            final Block caseBlock = current.flow.block(labelPrefix + (key < 0 ? "m" + -(long) key : Integer.toString(key)));
+            caseFlows.put(key, current.flow);
+            caseBlocks.put(key, caseBlock);
+            current = caseBlock;
+        }
+        return current;
+    }
+
+    private void writeLookupSwitchDecisionTree(final Expressions flow, final Local value, final List<Integer> sortedKeys,
+                                               final int from, final int to, final Map<Integer, Block> caseBlocks,
+                                               final Block defaultBlock) {
+        if (to - from < MAX_CASES_PER_DECISION_LEAF) {
+            for (int i = from; i <= to; i++) {
+                final int key = sortedKeys.get(i);
+                final Iff check = flow.iff("casecheck" + checkcounter++, ConstExpressions.i32.eq(ConstExpressions.getLocal(value), ConstExpressions.i32.c(key)));
+                check.flow.branch(caseBlocks.get(key));
+            }
+            flow.branch(defaultBlock);
+            return;
+        }
+        final int middle = (from + to + 1) >>> 1;
+        final Iff check = flow.iff("casesplit" + checkcounter++, ConstExpressions.i32.lt_s(ConstExpressions.getLocal(value), ConstExpressions.i32.c(sortedKeys.get(middle))));
+        writeLookupSwitchDecisionTree(check.flow, value, sortedKeys, from, middle - 1, caseBlocks, defaultBlock);
+        writeLookupSwitchDecisionTree(check.falseFlow, value, sortedKeys, middle, to, caseBlocks, defaultBlock);
     }
 
     @Override
@@ -2914,9 +3199,12 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
         final NestingLevelSwitch level = (NestingLevelSwitch) activeLevel;
 
-        final Iff check = activeLevel.activeFlow.iff("casecheck" + checkcounter++, ConstExpressions.i32.eq(level.valueToCheck, ConstExpressions.i32.c(index)));
+        final Expressions caseFlow = level.caseFlows.get(index);
+        if (caseFlow == null) {
+            throw new IllegalStateException("No case block for " + index);
+        }
 
-        activeLevel = new NestingLevelIff(activeLevel, check.flow, check);
+        activeLevel = new NestingLevelBlock(activeLevel, caseFlow, (Block) caseFlow.parent());
     }
 
     @Override
@@ -2928,8 +3216,6 @@ public class WasmStructuredControlflowCodeGenerator implements StructuredControl
 
         activeLevel.writeDebug("writeSwitchDefaultCase");
 
-        // TODO: Branch from inner to outer
-
         activeLevel.activeFlow = activeLevel.activeContainer.flow;
     }
 
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend.wasm;
+
+import de.mirkosertic.bytecoder.core.backend.wasm.ast.Module;
+import de.mirkosertic.bytecoder.core.backend.wasm.ast.StructType;
+import de.mirkosertic.bytecoder.core.ir.AbstractVar;
+import de.mirkosertic.bytecoder.core.ir.Copy;
+import de.mirkosertic.bytecoder.core.ir.Graph;
+import de.mirkosertic.bytecoder.core.ir.MethodArgument;
+import de.mirkosertic.bytecoder.core.ir.MethodInvocationExpression;
+import de.mirkosertic.bytecoder.core.ir.New;
+import de.mirkosertic.bytecoder.core.ir.NewArray;
+import de.mirkosertic.bytecoder.core.ir.Node;
+import de.mirkosertic.bytecoder.core.ir.NullReference;
+import de.mirkosertic.bytecoder.core.ir.ReadClassField;
+import de.mirkosertic.bytecoder.core.ir.ReadInstanceField;
+import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
+import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
+import de.mirkosertic.bytecoder.core.ir.This;
+import de.mirkosertic.bytecoder.core.ir.Value;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Infers the most precise Wasm struct type of every reference typed variable of a method.
+ *
+ * All Java references are represented as references to the java.lang.Object struct in Wasm, so every field or
+ * array access has to cast its receiver first. The inference propagates the struct types of values with a
+ * known layout through the copies of the graph until a fixpoint is reached. Variables that only ever hold
+ * values of a more specific struct can be declared with this type, and accesses to them need no cast at all.
+ */
+public class WasmTypeInference {
+
+    private static final Set<String> ARRAY_TYPES = new HashSet<>(Arrays.asList(
+            "i8_array", "i16_array", "i32_array", "i64_array", "f32_array", "f64_array", "obj_array"));
+
+    private final CompileUnit compileUnit;
+    private final Module module;
+    private final Map<ResolvedClass, StructType> objectTypeMappings;
+    private final StructType objectType;
+    private final Map<AbstractVar, StructType> variableTypes;
+
+    public WasmTypeInference(final CompileUnit compileUnit, final Module module, final Map<ResolvedClass, StructType> objectTypeMappings, final Graph graph) {
+        this.compileUnit = compileUnit;
+        this.module = module;
+        this.objectTypeMappings = objectTypeMappings;
+        this.objectType = objectTypeMappings.get(compileUnit.findClass(Type.getType(Object.class)));
+        this.variableTypes = new HashMap<>();
+
+        final Map<AbstractVar, List<Value>> assignments = new HashMap<>();
+        for (final Node n : graph.nodes()) {
+            if (n instanceof AbstractVar && isReference(((AbstractVar) n).type)) {
+                final AbstractVar var = (AbstractVar) n;
+                final List<Value> values = new ArrayList<>();
+                for (final Node incoming : var.incomingDataFlows) {
+                    if (incoming instanceof Copy) {
+                        final Value value = (Value) incoming.incomingDataFlows[0];
+                        // Copies of a different kind are not performed by the code generator
+                        if (value.type.getSort() == var.type.getSort()) {
+                            values.add(value);
+                        }
+                    } else {
+                        values.add(null);
+                    }
+                }
+                assignments.put(var, values);
+            }
+        }
+
+        // Optimistic iteration, unknown variables do not contribute until they are assigned a type
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (final Map.Entry<AbstractVar, List<Value>> entry : assignments.entrySet()) {
+                StructType type = null;
+                for (final Value value : entry.getValue()) {
+                    type = join(type, value == null ? objectType : typeOf(value));
+                }
+                if (type != null && type != variableTypes.get(entry.getKey())) {
+                    variableTypes.put(entry.getKey(), type);
+                    changed = true;
+                }
+            }
+        }
+
+        variableTypes.values().removeIf(t -> t == objectType);
+    }
+
+    private static boolean isReference(final Type type) {
+        return type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY;
+    }
+
+    /**
+     * The struct type of a variable, or null if nothing more specific than java.lang.Object is known.
+     */
+    public StructType typeOf(final AbstractVar var) {
+        return variableTypes.get(var);
+    }
+
+    /**
+     * The static struct type of the Wasm expression generated for a value, or null if it is unknown.
+     */
+    public StructType exactTypeOf(final Value value) {
+        if (!isReference(value.type)) {
+            return null;
+        }
+        if (value instanceof AbstractVar) {
+            final StructType type = variableTypes.get(value);
+            return type != null ? type : objectType;
+        }
+        if (value instanceof This || value instanceof MethodArgument) {
+            return objectType;
+        }
+        if (value instanceof New) {
+            return objectTypeMappings.get(compileUnit.findClass(value.type));
+        }
+        if (value instanceof NewArray) {
+            return arrayTypeOfElement(value.type.getElementType());
+        }
+        return null;
+    }
+
+    public boolean isNonNull(final Value value) {
+        return value instanceof New || value instanceof NewArray || value instanceof This;
+    }
+
+    public boolean isArrayType(final StructType type) {
+        return ARRAY_TYPES.contains(type.getName());
+    }
+
+    private StructType typeOf(final Value value) {
+        if (value instanceof NullReference) {
+            return null;
+        }
+        if (value instanceof AbstractVar) {
+            return variableTypes.get(value);
+        }
+        if (value instanceof New || value instanceof This || value instanceof ReadInstanceField || value instanceof ReadClassField) {
+            return declaredTypeOf(value.type);
+        }
+        if (value instanceof NewArray) {
+            return arrayTypeOfElement(value.type.getElementType());
+        }
+        if (value instanceof MethodInvocationExpression) {
+            final ResolvedMethod rm = ((MethodInvocationExpression) value).method;
+            // Results of host functions are not guaranteed to match the Java signature
+            if (Modifier.isNative(rm.methodNode.access) || rm.owner.isOpaqueReferenceType() || rm.owner.isCallback()) {
+                return objectType;
+            }
+            return declaredTypeOf(value.type);
+        }
+        return objectType;
+    }
+
+    private StructType declaredTypeOf(final Type type) {
+        if (type.getSort() == Type.ARRAY) {
+            return arrayTypeOf(type);
+        }
+        if (type.getSort() != Type.OBJECT) {
+            return objectType;
+        }
+        final ResolvedClass cl = compileUnit.findClass(type);
+        // Instances of interfaces and host types do not share a common struct, and
+        // java.lang.Class is represented by the runtime type structs
+        if (cl == null || Modifier.isInterface(cl.classNode.access) || cl.isOpaqueReferenceType() || cl.isCallback()
+                || Class.class.getName().equals(cl.type.getClassName())) {
+            return objectType;
+        }
+        final StructType mapped = objectTypeMappings.get(cl);
+        return mapped != null ? mapped : objectType;
+    }
+
+    private StructType arrayTypeOf(final Type arrayType) {
+        if (arrayType.getDimensions() > 1) {
+            return module.getTypes().structTypeByName("obj_array");
+        }
+        return arrayTypeOfElement(arrayType.getElementType());
+    }
+
+    private StructType arrayTypeOfElement(final Type elementType) {
+        switch (elementType.getSort()) {
+            case Type.BYTE:
+            case Type.BOOLEAN:
+                return module.getTypes().structTypeByName("i8_array");
+            case Type.CHAR:
+            case Type.SHORT:
+                return module.getTypes().structTypeByName("i16_array");
+            case Type.INT:
+                return module.getTypes().structTypeByName("i32_array");
+            case Type.LONG:
+                return module.getTypes().structTypeByName("i64_array");
+            case Type.FLOAT:
+                return module.getTypes().structTypeByName("f32_array");
+            case Type.DOUBLE:
+                return module.getTypes().structTypeByName("f64_array");
+            default:
+                return module.getTypes().structTypeByName("obj_array");
+        }
+    }
+
+    private StructType join(final StructType a, final StructType b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        for (StructType t = a; t != null; t = t.getSupertype()) {
+            if (b.isSubtypeOf(t)) {
+                return t.isSubtypeOf(objectType) ? t : objectType;
+            }
+        }
+        return objectType;
+    }
+}
@@ -252,6 +252,10 @@ public class BinaryWriter implements AutoCloseable {
         return new SectionWriter((byte) 10, os, os.size());
     }
 
+    public SectionWriter dataSection() {
+        return new SectionWriter((byte) 11, os, os.size());
+    }
+
     public SectionWriter tagSection() {
         return new SectionWriter((byte) 13, os, os.size());
     }
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend.wasm.ast;
+
+import java.io.IOException;
+import java.util.List;
+
+public class BrTable implements WasmExpression {
+
+    private final List<LabeledContainer> targets;
+    private final LabeledContainer defaultTarget;
+    private final WasmValue index;
+
+    BrTable(final List<LabeledContainer> targets, final LabeledContainer defaultTarget, final WasmValue index) {
+        this.targets = targets;
+        this.defaultTarget = defaultTarget;
+        this.index = index;
+    }
+
+    @Override
+    public void writeTo(final TextWriter textWriter, final ExportContext context) throws IOException {
+        textWriter.opening();
+        textWriter.write("br_table");
+        for (final LabeledContainer target : targets) {
+            textWriter.space();
+            textWriter.writeLabel(target.getLabel());
+        }
+        textWriter.space();
+        textWriter.writeLabel(defaultTarget.getLabel());
+        textWriter.space();
+        index.writeTo(textWriter, context);
+        textWriter.closing();
+        textWriter.newLine();
+    }
+
+    @Override
+    public void writeTo(final BinaryWriter.Writer codeWriter, final ExportContext context) throws IOException {
+        index.writeTo(codeWriter, context);
+        codeWriter.writeByte((byte) 0x0e);
+        codeWriter.writeUnsignedLeb128(targets.size());
+        final Container owningContainer = context.owningContainer();
+        for (final LabeledContainer target : targets) {
+            codeWriter.writeUnsignedLeb128(owningContainer.relativeDepthTo(target));
+        }
+        codeWriter.writeUnsignedLeb128(owningContainer.relativeDepthTo(defaultTarget));
+    }
+}
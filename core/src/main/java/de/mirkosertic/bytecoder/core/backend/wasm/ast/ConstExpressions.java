@@ -136,6 +136,14 @@ public class ConstExpressions {
             return new I32Ctz(value);
         }
 
+        public static I32Rotl rotl(final WasmValue leftValue, final WasmValue rightValue) {
+            return new I32Rotl(leftValue, rightValue);
+        }
+
+        public static I32Rotr rotr(final WasmValue leftValue, final WasmValue rightValue) {
+            return new I32Rotr(leftValue, rightValue);
+        }
+
         public static I32TruncSF32 trunc_sf32(final WasmValue value) {
             return new I32TruncSF32(value);
         }
@@ -143,6 +151,26 @@ public class ConstExpressions {
         public static I32TruncSF64 trunc_f64s(final WasmValue value) {
             return new I32TruncSF64(value);
         }
+
+        public static I32Load8S load8_s(final WasmValue address) {
+            return new I32Load8S(address);
+        }
+
+        public static I32Load8U load8_u(final WasmValue address) {
+            return new I32Load8U(address);
+        }
+
+        public static I32Load16U load16_u(final WasmValue address) {
+            return new I32Load16U(address);
+        }
+
+        public static I32Load16S load16_s(final WasmValue address) {
+            return new I32Load16S(address);
+        }
+
+        public static I32Load load(final WasmValue address) {
+            return new I32Load(address);
+        }
     }
 
     public static class i64 {
@@ -233,6 +261,26 @@ public class ConstExpressions {
         public static I64ReinterpretF64 reinterpretf64(final WasmValue value) {
             return new I64ReinterpretF64(value);
         }
+
+        public static I64Clz clz(final WasmValue value) {
+            return new I64Clz(value);
+        }
+
+        public static I64Ctz ctz(final WasmValue value) {
+            return new I64Ctz(value);
+        }
+
+        public static I64Popcount popcount(final WasmValue value) {
+            return new I64Popcount(value);
+        }
+
+        public static I64Rotl rotl(final WasmValue leftValue, final WasmValue rightValue) {
+            return new I64Rotl(leftValue, rightValue);
+        }
+
+        public static I64Rotr rotr(final WasmValue leftValue, final WasmValue rightValue) {
+            return new I64Rotr(leftValue, rightValue);
+        }
     }
 
     public static class f32 {
@@ -317,6 +365,10 @@ public class ConstExpressions {
             return new F32Floor(value);
         }
 
+        public static F32Abs abs(final WasmValue value) {
+            return new F32Abs(value);
+        }
+
         public static F32ConvertSI32 convert_si32(final WasmValue value) {
             return new F32ConvertSI32(value);
         }
@@ -332,6 +384,10 @@ public class ConstExpressions {
         public static F32ReinterpretI32 reinterpreti32(final WasmValue value) {
             return new F32ReinterpretI32(value);
         }
+
+        public static F32Load load(final WasmValue address) {
+            return new F32Load(address);
+        }
     }
 
     public static class f64 {
@@ -403,6 +459,38 @@ public class ConstExpressions {
         public static F64ReinterpretI64 reinterpreti64(final WasmValue value) {
             return new F64ReinterpretI64(value);
         }
+
+        public static F64Abs abs(final WasmValue value) {
+            return new F64Abs(value);
+        }
+
+        public static F64Ceil ceil(final WasmValue value) {
+            return new F64Ceil(value);
+        }
+
+        public static F64Floor floor(final WasmValue value) {
+            return new F64Floor(value);
+        }
+
+        public static F64Nearest nearest(final WasmValue value) {
+            return new F64Nearest(value);
+        }
+
+        public static F64Sqrt sqrt(final WasmValue value) {
+            return new F64Sqrt(value);
+        }
+
+        public static F64Min min(final WasmValue leftValue, final WasmValue rightValue) {
+            return new F64Min(leftValue, rightValue);
+        }
+
+        public static F64Max max(final WasmValue leftValue, final WasmValue rightValue) {
+            return new F64Max(leftValue, rightValue);
+        }
+
+        public static F64CopySign copysign(final WasmValue leftValue, final WasmValue rightValue) {
+            return new F64CopySign(leftValue, rightValue);
+        }
     }
 
     public static GetLocal getLocal(final Local local) {
@@ -463,6 +551,10 @@ public class ConstExpressions {
             return new Cast(type, value);
         }
 
+        public static RefTest test(final StructType type, final WasmValue value) {
+            return new RefTest(type, value);
+        }
+
         public static WasmValue eq(final WasmValue left, final WasmValue right) {
             return new RefEq(left, right);
         }
@@ -498,6 +590,14 @@ public class ConstExpressions {
             return new GetWasmArray(type, array, index);
         }
 
+        public static WasmValue get_s(final WasmType type, final WasmValue array, final WasmValue index) {
+            return new GetWasmArrayS(type, array, index);
+        }
+
+        public static WasmValue get_u(final WasmType type, final WasmValue array, final WasmValue index) {
+            return new GetWasmArrayU(type, array, index);
+        }
+
         public static WasmValue len(final WasmType type, final WasmValue array) {
             return new GetWasmArrayLength(type, array);
         }
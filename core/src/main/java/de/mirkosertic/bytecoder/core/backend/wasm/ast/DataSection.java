@@ -15,15 +15,79 @@
  */
 package de.mirkosertic.bytecoder.core.backend.wasm.ast;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 public class DataSection extends ModuleSection {
 
+    public static class Segment {
+
+        private final int offset;
+        private final byte[] data;
+
+        Segment(final int offset, final byte[] data) {
+            this.offset = offset;
+            this.data = data;
+        }
+    }
+
+    private final List<Segment> segments;
+
     DataSection(final Module module) {
         super(module);
+        this.segments = new ArrayList<>();
+    }
+
+    public Segment newSegment(final int offset, final byte[] data) {
+        final Segment segment = new Segment(offset, data);
+        segments.add(segment);
+        return segment;
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
     }
 
     public void writeTo(final TextWriter textWriter) {
+        for (final Segment segment : segments) {
+            textWriter.opening();
+            textWriter.write("data");
+            textWriter.space();
+
+            textWriter.opening();
+            textWriter.write("i32.const");
+            textWriter.space();
+            textWriter.writeInteger(segment.offset);
+            textWriter.closing();
+
+            textWriter.space();
+            final StringBuilder escaped = new StringBuilder();
+            for (final byte b : segment.data) {
+                escaped.append('\\');
+                escaped.append(Character.forDigit((b >> 4) & 0xf, 16));
+                escaped.append(Character.forDigit(b & 0xf, 16));
+            }
+            textWriter.writeText(escaped.toString());
+            textWriter.closing();
+            textWriter.newLine();
+        }
     }
 
-    public void writeTo(final BinaryWriter binaryWriter) {
+    public void writeTo(final BinaryWriter binaryWriter) throws IOException {
+        try (final BinaryWriter.SectionWriter writer = binaryWriter.dataSection()) {
+            writer.writeUnsignedLeb128(segments.size());
+            for (final Segment segment : segments) {
+                // Active segment for memory zero
+                writer.writeUnsignedLeb128(0);
+                writer.writeByte((byte) 0x41);
+                writer.writeSignedLeb128(segment.offset);
+                writer.writeByte((byte) 0x0b);
+                writer.writeUnsignedLeb128(segment.data.length);
+                for (final byte b : segment.data) {
+                    writer.writeByte(b);
+                }
+            }
+        }
     }
 }
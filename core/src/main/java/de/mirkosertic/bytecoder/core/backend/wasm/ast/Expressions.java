@@ -27,12 +27,33 @@ public class Expressions {
         }
     }
 
+    public class MemoryAccess {
+
+        public void i32_store8(final WasmValue address, final WasmValue value) {
+            parent.addChild(new I32Store8(address, value));
+        }
+
+        public void i32_store16(final WasmValue address, final WasmValue value) {
+            parent.addChild(new I32Store16(address, value));
+        }
+
+        public void i32_store(final WasmValue address, final WasmValue value) {
+            parent.addChild(new I32Store(address, value));
+        }
+
+        public void f32_store(final WasmValue address, final WasmValue value) {
+            parent.addChild(new F32Store(address, value));
+        }
+    }
+
     private final Container parent;
     public final Array array;
+    public final MemoryAccess memory;
 
     Expressions(final Container parent) {
         this.parent = parent;
         this.array = new Array();
+        this.memory = new MemoryAccess();
     }
 
     public Container parent() {
@@ -76,6 +97,11 @@ public class Expressions {
         parent.addChild(branch);
     }
 
+    public void branchTable(final List<LabeledContainer> targets, final LabeledContainer defaultTarget, final WasmValue index) {
+        final BrTable brTable = new BrTable(targets, defaultTarget, index);
+        parent.addChild(brTable);
+    }
+
     public void ret(final WasmValue value) {
         parent.addChild(new ReturnValue(value));
     }
@@ -16,43 +16,83 @@
 package de.mirkosertic.bytecoder.core.backend.wasm.ast;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class FunctionIndex {
 
-    private final List<Function> functions;
+    // Imported functions always come first in the function index space
+    private final List<Function> importedFunctions;
+    private final List<Function> definedFunctions;
+    private final Map<Function, Integer> importedPositions;
+    private final Map<Function, Integer> definedPositions;
+    private final Map<String, Function> importedByLabel;
+    private final Map<String, Function> definedByLabel;
 
     FunctionIndex() {
-        functions = new ArrayList<>();
+        importedFunctions = new ArrayList<>();
+        definedFunctions = new ArrayList<>();
+        importedPositions = new HashMap<>();
+        definedPositions = new HashMap<>();
+        importedByLabel = new HashMap<>();
+        definedByLabel = new HashMap<>();
     }
 
     public int size() {
-        return functions.size();
+        return importedFunctions.size() + definedFunctions.size();
     }
 
     public Function get(final int aIndex) {
-        return functions.get(aIndex);
+        if (aIndex < importedFunctions.size()) {
+            return importedFunctions.get(aIndex);
+        }
+        return definedFunctions.get(aIndex - importedFunctions.size());
+    }
+
+    void addImported(final Function function) {
+        importedPositions.put(function, importedFunctions.size());
+        importedFunctions.add(function);
+        importedByLabel.putIfAbsent(labelKey(function.getLabel()), function);
     }
 
-    public void add(final Function function) {
-        functions.add(function);
+    void addDefined(final Function function) {
+        definedPositions.put(function, definedFunctions.size());
+        definedFunctions.add(function);
+        definedByLabel.putIfAbsent(labelKey(function.getLabel()), function);
     }
 
     public int indexOf(final Function value) {
-        return functions.indexOf(value);
+        final Integer imported = importedPositions.get(value);
+        if (imported != null) {
+            return imported;
+        }
+        final Integer defined = definedPositions.get(value);
+        if (defined != null) {
+            return importedFunctions.size() + defined;
+        }
+        return -1;
     }
 
     public List<ExportableFunction> exportableFunctions() {
-        return functions.stream().filter(t -> t instanceof ExportableFunction).map(t -> (ExportableFunction) t).collect(Collectors.toList());
+        return definedFunctions.stream().filter(t -> t instanceof ExportableFunction).map(t -> (ExportableFunction) t).collect(Collectors.toList());
     }
 
     public <T extends Function> T firstByLabel(final String label) {
-        for (final Function function : functions) {
-            if (label.equalsIgnoreCase(function.getLabel())) {
-                return (T) function;
-            }
+        final String key = labelKey(label);
+        Function function = importedByLabel.get(key);
+        if (function == null) {
+            function = definedByLabel.get(key);
+        }
+        if (function == null) {
+            throw new IllegalArgumentException("No such method : " + label);
         }
-        throw new IllegalArgumentException("No such method : " + label);
+        return (T) function;
+    }
+
+    private static String labelKey(final String label) {
+        return label.toLowerCase(Locale.ROOT);
     }
 }
@@ -33,6 +33,7 @@ public class FunctionsSection extends ModuleSection {
         final FunctionType type = getModule().getTypes().functionType(parameter.stream().map(Local::getType).collect(Collectors.toList()), result);
         final ExportableFunction function = new ExportableFunction(getModule(), type, label, parameter, result);
         functions.add(function);
+        getModule().functionIndex().addDefined(function);
         return function;
     }
 
@@ -40,6 +41,7 @@ public class FunctionsSection extends ModuleSection {
         final FunctionType type = getModule().getTypes().functionType(parameter.stream().map(Local::getType).collect(Collectors.toList()));
         final ExportableFunction function = new ExportableFunction(getModule(), type, label, parameter);
         functions.add(function);
+        getModule().functionIndex().addDefined(function);
         return function;
     }
 
@@ -47,6 +49,7 @@ public class FunctionsSection extends ModuleSection {
         final FunctionType type = getModule().getTypes().functionType(result);
         final ExportableFunction function = new ExportableFunction(getModule(), type, label, result);
         functions.add(function);
+        getModule().functionIndex().addDefined(function);
         return function;
     }
 
@@ -54,6 +57,7 @@ public class FunctionsSection extends ModuleSection {
         final FunctionType type = getModule().getTypes().functionType((WasmType) null);
         final ExportableFunction function = new ExportableFunction(getModule(), type, label);
         functions.add(function);
+        getModule().functionIndex().addDefined(function);
         return function;
     }
 
@@ -83,10 +87,4 @@ public class FunctionsSection extends ModuleSection {
             }
         }
     }
-
-    public void addFunctionsToIndex(final FunctionIndex functionIndex) {
-        for (final Function f : functions) {
-            functionIndex.add(f);
-        }
-    }
 }
@@ -39,7 +39,7 @@ public class Global {
         return type;
     }
 
-    public void writeTo(final TextWriter textWriter) throws IOException {
+    public void writeTo(final TextWriter textWriter, final WasmValue.ExportContext context) throws IOException {
         textWriter.opening();
         textWriter.write("global");
         textWriter.space();
@@ -55,7 +55,7 @@ public class Global {
             type.writeRefTo(textWriter);
         }
         textWriter.space();
-        initializer.writeTo(textWriter, null);
+        initializer.writeTo(textWriter, context);
         textWriter.closing();
         textWriter.newLine();
     }
@@ -15,32 +15,37 @@
  */
 package de.mirkosertic.bytecoder.core.backend.wasm.ast;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
+import java.util.HashMap;
+import java.util.Map;
 
 public class GlobalsIndex {
 
-    private final List<Global> globals;
+    private final Map<String, Global> globalsByLabel;
+    private final Map<Global, Integer> positions;
 
     GlobalsIndex() {
-        globals = new ArrayList<>();
+        globalsByLabel = new HashMap<>();
+        positions = new HashMap<>();
     }
 
-    public void add(final Global global) {
-        globals.add(global);
+    void add(final Global global) {
+        positions.put(global, positions.size());
+        globalsByLabel.putIfAbsent(global.getLabel(), global);
     }
 
     public Global globalByLabel(final String globalName) {
-        for (final Global g : globals) {
-            if (Objects.equals(globalName, g.getLabel())) {
-                return g;
-            }
+        final Global g = globalsByLabel.get(globalName);
+        if (g == null) {
+            throw new IllegalArgumentException("No such global : " + globalName);
         }
-        throw new IllegalArgumentException("No such global : " + globalName);
+        return g;
     }
 
     public int indexOf(final Global global) {
-        return globals.indexOf(global);
+        final Integer position = positions.get(global);
+        if (position == null) {
+            return -1;
+        }
+        return position;
     }
 }
@@ -22,27 +22,31 @@ import java.util.List;
 public class GlobalsSection extends ModuleSection {
 
     private final List<Global> globals;
+    private final GlobalsIndex globalsIndex;
 
     GlobalsSection(final Module aModule) {
         super(aModule);
         this.globals = new ArrayList<>();
+        this.globalsIndex = new GlobalsIndex();
     }
 
     public Global newMutableGlobal(final String name, final WasmType type, final WasmValue initializer) {
         final Global global = new Global(name, type, true, initializer);
         globals.add(global);
+        globalsIndex.add(global);
         return global;
     }
 
     public Global newConstantGlobal(final String name, final WasmType type, final WasmValue initializer) {
         final Global global = new Global(name, type, false, initializer);
         globals.add(global);
+        globalsIndex.add(global);
         return global;
     }
 
-    public void writeTo(final TextWriter textWriter) throws IOException {
+    public void writeTo(final TextWriter textWriter, final WasmValue.ExportContext context) throws IOException {
         for (final Global global : globals) {
-            global.writeTo(textWriter);
+            global.writeTo(textWriter, context);
         }
     }
 
@@ -56,10 +60,6 @@ public class GlobalsSection extends ModuleSection {
     }
 
     public GlobalsIndex globalsIndex() {
-        final GlobalsIndex index = new GlobalsIndex();
-        for (final Global g : globals) {
-            index.add(g);
-        }
-        return index;
+        return globalsIndex;
     }
 }
@@ -52,6 +52,7 @@ public class ImportsSection extends ModuleSection {
         final FunctionType type = getModule().getTypes().functionType(parameter.stream().map(Local::getType).collect(Collectors.toList()), result);
         final Function function = new Function(getModule(), type, label, parameter, result);
         imports.add(new ImportEntry(importReference, function));
+        getModule().functionIndex().addImported(function);
         return function;
     }
 
@@ -59,6 +60,7 @@ public class ImportsSection extends ModuleSection {
         final FunctionType type = getModule().getTypes().functionType(parameter.stream().map(Local::getType).collect(Collectors.toList()));
         final Function function = new Function(getModule(), type, label, parameter);
         imports.add(new ImportEntry(importReference, function));
+        getModule().functionIndex().addImported(function);
         return function;
     }
 
@@ -66,6 +68,7 @@ public class ImportsSection extends ModuleSection {
         final FunctionType type = getModule().getTypes().functionType(result);
         final Function function = new Function(getModule(), type, label, result);
         imports.add(new ImportEntry(importReference, function));
+        getModule().functionIndex().addImported(function);
         return function;
     }
 
@@ -87,14 +90,6 @@ public class ImportsSection extends ModuleSection {
         }
     }
 
-    public void addFunctionsToIndex(final FunctionIndex functionIndex) {
-        for (final ImportEntry value : imports) {
-            if (value.getImportable() instanceof Function) {
-                functionIndex.add((Function) value.getImportable());
-            }
-        }
-    }
-
     public void writeTo(final BinaryWriter binaryWriter,
             final List<Memory> memoryIndex) throws IOException {
         final TagIndex exceptionIndex = getModule().tagIndex();
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend.wasm.ast;
+
+import java.io.IOException;
+
+public abstract class MemoryLoad implements WasmExpression {
+
+    private final WasmValue address;
+    private final String textCode;
+    private final byte binaryCode;
+    private final int alignment;
+
+    protected MemoryLoad(final WasmValue address, final String textCode, final byte binaryCode, final int alignment) {
+        this.address = address;
+        this.textCode = textCode;
+        this.binaryCode = binaryCode;
+        this.alignment = alignment;
+    }
+
+    @Override
+    public void writeTo(final TextWriter textWriter, final ExportContext context) throws IOException {
+        textWriter.opening();
+        textWriter.write(textCode);
+        textWriter.space();
+        address.writeTo(textWriter, context);
+        textWriter.closing();
+    }
+
+    @Override
+    public void writeTo(final BinaryWriter.Writer codeWriter, final ExportContext context) throws IOException {
+        address.writeTo(codeWriter, context);
+        codeWriter.writeByte(binaryCode);
+        codeWriter.writeUnsignedLeb128(alignment);
+        codeWriter.writeUnsignedLeb128(0);
+    }
+}
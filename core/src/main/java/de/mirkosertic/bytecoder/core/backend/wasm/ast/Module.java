@@ -28,14 +28,18 @@ public class Module {
     private final MemorySection mems;
     private final GlobalsSection globals;
     private final ElementSection elements;
+    private final DataSection data;
     private final ImportsSection imports;
     private final ExportsSection exports;
     private final NameSection names;
     private final TagSection tags;
     private final SourceMapSection sourceMapSection;
+    private final FunctionIndex functionIndex;
+    private int labelCounter;
 
     public Module(final String label, final String sourcemapFileName) {
         this.label = label;
+        this.functionIndex = new FunctionIndex();
         this.types = new TypesSection(this);
         this.exports = new ExportsSection(this);
         this.tables = new TablesSection(this);
@@ -43,7 +47,7 @@ public class Module {
         this.functions = new FunctionsSection(this);
         this.mems = new MemorySection(this);
         this.elements = new ElementSection(this);
-        final DataSection data = new DataSection(this);
+        this.data = new DataSection(this);
         final StartSection start = new StartSection(this);
         this.imports = new ImportsSection(this);
         this.names = new NameSection(this);
@@ -61,15 +65,23 @@ public class Module {
         types.writeTo(writer);
         imports.writeTo(writer);
         mems.writeTo(writer);
-        globals.writeTo(writer);
+        globals.writeTo(writer, moduleExportContext());
         tags.writeCodeTo(writer);
         tables.writeTo(writer);
         elements.writeTo(writer);
+        data.writeTo(writer);
         functions.writeTo(writer);
         exports.writeTo(writer);
         writer.closing();
     }
 
+    /**
+     * Index for labels that have to be unique within this module, like the ones of generated lambda types and functions.
+     */
+    public int nextLabelIndex() {
+        return labelCounter++;
+    }
+
     public TypesSection getTypes() {
         return types;
     }
@@ -83,20 +95,11 @@ public class Module {
     }
 
     public FunctionIndex functionIndex() {
-        final FunctionIndex functionIndex = new FunctionIndex();
-        imports.addFunctionsToIndex(functionIndex);
-        functions.addFunctionsToIndex(functionIndex);
         return functionIndex;
     }
 
-    public void writeTo(final BinaryWriter writer, final boolean enableDebug) throws IOException {
-
-        final FunctionIndex functionIndex = functionIndex();
-
-        final List<Memory> memoryIndex = new ArrayList<>();
-        mems.addMemoriesToIndex(memoryIndex);
-
-        final WasmValue.ExportContext context = new WasmValue.ExportContext() {
+    private WasmValue.ExportContext moduleExportContext() {
+        return new WasmValue.ExportContext() {
             @Override
             public Container owningContainer() {
                 return null;
@@ -132,6 +135,16 @@ public class Module {
                 return Module.this.getTables().funcTable();
             }
         };
+    }
+
+    public void writeTo(final BinaryWriter writer, final boolean enableDebug) throws IOException {
+
+        final FunctionIndex functionIndex = functionIndex();
+
+        final List<Memory> memoryIndex = new ArrayList<>();
+        mems.addMemoriesToIndex(memoryIndex);
+
+        final WasmValue.ExportContext context = moduleExportContext();
 
         writer.header();
         types.writeTo(writer);
@@ -144,6 +157,9 @@ public class Module {
         exports.writeTo(writer, memoryIndex);
         elements.writeTo(writer, functionIndex);
         functions.writeCodeTo(writer, functionIndex);
+        if (!data.isEmpty()) {
+            data.writeTo(writer);
+        }
         if (enableDebug) {
             names.writeCodeTo(writer);
         }
@@ -156,6 +172,10 @@ public class Module {
         return label;
     }
 
+    public DataSection getData() {
+        return data;
+    }
+
     public MemorySection getMems() {
         return mems;
     }
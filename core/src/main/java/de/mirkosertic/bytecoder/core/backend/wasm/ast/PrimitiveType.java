@@ -25,7 +25,10 @@ public enum PrimitiveType implements WasmType {
     struct("struct", (byte) 0x5f),
     array("array", (byte) 0x5e),
     empty_block("pseudo", (byte) 0x40),
-    externref("externref", (byte) 0x6f);
+    externref("externref", (byte) 0x6f),
+    // Packed storage types, only valid as array or struct field types
+    i8("i8", (byte) 0x78),
+    i16("i16", (byte) 0x77);
 
     private final String text;
     private final byte binaryType;
@@ -35,6 +35,11 @@ public class StructSubtype extends StructType {
         this.supertype = supertype;
     }
 
+    @Override
+    public StructType getSupertype() {
+        return supertype;
+    }
+
     @Override
     public void writeTo(final TextWriter writer) {
         writer.opening();
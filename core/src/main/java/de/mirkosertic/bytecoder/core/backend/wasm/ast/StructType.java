@@ -131,6 +131,19 @@ public class StructType implements ReferencableType {
         return fields;
     }
 
+    public StructType getSupertype() {
+        return null;
+    }
+
+    public boolean isSubtypeOf(final StructType other) {
+        for (StructType t = this; t != null; t = t.getSupertype()) {
+            if (t == other) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) return true;
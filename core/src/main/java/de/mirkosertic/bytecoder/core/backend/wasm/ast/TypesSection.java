@@ -17,59 +17,60 @@ package de.mirkosertic.bytecoder.core.backend.wasm.ast;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class TypesSection extends ModuleSection {
 
     private final List<WasmType> types;
+    private final Map<WasmType, Integer> typeIndex;
+    private final Map<String, StructType> structTypesByName;
+    private final Map<WasmType, ArrayType> arrayTypesByElementType;
+    private final Map<List<Object>, FunctionType> functionTypesBySignature;
 
     TypesSection(final Module aModule) {
         super(aModule);
         this.types = new ArrayList<>();
+        this.typeIndex = new HashMap<>();
+        this.structTypesByName = new HashMap<>();
+        this.arrayTypesByElementType = new HashMap<>();
+        this.functionTypesBySignature = new HashMap<>();
     }
 
     public FunctionType functionType(final List<WasmType> arguments, final WasmType returnType) {
-        // We search for the same type
-        for (final WasmType type : types) {
-            if (type instanceof FunctionType) {
-                final FunctionType otherType = (FunctionType) type;
-                if (otherType.matches(arguments, returnType)) {
-                    return otherType;
-                }
-            }
+        final FunctionType existing = functionTypesBySignature.get(signatureOf(arguments, returnType));
+        if (existing != null) {
+            return existing;
         }
         // Register a new one
         return register(new FunctionType(this, arguments, returnType));
     }
 
     public FunctionType functionType(final List<WasmType> arguments) {
-        // We search for the same type
-        for (final WasmType type : types) {
-            if (type instanceof FunctionType) {
-                final FunctionType otherType = (FunctionType) type;
-                if (otherType.matches(arguments)) {
-                    return otherType;
-                }
-            }
+        final FunctionType existing = functionTypesBySignature.get(signatureOf(arguments, null));
+        if (existing != null) {
+            return existing;
         }
         // Register a new one
         return register(new FunctionType(this, arguments));
     }
 
     public FunctionType functionType(final WasmType returnType) {
-        // We search for the same type
-        for (final WasmType type : types) {
-            if (type instanceof FunctionType) {
-                final FunctionType otherType = (FunctionType) type;
-                if (otherType.matches(returnType)) {
-                    return otherType;
-                }
-            }
+        final FunctionType existing = functionTypesBySignature.get(signatureOf(null, returnType));
+        if (existing != null) {
+            return existing;
         }
         // Register a new one
         return register(new FunctionType(this, returnType));
     }
 
+    private static List<Object> signatureOf(final List<WasmType> parameter, final WasmType resultType) {
+        // Missing parameters or result are part of the signature, as FunctionType.matches() distinguishes them
+        return Arrays.asList(parameter, resultType);
+    }
+
     public StructType structType(final String name, final List<StructType.Field> fields) {
         return register(new StructType(this, name, fields));
     }
@@ -79,27 +80,38 @@ public class TypesSection extends ModuleSection {
     }
 
     public ArrayType arrayType(final WasmType elementType) {
-        for (final WasmType type : types) {
-            if (type instanceof ArrayType) {
-                final ArrayType otherType = (ArrayType) type;
-                if (otherType.getElementType().equals(elementType)) {
-                    return otherType;
-                }
-            }
+        final ArrayType existing = arrayTypesByElementType.get(elementType);
+        if (existing != null) {
+            return existing;
         }
         // Register a new one
         return register(new ArrayType(this, elementType));
     }
 
     <T extends WasmType> T register(final T wasmType) {
-        if (!types.contains(wasmType)) {
+        if (!typeIndex.containsKey(wasmType)) {
+            typeIndex.put(wasmType, types.size());
             types.add(wasmType);
+            if (wasmType instanceof StructType) {
+                final StructType s = (StructType) wasmType;
+                structTypesByName.putIfAbsent(s.name, s);
+            } else if (wasmType instanceof ArrayType) {
+                final ArrayType a = (ArrayType) wasmType;
+                arrayTypesByElementType.putIfAbsent(a.getElementType(), a);
+            } else if (wasmType instanceof FunctionType) {
+                final FunctionType f = (FunctionType) wasmType;
+                functionTypesBySignature.putIfAbsent(signatureOf(f.getParameter(), f.getResultType()), f);
+            }
         }
         return wasmType;
     }
 
     public int indexOf(final WasmType type) {
-        return types.indexOf(type);
+        final Integer index = typeIndex.get(type);
+        if (index == null) {
+            return -1;
+        }
+        return index;
     }
 
     public void writeTo(final TextWriter textWriter) {
@@ -119,15 +131,11 @@ public class TypesSection extends ModuleSection {
     }
 
     public StructType structTypeByName(final String name) {
-        for (final WasmType t : types) {
-            if (t instanceof StructType) {
-                final StructType s = (StructType) t;
-                if (s.name.equals(name)) {
-                    return s;
-                }
-            }
+        final StructType s = structTypesByName.get(name);
+        if (s == null) {
+            throw new IllegalArgumentException("Unknown struct type : " + name);
         }
-        throw new IllegalArgumentException("Unknown struct type : " + name);
+        return s;
     }
 
     public List<StructType> structTypes() {
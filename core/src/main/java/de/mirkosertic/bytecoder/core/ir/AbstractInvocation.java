@@ -22,4 +22,8 @@ public interface AbstractInvocation {
     InvocationType invocationType();
 
     void changeInvocationTypeTo(final InvocationType newInvocationType);
+
+    int inliningDepth();
+
+    void changeInliningDepthTo(final int newInliningDepth);
 }
@@ -15,8 +15,8 @@
  */
 package de.mirkosertic.bytecoder.core.ir;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -27,8 +27,9 @@ public abstract class ControlTokenConsumer extends Node {
 
     ControlTokenConsumer(final Graph owner, final NodeType nodeType) {
         super(owner, nodeType);
-        controlFlowsTo = new HashMap<>();
-        controlComingFrom = new HashSet<>();
+        // Insertion ordered, so the generated code does not depend on hash codes
+        controlFlowsTo = new LinkedHashMap<>();
+        controlComingFrom = new LinkedHashSet<>();
     }
 
     public void addControlFlowTo(final Projection projection, final ControlTokenConsumer node) {
@@ -25,6 +25,7 @@ import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -33,7 +34,9 @@ public class Graph {
 
     public static final String START_REGION_NAME = "Start";
 
-    private final List<Node> nodes;
+    private final Set<Node> nodes;
+
+    private int nodeCounter;
 
     private final Map<AbstractInsnNode, InstructionTranslation> translations;
 
@@ -41,13 +44,16 @@ public class Graph {
 
     private final Map<String, Region> labeledRegions;
 
+    private final Map<Type, TypeReference> typeReferences;
+
     private final Logger logger;
 
     public Graph(final Logger logger) {
-        this.nodes = new ArrayList<>();
+        this.nodes = new LinkedHashSet<>();
         this.translations = new HashMap<>();
         this.fixups = new ArrayList<>();
         this.labeledRegions = new HashMap<>();
+        this.typeReferences = new HashMap<>();
         this.logger = logger;
     }
 
@@ -56,15 +62,7 @@ public class Graph {
     }
 
     public Node[] outgoingDataFlowsFor(final Node n) {
-        final Set<Node> result = new HashSet<>();
-        for (final Node t : nodes) {
-            for (final Node incoming : t.incomingDataFlows) {
-                if (incoming == n) {
-                    result.add(t);
-                }
-            }
-        }
-        return result.toArray(new Node[0]);
+        return n.usages();
     }
 
     public void addFixup(final Fixup fixup) {
@@ -91,6 +89,7 @@ public class Graph {
     }
 
     public Node register(final Node n) {
+        n.index = nodeCounter++;
         nodes.add(n);
         if (n instanceof Region) {
             final Region r = (Region) n;
@@ -103,6 +102,14 @@ public class Graph {
         return new ArrayList<>(nodes);
     }
 
+    public boolean contains(final Node n) {
+        return nodes.contains(n);
+    }
+
+    public int indexOf(final Node n) {
+        return n.index;
+    }
+
     public Region regionByLabel(final String label) {
         return labeledRegions.get(label);
     }
@@ -214,9 +221,9 @@ public class Graph {
     public void writeDebugTo(final OutputStream fileOutputStream) {
         final PrintWriter pw = new PrintWriter(fileOutputStream);
         pw.println("digraph debugoutput {");
-        for (int i = 0; i < nodes.size(); i++) {
-            final Node n = nodes.get(i);
-            final String label = nodes.indexOf(n) + " " + n.getClass().getSimpleName() + " " + n.additionalDebugInfo();
+        for (final Node n : nodes) {
+            final int i = n.index;
+            final String label = n.index + " " + n.getClass().getSimpleName() + " " + n.additionalDebugInfo();
             pw.print(" node_" + i + "[label=\"" + label + "\" ");
             if (n instanceof ControlTokenConsumer) {
                 pw.print("shape=\"box\" fillcolor=\"orangered\" style=\"filled\"");
@@ -236,12 +243,12 @@ public class Graph {
             pw.println("];");
             for (int inidx = 0; inidx < n.incomingDataFlows.length; inidx++) {
                 final Node incoming = n.incomingDataFlows[inidx];
-                pw.println(" node_" + nodes.indexOf(incoming) + " -> node_" + i + "[dir=\"forward\" color=\"cyan2\" label=\"arg " + inidx + "\"];");
+                pw.println(" node_" + incoming.index + " -> node_" + i + "[dir=\"forward\" color=\"cyan2\" label=\"arg " + inidx + "\"];");
             }
             if (n instanceof ControlTokenConsumer) {
                 final ControlTokenConsumer c = (ControlTokenConsumer) n;
                 for (final Map.Entry<Projection, ControlTokenConsumer> entry : c.controlFlowsTo.entrySet()) {
-                    pw.print(" node_" + i + " -> node_" + nodes.indexOf(entry.getValue()) + "[dir=\"forward\"");
+                    pw.print(" node_" + i + " -> node_" + entry.getValue().index + "[dir=\"forward\"");
                     if (entry.getKey().isControlFlow()) {
                         pw.print(" color=\"red\" penwidth=\"2\"");
                     } else {
@@ -323,15 +330,13 @@ public class Graph {
     }
 
     public TypeReference newTypeReference(final Type type) {
-        for (final Node n : nodes) {
-            if (n instanceof TypeReference) {
-                final TypeReference t = (TypeReference) n;
-                if (t.type.equals(type)) {
-                    return t;
-                }
-            }
+        final TypeReference existing = typeReferences.get(type);
+        if (existing != null && nodes.contains(existing)) {
+            return existing;
         }
-        return (TypeReference) register(new TypeReference(this, type));
+        final TypeReference t = (TypeReference) register(new TypeReference(this, type));
+        typeReferences.put(type, t);
+        return t;
     }
 
     public New newNew(final Type type) {
@@ -367,7 +372,11 @@ public class Graph {
     }
 
     public void deleteNode(final Node node) {
-        nodes.remove(node);
+        if (nodes.remove(node)) {
+            for (final Node incoming : node.incomingDataFlows) {
+                incoming.removeUsage(node);
+            }
+        }
     }
 
     public PrimitiveFloat newFloat(final float constant) {
@@ -442,6 +451,10 @@ public class Graph {
         return (Reinterpret) register(new Reinterpret(this, type));
     }
 
+    public MathFunction newMathFunction(final Type type, final MathFunction.Kind kind) {
+        return (MathFunction) register(new MathFunction(this, type, kind));
+    }
+
     public BootstrapMethod newBootstrapMethod(final Type methodType, final Type className, final String methodName, final Reference.Kind kind) {
         return (BootstrapMethod) register(new BootstrapMethod(this, methodType, className, methodName, kind));
     }
@@ -451,35 +464,51 @@ public class Graph {
     }
 
     public void remapDataFlow(final Node original, final Node newValue) {
-        for (final Node n : nodes) {
+        for (final Node n : original.usages()) {
             n.remapDataFlow(original, newValue);
         }
     }
 
-    private void removeControlFlowTo(final ControlTokenConsumer source, final ControlTokenConsumer target) {
-        final Set<Projection> keysToRemove = new HashSet<>();
-        for (final Map.Entry<Projection, ControlTokenConsumer> entry : source.controlFlowsTo.entrySet()) {
-            if (entry.getValue() == target) {
-                keysToRemove.add(entry.getKey());
-            }
+    /**
+     * Inserts the already linked control flow chain from first to last right before the given node.
+     */
+    public void insertIntoControlFlowBefore(final ControlTokenConsumer consumer, final ControlTokenConsumer first, final ControlTokenConsumer last) {
+        if (consumer.hasIncomingBackEdges()) {
+            throw new IllegalStateException("Cannot insert before node with incoming back edges!");
         }
-        for (final Projection key : keysToRemove) {
-            source.controlFlowsTo.remove(key);
+        for (final ControlTokenConsumer pred : consumer.controlComingFrom) {
+            for (final Map.Entry<Projection, ControlTokenConsumer> entry : pred.controlFlowsTo.entrySet()) {
+                if (entry.getValue() == consumer) {
+                    entry.setValue(first);
+                    first.controlComingFrom.add(pred);
+                }
+            }
         }
+        consumer.controlComingFrom.clear();
+        last.addControlFlowTo(StandardProjections.DEFAULT, consumer);
     }
 
     void deleteFromControlFlowInternally(final ControlTokenConsumer consumer) {
         if (consumer.hasIncomingBackEdges()) {
             throw new IllegalStateException("Cannot delete node with incoming back edges!");
         }
-        for (final ControlTokenConsumer pred : new HashSet<>(consumer.controlComingFrom)) {
-            for (final Map.Entry<Projection, ControlTokenConsumer> entry : consumer.controlFlowsTo.entrySet()) {
-                removeControlFlowTo(pred, consumer);
-                pred.addControlFlowTo(entry.getKey(), entry.getValue());
-
-                entry.getValue().controlComingFrom.remove(consumer);
+        if (consumer.controlFlowsTo.size() != 1) {
+            throw new IllegalStateException("Cannot delete node with " + consumer.controlFlowsTo.size() + " outgoing control flows!");
+        }
+        final Map.Entry<Projection, ControlTokenConsumer> outgoing = consumer.controlFlowsTo.entrySet().iterator().next();
+        final ControlTokenConsumer successor = outgoing.getValue();
+        successor.controlComingFrom.remove(consumer);
+        for (final ControlTokenConsumer pred : consumer.controlComingFrom) {
+            // The predecessor keeps its projection, but the edge type is taken from the outgoing edge,
+            // as it might be a back edge to a loop header
+            for (final Projection projection : new ArrayList<>(pred.controlFlowsTo.keySet())) {
+                if (pred.controlFlowsTo.get(projection) == consumer) {
+                    pred.controlFlowsTo.remove(projection);
+                    pred.addControlFlowTo(projection.withEdgeType(outgoing.getKey().edgeType()), successor);
+                }
             }
-            consumer.controlComingFrom.remove(pred);
         }
+        consumer.controlComingFrom.clear();
+        consumer.controlFlowsTo.clear();
     }
 }
@@ -20,4 +20,8 @@ public class If extends ControlTokenConsumer {
     If(final Graph owner) {
         super(owner, NodeType.If);
     }
+
+    public void deleteFromControlFlow() {
+        owner.deleteFromControlFlowInternally(this);
+    }
 }
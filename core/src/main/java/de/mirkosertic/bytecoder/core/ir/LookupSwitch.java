@@ -20,4 +20,8 @@ public class LookupSwitch extends ControlTokenConsumer {
     LookupSwitch(final Graph owner) {
         super(owner, NodeType.LookupSwitch);
     }
+
+    public void deleteFromControlFlow() {
+        owner.deleteFromControlFlowInternally(this);
+    }
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.ir;
+
+import org.objectweb.asm.Type;
+
+public class MathFunction extends Value {
+
+    public enum Kind {
+        ABS, MIN, MAX, SQRT, FLOOR, CEIL, RINT, COPYSIGN, CLZ, CTZ, POPCNT, ROTL, ROTR
+    }
+
+    public final Kind kind;
+
+    MathFunction(final Graph owner, final Type type, final Kind kind) {
+        super(owner, type, NodeType.MathFunction);
+        this.kind = kind;
+    }
+
+    @Override
+    public String additionalDebugInfo() {
+        return ": " + kind;
+    }
+}
@@ -25,6 +25,9 @@ public class MethodInvocation extends ControlTokenConsumer implements PotentialS
 
     public InvocationType invocationType;
 
+    // Number of inlined methods this invocation was copied from
+    public int inliningDepth;
+
     MethodInvocation(final Graph owner, final MethodInsnNode insnNode, final ResolvedMethod method, final InvocationType invocationType) {
         super(owner, NodeType.MethodInvocation);
         this.insnNode = insnNode;
@@ -51,4 +54,18 @@ public class MethodInvocation extends ControlTokenConsumer implements PotentialS
     public void changeInvocationTypeTo(final InvocationType newInvocationType) {
         invocationType = newInvocationType;
     }
+
+    @Override
+    public int inliningDepth() {
+        return inliningDepth;
+    }
+
+    @Override
+    public void changeInliningDepthTo(final int newInliningDepth) {
+        inliningDepth = newInliningDepth;
+    }
+
+    public void deleteFromControlFlow() {
+        owner.deleteFromControlFlowInternally(this);
+    }
 }
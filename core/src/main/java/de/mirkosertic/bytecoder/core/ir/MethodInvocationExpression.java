@@ -25,6 +25,9 @@ public class MethodInvocationExpression extends Value implements PotentialSideef
 
     public InvocationType invocationType;
 
+    // Number of inlined methods this invocation was copied from
+    public int inliningDepth;
+
     MethodInvocationExpression(final Graph owner, final MethodInsnNode insnNode, final ResolvedMethod method, final InvocationType invocationType) {
         super(owner, method.methodType.getReturnType(), NodeType.MethodInvocationExpression);
         this.insnNode = insnNode;
@@ -51,4 +54,14 @@ public class MethodInvocationExpression extends Value implements PotentialSideef
     public void changeInvocationTypeTo(final InvocationType newInvocationType) {
         invocationType = newInvocationType;
     }
+
+    @Override
+    public int inliningDepth() {
+        return inliningDepth;
+    }
+
+    @Override
+    public void changeInliningDepthTo(final int newInliningDepth) {
+        inliningDepth = newInliningDepth;
+    }
 }
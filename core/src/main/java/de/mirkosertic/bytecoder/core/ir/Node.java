@@ -15,10 +15,20 @@
  */
 package de.mirkosertic.bytecoder.core.ir;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public abstract class Node {
 
     public Node[] incomingDataFlows;
 
+    // Def-use edges, maintained incrementally. The value is the number of incoming
+    // data flow slots of the using node referencing this node.
+    private Map<Node, Integer> usages;
+
+    int index;
+
     boolean error;
 
     final Graph owner;
@@ -29,6 +39,7 @@ public abstract class Node {
         this.owner = owner;
         this.nodeType = nodeType;
         this.incomingDataFlows = new Node[0];
+        this.usages = Collections.emptyMap();
     }
 
     public String additionalDebugInfo() {
@@ -44,6 +55,9 @@ public abstract class Node {
             System.arraycopy(nodes, 0, newData, incomingDataFlows.length, nodes.length);
             incomingDataFlows = newData;
         }
+        for (final Node n : nodes) {
+            n.addUsage(this);
+        }
     }
 
     public Node[] outgoingDataFlows() {
@@ -54,6 +68,49 @@ public abstract class Node {
         for (int i = 0; i < incomingDataFlows.length; i++) {
             if (incomingDataFlows[i] == original) {
                 incomingDataFlows[i] = newValue;
+                original.removeUsage(this);
+                newValue.addUsage(this);
+            }
+        }
+    }
+
+    public void removeIncomingData(final Node node) {
+        int count = 0;
+        for (final Node n : incomingDataFlows) {
+            if (n != node) {
+                count++;
+            }
+        }
+        final Node[] newData = new Node[count];
+        int i = 0;
+        for (final Node n : incomingDataFlows) {
+            if (n != node) {
+                newData[i++] = n;
+            } else {
+                node.removeUsage(this);
+            }
+        }
+        incomingDataFlows = newData;
+    }
+
+    Node[] usages() {
+        return usages.keySet().toArray(new Node[0]);
+    }
+
+    void addUsage(final Node user) {
+        if (usages.isEmpty()) {
+            usages = new LinkedHashMap<>();
+        }
+        usages.merge(user, 1, Integer::sum);
+    }
+
+    void removeUsage(final Node user) {
+        final Integer count = usages.get(user);
+        if (count != null) {
+            if (count == 1) {
+                usages.remove(user);
+            } else {
+                usages.put(user, count - 1);
             }
         }
     }
@@ -27,7 +27,7 @@ import java.io.*;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.Stack;
@@ -64,7 +64,7 @@ public class ResolvedClass {
         this.classNode = classNode;
         this.superClass = superClass;
         this.interfaces = interfaces;
-        this.directSubclasses = new HashSet<>();
+        this.directSubclasses = new LinkedHashSet<>();
         this.resolvedMethods = new ArrayList<>();
         this.resolvedFields = new ArrayList<>();
         this.needsInitialization = true;
@@ -132,6 +132,7 @@ public class ResolvedClass {
                     if (onlyImplementations && (Modifier.isAbstract(methodNode.access) || Modifier.isNative(methodNode.access))) {
                         continue;
                     }
+                    compileUnit.checkLinkingNotFrozen(classNode.name + "." + methodName + methodNode.desc);
                     final ResolvedMethod r = new ResolvedMethod(this, methodNode, Type.getMethodType(methodNode.desc));
                     resolvedMethods.add(r);
                     r.parseBody(analysisStack);
@@ -169,6 +170,7 @@ public class ResolvedClass {
         }
         for (final FieldNode f : classNode.fields) {
             if (f.name.equals(name)) {
+                compileUnit.checkLinkingNotFrozen(classNode.name + "." + name);
                 final ResolvedField rf = new ResolvedField(this, name, Type.getType(f.desc), f.value, f.access);
                 resolvedFields.add(rf);
                 return rf;
@@ -189,35 +191,51 @@ public class ResolvedClass {
     }
 
     public void finalizeLinkingHierarchy(final AnalysisStack analysisStack) {
+        // Rapid type analysis, only classes that are instantiated can be the receiver of a virtual
+        // invocation, so only they need implementations of the methods resolved in their supertypes
         final List<ResolvedMethod> methods = new ArrayList<>(resolvedMethods);
-        for (final ResolvedClass leaf : leafSubclasses()) {
+        for (final ResolvedClass sub : instantiatedSubclasses()) {
             for (final ResolvedMethod m : methods) {
-                if (!Modifier.isStatic(m.methodNode.access)) {
-                    leaf.resolveMethodInternal(m.methodNode.name, m.methodType, analysisStack, true);
+                if (!Modifier.isStatic(m.methodNode.access) && !"<init>".equals(m.methodNode.name)) {
+                    sub.resolveMethodInternal(m.methodNode.name, m.methodType, analysisStack, true);
                 }
             }
         }
     }
 
-    public Set<ResolvedClass> leafSubclasses() {
-        final Set<ResolvedClass> subClasses = new HashSet<>();
+    public boolean isInstantiated() {
+        if (Modifier.isAbstract(classNode.access)) {
+            return false;
+        }
+        for (final ResolvedMethod m : resolvedMethods) {
+            if (m.owner == this && "<init>".equals(m.methodNode.name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Set<ResolvedClass> instantiatedSubclasses() {
+        final Set<ResolvedClass> visited = new LinkedHashSet<>();
+        final Set<ResolvedClass> result = new LinkedHashSet<>();
         final Stack<ResolvedClass> workingStack = new Stack<>();
         workingStack.push(this);
         while (!workingStack.isEmpty()) {
             final ResolvedClass entry = workingStack.pop();
-            if (entry.directSubclasses.isEmpty()) {
-                subClasses.add(entry);
-            } else {
+            if (visited.add(entry)) {
+                if (entry.isInstantiated()) {
+                    result.add(entry);
+                }
                 for (final ResolvedClass subclass : entry.directSubclasses) {
                     workingStack.push(subclass);
                 }
             }
         }
-        return subClasses;
+        return result;
     }
 
     public Set<ResolvedClass> allTypesOf() {
-       final Set<ResolvedClass> result = new HashSet<>();
+       final Set<ResolvedClass> result = new LinkedHashSet<>();
        result.add(this);
        for (final ResolvedClass interf : interfaces) {
            result.addAll(interf.allTypesOf());
@@ -229,7 +247,7 @@ public class ResolvedClass {
     }
 
     public Set<ResolvedMethod> abstractResolvedMethods() {
-        final Set<ResolvedMethod> result = new HashSet<>();
+        final Set<ResolvedMethod> result = new LinkedHashSet<>();
         for (final ResolvedMethod m : resolvedMethods) {
             if (m.owner == this && Modifier.isAbstract(m.methodNode.access)) {
                 result.add(m);
@@ -245,7 +263,7 @@ public class ResolvedClass {
     }
 
     public Set<MethodNode> abstractMethods() {
-        final Set<MethodNode> result = new HashSet<>();
+        final Set<MethodNode> result = new LinkedHashSet<>();
         for (final MethodNode m : classNode.methods) {
             if (Modifier.isAbstract(m.access)) {
                 result.add(m);
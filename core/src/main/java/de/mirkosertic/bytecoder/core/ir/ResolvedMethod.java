@@ -29,6 +29,9 @@ public class ResolvedMethod {
 
     public Graph methodBody;
 
+    // Unoptimized copy of the method body, used by the inliner
+    public Graph inliningTemplate;
+
     public final Type methodType;
 
     public ResolvedMethod(final ResolvedClass owner, final MethodNode methodNode, final Type methodType) {
@@ -25,4 +25,8 @@ public class TableSwitch extends ControlTokenConsumer {
         this.min = min;
         this.max = max;
     }
+
+    public void deleteFromControlFlow() {
+        owner.deleteFromControlFlowInternally(this);
+    }
 }
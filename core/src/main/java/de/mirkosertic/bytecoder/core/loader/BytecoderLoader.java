@@ -31,6 +31,7 @@ import org.objectweb.asm.tree.MethodInsnNode;
 import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.TypeInsnNode;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -42,8 +43,15 @@ public class BytecoderLoader implements Loader {
 
     private final ClassLoader classLoader;
 
+    private final ClassNodeCache cache;
+
     public BytecoderLoader(final ClassLoader classLoader) {
+        this(classLoader, ClassNodeCache.shared());
+    }
+
+    public BytecoderLoader(final ClassLoader classLoader, final ClassNodeCache cache) {
         this.classLoader = classLoader;
+        this.cache = cache;
     }
 
     @Override
@@ -58,43 +66,66 @@ public class BytecoderLoader implements Loader {
 
     @Override
     public ClassNode loadClassFor(final Type type) throws IOException, ClassNotFoundException {
-        final ClassNode originalClassNode = internalLoad(type.getClassName());
-        try {
-            String shadowClassName = "de.mirkosertic.bytecoder.classlib." + type.getClassName();
-            final int p = shadowClassName.lastIndexOf(".");
-            if (p >= 0) {
-                shadowClassName = new StringBuilder(shadowClassName).insert(p + 1, "T").toString();
-            } else {
-                shadowClassName = "T" + shadowClassName;
-            }
-            final ClassNode shadowType = internalLoad(shadowClassName);
-            patchWith(originalClassNode, shadowType);
-            return originalClassNode;
-        } catch (final ClassNotFoundException e) {
-            // Do nothing
+        final byte[] classFile = internalLoad(type.getClassName());
+        if (classFile == null) {
+            throw new ClassNotFoundException(type.getClassName().replace(".", "/") + ".class");
+        }
+        String shadowClassName = "de.mirkosertic.bytecoder.classlib." + type.getClassName();
+        final int p = shadowClassName.lastIndexOf(".");
+        if (p >= 0) {
+            shadowClassName = new StringBuilder(shadowClassName).insert(p + 1, "T").toString();
+        } else {
+            shadowClassName = "T" + shadowClassName;
+        }
+        final byte[] shadowClassFile = internalLoad(shadowClassName);
+        if (cache == null) {
+            return parseAndPatch(classFile, shadowClassFile);
+        }
+        // Parsing and patching only depends on the content of both class files, so the result can be shared
+        return cache.computeIfAbsent(ClassNodeCache.keyFor(type.getClassName(), classFile, shadowClassFile),
+                () -> parseAndPatch(classFile, shadowClassFile));
+    }
+
+    private ClassNode parseAndPatch(final byte[] classFile, final byte[] shadowClassFile) {
+        final ClassNode originalClassNode = parse(classFile);
+        if (shadowClassFile != null) {
+            patchWith(originalClassNode, parse(shadowClassFile));
         }
         return originalClassNode;
     }
 
-    private ClassNode internalLoad(final String className) throws IOException, ClassNotFoundException {
+    private ClassNode parse(final byte[] classFile) {
+        final ClassReader reader = new ClassReader(classFile);
+        final ClassNode classNode = new ClassNode();
+        reader.accept(classNode, ClassReader.EXPAND_FRAMES);
+        return classNode;
+    }
+
+    private byte[] internalLoad(final String className) throws IOException {
         final String resourceName = className.replace(".", "/") + ".class";
         for (final ClassLibProvider clProvider : ClassLibProvider.availableProviders()) {
             final InputStream is = clProvider.getClass().getClassLoader().getResourceAsStream(clProvider.getResourceBase() + "/" + resourceName);
             if (is != null) {
-                final ClassReader reader = new ClassReader(is);
-                final ClassNode classNode = new ClassNode();
-                reader.accept(classNode, ClassReader.EXPAND_FRAMES);
-                return classNode;
+                return readFully(is);
             }
         }
         final InputStream fromRoot = classLoader.getResourceAsStream(resourceName);
         if (fromRoot != null) {
-            final ClassReader reader = new ClassReader(fromRoot);
-            final ClassNode classNode = new ClassNode();
-            reader.accept(classNode, ClassReader.EXPAND_FRAMES);
-            return classNode;
+            return readFully(fromRoot);
+        }
+        return null;
+    }
+
+    private static byte[] readFully(final InputStream is) throws IOException {
+        try (final InputStream in = is) {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                bos.write(buffer, 0, read);
+            }
+            return bos.toByteArray();
         }
-        throw new ClassNotFoundException(resourceName);
     }
 
     private void patchWith(final ClassNode original, final ClassNode patch) {
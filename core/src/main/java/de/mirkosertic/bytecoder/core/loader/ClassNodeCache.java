@@ -0,0 +1,129 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.loader;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LocalVariableNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Thread safe cache of loaded and patched ClassNodes, shared by all CompileUnits using it.
+ *
+ * Entries are keyed by a hash of the class file content and of the content of its shadow class, so a changed
+ * class on the classpath is loaded again while unchanged classes, like the whole JDK classlib, are read and
+ * patched only once. Cached ClassNodes must be treated as immutable by the compiler, everything ASM
+ * initializes lazily is initialized before a ClassNode is published. Values are softly referenced
+ * and are reclaimed by the garbage collector if memory gets low.
+ */
+public class ClassNodeCache {
+
+    private static final ClassNodeCache SHARED = new ClassNodeCache();
+
+    public static ClassNodeCache shared() {
+        return SHARED;
+    }
+
+    private final ConcurrentMap<String, SoftReference<ClassNode>> classNodes;
+
+    public ClassNodeCache() {
+        this.classNodes = new ConcurrentHashMap<>();
+    }
+
+    public static String keyFor(final String className, final byte[] classFile, final byte[] shadowClassFile) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(className.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(classFile);
+            if (shadowClassFile != null) {
+                digest.update((byte) 0);
+                digest.update(shadowClassFile);
+            }
+            final StringBuilder result = new StringBuilder();
+            for (final byte b : digest.digest()) {
+                result.append(Character.forDigit((b >> 4) & 0xf, 16));
+                result.append(Character.forDigit(b & 0xf, 16));
+            }
+            return result.toString();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public ClassNode computeIfAbsent(final String key, final Supplier<ClassNode> loader) {
+        final SoftReference<ClassNode> existing = classNodes.get(key);
+        if (existing != null) {
+            final ClassNode classNode = existing.get();
+            if (classNode != null) {
+                return classNode;
+            }
+        }
+        final ClassNode classNode = loader.get();
+        for (final MethodNode m : classNode.methods) {
+            // The instruction index and the labels are created lazily by ASM, so we create them before the
+            // node is shared between threads. The label names are used to identify regions while parsing.
+            if (m.instructions.size() > 0) {
+                m.instructions.get(0);
+            }
+            for (final AbstractInsnNode insn : m.instructions) {
+                if (insn instanceof LabelNode) {
+                    ((LabelNode) insn).getLabel();
+                }
+            }
+            if (m.tryCatchBlocks != null) {
+                for (final TryCatchBlockNode block : m.tryCatchBlocks) {
+                    block.start.getLabel();
+                    block.end.getLabel();
+                    block.handler.getLabel();
+                }
+            }
+            if (m.localVariables != null) {
+                for (final LocalVariableNode variable : m.localVariables) {
+                    variable.start.getLabel();
+                    variable.end.getLabel();
+                }
+            }
+        }
+        final SoftReference<ClassNode> raced = classNodes.putIfAbsent(key, new SoftReference<>(classNode));
+        if (raced != null) {
+            final ClassNode other = raced.get();
+            if (other != null) {
+                return other;
+            }
+            classNodes.put(key, new SoftReference<>(classNode));
+        }
+        return classNode;
+    }
+
+    public int size() {
+        return classNodes.size();
+    }
+
+    public void clear() {
+        classNodes.clear();
+    }
+}
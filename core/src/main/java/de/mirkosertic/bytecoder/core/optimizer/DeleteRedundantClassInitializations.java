@@ -23,6 +23,7 @@ import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
 import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
 import de.mirkosertic.bytecoder.core.parser.CompileUnit;
 
+import java.util.Iterator;
 import java.util.Stack;
 
 public class DeleteRedundantClassInitializations implements GlobalOptimizer {
@@ -46,12 +47,15 @@ public class DeleteRedundantClassInitializations implements GlobalOptimizer {
             final ResolvedClass rc = compileUnit.findClass(ci.type);
             if (!rc.requiresClassInitializer()) {
                 ci.deleteFromControlFlow();
+                g.deleteNode(ci);
             } else {
-                for (final ClassInitialization j : workingQueue) {
+                for (final Iterator<ClassInitialization> it = workingQueue.iterator(); it.hasNext(); ) {
+                    final ClassInitialization j = it.next();
                     if (j != ci && ci.type.equals(j.type)) {
                         if (dominatorTree.dominates(ci, j)) {
                             j.deleteFromControlFlow();
-                            workingQueue.remove(j);
+                            g.deleteNode(j);
+                            it.remove();
                         }
                     }
                 }
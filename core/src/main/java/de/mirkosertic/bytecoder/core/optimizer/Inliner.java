@@ -0,0 +1,470 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.optimizer;
+
+import de.mirkosertic.bytecoder.core.ir.AbstractInvocation;
+import de.mirkosertic.bytecoder.core.ir.AbstractVar;
+import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
+import de.mirkosertic.bytecoder.core.ir.AnnotationUtils;
+import de.mirkosertic.bytecoder.core.ir.ClassInitialization;
+import de.mirkosertic.bytecoder.core.ir.ControlTokenConsumer;
+import de.mirkosertic.bytecoder.core.ir.Copy;
+import de.mirkosertic.bytecoder.core.ir.EdgeType;
+import de.mirkosertic.bytecoder.core.ir.EnumValuesOf;
+import de.mirkosertic.bytecoder.core.ir.Graph;
+import de.mirkosertic.bytecoder.core.ir.InvocationType;
+import de.mirkosertic.bytecoder.core.ir.MathFunction;
+import de.mirkosertic.bytecoder.core.ir.MethodArgument;
+import de.mirkosertic.bytecoder.core.ir.MethodInvocation;
+import de.mirkosertic.bytecoder.core.ir.MethodInvocationExpression;
+import de.mirkosertic.bytecoder.core.ir.Node;
+import de.mirkosertic.bytecoder.core.ir.NodeType;
+import de.mirkosertic.bytecoder.core.ir.NullTest;
+import de.mirkosertic.bytecoder.core.ir.NumericalTest;
+import de.mirkosertic.bytecoder.core.ir.ObjectString;
+import de.mirkosertic.bytecoder.core.ir.PrimitiveClassReference;
+import de.mirkosertic.bytecoder.core.ir.PrimitiveDouble;
+import de.mirkosertic.bytecoder.core.ir.PrimitiveFloat;
+import de.mirkosertic.bytecoder.core.ir.PrimitiveInt;
+import de.mirkosertic.bytecoder.core.ir.PrimitiveLong;
+import de.mirkosertic.bytecoder.core.ir.PrimitiveShort;
+import de.mirkosertic.bytecoder.core.ir.Projection;
+import de.mirkosertic.bytecoder.core.ir.ReadClassField;
+import de.mirkosertic.bytecoder.core.ir.ReadInstanceField;
+import de.mirkosertic.bytecoder.core.ir.ReferenceTest;
+import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
+import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
+import de.mirkosertic.bytecoder.core.ir.Return;
+import de.mirkosertic.bytecoder.core.ir.ReturnValue;
+import de.mirkosertic.bytecoder.core.ir.SetClassField;
+import de.mirkosertic.bytecoder.core.ir.SetInstanceField;
+import de.mirkosertic.bytecoder.core.ir.StandardProjections;
+import de.mirkosertic.bytecoder.core.ir.This;
+import de.mirkosertic.bytecoder.core.ir.Value;
+import de.mirkosertic.bytecoder.core.ir.Variable;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import de.mirkosertic.bytecoder.core.parser.GraphParser;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.InvokeDynamicInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inlines static, private, final and devirtualized methods without branches into the invoking method.
+ *
+ * The body of the invoked method is parsed a second time and kept as an unmodified template, which is copied into every
+ * call site. So the graph of the invoked method is never shared with the caller and can be optimized at the same time.
+ * Templates are parsed in prepare() for the methods invoked by a linked method or by another template, as parsing
+ * resolves classes and methods and must not happen while linking is frozen for parallel optimization. optimize() never
+ * parses, so sequential and parallel optimization inline the same call sites. Class initialization does not need special
+ * care, as the caller already initializes the class of a static method before the invocation.
+ *
+ * Instance methods are only inlined if they are invoked on this. Any other receiver might be null, and the inlined code
+ * would not fail like the invocation does. Callees with branches are not inlined, as merging their regions into the
+ * caller needs region splitting, which the IR does not support.
+ */
+public class Inliner implements Optimizer {
+
+    private static final int MAX_INSTRUCTIONS = 12;
+
+    private static final int MAX_DEPTH = 3;
+
+    private static final int MAX_CALLER_NODES = 3000;
+
+    private static final Set<NodeType> SUPPORTED_NODES = EnumSet.of(
+            NodeType.Region, NodeType.LineNumberDebugInfo, NodeType.FrameDebugInfo, NodeType.Nop, NodeType.Return, NodeType.ReturnValue,
+            NodeType.This, NodeType.MethodArgument, NodeType.Variable, NodeType.Copy,
+            NodeType.PrimitiveInt, NodeType.PrimitiveLong, NodeType.PrimitiveFloat, NodeType.PrimitiveDouble, NodeType.PrimitiveShort,
+            NodeType.NullReference, NodeType.ObjectString, NodeType.TypeReference, NodeType.PrimitiveClassReference,
+            NodeType.Add, NodeType.Sub, NodeType.Mul, NodeType.Div, NodeType.Rem, NodeType.Neg,
+            NodeType.And, NodeType.Or, NodeType.XOr, NodeType.SHL, NodeType.SHR, NodeType.USHR,
+            NodeType.CMP, NodeType.NumericalTest, NodeType.NullTest, NodeType.ReferenceTest,
+            NodeType.TypeConversion, NodeType.Cast, NodeType.Reinterpret, NodeType.InstanceOf, NodeType.MathFunction,
+            NodeType.ArrayLength, NodeType.ArrayLoad, NodeType.ArrayStore, NodeType.New, NodeType.NewArray,
+            NodeType.ReadInstanceField, NodeType.ReadClassField, NodeType.SetInstanceField, NodeType.SetClassField,
+            NodeType.RuntimeClassOf, NodeType.EnumValuesOf, NodeType.ClassInitialization,
+            NodeType.MethodInvocation, NodeType.MethodInvocationExpression
+    );
+
+    public Inliner() {
+    }
+
+    @Override
+    public void prepare(final CompileUnit compileUnit) {
+        final Deque<Graph> workingQueue = new ArrayDeque<>();
+        for (final ResolvedClass cl : compileUnit.resolvedClasses()) {
+            for (final ResolvedMethod m : new ArrayList<>(cl.resolvedMethods)) {
+                if (m.methodBody != null) {
+                    workingQueue.add(m.methodBody);
+                }
+            }
+        }
+        // Invocations copied from a template are inlined later, so the templates are scanned, too
+        while (!workingQueue.isEmpty()) {
+            final Graph g = workingQueue.pop();
+            for (final Node node : g.nodes()) {
+                if (node instanceof AbstractInvocation) {
+                    final AbstractInvocation invocation = (AbstractInvocation) node;
+                    final ResolvedMethod callee = invocation.method();
+                    if (callee.inliningTemplate == null && isCandidate(invocation.invocationType()) && isInlineableCallee(callee)) {
+                        callee.inliningTemplate = new GraphParser(compileUnit, callee.owner.type, callee.methodNode, new AnalysisStack()).graph();
+                        workingQueue.add(callee.inliningTemplate);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isCandidate(final InvocationType invocationType) {
+        // Virtual invocations might be devirtualized before the inliner sees them
+        return invocationType == InvocationType.STATIC || invocationType == InvocationType.DIRECT || invocationType == InvocationType.VIRTUAL;
+    }
+
+    @Override
+    public boolean optimize(final CompileUnit compileUnit, final ResolvedMethod method) {
+        final Graph g = method.methodBody;
+
+        boolean changed = false;
+        int size = g.nodes().size();
+        for (final Node node : g.nodes()) {
+            if (size > MAX_CALLER_NODES) {
+                break;
+            }
+            if (node instanceof AbstractInvocation) {
+                final AbstractInvocation invocation = (AbstractInvocation) node;
+                final ControlTokenConsumer site = callSiteOf(g, node);
+                if (site != null && isInlineable(method, invocation, node, site)) {
+                    final Graph template = invocation.method().inliningTemplate;
+                    if (template != null && inline(g, node, site, template)) {
+                        size += template.nodes().size();
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        return changed;
+    }
+
+    private ControlTokenConsumer callSiteOf(final Graph g, final Node invocation) {
+        if (invocation instanceof MethodInvocation) {
+            return (MethodInvocation) invocation;
+        }
+        // Expressions are evaluated by the control flow node using them, this has to be a
+        // copy of the result to make sure no other expression is evaluated before
+        final Node[] usages = g.outgoingDataFlowsFor(invocation);
+        if (usages.length == 1 && usages[0] instanceof Copy && usages[0].incomingDataFlows[0] == invocation) {
+            return (Copy) usages[0];
+        }
+        return null;
+    }
+
+    private boolean isInlineable(final ResolvedMethod caller, final AbstractInvocation invocation, final Node node, final ControlTokenConsumer site) {
+        if (invocation.invocationType() != InvocationType.STATIC && invocation.invocationType() != InvocationType.DIRECT) {
+            return false;
+        }
+        // There is no null check in the inlined code, so the receiver must not be null
+        if (invocation.invocationType() == InvocationType.DIRECT && !isThis(node.incomingDataFlows[0])) {
+            return false;
+        }
+        if (invocation.inliningDepth() >= MAX_DEPTH) {
+            return false;
+        }
+        final ResolvedMethod callee = invocation.method();
+        if (callee == caller || !isInlineableCallee(callee)) {
+            return false;
+        }
+        if (site.hasIncomingBackEdges() || site.controlComingFrom.isEmpty() || site.controlFlowsTo.size() != 1) {
+            return false;
+        }
+        // Arguments are referenced by the inlined code after the invocation would have happened,
+        // so they must not be expressions with a different value at this point
+        for (final Node argument : node.incomingDataFlows) {
+            if (!(argument instanceof AbstractVar || argument instanceof This || argument instanceof MethodArgument || argument.isConstant())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isThis(final Node value) {
+        // The parser copies this into a variable at method start, and again for every load
+        final Set<Node> visited = new HashSet<>();
+        Node current = value;
+        while (current instanceof Variable && current.incomingDataFlows.length == 1 && visited.add(current)) {
+            final Node definition = current.incomingDataFlows[0];
+            if (!(definition instanceof Copy) || definition.incomingDataFlows.length != 1) {
+                return false;
+            }
+            current = definition.incomingDataFlows[0];
+        }
+        return current instanceof This;
+    }
+
+    private boolean isInlineableCallee(final ResolvedMethod callee) {
+        if (callee.methodBody == null || !hasInlineableBytecode(callee.methodNode)) {
+            return false;
+        }
+        // The backends replace these methods by runtime provided implementations
+        return !callee.owner.isOpaqueReferenceType() && !callee.owner.isCallback()
+                && !AnnotationUtils.hasAnnotation("Lde/mirkosertic/bytecoder/api/EmulatedByRuntime;", callee.methodNode.visibleAnnotations)
+                && !AnnotationUtils.hasAnnotation("Lde/mirkosertic/bytecoder/api/Import;", callee.methodNode.visibleAnnotations);
+    }
+
+    private boolean hasInlineableBytecode(final MethodNode methodNode) {
+        if (Modifier.isAbstract(methodNode.access) || Modifier.isNative(methodNode.access) || Modifier.isSynchronized(methodNode.access)) {
+            return false;
+        }
+        if (!methodNode.tryCatchBlocks.isEmpty()) {
+            return false;
+        }
+        int count = 0;
+        for (final AbstractInsnNode insn : methodNode.instructions) {
+            if (insn.getOpcode() < 0) {
+                // Labels, line numbers and frames
+                continue;
+            }
+            if (insn instanceof JumpInsnNode || insn instanceof TableSwitchInsnNode || insn instanceof LookupSwitchInsnNode || insn instanceof InvokeDynamicInsnNode) {
+                return false;
+            }
+            switch (insn.getOpcode()) {
+                case Opcodes.ATHROW:
+                case Opcodes.MONITORENTER:
+                case Opcodes.MONITOREXIT:
+                    return false;
+            }
+            if (++count > MAX_INSTRUCTIONS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean inline(final Graph g, final Node invocation, final ControlTokenConsumer site, final Graph template) {
+
+        // The invoked method must be a single chain of control flow nodes
+        final List<ControlTokenConsumer> chain = new ArrayList<>();
+        ControlTokenConsumer current = template.regionByLabel(Graph.START_REGION_NAME);
+        while (!(current instanceof Return || current instanceof ReturnValue)) {
+            if (current.controlFlowsTo.size() != 1) {
+                return false;
+            }
+            final Map.Entry<Projection, ControlTokenConsumer> next = current.controlFlowsTo.entrySet().iterator().next();
+            if (!(next.getKey() instanceof Projection.DefaultProjection) || next.getKey().edgeType() != EdgeType.FORWARD) {
+                return false;
+            }
+            chain.add(current);
+            current = next.getValue();
+            if (current.controlComingFrom.size() != 1) {
+                return false;
+            }
+        }
+        final ControlTokenConsumer returnNode = current;
+
+        int controlFlowNodes = 0;
+        for (final Node n : template.nodes()) {
+            if (!SUPPORTED_NODES.contains(n.nodeType)) {
+                return false;
+            }
+            if (n instanceof ControlTokenConsumer) {
+                controlFlowNodes++;
+            }
+        }
+        if (controlFlowNodes != chain.size() + 1) {
+            return false;
+        }
+
+        final int depth = ((AbstractInvocation) invocation).inliningDepth() + 1;
+        final Map<Node, Node> mapping = new HashMap<>();
+        for (final Node n : template.nodes()) {
+            switch (n.nodeType) {
+                case This:
+                    mapping.put(n, invocation.incomingDataFlows[0]);
+                    break;
+                case MethodArgument:
+                    mapping.put(n, invocation.incomingDataFlows[((MethodArgument) n).index + 1]);
+                    break;
+                case Region:
+                case LineNumberDebugInfo:
+                case FrameDebugInfo:
+                case Nop:
+                case Return:
+                case ReturnValue:
+                    break;
+                default:
+                    mapping.put(n, copyOf(g, n, depth));
+                    break;
+            }
+        }
+        for (final Node n : template.nodes()) {
+            final Node copy = mapping.get(n);
+            if (copy != null && n.incomingDataFlows.length > 0 && !(n instanceof This || n instanceof MethodArgument)) {
+                final Node[] incoming = new Node[n.incomingDataFlows.length];
+                for (int i = 0; i < incoming.length; i++) {
+                    incoming[i] = mapping.get(n.incomingDataFlows[i]);
+                }
+                copy.addIncomingData(incoming);
+            }
+        }
+
+        ControlTokenConsumer first = null;
+        ControlTokenConsumer last = null;
+        for (final ControlTokenConsumer n : chain) {
+            final ControlTokenConsumer copy = (ControlTokenConsumer) mapping.get(n);
+            if (copy != null) {
+                if (first == null) {
+                    first = copy;
+                } else {
+                    last.addControlFlowTo(StandardProjections.DEFAULT, copy);
+                }
+                last = copy;
+            }
+        }
+        if (first != null) {
+            g.insertIntoControlFlowBefore(site, first, last);
+        }
+
+        if (invocation instanceof MethodInvocation) {
+            ((MethodInvocation) invocation).deleteFromControlFlow();
+        } else {
+            site.remapDataFlow(invocation, mapping.get(returnNode.incomingDataFlows[0]));
+        }
+        g.deleteNode(invocation);
+
+        return true;
+    }
+
+    private Node copyOf(final Graph g, final Node n, final int depth) {
+        switch (n.nodeType) {
+            case Variable:
+                return g.newVariable(((Value) n).type);
+            case Copy:
+                return g.newCopy();
+            case PrimitiveInt:
+                return g.newInt(((PrimitiveInt) n).value);
+            case PrimitiveLong:
+                return g.newLong(((PrimitiveLong) n).value);
+            case PrimitiveFloat:
+                return g.newFloat(((PrimitiveFloat) n).value);
+            case PrimitiveDouble:
+                return g.newDouble(((PrimitiveDouble) n).value);
+            case PrimitiveShort:
+                return g.newShort(((PrimitiveShort) n).value);
+            case NullReference:
+                return g.newNullReference();
+            case ObjectString:
+                return g.newObjectString(((ObjectString) n).value);
+            case TypeReference:
+                return g.newTypeReference(((Value) n).type);
+            case PrimitiveClassReference:
+                return g.newPrimitiveClassReference(((PrimitiveClassReference) n).referenceType);
+            case Add:
+                return g.newAdd(((Value) n).type);
+            case Sub:
+                return g.newSub(((Value) n).type);
+            case Mul:
+                return g.newMul(((Value) n).type);
+            case Div:
+                return g.newDiv(((Value) n).type);
+            case Rem:
+                return g.newRem(((Value) n).type);
+            case Neg:
+                return g.newNEG(((Value) n).type);
+            case And:
+                return g.newAND(((Value) n).type);
+            case Or:
+                return g.newOR(((Value) n).type);
+            case XOr:
+                return g.newXOR(((Value) n).type);
+            case SHL:
+                return g.newSHL(((Value) n).type);
+            case SHR:
+                return g.newSHR(((Value) n).type);
+            case USHR:
+                return g.newUSHR(((Value) n).type);
+            case CMP:
+                return g.newCMP();
+            case NumericalTest:
+                return g.newNumericalTest(((NumericalTest) n).operation);
+            case NullTest:
+                return g.newNullTest(((NullTest) n).operation);
+            case ReferenceTest:
+                return g.newReferenceTest(((ReferenceTest) n).operation);
+            case TypeConversion:
+                return g.newTypeConversion(((Value) n).type);
+            case Cast:
+                return g.newCast(((Value) n).type);
+            case Reinterpret:
+                return g.newReinterpret(((Value) n).type);
+            case InstanceOf:
+                return g.newInstanceOf();
+            case MathFunction:
+                return g.newMathFunction(((Value) n).type, ((MathFunction) n).kind);
+            case ArrayLength:
+                return g.newArrayLength();
+            case ArrayLoad:
+                return g.newArrayLoad(((Value) n).type);
+            case ArrayStore:
+                return g.newArrayStore();
+            case New:
+                return g.newNew(((Value) n).type);
+            case NewArray:
+                return g.newNewArray(((Value) n).type);
+            case ReadInstanceField:
+                return g.newInstanceFieldExpression(((Value) n).type, ((ReadInstanceField) n).resolvedField);
+            case ReadClassField:
+                return g.newClassFieldExpression(((Value) n).type, ((ReadClassField) n).resolvedField);
+            case SetInstanceField:
+                return g.newSetInstanceField(((SetInstanceField) n).field);
+            case SetClassField:
+                return g.newSetClassField(((SetClassField) n).field);
+            case RuntimeClassOf:
+                return g.newRuntimeTypeOf();
+            case EnumValuesOf:
+                return g.newEnumValuesOf(((EnumValuesOf) n).type);
+            case ClassInitialization:
+                return g.newClassInitialization(((ClassInitialization) n).type);
+            case MethodInvocation: {
+                final MethodInvocation i = (MethodInvocation) n;
+                final MethodInvocation copy = g.newMethodInvocation(i.invocationType, i.insnNode, i.method);
+                copy.changeInliningDepthTo(depth);
+                return copy;
+            }
+            case MethodInvocationExpression: {
+                final MethodInvocationExpression i = (MethodInvocationExpression) n;
+                final MethodInvocationExpression copy = g.newMethodInvocationExpression(i.invocationType, i.insnNode, i.method);
+                copy.changeInliningDepthTo(depth);
+                return copy;
+            }
+            default:
+                throw new IllegalStateException("Cannot inline " + n.nodeType);
+        }
+    }
+}
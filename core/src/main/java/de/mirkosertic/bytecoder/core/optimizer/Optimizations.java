@@ -19,6 +19,7 @@ import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
 import de.mirkosertic.bytecoder.core.parser.CompileUnit;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -26,27 +27,58 @@ public enum Optimizations implements Optimizer {
     DISABLED(new Optimizer[] {
     }),
     DEFAULT(new Optimizer[] {
-                //new DeleteUnusedAbstractVar(),
-                //new VariableIsConstant(),
-                //new VariableIsVariable(),
+                new DeleteUnusedAbstractVar(),
+                new VariableIsConstant(),
+                new VariableIsVariable(),
                 new VirtualToDirectInvocation(),
-                //new DeleteRedundantClassInitializations()
+                new DeleteRedundantClassInitializations()
             }),
     ALL(new Optimizer[] {
-            //new DeleteUnusedAbstractVar(),
-            //new VariableIsConstant(),
-            //new VariableIsVariable(),
+            new DeleteUnusedAbstractVar(),
+            new VariableIsConstant(),
+            new VariableIsVariable(),
             new VirtualToDirectInvocation(),
-            //new DeleteRedundantClassInitializations()
+            new Inliner(),
+            new SparseConditionalConstantPropagation(),
+            new DeleteRedundantClassInitializations()
     }),
     ;
 
+    // Optimizers known to only modify the graph of the optimized method. The inliner only uses templates
+    // parsed in prepare() once linking is frozen. Optimizers not listed here disable parallel optimization.
+    private static final Set<Class<? extends Optimizer>> PARALLEL_SAFE = new HashSet<>(Arrays.asList(
+            DeleteUnusedAbstractVar.class,
+            VariableIsConstant.class,
+            VariableIsVariable.class,
+            VirtualToDirectInvocation.class,
+            Inliner.class,
+            SparseConditionalConstantPropagation.class,
+            DeleteRedundantClassInitializations.class
+    ));
+
     private final Optimizer[] optimizers;
 
     Optimizations(final Optimizer[] optimizers) {
         this.optimizers = optimizers;
     }
 
+    @Override
+    public void prepare(final CompileUnit compileUnit) {
+        for (final Optimizer o : optimizers) {
+            o.prepare(compileUnit);
+        }
+    }
+
+    @Override
+    public boolean supportsParallelOptimization() {
+        for (final Optimizer o : optimizers) {
+            if (!PARALLEL_SAFE.contains(o.getClass())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public boolean optimize(final CompileUnit compileUnit, final ResolvedMethod method) {
         boolean graphchanged = false;
         final Set<GlobalOptimizer> go = Arrays.stream(optimizers).filter(t -> t instanceof GlobalOptimizer).map(t -> (GlobalOptimizer) t).collect(Collectors.toSet());
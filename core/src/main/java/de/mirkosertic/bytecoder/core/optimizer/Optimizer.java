@@ -21,4 +21,19 @@ import de.mirkosertic.bytecoder.core.parser.CompileUnit;
 public interface Optimizer {
 
     boolean optimize(final CompileUnit compileUnit , final ResolvedMethod method);
+
+    /**
+     * Called once before the methods of a CompileUnit are optimized. Linking might be frozen afterwards, so
+     * everything that needs to resolve or parse classes or methods has to be done here.
+     */
+    default void prepare(final CompileUnit compileUnit) {
+    }
+
+    /**
+     * Can several methods be optimized at once? This requires an optimizer to only modify the graph of the
+     * optimized method and to only read the CompileUnit and the graphs of other methods.
+     */
+    default boolean supportsParallelOptimization() {
+        return false;
+    }
 }
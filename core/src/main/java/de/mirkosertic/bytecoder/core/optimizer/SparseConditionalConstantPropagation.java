@@ -0,0 +1,657 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.optimizer;
+
+import de.mirkosertic.bytecoder.core.ir.AbstractVar;
+import de.mirkosertic.bytecoder.core.ir.ControlTokenConsumer;
+import de.mirkosertic.bytecoder.core.ir.Copy;
+import de.mirkosertic.bytecoder.core.ir.Graph;
+import de.mirkosertic.bytecoder.core.ir.If;
+import de.mirkosertic.bytecoder.core.ir.LookupSwitch;
+import de.mirkosertic.bytecoder.core.ir.MethodArgument;
+import de.mirkosertic.bytecoder.core.ir.Node;
+import de.mirkosertic.bytecoder.core.ir.NodeType;
+import de.mirkosertic.bytecoder.core.ir.NullTest;
+import de.mirkosertic.bytecoder.core.ir.NumericalTest;
+import de.mirkosertic.bytecoder.core.ir.PrimitiveInt;
+import de.mirkosertic.bytecoder.core.ir.PrimitiveLong;
+import de.mirkosertic.bytecoder.core.ir.PrimitiveShort;
+import de.mirkosertic.bytecoder.core.ir.Projection;
+import de.mirkosertic.bytecoder.core.ir.Region;
+import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
+import de.mirkosertic.bytecoder.core.ir.TableSwitch;
+import de.mirkosertic.bytecoder.core.ir.This;
+import de.mirkosertic.bytecoder.core.ir.Value;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Sparse conditional constant propagation as described by Wegman and Zadeck, "Constant Propagation with Conditional
+ * Branches".
+ *
+ * Control flow nodes are only visited once they are reachable, and a branch with a constant condition only makes
+ * the taken successor reachable. Only int and long values are tracked. Afterwards, constant branches are replaced
+ * by their taken successor, unreachable nodes are deleted, constant expressions are replaced by constants and some
+ * algebraic identities and strength reductions are applied to the remaining arithmetic.
+ */
+public class SparseConditionalConstantPropagation implements Optimizer {
+
+    // Value is not known yet
+    private static final Object TOP = new Object();
+
+    // Value is not constant
+    private static final Object BOTTOM = new Object();
+
+    private static final Set<NodeType> FOLDABLE_EXPRESSIONS = EnumSet.of(
+            NodeType.Add, NodeType.Sub, NodeType.Mul, NodeType.Div, NodeType.Rem, NodeType.Neg,
+            NodeType.And, NodeType.Or, NodeType.XOr, NodeType.SHL, NodeType.SHR, NodeType.USHR,
+            NodeType.CMP, NodeType.TypeConversion
+    );
+
+    public SparseConditionalConstantPropagation() {
+    }
+
+    @Override
+    public boolean optimize(final CompileUnit compileUnit, final ResolvedMethod method) {
+        final Graph g = method.methodBody;
+        final Region start = g.regionByLabel(Graph.START_REGION_NAME);
+        if (start == null) {
+            return false;
+        }
+
+        final Analysis analysis = new Analysis(g);
+        analysis.run(start);
+
+        // Every reachable branch must be decided, otherwise the analysis missed a definition
+        for (final ControlTokenConsumer c : analysis.executable) {
+            if (isFoldableBranch(c) && analysis.eval(c.incomingDataFlows[0]) == TOP) {
+                return false;
+            }
+        }
+
+        boolean changed = false;
+
+        // Branches with constant condition are replaced by their taken successor
+        for (final ControlTokenConsumer c : new ArrayList<>(analysis.executable)) {
+            if (isFoldableBranch(c)) {
+                final Object condition = analysis.eval(c.incomingDataFlows[0]);
+                if (condition instanceof Integer) {
+                    final Map.Entry<Projection, ControlTokenConsumer> taken = takenEdge(c, (Integer) condition);
+                    if (taken != null) {
+                        keepOnly(c, taken);
+                        deleteBranch(c);
+                        g.deleteNode(c);
+                        analysis.executable.remove(c);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        // Unreachable control flow is deleted
+        for (final Node n : g.nodes()) {
+            if (n instanceof ControlTokenConsumer && !analysis.executable.contains(n)) {
+                final ControlTokenConsumer c = (ControlTokenConsumer) n;
+                for (final ControlTokenConsumer successor : c.controlFlowsTo.values()) {
+                    successor.controlComingFrom.remove(c);
+                }
+                c.controlFlowsTo.clear();
+                c.controlComingFrom.clear();
+                for (final Node usage : g.outgoingDataFlowsFor(c)) {
+                    usage.removeIncomingData(c);
+                }
+                g.deleteNode(c);
+                changed = true;
+            }
+        }
+
+        // Variables with constant value are replaced by the constant
+        for (final Node n : g.nodes()) {
+            if (n instanceof AbstractVar && g.outgoingDataFlowsFor(n).length > 0) {
+                final Object value = analysis.values.get(n);
+                if (isConstant(value)) {
+                    g.remapDataFlow(n, newConstant(g, value));
+                    changed = true;
+                }
+            }
+        }
+
+        // Arithmetic with constant result is replaced by the constant
+        for (final Node n : g.nodes()) {
+            for (final Node incoming : n.incomingDataFlows.clone()) {
+                if (FOLDABLE_EXPRESSIONS.contains(incoming.nodeType)) {
+                    final Object value = analysis.eval(incoming);
+                    if (isConstant(value)) {
+                        n.remapDataFlow(incoming, newConstant(g, value));
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        // Algebraic simplification and strength reduction
+        for (final Node n : g.nodes()) {
+            if (g.outgoingDataFlowsFor(n).length > 0) {
+                final Node replacement = simplify(g, n);
+                if (replacement != null) {
+                    g.remapDataFlow(n, replacement);
+                    g.deleteNode(n);
+                    changed = true;
+                }
+            }
+        }
+
+        return deleteUnusedValues(g) | changed;
+    }
+
+    private static boolean isFoldableBranch(final ControlTokenConsumer c) {
+        return (c instanceof If || c instanceof TableSwitch || c instanceof LookupSwitch) && !c.hasIncomingBackEdges();
+    }
+
+    private static boolean isConstant(final Object value) {
+        return value instanceof Integer || value instanceof Long;
+    }
+
+    private static Node newConstant(final Graph g, final Object value) {
+        if (value instanceof Long) {
+            return g.newLong((Long) value);
+        }
+        return g.newInt((Integer) value);
+    }
+
+    private static Map.Entry<Projection, ControlTokenConsumer> takenEdge(final ControlTokenConsumer c, final int value) {
+        Map.Entry<Projection, ControlTokenConsumer> defaultEdge = null;
+        for (final Map.Entry<Projection, ControlTokenConsumer> entry : c.controlFlowsTo.entrySet()) {
+            final Projection p = entry.getKey();
+            if (c instanceof If) {
+                if ((value != 0 && p instanceof Projection.TrueProjection) || (value == 0 && p instanceof Projection.FalseProjection)) {
+                    return entry;
+                }
+            } else if (p instanceof Projection.DefaultProjection) {
+                defaultEdge = entry;
+            } else if (p instanceof Projection.IndexedProjection) {
+                final TableSwitch sw = (TableSwitch) c;
+                if (value >= sw.min && value <= sw.max && ((Projection.IndexedProjection) p).index == value - sw.min) {
+                    return entry;
+                }
+            } else if (p instanceof Projection.KeyedProjection) {
+                if (((Projection.KeyedProjection) p).key == value) {
+                    return entry;
+                }
+            }
+        }
+        return defaultEdge;
+    }
+
+    private static void keepOnly(final ControlTokenConsumer c, final Map.Entry<Projection, ControlTokenConsumer> taken) {
+        for (final Map.Entry<Projection, ControlTokenConsumer> entry : new ArrayList<>(c.controlFlowsTo.entrySet())) {
+            if (entry.getKey() != taken.getKey()) {
+                c.controlFlowsTo.remove(entry.getKey());
+                if (!c.controlFlowsTo.containsValue(entry.getValue())) {
+                    entry.getValue().controlComingFrom.remove(c);
+                }
+            }
+        }
+    }
+
+    private static void deleteBranch(final ControlTokenConsumer c) {
+        if (c instanceof If) {
+            ((If) c).deleteFromControlFlow();
+        } else if (c instanceof TableSwitch) {
+            ((TableSwitch) c).deleteFromControlFlow();
+        } else {
+            ((LookupSwitch) c).deleteFromControlFlow();
+        }
+    }
+
+    private static Long constantValue(final Node n) {
+        switch (n.nodeType) {
+            case PrimitiveInt:
+                return (long) ((PrimitiveInt) n).value;
+            case PrimitiveShort:
+                return (long) ((PrimitiveShort) n).value;
+            case PrimitiveLong:
+                return ((PrimitiveLong) n).value;
+            default:
+                return null;
+        }
+    }
+
+    private static Node simplify(final Graph g, final Node n) {
+        if (!(n instanceof Value) || n.incomingDataFlows.length != 2) {
+            return null;
+        }
+        final Type type = ((Value) n).type;
+        if (type.getSort() != Type.INT && type.getSort() != Type.LONG) {
+            return null;
+        }
+        final Node a = n.incomingDataFlows[0];
+        final Node b = n.incomingDataFlows[1];
+        final Long ca = constantValue(a);
+        final Long cb = constantValue(b);
+        // Operands that are dropped must not have side effects
+        final boolean aIsSimple = a instanceof AbstractVar || a.isConstant();
+        final boolean bIsSimple = b instanceof AbstractVar || b.isConstant();
+
+        switch (n.nodeType) {
+            case Add:
+            case Or:
+            case XOr:
+                if (cb != null && cb == 0) {
+                    return a;
+                }
+                if (ca != null && ca == 0) {
+                    return b;
+                }
+                return null;
+            case Sub:
+                if (cb != null && cb == 0) {
+                    return a;
+                }
+                return null;
+            case Div:
+                if (cb != null && cb == 1) {
+                    return a;
+                }
+                return null;
+            case SHL:
+            case SHR:
+            case USHR:
+                if (cb != null && (cb & (type.getSort() == Type.LONG ? 63 : 31)) == 0) {
+                    return a;
+                }
+                return null;
+            case And:
+                if (cb != null && cb == -1) {
+                    return a;
+                }
+                if (ca != null && ca == -1) {
+                    return b;
+                }
+                if ((cb != null && cb == 0 && aIsSimple) || (ca != null && ca == 0 && bIsSimple)) {
+                    return newConstant(g, type.getSort() == Type.LONG ? (Object) 0L : (Object) 0);
+                }
+                return null;
+            case Mul: {
+                final Node other;
+                final long factor;
+                final boolean otherIsSimple;
+                if (cb != null) {
+                    other = a;
+                    factor = cb;
+                    otherIsSimple = aIsSimple;
+                } else if (ca != null) {
+                    other = b;
+                    factor = ca;
+                    otherIsSimple = bIsSimple;
+                } else {
+                    return null;
+                }
+                if (factor == 1) {
+                    return other;
+                }
+                if (factor == 0 && otherIsSimple) {
+                    return newConstant(g, type.getSort() == Type.LONG ? (Object) 0L : (Object) 0);
+                }
+                // Multiplication by a power of two is a shift, this also holds on overflow
+                if (factor > 1 && Long.bitCount(factor) == 1 && (type.getSort() == Type.LONG || factor <= Integer.MAX_VALUE)) {
+                    final Value shl = g.newSHL(type);
+                    shl.addIncomingData(other, g.newInt(Long.numberOfTrailingZeros(factor)));
+                    return shl;
+                }
+                return null;
+            }
+            default:
+                return null;
+        }
+    }
+
+    private static boolean deleteUnusedValues(final Graph g) {
+        boolean changed = false;
+        final Deque<Node> workingQueue = new ArrayDeque<>(g.nodes());
+        final Set<Node> deleted = new HashSet<>();
+        while (!workingQueue.isEmpty()) {
+            final Node n = workingQueue.pop();
+            if (deleted.contains(n) || n instanceof ControlTokenConsumer || n instanceof This || n instanceof MethodArgument) {
+                continue;
+            }
+            if (g.outgoingDataFlowsFor(n).length == 0 && !isAssigned(n)) {
+                g.deleteNode(n);
+                deleted.add(n);
+                Collections.addAll(workingQueue, n.incomingDataFlows);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean isAssigned(final Node n) {
+        // Copies, field and array stores are modeled as incoming data flows of their target.
+        // Assigned variables are removed by DeleteUnusedAbstractVar
+        for (final Node incoming : n.incomingDataFlows) {
+            if (incoming instanceof ControlTokenConsumer) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class Analysis {
+
+        private final Map<Node, Object> values;
+        private final Set<ControlTokenConsumer> executable;
+        private final Map<AbstractVar, Set<ControlTokenConsumer>> dependentNodes;
+        private final Deque<ControlTokenConsumer> flowWorkingQueue;
+        private final Deque<AbstractVar> varWorkingQueue;
+
+        Analysis(final Graph g) {
+            values = new HashMap<>();
+            executable = new HashSet<>();
+            dependentNodes = new HashMap<>();
+            flowWorkingQueue = new ArrayDeque<>();
+            varWorkingQueue = new ArrayDeque<>();
+
+            // Control flow nodes have to be visited again if a variable they depend on changes
+            for (final Node n : g.nodes()) {
+                if (n instanceof ControlTokenConsumer) {
+                    collectDependencies((ControlTokenConsumer) n, n, new HashSet<>());
+                }
+            }
+        }
+
+        private void collectDependencies(final ControlTokenConsumer consumer, final Node n, final Set<Node> visited) {
+            for (final Node incoming : n.incomingDataFlows) {
+                if (incoming instanceof AbstractVar) {
+                    dependentNodes.computeIfAbsent((AbstractVar) incoming, k -> new HashSet<>()).add(consumer);
+                } else if (!(incoming instanceof ControlTokenConsumer) && visited.add(incoming)) {
+                    collectDependencies(consumer, incoming, visited);
+                }
+            }
+        }
+
+        void run(final Region start) {
+            markExecutable(start);
+            while (!flowWorkingQueue.isEmpty() || !varWorkingQueue.isEmpty()) {
+                if (!flowWorkingQueue.isEmpty()) {
+                    visit(flowWorkingQueue.pop());
+                } else {
+                    final AbstractVar v = varWorkingQueue.pop();
+                    for (final ControlTokenConsumer c : dependentNodes.getOrDefault(v, Collections.emptySet())) {
+                        if (executable.contains(c)) {
+                            visit(c);
+                        }
+                    }
+                }
+            }
+        }
+
+        private void markExecutable(final ControlTokenConsumer c) {
+            if (executable.add(c)) {
+                flowWorkingQueue.push(c);
+            }
+        }
+
+        private void visit(final ControlTokenConsumer c) {
+            if (c instanceof Copy) {
+                for (final Node target : c.outgoingDataFlows()) {
+                    if (target instanceof AbstractVar) {
+                        update((AbstractVar) target);
+                    }
+                }
+            }
+            if (isFoldableBranch(c)) {
+                final Object condition = eval(c.incomingDataFlows[0]);
+                if (condition == TOP) {
+                    // Nothing known yet, successors are visited once the condition is known
+                    return;
+                }
+                if (condition instanceof Integer) {
+                    final Map.Entry<Projection, ControlTokenConsumer> taken = takenEdge(c, (Integer) condition);
+                    if (taken != null) {
+                        markExecutable(taken.getValue());
+                        return;
+                    }
+                }
+            }
+            for (final ControlTokenConsumer successor : c.controlFlowsTo.values()) {
+                markExecutable(successor);
+            }
+        }
+
+        private void update(final AbstractVar v) {
+            // Only copies that are reachable contribute to the value
+            Object value = v.incomingDataFlows.length == 0 ? BOTTOM : TOP;
+            for (final Node incoming : v.incomingDataFlows) {
+                if (!(incoming instanceof Copy)) {
+                    value = BOTTOM;
+                } else if (executable.contains(incoming)) {
+                    value = meet(value, eval(incoming.incomingDataFlows[0]));
+                }
+            }
+            if (!value.equals(values.getOrDefault(v, TOP))) {
+                values.put(v, value);
+                varWorkingQueue.push(v);
+            }
+        }
+
+        private static Object meet(final Object a, final Object b) {
+            if (a == TOP) {
+                return b;
+            }
+            if (b == TOP) {
+                return a;
+            }
+            if (a.equals(b)) {
+                return a;
+            }
+            return BOTTOM;
+        }
+
+        Object eval(final Node n) {
+            if (n instanceof AbstractVar) {
+                return values.getOrDefault(n, TOP);
+            }
+            switch (n.nodeType) {
+                case PrimitiveInt:
+                    return ((PrimitiveInt) n).value;
+                case PrimitiveShort:
+                    return (int) ((PrimitiveShort) n).value;
+                case PrimitiveLong:
+                    return ((PrimitiveLong) n).value;
+                case Add:
+                case Sub:
+                case Mul:
+                case Div:
+                case Rem:
+                case And:
+                case Or:
+                case XOr:
+                case SHL:
+                case SHR:
+                case USHR:
+                case CMP:
+                case NumericalTest:
+                    return evalBinary(n);
+                case Neg: {
+                    final Object a = eval(n.incomingDataFlows[0]);
+                    if (a instanceof Integer && ((Value) n).type.getSort() == Type.INT) {
+                        return -(Integer) a;
+                    }
+                    if (a instanceof Long && ((Value) n).type.getSort() == Type.LONG) {
+                        return -(Long) a;
+                    }
+                    return a == TOP ? TOP : BOTTOM;
+                }
+                case TypeConversion:
+                    return evalTypeConversion((Value) n);
+                case NullTest: {
+                    final Node value = n.incomingDataFlows[0];
+                    final boolean isNull = ((NullTest) n).operation == NullTest.Operation.NULL;
+                    switch (value.nodeType) {
+                        case NullReference:
+                            return isNull ? 1 : 0;
+                        case New:
+                        case NewArray:
+                            return isNull ? 0 : 1;
+                        default:
+                            return BOTTOM;
+                    }
+                }
+                default:
+                    return BOTTOM;
+            }
+        }
+
+        private Object evalTypeConversion(final Value n) {
+            final Object a = eval(n.incomingDataFlows[0]);
+            if (!isConstant(a)) {
+                return a == TOP ? TOP : BOTTOM;
+            }
+            final long value = ((Number) a).longValue();
+            switch (n.type.getSort()) {
+                case Type.INT:
+                    return (int) value;
+                case Type.LONG:
+                    return value;
+                case Type.BYTE:
+                    return (int) (byte) value;
+                case Type.SHORT:
+                    return (int) (short) value;
+                case Type.CHAR:
+                    return (int) (char) value;
+                default:
+                    return BOTTOM;
+            }
+        }
+
+        private Object evalBinary(final Node n) {
+            final Object a = eval(n.incomingDataFlows[0]);
+            final Object b = eval(n.incomingDataFlows[1]);
+            if (a == BOTTOM || b == BOTTOM) {
+                return BOTTOM;
+            }
+            if (a == TOP || b == TOP) {
+                return TOP;
+            }
+            if (n.nodeType == NodeType.CMP) {
+                if (a instanceof Long && b instanceof Long) {
+                    return Long.compare((Long) a, (Long) b);
+                }
+                return BOTTOM;
+            }
+            if (n.nodeType == NodeType.NumericalTest) {
+                if (a.getClass() != b.getClass()) {
+                    return BOTTOM;
+                }
+                final int compare = Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+                switch (((NumericalTest) n).operation) {
+                    case EQ:
+                        return compare == 0 ? 1 : 0;
+                    case NE:
+                        return compare != 0 ? 1 : 0;
+                    case LT:
+                        return compare < 0 ? 1 : 0;
+                    case GE:
+                        return compare >= 0 ? 1 : 0;
+                    case GT:
+                        return compare > 0 ? 1 : 0;
+                    case LE:
+                        return compare <= 0 ? 1 : 0;
+                    default:
+                        return BOTTOM;
+                }
+            }
+            final Type type = ((Value) n).type;
+            if (type.getSort() == Type.INT && a instanceof Integer && b instanceof Integer) {
+                return evalInt(n.nodeType, (Integer) a, (Integer) b);
+            }
+            if (type.getSort() == Type.LONG && a instanceof Long && (b instanceof Long || b instanceof Integer)) {
+                return evalLong(n.nodeType, (Long) a, ((Number) b).longValue());
+            }
+            return BOTTOM;
+        }
+
+        private static Object evalInt(final NodeType op, final int a, final int b) {
+            switch (op) {
+                case Add:
+                    return a + b;
+                case Sub:
+                    return a - b;
+                case Mul:
+                    return a * b;
+                case Div:
+                    // Division by zero throws, this is kept at runtime
+                    return b == 0 ? BOTTOM : (Object) (a / b);
+                case Rem:
+                    return b == 0 ? BOTTOM : (Object) (a % b);
+                case And:
+                    return a & b;
+                case Or:
+                    return a | b;
+                case XOr:
+                    return a ^ b;
+                case SHL:
+                    return a << b;
+                case SHR:
+                    return a >> b;
+                case USHR:
+                    return a >>> b;
+                default:
+                    return BOTTOM;
+            }
+        }
+
+        private static Object evalLong(final NodeType op, final long a, final long b) {
+            switch (op) {
+                case Add:
+                    return a + b;
+                case Sub:
+                    return a - b;
+                case Mul:
+                    return a * b;
+                case Div:
+                    return b == 0 ? BOTTOM : (Object) (a / b);
+                case Rem:
+                    return b == 0 ? BOTTOM : (Object) (a % b);
+                case And:
+                    return a & b;
+                case Or:
+                    return a | b;
+                case XOr:
+                    return a ^ b;
+                case SHL:
+                    return a << b;
+                case SHR:
+                    return a >> b;
+                case USHR:
+                    return a >>> b;
+                default:
+                    return BOTTOM;
+            }
+        }
+    }
+}
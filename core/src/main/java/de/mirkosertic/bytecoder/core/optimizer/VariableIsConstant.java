@@ -22,8 +22,9 @@ public class VariableIsConstant implements Optimizer {
         final Stack<Copy> workingQueue = new Stack<>();
 
         // We search for Constants and Variables A and check if they are copied to a variable B.
-        // In this case, the variable B is redundant and can be replaced with A.
-        g.nodes().stream().filter(t -> (t.nodeType == NodeType.Copy) && t.incomingDataFlows[0].isConstant() && g.outgoingDataFlowsFor(t)[0].nodeType == NodeType.Variable).map(t -> (Copy) t).forEach(workingQueue::push);
+        // In this case, the variable B is redundant and can be replaced with A. B must not be the target
+        // of field or array stores, as they are modeled as incoming data flows of B.
+        g.nodes().stream().filter(t -> (t.nodeType == NodeType.Copy) && t.incomingDataFlows[0].isConstant() && g.outgoingDataFlowsFor(t)[0].nodeType == NodeType.Variable && g.outgoingDataFlowsFor(t)[0].incomingDataFlows.length == 1).map(t -> (Copy) t).forEach(workingQueue::push);
 
         // We perform a recursive search across the invocation graph
         while (!workingQueue.isEmpty()) {
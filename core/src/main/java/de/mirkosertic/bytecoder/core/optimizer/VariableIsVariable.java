@@ -20,7 +20,8 @@ public class VariableIsVariable implements Optimizer {
         final Stack<Copy> workingQueue = new Stack<>();
 
         // We search for Constants and Variables A and check if they are copied to a variable B.
-        // In this case, the variable B is redundant and can be replaced with A.
+        // In this case, the variable B is redundant and can be replaced with A. B must not be the target
+        // of field or array stores, as they are modeled as incoming data flows of B.
         g.nodes().stream().filter(t -> (t instanceof Copy) && t.incomingDataFlows[0] instanceof Variable && g.outgoingDataFlowsFor(t)[0] instanceof Variable).map(t -> (Copy) t).forEach(workingQueue::push);
 
         // We perform a recursive search across the invocation graph
@@ -29,7 +30,7 @@ public class VariableIsVariable implements Optimizer {
             final Variable source = (Variable) workingItem.incomingDataFlows[0];
             final Variable target = (Variable) g.outgoingDataFlowsFor(workingItem)[0];
 
-            if (g.outgoingDataFlowsFor(source).length == 1) {
+            if (g.outgoingDataFlowsFor(source).length == 1 && target.incomingDataFlows.length == 1) {
                 // Step 1 : Remove copy from control flow
                 workingItem.deleteFromControlFlow();
 
@@ -62,6 +62,8 @@ public class CompileUnit {
 
     private final Logger logger;
 
+    private volatile boolean linkingFrozen;
+
     public CompileUnit(final Loader loader, final Logger logger, final Intrinsic intrinsic) {
         this.loader = loader;
         this.resolvedClasses = new HashMap<>();
@@ -101,6 +103,28 @@ public class CompileUnit {
         return loader;
     }
 
+    /**
+     * While linking is frozen, no new classes, methods or fields can be resolved. The CompileUnit is not thread
+     * safe, so linking is frozen while several threads read it at once.
+     */
+    public void setLinkingFrozen(final boolean linkingFrozen) {
+        this.linkingFrozen = linkingFrozen;
+    }
+
+    public boolean isLinkingFrozen() {
+        return linkingFrozen;
+    }
+
+    public void checkLinkingNotFrozen(final String what) {
+        if (linkingFrozen) {
+            throw new IllegalStateException("Cannot resolve " + what + " while linking is frozen");
+        }
+    }
+
+    public List<ResolvedClass> resolvedClasses() {
+        return new ArrayList<>(resolvedClasses.values());
+    }
+
     public ResolvedClass findClass(final Type type) {
         final String resourceName = type.getClassName().replace(".", "/") + ".class";
         return resolvedClasses.get(resourceName);
@@ -112,6 +136,7 @@ public class CompileUnit {
         if (rs != null) {
             return rs;
         }
+        checkLinkingNotFrozen(type.getClassName());
         try {
             rs = loadClass(type, loader.loadClassFor(type), analysisStack);
         } catch (final RuntimeException e) {
@@ -182,7 +207,8 @@ public class CompileUnit {
         computeSubtypesFor(objectClass, 0, dependency);
 
         final List<ResolvedClass> classDependencies = new ArrayList<>(dependency.keySet());
-        classDependencies.sort(Comparator.comparingInt(dependency::get));
+        // Classes on the same level are sorted by name, so the generated code does not depend on hash codes
+        classDependencies.sort(Comparator.<ResolvedClass>comparingInt(dependency::get).thenComparing(c -> c.type.getClassName()));
 
         return classDependencies;
     }
@@ -223,7 +249,8 @@ public class CompileUnit {
         resolveClass(Type.getType(String.class), analysisStack).resolveMethod("<init>", Type.getMethodType(Type.VOID_TYPE), analysisStack);
         resolveClass(Type.getType(BytecoderCharsetEncoder.class), analysisStack).resolveMethod("<init>", Type.getMethodType(Type.VOID_TYPE, Type.getType(Charset.class)), analysisStack);
 
-        resolveClass(Type.getType(Array.class), analysisStack);
+        // Arrays are instances of this class, but they are never created by invoking its constructor
+        resolveClass(Type.getType(Array.class), analysisStack).resolveMethod("<init>", Type.getMethodType(Type.VOID_TYPE), analysisStack);
 
         return method;
     }
@@ -235,12 +262,22 @@ public class CompileUnit {
         final Supplier<List<ResolvedClass>> currentList = () -> new ArrayList<>(resolvedClasses.values());
         while (modified) {
             final List<ResolvedClass> lst = currentList.get();
+            final int methodCount = resolvedMethodCount();
             for (final ResolvedClass cl : lst) {
                 cl.computeOpaqueReferenceTypeAndCallbackStatus(analysisStack);
                 cl.finalizeLinkingHierarchy(analysisStack);
             }
-            modified = currentList.get().size() != lst.size();
+            // Newly parsed methods might instantiate already known classes, so we also have to check the methods
+            modified = currentList.get().size() != lst.size() || resolvedMethodCount() != methodCount;
+        }
+    }
+
+    private int resolvedMethodCount() {
+        int count = 0;
+        for (final ResolvedClass cl : resolvedClasses.values()) {
+            count += cl.resolvedMethods.size();
         }
+        return count;
     }
 
     public void logStatistics() {
@@ -290,6 +327,10 @@ public class CompileUnit {
             }
         }
 
+        if (intrinsic instanceof CoreIntrinsics) {
+            ((CoreIntrinsics) intrinsic).logStatistics(logger);
+        }
+
     }
 
     public void processExportedMethods(final BiConsumer<String, ResolvedMethod> processor) {
@@ -18,23 +18,33 @@ package de.mirkosertic.bytecoder.core.parser;
 import de.mirkosertic.bytecoder.core.ir.StringConstant;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ConstantPool {
 
     private final List<String> pooledStrings;
+    private final Map<String, Integer> indices;
 
     public ConstantPool() {
         pooledStrings = new ArrayList<>();
+        indices = new HashMap<>();
     }
 
     public StringConstant resolveFromPool(final String constant) {
-        final int p = pooledStrings.indexOf(constant);
-        if (p >= 0) {
-            return new StringConstant(p);
+        return new StringConstant(indices.computeIfAbsent(constant, k -> {
+            pooledStrings.add(k);
+            return pooledStrings.size() - 1;
+        }));
+    }
+
+    public int indexOf(final String constant) {
+        final Integer index = indices.get(constant);
+        if (index == null) {
+            return -1;
         }
-        pooledStrings.add(constant);
-        return new StringConstant(pooledStrings.size() - 1);
+        return index;
     }
 
     public List<String> getPooledStrings() {
@@ -15,6 +15,7 @@
  */
 package de.mirkosertic.bytecoder.core.parser;
 
+import de.mirkosertic.bytecoder.api.Logger;
 import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
 import de.mirkosertic.bytecoder.core.ir.ControlTokenConsumer;
 import de.mirkosertic.bytecoder.core.ir.Graph;
@@ -23,11 +24,14 @@ import org.objectweb.asm.tree.MethodInsnNode;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class CoreIntrinsics implements Intrinsic {
 
     private final List<Intrinsic> intrinsics;
 
+    private final IntrinsicRegistry registry;
+
     public CoreIntrinsics(final Intrinsic... i) {
         this.intrinsics = new ArrayList<>();
         for (final Intrinsic in : i) {
@@ -37,13 +41,24 @@ public class CoreIntrinsics implements Intrinsic {
         this.intrinsics.add(new JavaLangClassIntrinsics());
         this.intrinsics.add(new JavaLangObjectIntrinsics());
         this.intrinsics.add(new JavaLangSystemIntrinsics());
+
+        this.registry = new IntrinsicRegistry();
+        register(registry);
     }
 
     @Override
-    public Value intrinsifyMethodInvocationWithReturnValue(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
+    public void register(final IntrinsicRegistry registry) {
         for (final Intrinsic i : intrinsics) {
+            i.register(registry);
+        }
+    }
+
+    @Override
+    public Value intrinsifyMethodInvocationWithReturnValue(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
+        for (final Intrinsic i : registry.intrinsicsFor(node)) {
             final Value result = i.intrinsifyMethodInvocationWithReturnValue(compileUnit, analysisStack, node, incomingData, graph, graphParser);
             if (result != null) {
+                registry.fired(node);
                 return result;
             }
         }
@@ -52,12 +67,24 @@ public class CoreIntrinsics implements Intrinsic {
 
     @Override
     public ControlTokenConsumer intrinsifyMethodInvocation(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
-        for (final Intrinsic i : intrinsics) {
+        for (final Intrinsic i : registry.intrinsicsFor(node)) {
             final ControlTokenConsumer result = i.intrinsifyMethodInvocation(compileUnit, analysisStack, node, incomingData, graph, graphParser);
             if (result != null) {
+                registry.fired(node);
                 return result;
             }
         }
         return null;
     }
+
+    Map<String, Integer> firedIntrinsics() {
+        return registry.firedIntrinsics();
+    }
+
+    public void logStatistics(final Logger logger) {
+        logger.info("Intrinsified invocations:");
+        for (final Map.Entry<String, Integer> entry : firedIntrinsics().entrySet()) {
+            logger.info("  {} : {}", entry.getKey(), entry.getValue());
+        }
+    }
 }
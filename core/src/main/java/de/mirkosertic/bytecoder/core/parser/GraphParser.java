@@ -17,6 +17,7 @@ package de.mirkosertic.bytecoder.core.parser;
 
 import de.mirkosertic.bytecoder.classlib.Array;
 import de.mirkosertic.bytecoder.core.ir.AnalysisException;
+import de.mirkosertic.bytecoder.core.ir.AbstractVar;
 import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
 import de.mirkosertic.bytecoder.core.ir.ArrayLoad;
 import de.mirkosertic.bytecoder.core.ir.ArrayStore;
@@ -44,6 +45,7 @@ import de.mirkosertic.bytecoder.core.ir.MonitorExit;
 import de.mirkosertic.bytecoder.core.ir.New;
 import de.mirkosertic.bytecoder.core.ir.NewArray;
 import de.mirkosertic.bytecoder.core.ir.Node;
+import de.mirkosertic.bytecoder.core.ir.NodeType;
 import de.mirkosertic.bytecoder.core.ir.Nop;
 import de.mirkosertic.bytecoder.core.ir.NullReference;
 import de.mirkosertic.bytecoder.core.ir.NullTest;
@@ -116,23 +118,12 @@ import java.util.function.Supplier;
 
 public class GraphParser {
 
-    private final Graph graph;
-
-    private final MethodNode methodNode;
-
-    private final CompileUnit compileUnit;
-
-    private final AnalysisStack analysisStack;
+    private static final int MAX_COALESCING_DISTANCE = 32;
 
-    private final Map<Integer, String> opcodeToName;
-
-    public GraphParser(final CompileUnit compileUnit, final Type ownerType, final MethodNode methodNode, final AnalysisStack analysisStack) {
-        this.methodNode = methodNode;
-        this.graph = new Graph(compileUnit.getLogger());
-        this.compileUnit = compileUnit;
-        this.analysisStack = analysisStack;
-        this.opcodeToName = new HashMap<>();
+    private static final Map<Integer, String> OPCODE_TO_NAME = opcodeNames();
 
+    private static Map<Integer, String> opcodeNames() {
+        final Map<Integer, String> opcodeToName = new HashMap<>();
         for (final Field f : Opcodes.class.getDeclaredFields()) {
             if (f.getType() == int.class &&
                 !f.getName().startsWith("V") &&
@@ -148,6 +139,24 @@ public class GraphParser {
                 }
             }
         }
+        return Collections.unmodifiableMap(opcodeToName);
+    }
+
+    private final Graph graph;
+
+    private final MethodNode methodNode;
+
+    private final CompileUnit compileUnit;
+
+    private final AnalysisStack analysisStack;
+
+    private LocalVariableLiveness liveness;
+
+    public GraphParser(final CompileUnit compileUnit, final Type ownerType, final MethodNode methodNode, final AnalysisStack analysisStack) {
+        this.methodNode = methodNode;
+        this.graph = new Graph(compileUnit.getLogger());
+        this.compileUnit = compileUnit;
+        this.analysisStack = analysisStack;
 
         parse(ownerType);
     }
@@ -380,12 +389,13 @@ public class GraphParser {
 
         // Step 3: We know the back edges,
         // Now we do a forward control flow analysis
+        liveness = new LocalVariableLiveness(methodNode);
         alreadyVisited.clear();
         controlFlowsToCheck.push(new ControlFlow(methodNode.instructions.get(0), initialState));
         while (!controlFlowsToCheck.isEmpty()) {
             final ControlFlow flow = controlFlowsToCheck.pop();
             if (alreadyVisited.add(flow.currentNode)) {
-                final String opcode = opcodeToName.get(flow.currentNode.getOpcode());
+                final String opcode = OPCODE_TO_NAME.get(flow.currentNode.getOpcode());
                 if (opcode != null) {
                     analysisStack.addDebugMessage("Visiting #" + methodNode.instructions.indexOf(flow.currentNode) + " " + opcode + " Stack size is " + flow.graphParserState.frame.incomingStack.length + " Source line " + flow.graphParserState.lineNumber);
 
@@ -418,6 +428,87 @@ public class GraphParser {
 
         // Step 5: Fixup stuff not possible during analysis
         graph.applyFixups(incomingEdgesPerInstruction);
+
+        // Step 6: Compute values assigned to PHIs directly into the PHI
+        coalesceCopiesIntoPHIs(graph);
+    }
+
+    /**
+     * Replaces a variable only copied into a PHI by the PHI itself. The copy defining the variable
+     * must reach the copy into the PHI on a straight control flow path that does not read the PHI,
+     * so the PHI can be assigned earlier. Methods with exception handlers are not changed, as an
+     * exception in between might observe the PHI assigned too early.
+     */
+    static void coalesceCopiesIntoPHIs(final Graph graph) {
+        for (final Node n : graph.nodes()) {
+            if (n.nodeType == NodeType.TryCatch) {
+                return;
+            }
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (final Node n : graph.nodes()) {
+                if (n instanceof Copy && graph.contains(n) && coalesce(graph, (Copy) n)) {
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private static boolean coalesce(final Graph graph, final Copy copyToPHI) {
+        final Node[] targets = graph.outgoingDataFlowsFor(copyToPHI);
+        if (targets.length != 1 || !(targets[0] instanceof PHI) || !(copyToPHI.incomingDataFlows[0] instanceof Variable)) {
+            return false;
+        }
+        final PHI phi = (PHI) targets[0];
+        final Variable variable = (Variable) copyToPHI.incomingDataFlows[0];
+        if (variable.incomingDataFlows.length != 1 || !(variable.incomingDataFlows[0] instanceof Copy) || graph.outgoingDataFlowsFor(variable).length != 1) {
+            return false;
+        }
+        // Field and array stores are incoming data flows of their target, they read the PHI somewhere else
+        for (final Node incoming : phi.incomingDataFlows) {
+            if (!(incoming instanceof Copy)) {
+                return false;
+            }
+        }
+        final Copy definition = (Copy) variable.incomingDataFlows[0];
+
+        ControlTokenConsumer current = definition;
+        for (int i = 0; i < MAX_COALESCING_DISTANCE; i++) {
+            if (current.controlFlowsTo.size() != 1) {
+                return false;
+            }
+            final ControlTokenConsumer next = current.controlFlowsTo.values().iterator().next();
+            if (next.controlComingFrom.size() != 1 || next.hasIncomingBackEdges()) {
+                return false;
+            }
+            if (next == copyToPHI) {
+                phi.remapDataFlow(copyToPHI, definition);
+                copyToPHI.deleteFromControlFlow();
+                graph.deleteNode(copyToPHI);
+                graph.deleteNode(variable);
+                return true;
+            }
+            if (reads(next, phi)) {
+                return false;
+            }
+            current = next;
+        }
+        return false;
+    }
+
+    private static boolean reads(final Node node, final PHI phi) {
+        for (final Node incoming : node.incomingDataFlows) {
+            if (incoming == phi) {
+                return true;
+            }
+            // Variables are evaluated where they are assigned, expressions where they are used
+            if (!(incoming instanceof AbstractVar) && reads(incoming, phi)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private List<ControlFlow> parseLabelNode(final ControlFlow currentFlow) {
@@ -2604,9 +2695,10 @@ public class GraphParser {
             if (incomingEdges != null) {
                 if (incomingEdges.size() > 1 || isStartOfTryCatch(labelNode)) {
                     // We do have multiple incoming edges, or we are the start of a try catch block.
-                    // Now we have to make sure that every entry on the stack or on local variables
+                    // Now we have to make sure that every entry on the stack or on live local variables
                     // is a PHI. Data copy is handled during the graph fixup phase
-                    // We just have to make sure that there are phi variables there to handle everything
+                    // We just have to make sure that there are phi variables there to handle everything.
+                    // Local variables not live here are dropped, so neither PHIs nor copies are created for them
 
                     final GraphParserState graphParserState = currentFlow.graphParserState;
                     final Value[] newLocals = new Value[graphParserState.frame.incomingLocals.length];
@@ -2614,7 +2706,9 @@ public class GraphParser {
 
                     for (int i = 0; i < graphParserState.frame.incomingLocals.length; i++) {
                         final Value source = graphParserState.frame.incomingLocals[i];
-                        if (source != null && !(source instanceof PHI)) {
+                        if (!liveness.isLiveAt(labelNode, i)) {
+                            newLocals[i] = null;
+                        } else if (source != null && !(source instanceof PHI)) {
                             newLocals[i] = graph.newPHI(source.type);
                         } else {
                             newLocals[i] = source;
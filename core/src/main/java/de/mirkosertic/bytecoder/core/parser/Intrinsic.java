@@ -23,6 +23,12 @@ import org.objectweb.asm.tree.MethodInsnNode;
 
 public interface Intrinsic {
 
+    /**
+     * Registers the handled methods. The intrinsify methods are only called for invocations of
+     * registered methods, so they don't need to check owner, name or descriptor again.
+     */
+    void register(IntrinsicRegistry registry);
+
     default Value intrinsifyMethodInvocationWithReturnValue(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
         return null;
     }
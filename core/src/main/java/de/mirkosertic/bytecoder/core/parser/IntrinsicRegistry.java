@@ -0,0 +1,77 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.parser;
+
+import org.objectweb.asm.tree.MethodInsnNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps invoked methods to the intrinsics handling them, so only matching intrinsics are asked
+ * to replace a method invocation.
+ */
+public class IntrinsicRegistry {
+
+    private final Map<String, List<Intrinsic>> byOwnerAndMethod;
+    private final Map<String, List<Intrinsic>> byMethod;
+    private final Map<String, AtomicInteger> fired;
+
+    public IntrinsicRegistry() {
+        this.byOwnerAndMethod = new ConcurrentHashMap<>();
+        this.byMethod = new ConcurrentHashMap<>();
+        this.fired = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Registers an intrinsic for a method, the owner is given as an internal name like java/lang/Math.
+     */
+    public void register(final String owner, final String name, final String desc, final Intrinsic intrinsic) {
+        byOwnerAndMethod.computeIfAbsent(owner + "." + name + desc, k -> new ArrayList<>()).add(intrinsic);
+    }
+
+    /**
+     * Registers an intrinsic for a method invoked on any owner type, like Object.getClass().
+     */
+    public void registerForAnyOwner(final String name, final String desc, final Intrinsic intrinsic) {
+        byMethod.computeIfAbsent(name + desc, k -> new ArrayList<>()).add(intrinsic);
+    }
+
+    public List<Intrinsic> intrinsicsFor(final MethodInsnNode node) {
+        final List<Intrinsic> result = byOwnerAndMethod.get(node.owner + "." + node.name + node.desc);
+        if (result != null) {
+            return result;
+        }
+        return byMethod.getOrDefault(node.name + node.desc, Collections.emptyList());
+    }
+
+    public void fired(final MethodInsnNode node) {
+        fired.computeIfAbsent(node.owner + "." + node.name + node.desc, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    public Map<String, Integer> firedIntrinsics() {
+        final Map<String, Integer> result = new TreeMap<>();
+        for (final Map.Entry<String, AtomicInteger> entry : fired.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result;
+    }
+}
@@ -19,25 +19,20 @@ import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
 import de.mirkosertic.bytecoder.core.ir.EnumValuesOf;
 import de.mirkosertic.bytecoder.core.ir.Graph;
 import de.mirkosertic.bytecoder.core.ir.Value;
-import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.MethodInsnNode;
 
 public class JavaLangClassIntrinsics implements Intrinsic {
 
+    @Override
+    public void register(final IntrinsicRegistry registry) {
+        registry.register(Type.getInternalName(Class.class), "getEnumConstants", "()[Ljava/lang/Object;", this);
+    }
+
     @Override
     public Value intrinsifyMethodInvocationWithReturnValue(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
-        if (node.getOpcode() != Opcodes.INVOKESTATIC) {
-            final Type targetClass = Type.getObjectType(node.owner);
-            if (Class.class.getName().equals(targetClass.getClassName())) {
-                if ("getEnumConstants".equals(node.name)) {
-                    final Type methodType = Type.getMethodType(node.desc);
-                    final EnumValuesOf exp = graph.newEnumValuesOf(methodType.getReturnType());
-                    exp.addIncomingData(incomingData[0]);
-                    return exp;
-                }
-            }
-        }
-        return null;
+        final EnumValuesOf exp = graph.newEnumValuesOf(Type.getReturnType(node.desc));
+        exp.addIncomingData(incomingData[0]);
+        return exp;
     }
 }
@@ -23,13 +23,15 @@ import org.objectweb.asm.tree.MethodInsnNode;
 
 public class JavaLangObjectIntrinsics implements Intrinsic {
 
+    @Override
+    public void register(final IntrinsicRegistry registry) {
+        registry.registerForAnyOwner("getClass", "()Ljava/lang/Class;", this);
+    }
+
     @Override
     public Value intrinsifyMethodInvocationWithReturnValue(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
-        if ("getClass".equals(node.name)) {
-            final RuntimeClassOf runtimeClassOf = graph.newRuntimeTypeOf();
-            runtimeClassOf.addIncomingData(incomingData);
-            return runtimeClassOf;
-        }
-        return null;
+        final RuntimeClassOf runtimeClassOf = graph.newRuntimeTypeOf();
+        runtimeClassOf.addIncomingData(incomingData);
+        return runtimeClassOf;
     }
 }
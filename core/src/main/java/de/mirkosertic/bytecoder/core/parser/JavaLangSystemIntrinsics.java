@@ -16,85 +16,80 @@
 package de.mirkosertic.bytecoder.core.parser;
 
 import de.mirkosertic.bytecoder.core.ir.*;
-import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.MethodInsnNode;
 
 public class JavaLangSystemIntrinsics implements Intrinsic {
 
     @Override
-    public ControlTokenConsumer intrinsifyMethodInvocation(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
-        if (node.getOpcode() == Opcodes.INVOKESTATIC) {
-            final Type targetClass = Type.getObjectType(node.owner);
-            if (System.class.getName().equals(targetClass.getClassName())) {
-                if ("arraycopy".equals(node.name)) {
-                    final Value source = incomingData[1];
-                    final Type methodType;
-                    final ResolvedClass systemClass = compileUnit.resolveClass(Type.getType(System.class), analysisStack);
-
-
-
-                    if (source.type.getClassName().contentEquals(Object.class.getName())) {
-                        // (Ljava/lang/Object;ILjava/lang/Object;II)V
-                        methodType = Type.getMethodType(node.desc);
-                    } else if (source.type.getSort() == Type.ARRAY) {
-                        switch (source.type.getElementType().getSort()) {
-                            case Type.CHAR: {
-                                methodType = Type.getMethodType("([CI[CII)V");
-                                break;
-                            }
-                            case Type.BYTE: {
-                                methodType = Type.getMethodType("([BI[BII)V");
-                                break;
-                            }
-                            case Type.DOUBLE: {
-                                methodType = Type.getMethodType("([DI[DII)V");
-                                break;
-                            }
-                            case Type.FLOAT: {
-                                methodType = Type.getMethodType("([FI[FII)V");
-                                break;
-                            }
-                            case Type.INT: {
-                                methodType = Type.getMethodType("([II[III)V");
-                                break;
-                            }
-                            case Type.LONG: {
-                                methodType = Type.getMethodType("([JI[JII)V");
-                                break;
-                            }
-                            case Type.SHORT: {
-                                methodType = Type.getMethodType("([SI[SII)V");
-                                break;
-                            }
-                            case Type.BOOLEAN: {
-                                methodType = Type.getMethodType("([ZI[ZII)V");
-                                break;
-                            }
-                            case Type.OBJECT: {
-                                // (Ljava/lang/Object;ILjava/lang/Object;II)V
-                                methodType = Type.getMethodType(node.desc);
-                                break;
-                            }
-                            default: {
-                                throw new IllegalArgumentException(source.type.getElementType().getSort()+" is not a valid type for an array in System.arraycopy() !");
-                            }
-                        }
-                    } else {
-                        throw new IllegalArgumentException("Expected array type or "+Object.class.getName()+" for arrayCopy, got " + source.type);
-                    }
+    public void register(final IntrinsicRegistry registry) {
+        registry.register(Type.getInternalName(System.class), "arraycopy", "(Ljava/lang/Object;ILjava/lang/Object;II)V", this);
+    }
 
+    @Override
+    public ControlTokenConsumer intrinsifyMethodInvocation(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
+        final Value source = incomingData[1];
+        final Type methodType;
+        final ResolvedClass systemClass = compileUnit.resolveClass(Type.getType(System.class), analysisStack);
 
 
-                    final ResolvedMethod rm = systemClass.resolveMethod(node.name,
-                            methodType, analysisStack);
-                    final ControlTokenConsumer n = graph.newMethodInvocation(InvocationType.STATIC, node, rm);
-                    n.addIncomingData(incomingData);
-                    return n;
 
+        if (source.type.getClassName().contentEquals(Object.class.getName())) {
+            // (Ljava/lang/Object;ILjava/lang/Object;II)V
+            methodType = Type.getMethodType(node.desc);
+        } else if (source.type.getSort() == Type.ARRAY) {
+            switch (source.type.getElementType().getSort()) {
+                case Type.CHAR: {
+                    methodType = Type.getMethodType("([CI[CII)V");
+                    break;
+                }
+                case Type.BYTE: {
+                    methodType = Type.getMethodType("([BI[BII)V");
+                    break;
+                }
+                case Type.DOUBLE: {
+                    methodType = Type.getMethodType("([DI[DII)V");
+                    break;
+                }
+                case Type.FLOAT: {
+                    methodType = Type.getMethodType("([FI[FII)V");
+                    break;
+                }
+                case Type.INT: {
+                    methodType = Type.getMethodType("([II[III)V");
+                    break;
+                }
+                case Type.LONG: {
+                    methodType = Type.getMethodType("([JI[JII)V");
+                    break;
+                }
+                case Type.SHORT: {
+                    methodType = Type.getMethodType("([SI[SII)V");
+                    break;
+                }
+                case Type.BOOLEAN: {
+                    methodType = Type.getMethodType("([ZI[ZII)V");
+                    break;
+                }
+                case Type.OBJECT: {
+                    // (Ljava/lang/Object;ILjava/lang/Object;II)V
+                    methodType = Type.getMethodType(node.desc);
+                    break;
+                }
+                default: {
+                    throw new IllegalArgumentException(source.type.getElementType().getSort()+" is not a valid type for an array in System.arraycopy() !");
                 }
             }
+        } else {
+            throw new IllegalArgumentException("Expected array type or "+Object.class.getName()+" for arrayCopy, got " + source.type);
         }
-        return null;
+
+
+
+        final ResolvedMethod rm = systemClass.resolveMethod(node.name,
+                methodType, analysisStack);
+        final ControlTokenConsumer n = graph.newMethodInvocation(InvocationType.STATIC, node, rm);
+        n.addIncomingData(incomingData);
+        return n;
     }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.parser;
+
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnList;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Backward dataflow analysis computing the local variable slots live at every instruction of a method.
+ * Exception handlers are treated as successors of every instruction of their guarded range.
+ */
+public class LocalVariableLiveness {
+
+    private final InsnList instructions;
+    private final BitSet[] liveIn;
+
+    public LocalVariableLiveness(final MethodNode methodNode) {
+        this.instructions = methodNode.instructions;
+
+        final int size = instructions.size();
+        final List<List<Integer>> predecessors = new ArrayList<>(size);
+        final int[][] successors = new int[size][];
+        final BitSet[] uses = new BitSet[size];
+        final BitSet[] defs = new BitSet[size];
+        liveIn = new BitSet[size];
+
+        for (int i = 0; i < size; i++) {
+            predecessors.add(new ArrayList<>());
+        }
+        for (int i = 0; i < size; i++) {
+            final AbstractInsnNode node = instructions.get(i);
+            uses[i] = new BitSet();
+            defs[i] = new BitSet();
+            liveIn[i] = new BitSet();
+            if (node instanceof VarInsnNode) {
+                final VarInsnNode varNode = (VarInsnNode) node;
+                switch (varNode.getOpcode()) {
+                    case Opcodes.ISTORE:
+                    case Opcodes.LSTORE:
+                    case Opcodes.FSTORE:
+                    case Opcodes.DSTORE:
+                    case Opcodes.ASTORE:
+                        defs[i].set(varNode.var);
+                        break;
+                    default:
+                        uses[i].set(varNode.var);
+                        break;
+                }
+            } else if (node instanceof IincInsnNode) {
+                uses[i].set(((IincInsnNode) node).var);
+            }
+            successors[i] = successorsOf(node);
+        }
+
+        for (final TryCatchBlockNode tryCatchBlockNode : methodNode.tryCatchBlocks) {
+            final int handler = instructions.indexOf(tryCatchBlockNode.handler);
+            final int end = instructions.indexOf(tryCatchBlockNode.end);
+            for (int i = instructions.indexOf(tryCatchBlockNode.start); i < end; i++) {
+                final int[] s = successors[i];
+                final int[] extended = new int[s.length + 1];
+                System.arraycopy(s, 0, extended, 0, s.length);
+                extended[s.length] = handler;
+                successors[i] = extended;
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            for (final int s : successors[i]) {
+                predecessors.get(s).add(i);
+            }
+        }
+
+        final Deque<Integer> workingQueue = new ArrayDeque<>();
+        final BitSet queued = new BitSet();
+        for (int i = size - 1; i >= 0; i--) {
+            workingQueue.add(i);
+            queued.set(i);
+        }
+        final BitSet liveOut = new BitSet();
+        while (!workingQueue.isEmpty()) {
+            final int i = workingQueue.poll();
+            queued.clear(i);
+
+            liveOut.clear();
+            for (final int s : successors[i]) {
+                liveOut.or(liveIn[s]);
+            }
+            liveOut.andNot(defs[i]);
+            liveOut.or(uses[i]);
+
+            if (!liveOut.equals(liveIn[i])) {
+                liveIn[i] = (BitSet) liveOut.clone();
+                for (final int p : predecessors.get(i)) {
+                    if (!queued.get(p)) {
+                        workingQueue.add(p);
+                        queued.set(p);
+                    }
+                }
+            }
+        }
+    }
+
+    private int[] successorsOf(final AbstractInsnNode node) {
+        final List<LabelNode> targets = new ArrayList<>();
+        boolean fallsThrough = true;
+        if (node instanceof JumpInsnNode) {
+            targets.add(((JumpInsnNode) node).label);
+            fallsThrough = node.getOpcode() != Opcodes.GOTO;
+        } else if (node instanceof TableSwitchInsnNode) {
+            targets.add(((TableSwitchInsnNode) node).dflt);
+            targets.addAll(((TableSwitchInsnNode) node).labels);
+            fallsThrough = false;
+        } else if (node instanceof LookupSwitchInsnNode) {
+            targets.add(((LookupSwitchInsnNode) node).dflt);
+            targets.addAll(((LookupSwitchInsnNode) node).labels);
+            fallsThrough = false;
+        } else {
+            switch (node.getOpcode()) {
+                case Opcodes.RETURN:
+                case Opcodes.IRETURN:
+                case Opcodes.LRETURN:
+                case Opcodes.FRETURN:
+                case Opcodes.DRETURN:
+                case Opcodes.ARETURN:
+                case Opcodes.ATHROW:
+                    fallsThrough = false;
+                    break;
+            }
+        }
+        final AbstractInsnNode next = node.getNext();
+        final int[] result = new int[targets.size() + (fallsThrough && next != null ? 1 : 0)];
+        for (int i = 0; i < targets.size(); i++) {
+            result[i] = instructions.indexOf(targets.get(i));
+        }
+        if (result.length > targets.size()) {
+            result[targets.size()] = instructions.indexOf(next);
+        }
+        return result;
+    }
+
+    public boolean isLiveAt(final AbstractInsnNode node, final int local) {
+        return liveIn[instructions.indexOf(node)].get(local);
+    }
+}
@@ -19,43 +19,36 @@ import de.mirkosertic.bytecoder.classlib.VM;
 import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
 import de.mirkosertic.bytecoder.core.ir.Graph;
 import de.mirkosertic.bytecoder.core.ir.Value;
-import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.tree.MethodInsnNode;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class VMIntrinsics implements Intrinsic {
 
+    private static final Map<String, Type> PRIMITIVE_CLASSES = new HashMap<>();
+
+    static {
+        PRIMITIVE_CLASSES.put("bytePrimitiveClass", Type.BYTE_TYPE);
+        PRIMITIVE_CLASSES.put("charPrimitiveClass", Type.CHAR_TYPE);
+        PRIMITIVE_CLASSES.put("shortPrimitiveClass", Type.SHORT_TYPE);
+        PRIMITIVE_CLASSES.put("intPrimitiveClass", Type.INT_TYPE);
+        PRIMITIVE_CLASSES.put("floatPrimitiveClass", Type.FLOAT_TYPE);
+        PRIMITIVE_CLASSES.put("doublePrimitiveClass", Type.DOUBLE_TYPE);
+        PRIMITIVE_CLASSES.put("longPrimitiveClass", Type.LONG_TYPE);
+        PRIMITIVE_CLASSES.put("booleanPrimitiveClass", Type.BOOLEAN_TYPE);
+    }
+
     @Override
-    public Value intrinsifyMethodInvocationWithReturnValue(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
-        if (node.getOpcode() == Opcodes.INVOKESTATIC) {
-            final Type targetClass = Type.getObjectType(node.owner);
-            if (VM.class.getName().equals(targetClass.getClassName())) {
-                if ("bytePrimitiveClass".equals(node.name)) {
-                    return graph.newPrimitiveClassReference(Type.BYTE_TYPE);
-                }
-                if ("charPrimitiveClass".equals(node.name)) {
-                    return graph.newPrimitiveClassReference(Type.CHAR_TYPE);
-                }
-                if ("shortPrimitiveClass".equals(node.name)) {
-                    return graph.newPrimitiveClassReference(Type.SHORT_TYPE);
-                }
-                if ("intPrimitiveClass".equals(node.name)) {
-                    return graph.newPrimitiveClassReference(Type.INT_TYPE);
-                }
-                if ("floatPrimitiveClass".equals(node.name)) {
-                    return graph.newPrimitiveClassReference(Type.FLOAT_TYPE);
-                }
-                if ("doublePrimitiveClass".equals(node.name)) {
-                    return graph.newPrimitiveClassReference(Type.DOUBLE_TYPE);
-                }
-                if ("longPrimitiveClass".equals(node.name)) {
-                    return graph.newPrimitiveClassReference(Type.LONG_TYPE);
-                }
-                if ("booleanPrimitiveClass".equals(node.name)) {
-                    return graph.newPrimitiveClassReference(Type.BOOLEAN_TYPE);
-                }
-            }
+    public void register(final IntrinsicRegistry registry) {
+        for (final String name : PRIMITIVE_CLASSES.keySet()) {
+            registry.register(Type.getInternalName(VM.class), name, "()Ljava/lang/Class;", this);
         }
-        return null;
+    }
+
+    @Override
+    public Value intrinsifyMethodInvocationWithReturnValue(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
+        return graph.newPrimitiveClassReference(PRIMITIVE_CLASSES.get(node.name));
     }
 }
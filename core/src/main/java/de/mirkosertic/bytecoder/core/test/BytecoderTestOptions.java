@@ -15,6 +15,8 @@
  */
 package de.mirkosertic.bytecoder.core.test;
 
+import de.mirkosertic.bytecoder.core.optimizer.Optimizations;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -33,4 +35,18 @@ public @interface BytecoderTestOptions {
     String[] additionalClassesToLink() default {};
 
     String[] additionalResources() default {};
+
+    /**
+     * Scripts loaded from the classpath and added to the JavaScript test page, for instance to provide
+     * imports for native methods of the test.
+     */
+    String[] additionalScripts() default {};
+
+    String[] exceptionsWithoutStackTrace() default {};
+
+    /**
+     * Optimizer used for the JavaScript and Wasm backends, for instance to test passes that are not part of
+     * the default set.
+     */
+    Optimizations optimizations() default Optimizations.DEFAULT;
 }
\ No newline at end of file
@@ -24,6 +24,7 @@ import de.mirkosertic.bytecoder.core.backend.js.JSBackend;
 import de.mirkosertic.bytecoder.core.backend.js.JSCompileResult;
 import de.mirkosertic.bytecoder.core.backend.js.JSHelpers;
 import de.mirkosertic.bytecoder.core.backend.js.JSIntrinsics;
+import de.mirkosertic.bytecoder.core.backend.js.JSLongRepresentation;
 import de.mirkosertic.bytecoder.core.backend.wasm.WasmBackend;
 import de.mirkosertic.bytecoder.core.backend.wasm.WasmCompileResult;
 import de.mirkosertic.bytecoder.core.backend.wasm.WasmHelpers;
@@ -36,6 +37,7 @@ import de.mirkosertic.bytecoder.core.optimizer.Optimizations;
 import de.mirkosertic.bytecoder.core.parser.CompileUnit;
 import de.mirkosertic.bytecoder.core.parser.Loader;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.Description;
@@ -66,6 +68,7 @@ import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
@@ -78,6 +81,9 @@ public class UnitTestRunner extends ParentRunner<FrameworkMethodWithTestOption>
     private final List<TestOption> testOptions;
     private final String[] additionalClassesToLink;
     private final String[] additionalResources;
+    private final String[] additionalScripts;
+    private final String[] exceptionsWithoutStackTrace;
+    private final Optimizations optimizations;
 
     private static HttpServer TESTSERVER;
     private static BrowserWebDriverContainer SELENIUMCONTAINER;
@@ -102,6 +108,9 @@ public class UnitTestRunner extends ParentRunner<FrameworkMethodWithTestOption>
             }
             additionalClassesToLink = declaredOptions.additionalClassesToLink();
             additionalResources = declaredOptions.additionalResources();
+            additionalScripts = declaredOptions.additionalScripts();
+            exceptionsWithoutStackTrace = declaredOptions.exceptionsWithoutStackTrace();
+            optimizations = declaredOptions.optimizations();
         } else {
             testOptions.add(new TestOption(null, false));
             testOptions.add(new TestOption("js", false));
@@ -109,6 +118,9 @@ public class UnitTestRunner extends ParentRunner<FrameworkMethodWithTestOption>
 
             additionalClassesToLink = new String[0];
             additionalResources = new String[0];
+            additionalScripts = new String[0];
+            exceptionsWithoutStackTrace = new String[0];
+            optimizations = Optimizations.DEFAULT;
         }
     }
 
@@ -178,6 +190,11 @@ public class UnitTestRunner extends ParentRunner<FrameworkMethodWithTestOption>
         return Integer.parseInt(System.getProperty("BYTECODER_TESTSERVERPORT", "10000"));
     }
 
+    private static boolean isStartupTimeLogged() {
+        // Time spent until the test method starts, to compare startup of a program between builds
+        return !"".equals(System.getProperty("BYTECODER_LOG_STARTUPTIME", ""));
+    }
+
     private static synchronized BrowserWebDriverContainer initializeSeleniumContainer() {
 
         if (SELENIUMCONTAINER == null) {
@@ -292,19 +309,32 @@ public class UnitTestRunner extends ParentRunner<FrameworkMethodWithTestOption>
                 final String methodName = JSHelpers.generateMethodName(method.methodNode.name, Type.getMethodType(method.methodNode.desc));
                 final String filenamePrefix = className + "." + methodName + "_" + aTestOption.toFilePrefix();
 
-                final CompileOptions compileOptions = new CompileOptions(LOGGER, Optimizations.DEFAULT, additionalResources, filenamePrefix, true);
+                final CompileOptions compileOptions = new CompileOptions(LOGGER, optimizations, additionalResources, filenamePrefix, true, false, exceptionsWithoutStackTrace);
 
-                final JSBackend backend = new JSBackend();
+                final JSBackend backend = new JSBackend("jsbigint".equals(aTestOption.getBackendType()) ? JSLongRepresentation.BIGINT : JSLongRepresentation.NUMBER);
                 final JSCompileResult result = backend.generateCodeFor(compileUnit, compileOptions);
 
+                if (isStartupTimeLogged()) {
+                    codeWriter.println("var startupBegin = performance.now();");
+                }
                 for (final CompileResult.Content c : result.getContent()) {
                     if (c instanceof CompileResult.StringContent) {
                         codeWriter.println(c.asString());
                     }
                 }
+                for (final String script : additionalScripts) {
+                    final URL scriptURL = cl.getResource(script);
+                    if (scriptURL == null) {
+                        throw new IllegalStateException("Cannot find script " + script);
+                    }
+                    codeWriter.println(IOUtils.toString(scriptURL, StandardCharsets.UTF_8));
+                }
 
                 final String filename = className + "." + methodName + "_" + aTestOption.toFilePrefix() + ".html";
 
+                if (isStartupTimeLogged()) {
+                    codeWriter.println("console.log(\"Startup took \" + (performance.now() - startupBegin) + \"ms\");");
+                }
                 codeWriter.println("console.log(\"Starting test\");");
                 codeWriter.println("var theTestInstance = new " + className + "();");
                 codeWriter.println("try {");
@@ -462,7 +492,7 @@ public class UnitTestRunner extends ParentRunner<FrameworkMethodWithTestOption>
                 final String methodName = WasmHelpers.generateMethodName(method.methodNode.name, Type.getMethodType(method.methodNode.desc));
                 final String filenamePrefix = className + "." + methodName + "_" + aTestOption.toFilePrefix();
 
-                final CompileOptions compileOptions = new CompileOptions(LOGGER, Optimizations.DEFAULT, additionalResources, filenamePrefix, true);
+                final CompileOptions compileOptions = new CompileOptions(LOGGER, optimizations, additionalResources, filenamePrefix, true);
 
                 final WasmBackend backend = new WasmBackend();
                 final WasmCompileResult result = backend.generateCodeFor(compileUnit, compileOptions);
@@ -476,9 +506,15 @@ public class UnitTestRunner extends ParentRunner<FrameworkMethodWithTestOption>
                 final String filename = className + "." + methodName + "_" + aTestOption.toFilePrefix() + ".html";
 
                 codeWriter.println("console.log(\"Starting test\");");
+                if (isStartupTimeLogged()) {
+                    codeWriter.println("var startupBegin = performance.now();");
+                }
                 codeWriter.print("bytecoder.instantiate('");
                 codeWriter.print(filenamePrefix);
                 codeWriter.println("wasmclasses.wasm').then(function() {");
+                if (isStartupTimeLogged()) {
+                    codeWriter.println("    console.log(\"Startup took \" + (performance.now() - startupBegin) + \"ms\");");
+                }
                 codeWriter.println("    try {");
                 codeWriter.println("        bytecoder.instance.exports.main(null);");
                 codeWriter.println("        console.log(\"Test finished OK\");");
@@ -595,6 +631,7 @@ public class UnitTestRunner extends ParentRunner<FrameworkMethodWithTestOption>
         } else {
             switch (o.getBackendType()) {
                 case "js":
+                case "jsbigint":
                     testJSBackendFrameworkMethod(aFrameworkMethod, aRunNotifier, o);
                     break;
                 case "wasm":
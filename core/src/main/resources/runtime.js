@@ -2,7 +2,63 @@ const bytecoder = {
     imports: {
         "java.lang.System": {
             J$currentTimeMillis$$: function () {
-                return Date.now();
+                return bytecoder.tolong(Date.now());
+            },
+            V$arraycopy$$C$I$$C$I$I: function (src, srcPos, dest, destPos, length) {
+                bytecoder.arraycopy(src, srcPos, dest, destPos, length);
+            },
+            V$arraycopy$$B$I$$B$I$I: function (src, srcPos, dest, destPos, length) {
+                bytecoder.arraycopy(src, srcPos, dest, destPos, length);
+            },
+            V$arraycopy$$D$I$$D$I$I: function (src, srcPos, dest, destPos, length) {
+                bytecoder.arraycopy(src, srcPos, dest, destPos, length);
+            },
+            V$arraycopy$$F$I$$F$I$I: function (src, srcPos, dest, destPos, length) {
+                bytecoder.arraycopy(src, srcPos, dest, destPos, length);
+            },
+            V$arraycopy$$I$I$$I$I$I: function (src, srcPos, dest, destPos, length) {
+                bytecoder.arraycopy(src, srcPos, dest, destPos, length);
+            },
+            V$arraycopy$$J$I$$J$I$I: function (src, srcPos, dest, destPos, length) {
+                bytecoder.arraycopy(src, srcPos, dest, destPos, length);
+            },
+            V$arraycopy$$S$I$$S$I$I: function (src, srcPos, dest, destPos, length) {
+                bytecoder.arraycopy(src, srcPos, dest, destPos, length);
+            },
+            V$arraycopy$$Z$I$$Z$I$I: function (src, srcPos, dest, destPos, length) {
+                bytecoder.arraycopy(src, srcPos, dest, destPos, length);
+            },
+        },
+        "java.util.Arrays": {
+            V$fill$$C$I$I$C: function (a, fromIndex, toIndex, val) {
+                a.data.fill(val, fromIndex, toIndex);
+            },
+            V$fill$$I$I$I$I: function (a, fromIndex, toIndex, val) {
+                a.data.fill(val, fromIndex, toIndex);
+            },
+            V$fill$$B$I$I$B: function (a, fromIndex, toIndex, val) {
+                a.data.fill(val, fromIndex, toIndex);
+            },
+            V$fill$$Ljava$lang$Object$$I$I$Ljava$lang$Object$: function (a, fromIndex, toIndex, val) {
+                a.data.fill(val, fromIndex, toIndex);
+            },
+            V$fill$$I$I: function (a, val) {
+                a.data.fill(val);
+            },
+            V$fill$$B$B: function (a, val) {
+                a.data.fill(val);
+            },
+            V$fill$$S$S: function (a, val) {
+                a.data.fill(val);
+            },
+            V$fill$$J$J: function (a, val) {
+                a.data.fill(val);
+            },
+            V$fill$$F$F: function (a, val) {
+                a.data.fill(val);
+            },
+            V$fill$$D$D: function (a, val) {
+                a.data.fill(val);
             },
         },
         "java.lang.Object": {
@@ -51,7 +107,7 @@ const bytecoder = {
                 return Math.min(a, b);
             },
             J$min$J$J: function (a, b) {
-                return Math.min(a, b);
+                return a < b ? a : b;
             },
             D$min$D$D: function (a, b) {
                 return Math.min(a, b);
@@ -66,7 +122,7 @@ const bytecoder = {
                 return Math.max(a, b);
             },
             J$max$J$J: function (a, b) {
-                return Math.max(a, b);
+                return a > b ? a : b;
             },
             D$floor$D: function (a) {
                 return Math.floor(a);
@@ -140,7 +196,7 @@ const bytecoder = {
             V$initializeFromArchive$Ljava$lang$Class$: function (cls) {
             },
             J$getRandomSeedForDumping$$: function(cls) {
-                return Math.trunc(Math.random() * 10000000);
+                return bytecoder.tolong(Math.random() * 10000000);
             },
         },
         "java.io.UnixFileSystem": {
@@ -228,7 +284,7 @@ const bytecoder = {
 
                 let str = dec.decode(byteData);
 
-                let charArray = bytecoder.newarray(str.length, 0);
+                let charArray = bytecoder.newtypedarray(str.length, Uint16Array);
                 for (let i = 0; i < str.length; i++) {
                     charArray.data[i] = str.codePointAt(i);
                 }
@@ -250,10 +306,8 @@ const bytecoder = {
                 let enc = new TextEncoder();
                 let byteData = enc.encode(str);
 
-                let bytes = bytecoder.newarray(byteData.length, 0);
-                for (var i = 0; i < byteData.length; i++) {
-                    bytes.data[i] = byteData[i];
-                }
+                let bytes = bytecoder.newtypedarray(byteData.length, Int8Array);
+                bytes.data.set(new Int8Array(byteData.buffer, byteData.byteOffset, byteData.length));
 
                 return bytes;
             },
@@ -373,6 +427,27 @@ const bytecoder = {
             I$lastIndexOf$Ljava$lang$String$: function (str, s) {
                 return str.nativeObject.lastIndexOf(s.nativeObject);
             },
+            I$hashCode$$: function (str) {
+                const s = str.nativeObject;
+                let h = 0;
+                for (let i = 0; i < s.length; i++) {
+                    h = (Math.imul(31, h) + s.charCodeAt(i)) | 0;
+                }
+                return h;
+            },
+            I$compareTo$Ljava$lang$String$: function (str, other) {
+                const a = str.nativeObject;
+                const b = other.nativeObject;
+                const lim = Math.min(a.length, b.length);
+                for (let k = 0; k < lim; k++) {
+                    const c1 = a.charCodeAt(k);
+                    const c2 = b.charCodeAt(k);
+                    if (c1 !== c2) {
+                        return c1 - c2;
+                    }
+                }
+                return a.length - b.length;
+            },
             Ljava$lang$String$$trim$$: function (str) {
                 return bytecoder.toBytecoderString(str.nativeObject.trim());
             },
@@ -416,7 +491,7 @@ const bytecoder = {
                 }
             },
             $C$toCharArray$$: function (str) {
-                let arr = bytecoder.newarray(str.nativeObject.length, 0);
+                let arr = bytecoder.newtypedarray(str.nativeObject.length, Uint16Array);
                 for (let i = 0; i < str.nativeObject.length; i++) {
                     arr.data[i] = str.nativeObject.codePointAt(i);
                 }
@@ -568,7 +643,7 @@ const bytecoder = {
                 return bytecoder.toBytecoderString(value.toString(radix));
             },
             J$parseLong$Ljava$lang$String$$I: function (value, radix) {
-                return parseInt(value.nativeObject, radix);
+                return bytecoder.parselong(value.nativeObject, radix);
             },
         },
         "java.lang.Double": {
@@ -617,6 +692,32 @@ const bytecoder = {
                 return [];
             }
         },
+        "de.mirkosertic.bytecoder.api.web.TypedArrays": {
+            'V$copyToFloatArray$$F$I$Lde$mirkosertic$bytecoder$api$web$FloatArray$$I$I': function(source, sourceOffset, target, targetOffset, length) {
+                target.nativeObject.set(source.data.subarray(sourceOffset, sourceOffset + length), targetOffset);
+            },
+            'V$copyFromFloatArray$Lde$mirkosertic$bytecoder$api$web$FloatArray$$I$$F$I$I': function(source, sourceOffset, target, targetOffset, length) {
+                target.data.set(source.nativeObject.subarray(sourceOffset, sourceOffset + length), targetOffset);
+            },
+            'V$copyToIntArray$$I$I$Lde$mirkosertic$bytecoder$api$web$IntArray$$I$I': function(source, sourceOffset, target, targetOffset, length) {
+                target.nativeObject.set(source.data.subarray(sourceOffset, sourceOffset + length), targetOffset);
+            },
+            'V$copyFromIntArray$Lde$mirkosertic$bytecoder$api$web$IntArray$$I$$I$I$I': function(source, sourceOffset, target, targetOffset, length) {
+                target.data.set(source.nativeObject.subarray(sourceOffset, sourceOffset + length), targetOffset);
+            },
+            'V$copyToInt8Array$$B$I$Lde$mirkosertic$bytecoder$api$web$Int8Array$$I$I': function(source, sourceOffset, target, targetOffset, length) {
+                target.nativeObject.set(source.data.subarray(sourceOffset, sourceOffset + length), targetOffset);
+            },
+            'V$copyFromInt8Array$Lde$mirkosertic$bytecoder$api$web$Int8Array$$I$$B$I$I': function(source, sourceOffset, target, targetOffset, length) {
+                target.data.set(source.nativeObject.subarray(sourceOffset, sourceOffset + length), targetOffset);
+            },
+            'V$copyToInt16Array$$S$I$Lde$mirkosertic$bytecoder$api$web$Int16Array$$I$I': function(source, sourceOffset, target, targetOffset, length) {
+                target.nativeObject.set(source.data.subarray(sourceOffset, sourceOffset + length), targetOffset);
+            },
+            'V$copyFromInt16Array$Lde$mirkosertic$bytecoder$api$web$Int16Array$$I$$S$I$I': function(source, sourceOffset, target, targetOffset, length) {
+                target.data.set(source.nativeObject.subarray(sourceOffset, sourceOffset + length), targetOffset);
+            },
+        },
         "java.time.ZoneId": {
             Ljava$lang$String$$defaultZoneId$$: function() {
                 return bytecoder.toBytecoderString(Intl.DateTimeFormat().resolvedOptions().timeZone);
@@ -629,8 +730,58 @@ const bytecoder = {
     },
     exports: {},
     filehandles : [],
+    stringliterals: [],
     stringconstants: [],
+    stringconstant: function(index) {
+        let str = bytecoder.stringconstants[index];
+        if (str === undefined) {
+            str = bytecoder.toBytecoderString(bytecoder.stringliterals[index]);
+            bytecoder.stringconstants[index] = str;
+        }
+        return str;
+    },
     generated: [],
+    // Set by the backend if long values are represented as BigInt instead of numbers
+    bigintlongs: false,
+    tolong: function(value) {
+        if (bytecoder.bigintlongs) {
+            return BigInt(Math.trunc(value));
+        }
+        return value;
+    },
+    d2l: function(value) {
+        if (isNaN(value)) {
+            return bytecoder.tolong(0);
+        }
+        if (value >= 9223372036854775807) {
+            return bytecoder.bigintlongs ? 9223372036854775807n : 9223372036854775807;
+        }
+        if (value <= -9223372036854775808) {
+            return bytecoder.bigintlongs ? -9223372036854775808n : -9223372036854775808;
+        }
+        return bytecoder.tolong(Math.trunc(value));
+    },
+    parselong: function(str, radix) {
+        if (!bytecoder.bigintlongs) {
+            return parseInt(str, radix);
+        }
+        let negative = false;
+        let i = 0;
+        if (str[0] === '-' || str[0] === '+') {
+            negative = str[0] === '-';
+            i = 1;
+        }
+        const bigradix = BigInt(radix);
+        let result = 0n;
+        for (; i < str.length; i++) {
+            const digit = parseInt(str[i], radix);
+            if (isNaN(digit)) {
+                break;
+            }
+            result = result * bigradix + BigInt(digit);
+        }
+        return BigInt.asIntN(64, negative ? -result : result);
+    },
     cmp: function(a,b) {
         if (a > b) return 1;
         if (a < b) return -1;
@@ -643,10 +794,60 @@ const bytecoder = {
         }
         return 0;
     },
-    registerStack: function(exception, stack) {
-        exception.stack = stack;
+    divisionByZero: function() {
+        return bytecoder.registerStack(bytecoder.exports.divisionByZero(), new Error());
+    },
+    idiv: function(a, b) {
+        if (b === 0) {
+            throw bytecoder.divisionByZero();
+        }
+        return (a / b) | 0;
+    },
+    irem: function(a, b) {
+        if (b === 0) {
+            throw bytecoder.divisionByZero();
+        }
+        return a % b;
+    },
+    ndiv: function(a, b) {
+        if (b === 0) {
+            throw bytecoder.divisionByZero();
+        }
+        return Math.trunc(a / b);
+    },
+    nrem: function(a, b) {
+        if (b === 0) {
+            throw bytecoder.divisionByZero();
+        }
+        return a % b;
+    },
+    ldiv: function(a, b) {
+        if (b === 0n) {
+            throw bytecoder.divisionByZero();
+        }
+        // BigInt division already truncates towards zero, only MIN_VALUE / -1 needs wrapping
+        return BigInt.asIntN(64, a / b);
+    },
+    lrem: function(a, b) {
+        if (b === 0n) {
+            throw bytecoder.divisionByZero();
+        }
+        return a % b;
+    },
+    registerStack: function(exception, error) {
+        // Only the Error of the first throw is kept, formatting its stack is expensive
+        // and done on first access of Throwable.stack
+        if (exception.$error === undefined) {
+            exception.$error = error;
+        }
         return exception;
     },
+    stackOf: function(exception) {
+        if (exception.$error) {
+            return exception.$error.stack;
+        }
+        return undefined;
+    },
     toJSString: function(str) {
         if (str) {
             return str.nativeObject;
@@ -659,6 +860,22 @@ const bytecoder = {
         x.data.fill(defaultvalue);
         return x;
     },
+    newtypedarray: function(len, arraytype) {
+        let x = new de$mirkosertic$bytecoder$classlib$Array();
+        x.data = new arraytype(len);
+        return x;
+    },
+    arraycopy: function(src, srcPos, dest, destPos, length) {
+        if (src === dest) {
+            dest.data.copyWithin(destPos, srcPos, srcPos + length);
+        } else if (ArrayBuffer.isView(src.data) && ArrayBuffer.isView(dest.data)) {
+            dest.data.set(src.data.subarray(srcPos, srcPos + length), destPos);
+        } else {
+            for (let i = 0; i < length; i++) {
+                dest.data[destPos + i] = src.data[srcPos + i];
+            }
+        }
+    },
     toBytecoderString: function(jsstring) {
         const x = new java$lang$String();
         x.V$$init$$$.call(x);
@@ -716,9 +933,9 @@ const bytecoder = {
                     size: length,
                     J$skip0$I: function(fd, amount) {
                         let remaining = this.size - this.currentpos;
-                        let possible = Math.min(remaining, amount);
+                        let possible = Math.min(remaining, Number(amount));
                         this.currentpos += possible;
-                        return possible;
+                        return bytecoder.tolong(possible);
                     },
                     I$available0$$: function(fd) {
                         return this.size - this.currentpos;
@@ -744,7 +961,7 @@ const bytecoder = {
             return -1;
         }
     },
-    newRuntimeClassFor: function (type,javaName, supportedtypes) {
+    newRuntimeClassFor: function (type,javaName, typebits) {
         return {
             Ljava$lang$ClassLoader$$getClassLoader$$: function() {
                 return null;
@@ -770,10 +987,12 @@ const bytecoder = {
                 return this.Ljava$lang$String$$getName$$(self).nativeObject == this.Ljava$lang$String$$getName$$(obj).nativeObject
             },
             instanceOf: function (a, b) {
-                if (supportedtypes.includes(b)) {
-                    return 1;
+                const tid = b.$tid;
+                if (tid === undefined || tid < 0) {
+                    // Not a linked class or never tested against, so it cannot be in the bitset
+                    return 0;
                 }
-                return 0;
+                return (typebits[tid >>> 5] >>> (tid & 31)) & 1;
             },
         };
     },
@@ -7,7 +7,82 @@ const bytecoder = {
     filehandles: [],
 
     toJSString: function(obj) {
-        return bytecoder.instance.exports.java$lang$Object$getNativeObject(obj);
+        let str = bytecoder.instance.exports.java$lang$Object$getNativeObject(obj);
+        if (str === null && obj !== null) {
+            // Strings created inside Wasm only have their characters, the host string is created on first use
+            str = bytecoder.materializeString(obj);
+            bytecoder.instance.exports.java$lang$Object$setNativeObject(obj, str);
+        }
+        return str;
+    },
+
+    materializeString: function(obj) {
+        const exports = bytecoder.instance.exports;
+        const chars = exports.stringChars(obj);
+        return bytecoder.toJSChars(chars, 0, exports.charArrayLength(null, chars));
+    },
+
+    // Primitive arrays are copied in chunks through the exported staging memory, not one export call per element
+    stagingSize: 65536,
+
+    arrayKinds: {
+        bytes: {view: Int8Array, toMemory: 'bytesToMemory', fromMemory: 'memoryToBytes'},
+        chars: {view: Uint16Array, toMemory: 'charsToMemory', fromMemory: 'memoryToChars'},
+        shorts: {view: Int16Array, toMemory: 'shortsToMemory', fromMemory: 'memoryToShorts'},
+        ints: {view: Int32Array, toMemory: 'intsToMemory', fromMemory: 'memoryToInts'},
+        floats: {view: Float32Array, toMemory: 'floatsToMemory', fromMemory: 'memoryToFloats'},
+    },
+
+    arrayToHost: function(kind, arr, offset, target, targetOffset, length) {
+        const exports = bytecoder.instance.exports;
+        const chunkSize = bytecoder.stagingSize / kind.view.BYTES_PER_ELEMENT;
+        for (let pos = 0; pos < length; pos += chunkSize) {
+            const count = Math.min(chunkSize, length - pos);
+            exports[kind.toMemory](arr, offset + pos, count);
+            target.set(new kind.view(exports.memory.buffer, 0, count), targetOffset + pos);
+        }
+    },
+
+    hostToArray: function(kind, source, sourceOffset, arr, offset, length) {
+        const exports = bytecoder.instance.exports;
+        const chunkSize = bytecoder.stagingSize / kind.view.BYTES_PER_ELEMENT;
+        for (let pos = 0; pos < length; pos += chunkSize) {
+            const count = Math.min(chunkSize, length - pos);
+            new kind.view(exports.memory.buffer, 0, count).set(source.subarray(sourceOffset + pos, sourceOffset + pos + count));
+            exports[kind.fromMemory](arr, offset + pos, count);
+        }
+    },
+
+    toJSBytes: function(arr, offset, length) {
+        const result = new Uint8Array(length);
+        bytecoder.arrayToHost(bytecoder.arrayKinds.bytes, arr, offset, result, 0, length);
+        return result;
+    },
+
+    toBytecoderBytes: function(data) {
+        const arr = bytecoder.instance.exports.newByteArray(null, data.length);
+        bytecoder.hostToArray(bytecoder.arrayKinds.bytes, data, 0, arr, 0, data.length);
+        return arr;
+    },
+
+    toJSChars: function(arr, offset, length) {
+        const chars = new Uint16Array(length);
+        bytecoder.arrayToHost(bytecoder.arrayKinds.chars, arr, offset, chars, 0, length);
+        let str = '';
+        for (let pos = 0; pos < length; pos += 8192) {
+            str += String.fromCharCode.apply(null, chars.subarray(pos, pos + 8192));
+        }
+        return str;
+    },
+
+    toBytecoderChars: function(str) {
+        const chars = new Uint16Array(str.length);
+        for (let i = 0; i < str.length; i++) {
+            chars[i] = str.charCodeAt(i);
+        }
+        const arr = bytecoder.instance.exports.newCharArray(null, chars.length);
+        bytecoder.hostToArray(bytecoder.arrayKinds.chars, chars, 0, arr, 0, chars.length);
+        return arr;
     },
 
     toBytecoderString: function(str) {
@@ -242,30 +317,18 @@ const bytecoder = {
             $C$decodeFromBytes$Ljava$lang$String$$$B: function (decoder, charsetName, data) {
                 let targetCharacterSet = bytecoder.toJSString(charsetName);
 
-                let length = bytecoder.instance.exports.byteArrayLength(null, data);
-                let byteData = new Uint8Array(length);
-                for (let i = 0; i < length; i++) {
-                    byteData[i] = bytecoder.instance.exports.getByteArrayEntry(null, data, i);
-                }
+                let byteData = bytecoder.toJSBytes(data, 0, bytecoder.instance.exports.byteArrayLength(null, data));
 
                 let dec = new TextDecoder(targetCharacterSet);
 
                 let str = dec.decode(byteData);
 
-                let charArray = bytecoder.instance.exports.newCharArray(null, str.length);
-                for (let i = 0; i < str.length; i++) {
-                    bytecoder.instance.exports.setCharArrayEntry(null, charArray, i, str.codePointAt(i));
-                }
-                return charArray;
+                return bytecoder.toBytecoderChars(str);
             },
         },
         "de.mirkosertic.bytecoder.classlib.BytecoderCharsetEncoder": {
             $B$encodeToBytes$Ljava$lang$String$$$C: function (encoder, charsetName, data) {
-                var length = bytecoder.instance.exports.charArrayLength(null, data);
-                let str = '';
-                for (var i = 0; i < length; i++) {
-                    str += String.fromCodePoint(bytecoder.instance.exports.getCharArrayEntry(null, data, i));
-                }
+                let str = bytecoder.toJSChars(data, 0, bytecoder.instance.exports.charArrayLength(null, data));
                 let targetCharacterSet = bytecoder.toJSString(charsetName);
                 if (targetCharacterSet !== 'UTF-8') {
                     throw 'Not supported character set!';
@@ -274,12 +337,7 @@ const bytecoder = {
                 let enc = new TextEncoder();
                 let byteData = enc.encode(str);
 
-                let bytes = bytecoder.instance.exports.newByteArray(null, byteData.length);
-                for (var i = 0; i < byteData.length; i++) {
-                    bytecoder.instance.exports.setByteArrayEntry(null, bytes, i, byteData[i]);
-                }
-
-                return bytes;
+                return bytecoder.toBytecoderBytes(byteData);
             },
         },
         "java.lang.StringBuffer": {
@@ -351,87 +409,24 @@ const bytecoder = {
             }
         },
         "java.lang.String": {
-            C$charAt$I: function (str, index) {
-                const a = bytecoder.toJSString(str);
-                return a.codePointAt(index);
-            },
-            I$length$$: function (str) {
-                const a = bytecoder.toJSString(str);
-                return a.length;
-            },
             Ljava$lang$String$$format$Ljava$lang$String$$$Ljava$lang$Object$: function(pattern,values) {
                 return pattern;
             },
-            V$getChars$I$I$$C$I: function (str, srcBegin, srcEnd, dst, dstBegin) {
-                const s = bytecoder.toJSString(str);
-                let dstOffset = dstBegin;
-                for (let i = srcBegin; i < srcEnd; i++) {
-                    bytecoder.instance.exports.setCharArrayEntry(null, dst, dstOffset++, s.codePointAt(i));
-                }
-            },
-            I$indexOf$I: function (str, cp) {
-                if (cp >= 0) {
-                    const a = bytecoder.toJSString(str);
-                    return a.indexOf(String.fromCodePoint(cp));
-                }
-                return -1;
-            },
-            I$lastIndexOf$I: function (str, cp) {
-                if (cp >= 0) {
-                    const a = bytecoder.toJSString(str);
-                    return a.lastIndexOf(String.fromCodePoint(cp));
-                }
-                return -1;
-            },
-            Z$startsWith$Ljava$lang$String$: function (str, otherstr) {
-                const a = bytecoder.toJSString(str);
-                const b = bytecoder.toJSString(otherstr);
-                if (a.startsWith(b)) {
-                    return 1;
-                }
-                return 0;
-            },
             Z$matches$Ljava$lang$String$: function (self, regex) {
-                var match = RegExp(bytecoder.getNativeObject(regex)).exec(bytecoder.getNativeObject(self));
+                var match = RegExp(bytecoder.toJSString(regex)).exec(bytecoder.toJSString(self));
                 if(!match)
                     return false;
-                return match[0].length == bytecoder.getNativeObject(self).length;
-            },
-            Z$endsWith$Ljava$lang$String$: function (str, otherstr) {
-                const a = bytecoder.toJSString(str);
-                const b = bytecoder.toJSString(otherstr);
-                if (a.endsWith(b)) {
-                    return 1;
-                }
-                return 0;
+                return match[0].length == bytecoder.toJSString(self).length;
             },
             Ljava$lang$String$$replaceAll$Ljava$lang$String$$Ljava$lang$String$: function(str, regex, replacement) {
                 return str;
             },
-            I$lastIndexOf$Ljava$lang$String$: function (str, s) {
-                const a = bytecoder.toJSString(str);
-                return a.lastIndexOf(bytecoder.toJSString(s));
-            },
             Ljava$lang$String$$trim$$: function (str) {
                 return bytecoder.toBytecoderString(bytecoder.toJSString(str).trim());
             },
-            Ljava$lang$String$$substring$I: function(str, i) {
-                return bytecoder.toBytecoderString(bytecoder.toJSString(str).substring(i));
-            },
-            Ljava$lang$String$$substring$I$I: function(str, i, b) {
-                return bytecoder.toBytecoderString(bytecoder.toJSString(str).substring(i, b));
-            },
             Ljava$lang$String$$repeat$I: function (str, amount) {
                 return bytecoder.toBytecoderString(bytecoder.toJSString(str).repeat(amount));
             },
-            Z$equals0$Ljava$lang$String$: function (str, otherstr) {
-                const a = bytecoder.toJSString(str);
-                const b = bytecoder.toJSString(otherstr);
-                if (a === b) {
-                    return 1;
-                }
-                return 0;
-            },
             Z$equalsIgnoreCase$Ljava$lang$String$: function (str, otherstr) {
                 if (str == null) {
                     return 0;
@@ -447,55 +442,26 @@ const bytecoder = {
                 }
                 return 0;
             },
-            V$initializeWith$$C$I$I: function (str, chars, offset, count) {
-                let x = '';
-                for (let i = offset; i < offset + count; i++) {
-                    x += String.fromCodePoint(bytecoder.instance.exports.getByteArrayEntry(null, chars, i));
-                }
-                bytecoder.setNativeObject(str, x);
-            },
-            V$initializeWith$$I$I$I: function (str, points, offset, count) {
-                let x = '';
-                for (let i = offset; i < offset + count; i++) {
-                    x += String.fromCodePoint(bytecoder.instance.exports.getIntArrayEntry(null, points, i));
-                }
-                bytecoder.setNativeObject(str, x);
-            },
-            $C$toCharArray$$: function (str) {
-                let no = bytecoder.getNativeObject(str);
-                let arr = bytecoder.instance.exports.newCharArray(null, no.length);
-                for (let i = 0; i < no.length; i++) {
-                    bytecoder.instance.exports.setByteArrayEntry(null, arr, i, no.codePointAt(i));
-                }
-                return arr;
-            },
-            V$initializeWith$Ljava$lang$String$: function(str, otherstr) {
-                bytecoder.setNativeObject(str, bytecoder.getNativeObject(otherstr));
+            $C$nativeChars$$: function (str) {
+                const no = bytecoder.getNativeObject(str);
+                return bytecoder.toBytecoderChars(no === null ? '' : no);
             },
             V$initializeWith$$B$I$I$B: function(str, bytes, index, count, coder) {
-                const arr = new Uint8Array(bytecoder.instance.exports.byteArrayLength(null, bytes))
-                for (var i = index; i < index + count; i++) {
-                    arr[i - index] = bytecoder.instance.exports.getByteArrayEntry(null, bytes, i);
-                }
+                const arr = bytecoder.toJSBytes(bytes, index, count);
                 const jsstr = new TextDecoder().decode(arr);
                 bytecoder.setNativeObject(str, jsstr);
             },
             $B$getBytes$$: function(str) {
-                const jsstr = bytecoder.getNativeObject(str);
+                const jsstr = bytecoder.toJSString(str);
                 const bytes = new TextEncoder().encode(jsstr);
 
-                const arr = bytecoder.instance.exports.newByteArray(null, bytes.length);
-                for (var i = 0; i < bytes.length; i++) {
-                    bytecoder.instance.exports.setByteArrayEntry(null, arr, i, bytes[i]);
-                }
-
-                return arr;
+                return bytecoder.toBytecoderBytes(bytes);
             },
             Ljava$lang$String$$toUpperCase$$: function(str) {
-                return bytecoder.toBytecoderString(bytecoder.getNativeObject(str).toUpperCase());
+                return bytecoder.toBytecoderString(bytecoder.toJSString(str).toUpperCase());
             },
             Ljava$lang$String$$toLowerCase$$: function(str) {
-                return bytecoder.toBytecoderString(bytecoder.getNativeObject(str).toLowerCase());
+                return bytecoder.toBytecoderString(bytecoder.toJSString(str).toLowerCase());
             }
         },
         "java.lang.Character": {
@@ -665,6 +631,32 @@ const bytecoder = {
                 return [];
             }
         },
+        "de.mirkosertic.bytecoder.api.web.TypedArrays": {
+            'V$copyToFloatArray$$F$I$Lde$mirkosertic$bytecoder$api$web$FloatArray$$I$I': function(unused, source, sourceOffset, target, targetOffset, length) {
+                bytecoder.arrayToHost(bytecoder.arrayKinds.floats, source, sourceOffset, bytecoder.getNativeObject(target), targetOffset, length);
+            },
+            'V$copyFromFloatArray$Lde$mirkosertic$bytecoder$api$web$FloatArray$$I$$F$I$I': function(unused, source, sourceOffset, target, targetOffset, length) {
+                bytecoder.hostToArray(bytecoder.arrayKinds.floats, bytecoder.getNativeObject(source), sourceOffset, target, targetOffset, length);
+            },
+            'V$copyToIntArray$$I$I$Lde$mirkosertic$bytecoder$api$web$IntArray$$I$I': function(unused, source, sourceOffset, target, targetOffset, length) {
+                bytecoder.arrayToHost(bytecoder.arrayKinds.ints, source, sourceOffset, bytecoder.getNativeObject(target), targetOffset, length);
+            },
+            'V$copyFromIntArray$Lde$mirkosertic$bytecoder$api$web$IntArray$$I$$I$I$I': function(unused, source, sourceOffset, target, targetOffset, length) {
+                bytecoder.hostToArray(bytecoder.arrayKinds.ints, bytecoder.getNativeObject(source), sourceOffset, target, targetOffset, length);
+            },
+            'V$copyToInt8Array$$B$I$Lde$mirkosertic$bytecoder$api$web$Int8Array$$I$I': function(unused, source, sourceOffset, target, targetOffset, length) {
+                bytecoder.arrayToHost(bytecoder.arrayKinds.bytes, source, sourceOffset, bytecoder.getNativeObject(target), targetOffset, length);
+            },
+            'V$copyFromInt8Array$Lde$mirkosertic$bytecoder$api$web$Int8Array$$I$$B$I$I': function(unused, source, sourceOffset, target, targetOffset, length) {
+                bytecoder.hostToArray(bytecoder.arrayKinds.bytes, bytecoder.getNativeObject(source), sourceOffset, target, targetOffset, length);
+            },
+            'V$copyToInt16Array$$S$I$Lde$mirkosertic$bytecoder$api$web$Int16Array$$I$I': function(unused, source, sourceOffset, target, targetOffset, length) {
+                bytecoder.arrayToHost(bytecoder.arrayKinds.shorts, source, sourceOffset, bytecoder.getNativeObject(target), targetOffset, length);
+            },
+            'V$copyFromInt16Array$Lde$mirkosertic$bytecoder$api$web$Int16Array$$I$$S$I$I': function(unused, source, sourceOffset, target, targetOffset, length) {
+                bytecoder.hostToArray(bytecoder.arrayKinds.shorts, bytecoder.getNativeObject(source), sourceOffset, target, targetOffset, length);
+            },
+        },
         "java.time.ZoneId": {
             Ljava$lang$String$$defaultZoneId$$: function(unused) {
                 return bytecoder.toBytecoderString(Intl.DateTimeFormat().resolvedOptions().timeZone);
@@ -675,6 +667,9 @@ const bytecoder = {
             }
         },
         "bytecoder": {
+            materializeString: function (str) {
+                return bytecoder.materializeString(str);
+            },
         }
     },
 
@@ -716,9 +711,8 @@ const bytecoder = {
                         let remaining = this.size - this.currentpos;
                         let possible = Math.min(remaining, length);
                         if (possible === 0) {return -1;}
-                        for (let j=0; j<possible; j++) {
-                            bytecoder.instance.exports.setByteArrayEntry(null, target, offset++, this.data[this.currentpos++]);
-                        }
+                        bytecoder.hostToArray(bytecoder.arrayKinds.bytes, this.data, this.currentpos, target, offset, possible);
+                        this.currentpos += possible;
                         return possible;
                     }
                 };
@@ -758,11 +752,7 @@ const bytecoder = {
 bytecoder.filehandles[1] = {
     V$writeBytes$$B$I$I: function(fd, b, off, len) {
         let decoder = new TextDecoder();
-        let d = [];
-        for (let i = off; i < off + len; i++) {
-            d.push(bytecoder.instance.exports.getByteArrayEntry(null, b, i));
-        }
-        let arr = new Uint8Array(d);
+        let arr = bytecoder.toJSBytes(b, off, len);
         let str = decoder.decode(arr).replace('\n', '').replace('\f', '');
         if (str.length > 0) {
             console.log(str);
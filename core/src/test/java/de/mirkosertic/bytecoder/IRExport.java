@@ -2,6 +2,7 @@ package de.mirkosertic.bytecoder;
 
 import de.mirkosertic.bytecoder.core.Slf4JLogger;
 import de.mirkosertic.bytecoder.core.backend.GeneratedMethodsRegistry;
+import de.mirkosertic.bytecoder.core.backend.js.JSLongRepresentation;
 import de.mirkosertic.bytecoder.core.backend.js.JSStructuredControlflowCodeGenerator;
 import de.mirkosertic.bytecoder.core.backend.sequencer.DominatorTree;
 import de.mirkosertic.bytecoder.core.backend.sequencer.Sequencer;
@@ -18,6 +19,7 @@ import org.objectweb.asm.Type;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.Collections;
 import java.util.stream.Collectors;
 
 public class IRExport {
@@ -81,7 +83,7 @@ public class IRExport {
 
         final GeneratedMethodsRegistry generatedMethodsRegistry = new GeneratedMethodsRegistry();
         final PrintWriter pw = new PrintWriter(System.out);
-        new Sequencer(g, new DominatorTree(g), new JSStructuredControlflowCodeGenerator(compileUnit, method.owner, pw, generatedMethodsRegistry));
+        new Sequencer(g, new DominatorTree(g), new JSStructuredControlflowCodeGenerator(compileUnit, method.owner, pw, generatedMethodsRegistry, JSLongRepresentation.NUMBER, Collections.emptySet()));
         pw.flush();
     }
 }
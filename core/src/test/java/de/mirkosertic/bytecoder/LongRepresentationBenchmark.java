@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder;
+
+import de.mirkosertic.bytecoder.core.LongChecksumTest;
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import de.mirkosertic.bytecoder.core.backend.CompileOptions;
+import de.mirkosertic.bytecoder.core.backend.CompileResult;
+import de.mirkosertic.bytecoder.core.backend.js.JSBackend;
+import de.mirkosertic.bytecoder.core.backend.js.JSHelpers;
+import de.mirkosertic.bytecoder.core.backend.js.JSIntrinsics;
+import de.mirkosertic.bytecoder.core.backend.js.JSLongRepresentation;
+import de.mirkosertic.bytecoder.core.loader.BytecoderLoader;
+import de.mirkosertic.bytecoder.core.optimizer.Optimizations;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import org.objectweb.asm.Type;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compares the JavaScript long representations on the checksums of LongChecksumTest. This is not part of
+ * the test suite, run the main method from the test classpath with node on the PATH. For every
+ * representation it compiles checksum(), runs it in node with a fixed number of warmup and measured
+ * rounds, and prints the time per round and whether the result matches the JVM.
+ */
+public class LongRepresentationBenchmark {
+
+    private static final int WARMUP_ROUNDS = 20;
+
+    private static final int MEASURED_ROUNDS = 100;
+
+    public static long checksum() {
+        final byte[] data = new byte[1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + 7);
+        }
+        return LongChecksumTest.fnv1a(data, 10) ^ LongChecksumTest.crc64(data, 1);
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final File outputDir = new File(new File("target"), "bytecoder_longbenchmark");
+        outputDir.mkdirs();
+
+        final long expected = checksum();
+        System.out.println("JVM result is " + expected);
+
+        for (final JSLongRepresentation representation : JSLongRepresentation.values()) {
+            final Slf4JLogger logger = new Slf4JLogger();
+            final CompileUnit compileUnit = new CompileUnit(new BytecoderLoader(LongRepresentationBenchmark.class.getClassLoader()), logger, new JSIntrinsics());
+            final Type invokedType = Type.getType(LongRepresentationBenchmark.class);
+            compileUnit.resolveMainMethod(invokedType, "checksum", Type.getMethodType(Type.LONG_TYPE));
+            compileUnit.finalizeLinkingHierarchy();
+
+            final CompileOptions options = new CompileOptions(logger, Optimizations.DEFAULT, new String[0], "bytecoder", false);
+            final File script = new File(outputDir, "longs_" + representation.name().toLowerCase() + ".js");
+            try (final PrintWriter pw = new PrintWriter(script, StandardCharsets.UTF_8.name())) {
+                for (final CompileResult.Content c : new JSBackend(representation).generateCodeFor(compileUnit, options).getContent()) {
+                    if (c instanceof CompileResult.StringContent) {
+                        pw.println(c.asString());
+                    }
+                }
+                final String checksum = JSHelpers.generateClassName(invokedType) + "." + JSHelpers.generateMethodName("checksum", Type.getMethodType(Type.LONG_TYPE));
+                pw.println("let result;");
+                pw.println("for (let i = 0; i < " + WARMUP_ROUNDS + "; i++) {");
+                pw.println("    result = " + checksum + "();");
+                pw.println("}");
+                pw.println("const start = performance.now();");
+                pw.println("for (let i = 0; i < " + MEASURED_ROUNDS + "; i++) {");
+                pw.println("    result = " + checksum + "();");
+                pw.println("}");
+                pw.println("const perRound = (performance.now() - start) / " + MEASURED_ROUNDS + ";");
+                pw.println("console.log(perRound.toFixed(3) + ' ms per round, result ' + String(result));");
+            }
+
+            final Process node = new ProcessBuilder("node", script.getPath()).redirectErrorStream(true).start();
+            final String output = new String(node.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            node.waitFor();
+
+            final boolean exact = output.endsWith("result " + expected);
+            System.out.println(representation + ": " + output + (exact ? " (exact)" : " (differs from JVM)"));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder;
+
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import de.mirkosertic.bytecoder.core.backend.CompileOptions;
+import de.mirkosertic.bytecoder.core.backend.CompileResult;
+import de.mirkosertic.bytecoder.core.backend.js.JSBackend;
+import de.mirkosertic.bytecoder.core.backend.js.JSHelpers;
+import de.mirkosertic.bytecoder.core.backend.js.JSIntrinsics;
+import de.mirkosertic.bytecoder.core.loader.BytecoderLoader;
+import de.mirkosertic.bytecoder.core.optimizer.Optimizations;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compares the JavaScript startup time with string literals created while loading and on first access.
+ * This is not part of the test suite, run the main method from the test classpath with node on the PATH.
+ * It compiles a generated class using LITERAL_COUNT distinct literals and measures the time from the
+ * start of script evaluation until the program is ready to run, as the median of RUNS node processes.
+ * The eager variant creates every String instance of the literal table before that point, which is
+ * what the backend did before literals were created on first access.
+ */
+public class StringLiteralStartupBenchmark {
+
+    private static final int LITERAL_COUNT = 5000;
+
+    private static final int RUNS = 21;
+
+    private static final String LITERALS_CLASS = "gen/Literals";
+
+    private static final Type LITERALS_METHOD = Type.getMethodType(Type.INT_TYPE);
+
+    private static class LiteralsClassLoader extends ClassLoader {
+
+        LiteralsClassLoader(final ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        public InputStream getResourceAsStream(final String name) {
+            if (name.equals(LITERALS_CLASS + ".class")) {
+                return new ByteArrayInputStream(literalsClass());
+            }
+            return super.getResourceAsStream(name);
+        }
+    }
+
+    private static String literal(final int index) {
+        return "Literal number " + index;
+    }
+
+    /**
+     * Generates a class whose static method literals() returns the summed length of all literals.
+     */
+    private static byte[] literalsClass() {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, LITERALS_CLASS, null, "java/lang/Object", null);
+        final MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "literals", LITERALS_METHOD.getDescriptor(), null, null);
+        mv.visitCode();
+        mv.visitInsn(Opcodes.ICONST_0);
+        for (int i = 0; i < LITERAL_COUNT; i++) {
+            mv.visitLdcInsn(literal(i));
+            mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/String", "length", "()I", false);
+            mv.visitInsn(Opcodes.IADD);
+        }
+        mv.visitInsn(Opcodes.IRETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final File outputDir = new File(new File("target"), "bytecoder_startupbenchmark");
+        outputDir.mkdirs();
+
+        int expected = 0;
+        for (int i = 0; i < LITERAL_COUNT; i++) {
+            expected += literal(i).length();
+        }
+
+        final Slf4JLogger logger = new Slf4JLogger();
+        final CompileUnit compileUnit = new CompileUnit(new BytecoderLoader(new LiteralsClassLoader(StringLiteralStartupBenchmark.class.getClassLoader())), logger, new JSIntrinsics());
+        final Type invokedType = Type.getObjectType(LITERALS_CLASS);
+        compileUnit.resolveMainMethod(invokedType, "literals", LITERALS_METHOD);
+        compileUnit.finalizeLinkingHierarchy();
+
+        final CompileOptions options = new CompileOptions(logger, Optimizations.DEFAULT, new String[0], "bytecoder", false);
+        final StringBuilder program = new StringBuilder();
+        for (final CompileResult.Content c : new JSBackend().generateCodeFor(compileUnit, options).getContent()) {
+            if (c instanceof CompileResult.StringContent) {
+                program.append(c.asString()).append(System.lineSeparator());
+            }
+        }
+        final String literals = JSHelpers.generateClassName(invokedType) + "." + JSHelpers.generateMethodName("literals", LITERALS_METHOD);
+
+        for (final boolean eager : new boolean[] {true, false}) {
+            final File script = new File(outputDir, eager ? "literals_eager.js" : "literals_lazy.js");
+            try (final PrintWriter pw = new PrintWriter(script, StandardCharsets.UTF_8.name())) {
+                pw.println("const start = performance.now();");
+                pw.println(program);
+                if (eager) {
+                    pw.println("for (let i = 0; i < bytecoder.stringliterals.length; i++) {");
+                    pw.println("    bytecoder.stringconstant(i);");
+                    pw.println("}");
+                }
+                pw.println("const startup = performance.now() - start;");
+                pw.println("console.log(startup.toFixed(3) + ' ' + " + literals + "());");
+            }
+
+            final double[] timings = new double[RUNS];
+            boolean exact = true;
+            for (int i = 0; i < RUNS; i++) {
+                final Process node = new ProcessBuilder("node", script.getPath()).redirectErrorStream(true).start();
+                final String output = new String(node.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+                node.waitFor();
+
+                final String[] parts = output.split(" ");
+                timings[i] = Double.parseDouble(parts[0]);
+                exact &= parts.length == 2 && parts[1].equals(Integer.toString(expected));
+            }
+            Arrays.sort(timings);
+
+            System.out.println((eager ? "Eager" : "Lazy") + ": " + String.format("%.3f", timings[RUNS / 2]) + " ms median startup for "
+                    + compileUnit.getConstantPool().getPooledStrings().size() + " literals" + (exact ? "" : " (wrong result)"));
+        }
+    }
+}
@@ -73,4 +73,48 @@ public class MathTest {
     public void testFloorDiv() {
         Assert.assertEquals(1681910020L, Math.floorDiv(1681910020325L, 1000L));
     }
+
+    @Test
+    public void testFloatingPointMinMax() {
+        Assert.assertEquals(-1.5d, Math.min(-1.5d, 2d), 0);
+        Assert.assertEquals(2f, Math.max(-1.5f, 2f), 0);
+        Assert.assertTrue(Double.isNaN(Math.min(Double.NaN, 1d)));
+        Assert.assertTrue(Float.isNaN(Math.max(1f, Float.NaN)));
+        Assert.assertEquals(Double.NEGATIVE_INFINITY, 1d / Math.min(0d, -0d), 0);
+        Assert.assertEquals(Double.POSITIVE_INFINITY, 1d / Math.max(-0d, 0d), 0);
+    }
+
+    @Test
+    public void testLongMinMax() {
+        Assert.assertEquals(-5L, Math.min(-5L, 1234567890123L));
+        Assert.assertEquals(1234567890123L, Math.max(-5L, 1234567890123L));
+    }
+
+    @Test
+    public void testAbsFloorCeil() {
+        Assert.assertEquals(2.5d, Math.abs(-2.5d), 0);
+        Assert.assertEquals(2.5f, Math.abs(-2.5f), 0);
+        Assert.assertEquals(-3d, Math.floor(-2.5d), 0);
+        Assert.assertEquals(-2d, Math.ceil(-2.5d), 0);
+    }
+
+    @Test
+    public void testIntegerAbs() {
+        Assert.assertEquals(5, Math.abs(-5));
+        Assert.assertEquals(5, Math.abs(5));
+        Assert.assertEquals(Integer.MIN_VALUE, Math.abs(Integer.MIN_VALUE));
+        Assert.assertEquals(1234567890123L, Math.abs(-1234567890123L));
+        Assert.assertEquals(0L, Math.abs(0L));
+    }
+
+    @Test
+    public void testBitOperations() {
+        Assert.assertEquals(27, Integer.numberOfLeadingZeros(17));
+        Assert.assertEquals(32, Integer.numberOfLeadingZeros(0));
+        Assert.assertEquals(0, Integer.numberOfLeadingZeros(-1));
+        Assert.assertEquals(4, Integer.numberOfTrailingZeros(48));
+        Assert.assertEquals(2, Integer.bitCount(48));
+        Assert.assertEquals(0x80000001, Integer.rotateLeft(0xC0000000, 1));
+        Assert.assertEquals(0x60000000, Integer.rotateRight(0xC0000000, 1));
+    }
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core;
+
+import de.mirkosertic.bytecoder.core.test.BytecoderTestOption;
+import de.mirkosertic.bytecoder.core.test.BytecoderTestOptions;
+import de.mirkosertic.bytecoder.core.test.UnitTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Long overflow on division only holds for exact longs, numbers lose the precision and Wasm traps.
+ */
+@RunWith(UnitTestRunner.class)
+@BytecoderTestOptions({@BytecoderTestOption(backend = "jsbigint")})
+public class BigIntLongDivisionTest {
+
+    public static long longValue(final long aValue) {
+        return aValue;
+    }
+
+    @Test
+    public void testDivisionOverflow() {
+        Assert.assertEquals(Long.MIN_VALUE, longValue(Long.MIN_VALUE) / longValue(-1));
+        Assert.assertEquals(Long.MIN_VALUE, longValue(Long.MIN_VALUE) / -1);
+    }
+
+    @Test
+    public void testRemainderOverflow() {
+        Assert.assertEquals(0L, longValue(Long.MIN_VALUE) % longValue(-1));
+        Assert.assertEquals(0L, longValue(Long.MIN_VALUE) % -1);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core;
+
+import de.mirkosertic.bytecoder.core.optimizer.Optimizations;
+import de.mirkosertic.bytecoder.core.test.BytecoderTestOptions;
+import de.mirkosertic.bytecoder.core.test.UnitTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(UnitTestRunner.class)
+@BytecoderTestOptions(optimizations = Optimizations.ALL)
+public class ConstantPropagationTest {
+
+    private static int select(final int x) {
+        switch (x) {
+            case 1:
+                return 10;
+            case 2:
+                return 20;
+            case 3:
+                return 30;
+            default:
+                return 0;
+        }
+    }
+
+    private static int lookup(final int x) {
+        switch (x) {
+            case 1:
+                return 10;
+            case 1000:
+                return 20;
+            case 100000:
+                return 30;
+            default:
+                return 0;
+        }
+    }
+
+    @Test
+    public void testConstantSwitch() {
+        int x = 2;
+        int y = 1000;
+        int result = 0;
+        switch (x) {
+            case 1:
+                result = 10;
+                break;
+            case 2:
+                result = 20;
+                break;
+            default:
+                result = 30;
+                break;
+        }
+        switch (y) {
+            case 1:
+                result += 1;
+                break;
+            case 1000:
+                result += 2;
+                break;
+            case 100000:
+                result += 3;
+                break;
+            default:
+                result += 4;
+                break;
+        }
+        Assert.assertEquals(22, result);
+    }
+
+    @Test
+    public void testSwitchOnComputedValue() {
+        int sum = 0;
+        for (int i = 0; i < 5; i++) {
+            sum += select(i);
+        }
+        Assert.assertEquals(60, sum);
+        Assert.assertEquals(20, lookup(1000));
+        Assert.assertEquals(0, lookup(7));
+    }
+
+    @Test
+    public void testIntOverflow() {
+        int a = Integer.MAX_VALUE;
+        int b = 65536;
+        Assert.assertEquals(Integer.MIN_VALUE, a + 1);
+        Assert.assertEquals(3, b * b + 3);
+        Assert.assertEquals(-2, a * 2);
+    }
+
+    @Test
+    public void testLongArithmetic() {
+        long a = 1;
+        a = a << 40;
+        final long b = a * 3 + 7 - (a >>> 3);
+        Assert.assertEquals(3161095929863L, b);
+
+        long c = 5;
+        long d = 7;
+        int result = 2;
+        if (c < d) {
+            result = 1;
+        }
+        Assert.assertEquals(1, result);
+    }
+
+    @Test
+    public void testLoops() {
+        int i = 0;
+        while (i < 10) {
+            i++;
+        }
+        Assert.assertEquals(10, i);
+
+        int k = 5;
+        int sum = 0;
+        for (int j = 0; j < i; j++) {
+            k = 5;
+            sum += k;
+        }
+        Assert.assertEquals(5, k);
+        Assert.assertEquals(50, sum);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core;
+
+import de.mirkosertic.bytecoder.core.test.UnitTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.function.IntSupplier;
+
+/**
+ * Virtual and interface calls through the per class dispatch tables. Unrelated classes
+ * share dispatch table slots, so calls must still reach the implementation of the receiver.
+ */
+@RunWith(UnitTestRunner.class)
+public class DispatchTableTest {
+
+    public interface Shape {
+        int area();
+
+        default int scaledArea(final int factor) {
+            return area() * factor;
+        }
+    }
+
+    public interface Named {
+        String name();
+    }
+
+    public static class Rect implements Shape {
+        final int w;
+        final int h;
+
+        Rect(final int w, final int h) {
+            this.w = w;
+            this.h = h;
+        }
+
+        @Override
+        public int area() {
+            return w * h;
+        }
+
+        public int perimeter() {
+            return 2 * (w + h);
+        }
+    }
+
+    public static class Square extends Rect implements Named {
+        Square(final int s) {
+            super(s, s);
+        }
+
+        @Override
+        public int perimeter() {
+            return 4 * w;
+        }
+
+        @Override
+        public String name() {
+            return "square";
+        }
+    }
+
+    public static class Person implements Named {
+        @Override
+        public String name() {
+            return "person";
+        }
+
+        public int age() {
+            return 42;
+        }
+
+        public int height() {
+            return 180;
+        }
+    }
+
+    public static class Counter {
+        int value;
+
+        public int next() {
+            return ++value;
+        }
+
+        public int current() {
+            return value;
+        }
+    }
+
+    @Test
+    public void testVirtualCallsOnUnrelatedHierarchies() {
+        final Rect r = new Square(3);
+        final Person p = new Person();
+        final Counter c = new Counter();
+        Assert.assertEquals(12, r.perimeter());
+        Assert.assertEquals(42, p.age());
+        Assert.assertEquals(180, p.height());
+        Assert.assertEquals(1, c.next());
+        Assert.assertEquals(2, c.next());
+        Assert.assertEquals(2, c.current());
+        Assert.assertEquals(14, new Rect(3, 4).perimeter());
+    }
+
+    @Test
+    public void testInterfaceCalls() {
+        final Shape[] shapes = {new Rect(2, 5), new Square(4)};
+        int total = 0;
+        for (final Shape s : shapes) {
+            total += s.area();
+        }
+        Assert.assertEquals(26, total);
+
+        final Named[] names = {new Square(1), new Person()};
+        Assert.assertEquals("square", names[0].name());
+        Assert.assertEquals("person", names[1].name());
+    }
+
+    @Test
+    public void testDefaultMethod() {
+        final Shape s = new Square(2);
+        Assert.assertEquals(12, s.scaledArea(3));
+    }
+
+    @Test
+    public void testLambdaImplementsInterface() {
+        final Counter c = new Counter();
+        final IntSupplier supplier = c::next;
+        final Shape lambdaShape = () -> 7;
+        Assert.assertEquals(1, supplier.getAsInt());
+        Assert.assertEquals(7, lambdaShape.area());
+        Assert.assertEquals(14, lambdaShape.scaledArea(2));
+    }
+
+    @Test
+    public void testObjectMethods() {
+        final Object o = new Person();
+        Assert.assertEquals(o.hashCode(), o.hashCode());
+        Assert.assertTrue(o.equals(o));
+        Assert.assertFalse(o.equals(new Counter()));
+    }
+}
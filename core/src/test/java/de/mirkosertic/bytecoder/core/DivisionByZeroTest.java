@@ -0,0 +1,97 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core;
+
+import de.mirkosertic.bytecoder.core.test.BytecoderTestOption;
+import de.mirkosertic.bytecoder.core.test.BytecoderTestOptions;
+import de.mirkosertic.bytecoder.core.test.UnitTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Wasm traps on an integer division by zero, so only the JavaScript backends are tested here.
+ */
+@RunWith(UnitTestRunner.class)
+@BytecoderTestOptions({@BytecoderTestOption(backend = "js"), @BytecoderTestOption(backend = "jsbigint")})
+public class DivisionByZeroTest {
+
+    public static int intValue(final int aValue) {
+        return aValue;
+    }
+
+    public static long longValue(final long aValue) {
+        return aValue;
+    }
+
+    @Test
+    public void testIntDivisionByZero() {
+        try {
+            final int theResult = intValue(10) / intValue(0);
+            Assert.fail("Expected ArithmeticException, got " + theResult);
+        } catch (final ArithmeticException e) {
+            Assert.assertEquals("/ by zero", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIntRemainderByZero() {
+        try {
+            final int theResult = intValue(10) % intValue(0);
+            Assert.fail("Expected ArithmeticException, got " + theResult);
+        } catch (final ArithmeticException e) {
+            Assert.assertEquals("/ by zero", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testIntDivision() {
+        Assert.assertEquals(-3, intValue(-10) / 3);
+        Assert.assertEquals(-1, intValue(-10) % 3);
+        Assert.assertEquals(-3, intValue(-10) / intValue(3));
+        Assert.assertEquals(-1, intValue(-10) % intValue(3));
+        Assert.assertEquals(Integer.MIN_VALUE, intValue(Integer.MIN_VALUE) / intValue(-1));
+        Assert.assertEquals(0, intValue(Integer.MIN_VALUE) % intValue(-1));
+    }
+
+    @Test
+    public void testLongDivisionByZero() {
+        try {
+            final long theResult = longValue(10) / longValue(0);
+            Assert.fail("Expected ArithmeticException, got " + theResult);
+        } catch (final ArithmeticException e) {
+            Assert.assertEquals("/ by zero", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLongRemainderByZero() {
+        try {
+            final long theResult = longValue(10) % longValue(0);
+            Assert.fail("Expected ArithmeticException, got " + theResult);
+        } catch (final ArithmeticException e) {
+            Assert.assertEquals("/ by zero", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testLongDivision() {
+        Assert.assertEquals(-3L, longValue(-10) / 3);
+        Assert.assertEquals(-1L, longValue(-10) % 3);
+        Assert.assertEquals(-3L, longValue(-10) / longValue(3));
+        Assert.assertEquals(-1L, longValue(-10) % longValue(3));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core;
+
+import de.mirkosertic.bytecoder.core.test.BytecoderTestOption;
+import de.mirkosertic.bytecoder.core.test.BytecoderTestOptions;
+import de.mirkosertic.bytecoder.core.test.UnitTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(UnitTestRunner.class)
+@BytecoderTestOptions(value = @BytecoderTestOption(backend = "js"), includeJVM = false,
+        additionalScripts = "exceptionstacktracetest.js",
+        exceptionsWithoutStackTrace = "de.mirkosertic.bytecoder.core.ExceptionStackTraceTest$WithoutStackTrace")
+public class ExceptionStackTraceTest {
+
+    public static class WithoutStackTrace extends RuntimeException {
+    }
+
+    public static class WithoutStackTraceSubclass extends WithoutStackTrace {
+    }
+
+    // Implemented in exceptionstacktracetest.js, as Throwable.stack is not visible to Java code
+    private static native int hasStack(Throwable t);
+
+    private static native void rememberStack(Throwable t);
+
+    private static native int hasRememberedStack(Throwable t);
+
+    private static void rethrow(final IllegalStateException e) {
+        throw e;
+    }
+
+    private static void throwAndRethrow() {
+        try {
+            throw new IllegalStateException();
+        } catch (final IllegalStateException e) {
+            rememberStack(e);
+            rethrow(e);
+        }
+    }
+
+    @Test
+    public void testStackIsCapturedByDefault() {
+        try {
+            throw new IllegalStateException();
+        } catch (final IllegalStateException e) {
+            Assert.assertEquals(1, hasStack(e), 0);
+        }
+    }
+
+    @Test
+    public void testNoStackBeforeThrow() {
+        Assert.assertEquals(0, hasStack(new IllegalStateException()), 0);
+    }
+
+    @Test
+    public void testRethrowKeepsFirstStack() {
+        try {
+            throwAndRethrow();
+        } catch (final IllegalStateException e) {
+            Assert.assertEquals(1, hasRememberedStack(e), 0);
+        }
+    }
+
+    @Test
+    public void testListedExceptionHasNoStack() {
+        try {
+            throw new WithoutStackTraceSubclass();
+        } catch (final WithoutStackTrace e) {
+            Assert.assertEquals(0, hasStack(e), 0);
+        }
+    }
+}
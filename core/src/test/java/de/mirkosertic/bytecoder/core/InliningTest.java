@@ -0,0 +1,99 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core;
+
+import de.mirkosertic.bytecoder.core.optimizer.Optimizations;
+import de.mirkosertic.bytecoder.core.test.BytecoderTestOptions;
+import de.mirkosertic.bytecoder.core.test.UnitTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(UnitTestRunner.class)
+@BytecoderTestOptions(optimizations = Optimizations.ALL)
+public class InliningTest {
+
+    public static class Point {
+
+        private int x;
+        private int y;
+
+        public Point(final int x, final int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        public final int getX() {
+            return x;
+        }
+
+        public final void setX(final int x) {
+            this.x = x;
+        }
+
+        private int sum() {
+            return x + y;
+        }
+
+        public final int twiceSum() {
+            return sum() * 2;
+        }
+
+        static int square(final int a) {
+            return a * a;
+        }
+    }
+
+    public static class Initialized {
+
+        static int counter;
+
+        static {
+            counter = 10;
+        }
+
+        static int next() {
+            return ++counter;
+        }
+    }
+
+    @Test
+    public void testGetterAndSetter() {
+        final Point p = new Point(1, 2);
+        p.setX(Point.square(3));
+        Assert.assertEquals(9, p.getX());
+    }
+
+    @Test
+    public void testNestedPrivateInvocation() {
+        final Point p = new Point(3, 4);
+        Assert.assertEquals(14, p.twiceSum());
+    }
+
+    @Test
+    public void testArgumentsAreEvaluatedBeforeInvocation() {
+        int a = 2;
+        final int b = Point.square(a++);
+        Assert.assertEquals(4, b);
+        Assert.assertEquals(3, a);
+    }
+
+    @Test
+    public void testClassInitializationIsKept() {
+        Assert.assertEquals(11, Initialized.next());
+        Assert.assertEquals(12, Initialized.next());
+    }
+}
@@ -32,6 +32,145 @@ public class InstanceOfTest {
     public static class Type2 extends Type1 implements Interf {
     }
 
+    public interface SubInterf extends Interf {
+    }
+
+    public static class Type3 extends Type2 implements SubInterf {
+    }
+
+    public static class Type4 extends Type3 {
+    }
+
+    public static class BaseException extends RuntimeException {
+    }
+
+    public static class MiddleException extends BaseException {
+    }
+
+    public static class LeafException extends MiddleException {
+    }
+
+    // A deep hierarchy, so the implemented type bitsets span more than one 32 bit word
+    public static class Level0 extends Object {
+    }
+
+    public static class Level1 extends Level0 {
+    }
+
+    public static class Level2 extends Level1 {
+    }
+
+    public static class Level3 extends Level2 {
+    }
+
+    public static class Level4 extends Level3 {
+    }
+
+    public static class Level5 extends Level4 {
+    }
+
+    public static class Level6 extends Level5 {
+    }
+
+    public static class Level7 extends Level6 {
+    }
+
+    public static class Level8 extends Level7 {
+    }
+
+    public static class Level9 extends Level8 {
+    }
+
+    public static class Level10 extends Level9 {
+    }
+
+    public static class Level11 extends Level10 {
+    }
+
+    public static class Level12 extends Level11 {
+    }
+
+    public static class Level13 extends Level12 {
+    }
+
+    public static class Level14 extends Level13 {
+    }
+
+    public static class Level15 extends Level14 {
+    }
+
+    public static class Level16 extends Level15 {
+    }
+
+    public static class Level17 extends Level16 {
+    }
+
+    public static class Level18 extends Level17 {
+    }
+
+    public static class Level19 extends Level18 {
+    }
+
+    public static class Level20 extends Level19 {
+    }
+
+    public static class Level21 extends Level20 {
+    }
+
+    public static class Level22 extends Level21 {
+    }
+
+    public static class Level23 extends Level22 {
+    }
+
+    public static class Level24 extends Level23 {
+    }
+
+    public static class Level25 extends Level24 {
+    }
+
+    public static class Level26 extends Level25 {
+    }
+
+    public static class Level27 extends Level26 {
+    }
+
+    public static class Level28 extends Level27 {
+    }
+
+    public static class Level29 extends Level28 {
+    }
+
+    public static class Level30 extends Level29 {
+    }
+
+    public static class Level31 extends Level30 {
+    }
+
+    public static class Level32 extends Level31 {
+    }
+
+    public static class Level33 extends Level32 {
+    }
+
+    public static class Level34 extends Level33 {
+    }
+
+    public static class Level35 extends Level34 {
+    }
+
+    public static class Level36 extends Level35 {
+    }
+
+    public static class Level37 extends Level36 {
+    }
+
+    public static class Level38 extends Level37 {
+    }
+
+    public static class Level39 extends Level38 {
+    }
+
 
     @Test
     public void testInstanceOf() {
@@ -46,4 +185,81 @@ public class InstanceOfTest {
         Assert.assertTrue(new Type2() instanceof Type2);
         Assert.assertTrue(new Type2() instanceof Interf);
     }
+
+    @Test
+    public void testInheritedInterfaces() {
+        final Object o = new Type4();
+        Assert.assertTrue(o instanceof Type1);
+        Assert.assertTrue(o instanceof Type3);
+        Assert.assertTrue(o instanceof Interf);
+        Assert.assertTrue(o instanceof SubInterf);
+
+        final Object o2 = new Type2();
+        Assert.assertFalse(o2 instanceof SubInterf);
+        Assert.assertFalse(o2 instanceof Type3);
+        Assert.assertFalse(o2 instanceof Level0);
+    }
+
+    @Test
+    public void testDeepHierarchy() {
+        final Object deepest = new Level39();
+        Assert.assertTrue(deepest instanceof Level0);
+        Assert.assertTrue(deepest instanceof Level31);
+        Assert.assertTrue(deepest instanceof Level32);
+        Assert.assertTrue(deepest instanceof Level39);
+        Assert.assertFalse(deepest instanceof Type1);
+
+        final Object middle = new Level33();
+        Assert.assertTrue(middle instanceof Level32);
+        Assert.assertTrue(middle instanceof Level33);
+        Assert.assertFalse(middle instanceof Level34);
+        Assert.assertFalse(middle instanceof Level39);
+        Assert.assertFalse(new Level0() instanceof Level1);
+    }
+
+    @Test
+    public void testCast() {
+        final Object o = new Level39();
+        final Level32 l = (Level32) o;
+        Assert.assertSame(o, l);
+
+        final Object t = new Type3();
+        final Interf i = (Interf) t;
+        Assert.assertTrue(i instanceof SubInterf);
+        Assert.assertSame(t, (SubInterf) i);
+    }
+
+    private static void throwLeaf() {
+        throw new LeafException();
+    }
+
+    private static void throwBase() {
+        throw new BaseException();
+    }
+
+    @Test
+    public void testCatchBySuperclass() {
+        int caught = 0;
+        try {
+            throwLeaf();
+        } catch (final MiddleException e) {
+            caught = 1;
+        }
+        Assert.assertEquals(1, caught);
+    }
+
+    @Test
+    public void testCatchSkipsUnrelatedHandlers() {
+        int caught = 0;
+        try {
+            throwBase();
+        } catch (final MiddleException e) {
+            caught = 1;
+        } catch (final IllegalStateException e) {
+            caught = 2;
+        } catch (final BaseException e) {
+            caught = 3;
+        }
+        Assert.assertEquals(3, caught);
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core;
+
+import de.mirkosertic.bytecoder.core.test.BytecoderTestOption;
+import de.mirkosertic.bytecoder.core.test.BytecoderTestOptions;
+import de.mirkosertic.bytecoder.core.test.UnitTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(UnitTestRunner.class)
+@BytecoderTestOptions({@BytecoderTestOption(backend = "jsbigint"), @BytecoderTestOption(backend = "wasm")})
+public class LongChecksumTest {
+
+    public static long fnv1a(final byte[] data, final int rounds) {
+        long hash = 0xcbf29ce484222325L;
+        for (int r = 0; r < rounds; r++) {
+            for (int i = 0; i < data.length; i++) {
+                hash ^= data[i] & 0xff;
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    public static long crc64(final byte[] data, final int rounds) {
+        long crc = -1L;
+        for (int r = 0; r < rounds; r++) {
+            for (int i = 0; i < data.length; i++) {
+                crc ^= data[i] & 0xff;
+                for (int k = 0; k < 8; k++) {
+                    crc = (crc >>> 1) ^ (0xC96C5795D7870F42L & -(crc & 1));
+                }
+            }
+        }
+        return ~crc;
+    }
+
+    private static byte[] testData() {
+        final byte[] data = new byte[1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + 7);
+        }
+        return data;
+    }
+
+    @Test
+    public void testFNV1a() {
+        final long theHash = fnv1a(testData(), 100);
+        Assert.assertEquals(2467936547826590501L, theHash);
+    }
+
+    @Test
+    public void testCRC64() {
+        final long theCrc = crc64(testData(), 10);
+        Assert.assertEquals(-5354565694178902509L, theCrc);
+    }
+
+    public static long longValue(final long aValue) {
+        return aValue;
+    }
+
+    public static double doubleValue(final double aValue) {
+        return aValue;
+    }
+
+    @Test
+    public void testConversions() {
+        final long theValue = longValue(0x7FFFFFFFFFFFFFFFL);
+        Assert.assertEquals(-1, (int) theValue);
+        Assert.assertEquals(Long.MIN_VALUE, theValue + 1);
+        Assert.assertEquals(Long.MAX_VALUE, (long) doubleValue(1e30));
+        Assert.assertEquals(-3L, (long) doubleValue(-3.7d));
+        Assert.assertEquals(15L, longValue(-1L) >>> 60);
+        Assert.assertEquals(Long.MIN_VALUE, longValue(Long.MIN_VALUE) / longValue(-1));
+    }
+}
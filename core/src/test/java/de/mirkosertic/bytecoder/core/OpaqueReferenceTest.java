@@ -28,6 +28,7 @@ import de.mirkosertic.bytecoder.api.web.OpaqueReferenceArray;
 import de.mirkosertic.bytecoder.api.web.Promise;
 import de.mirkosertic.bytecoder.api.web.Response;
 import de.mirkosertic.bytecoder.api.web.StringPromise;
+import de.mirkosertic.bytecoder.api.web.TypedArrays;
 import de.mirkosertic.bytecoder.api.web.Window;
 import de.mirkosertic.bytecoder.core.test.BytecoderTestOptions;
 import de.mirkosertic.bytecoder.core.test.UnitTestRunner;
@@ -136,6 +137,35 @@ public class OpaqueReferenceTest {
         Assert.assertEquals((short) 99, a.getShort(1), 0);
     }
 
+    @Test
+    public void testBulkCopyInt8Array() {
+        final byte[] source = new byte[] {1, -2, 3, -4, 5};
+        final Int8Array a = OpaqueArrays.createInt8Array(10);
+        TypedArrays.copyToInt8Array(source, 1, a, 2, 4);
+        Assert.assertEquals((byte) -2, a.getByte(2), 0);
+        Assert.assertEquals((byte) 5, a.getByte(5), 0);
+
+        final byte[] target = new byte[6];
+        TypedArrays.copyFromInt8Array(a, 2, target, 1, 4);
+        Assert.assertEquals((byte) 0, target[0], 0);
+        Assert.assertEquals((byte) -2, target[1], 0);
+        Assert.assertEquals((byte) -4, target[3], 0);
+        Assert.assertEquals((byte) 5, target[4], 0);
+    }
+
+    @Test
+    public void testBulkCopyFloatArray() {
+        final float[] source = new float[] {1.5f, -2.5f, 3.5f};
+        final FloatArray a = OpaqueArrays.createFloatArray(3);
+        TypedArrays.copyToFloatArray(source, 0, a, 0, 3);
+        Assert.assertEquals(-2.5f, a.getFloat(1), 0);
+
+        final float[] target = new float[3];
+        TypedArrays.copyFromFloatArray(a, 1, target, 0, 2);
+        Assert.assertEquals(-2.5f, target[0], 0);
+        Assert.assertEquals(3.5f, target[1], 0);
+    }
+
     private static class Logger {
 
         public void log(final String aValue) {
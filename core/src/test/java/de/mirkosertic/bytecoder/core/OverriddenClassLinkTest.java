@@ -69,10 +69,38 @@ public class OverriddenClassLinkTest {
         }
     }
 
+    public static class Base {
+        public int value() {
+            return 1;
+        }
+    }
+
+    public static class Derived extends Base {
+        @Override
+        public int value() {
+            return 2;
+        }
+    }
+
+    public static class NeverInstantiated extends Derived {
+        @Override
+        public int value() {
+            return 3;
+        }
+    }
+
     @Test
     public void testOverridden() {
         AbstractClassLinkTest.Instance theInstance = new AbstractClassLinkTest.Instance();
         Assert.assertEquals(1, theInstance.get(1).compute(), 0);
         Assert.assertEquals(2, theInstance.get(2).compute(), 0);
     }
+
+    @Test
+    public void testInstantiatedClassWithSubclass() {
+        final Base b = new Derived();
+        Assert.assertFalse(b instanceof NeverInstantiated);
+        Assert.assertEquals(2, b.value());
+        Assert.assertEquals(1, new Base().value());
+    }
 }
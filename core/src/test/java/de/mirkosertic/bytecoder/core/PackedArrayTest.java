@@ -0,0 +1,132 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core;
+
+import de.mirkosertic.bytecoder.core.test.UnitTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(UnitTestRunner.class)
+public class PackedArrayTest {
+
+    private static int intValue(final int value) {
+        return value;
+    }
+
+    @Test
+    public void testByteIsSignExtended() {
+        final byte[] data = new byte[3];
+        data[0] = (byte) -1;
+        data[1] = (byte) intValue(0x180);
+        data[2] = (byte) (intValue(127) + 1);
+        Assert.assertEquals(-1, data[0]);
+        Assert.assertEquals(-128, data[1]);
+        Assert.assertEquals(-128, data[2]);
+        final int sum = data[0] + data[1];
+        Assert.assertEquals(-129, sum);
+    }
+
+    @Test
+    public void testShortIsSignExtended() {
+        final short[] data = new short[2];
+        data[0] = (short) 0x8000;
+        data[1] = (short) intValue(0x1ffff);
+        Assert.assertEquals(-32768, data[0]);
+        Assert.assertEquals(-1, data[1]);
+    }
+
+    @Test
+    public void testCharIsZeroExtended() {
+        final char[] data = new char[2];
+        data[0] = (char) 0xFFFF;
+        data[1] = (char) intValue(-1);
+        Assert.assertEquals(65535, data[0]);
+        Assert.assertEquals(65535, (int) data[1]);
+        Assert.assertTrue(data[1] > 0);
+    }
+
+    @Test
+    public void testBoolean() {
+        final boolean[] data = new boolean[3];
+        data[1] = true;
+        data[2] = intValue(1) == 1;
+        Assert.assertFalse(data[0]);
+        Assert.assertTrue(data[1]);
+        Assert.assertTrue(data[2]);
+        data[2] = !data[2];
+        Assert.assertFalse(data[2]);
+    }
+
+    @Test
+    public void testElementCopyKeepsValue() {
+        final byte[] bytes = {-1, 0};
+        bytes[1] = bytes[0];
+        Assert.assertEquals(-1, bytes[1]);
+
+        final char[] chars = {(char) 0xFFFF, 0};
+        chars[1] = chars[0];
+        Assert.assertEquals(65535, chars[1]);
+
+        final short[] shorts = {(short) 0x8000, 0};
+        shorts[1] = shorts[0];
+        Assert.assertEquals(-32768, shorts[1]);
+    }
+
+    @Test
+    public void testArrayCopy() {
+        final byte[] bytes = {-1, -128, 127};
+        final byte[] bytesCopy = new byte[4];
+        System.arraycopy(bytes, 0, bytesCopy, 1, 3);
+        Assert.assertEquals(0, bytesCopy[0]);
+        Assert.assertEquals(-1, bytesCopy[1]);
+        Assert.assertEquals(-128, bytesCopy[2]);
+        Assert.assertEquals(127, bytesCopy[3]);
+
+        final short[] shorts = {(short) 0x8000, -1};
+        final short[] shortsCopy = new short[2];
+        System.arraycopy(shorts, 0, shortsCopy, 0, 2);
+        Assert.assertEquals(-32768, shortsCopy[0]);
+        Assert.assertEquals(-1, shortsCopy[1]);
+
+        final char[] chars = {(char) 0xFFFF, (char) 0x8000};
+        final char[] charsCopy = new char[2];
+        System.arraycopy(chars, 0, charsCopy, 0, 2);
+        Assert.assertEquals(65535, charsCopy[0]);
+        Assert.assertEquals(32768, charsCopy[1]);
+
+        final boolean[] booleans = {true, false, true};
+        final boolean[] booleansCopy = new boolean[3];
+        System.arraycopy(booleans, 0, booleansCopy, 0, 3);
+        Assert.assertTrue(booleansCopy[0]);
+        Assert.assertFalse(booleansCopy[1]);
+        Assert.assertTrue(booleansCopy[2]);
+    }
+
+    @Test
+    public void testStoreIntoArrayOfUnknownType() {
+        byte[] bytes = null;
+        int[] ints = null;
+        if (intValue(1) == 1) {
+            bytes = new byte[1];
+            ints = new int[1];
+        }
+        bytes[0] = (byte) -1;
+        ints[0] = bytes[0];
+        Assert.assertEquals(-1, bytes[0]);
+        Assert.assertEquals(-1, ints[0]);
+    }
+}
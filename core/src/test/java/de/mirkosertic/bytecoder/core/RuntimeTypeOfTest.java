@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core;
+
+import de.mirkosertic.bytecoder.core.test.UnitTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * getClass() looks up the runtime class of an object by its type id.
+ */
+@RunWith(UnitTestRunner.class)
+public class RuntimeTypeOfTest {
+
+    public static class Kind0 {
+    }
+
+    public static class Kind1 extends Kind0 {
+    }
+
+    public static class Kind2 extends Kind1 {
+    }
+
+    public static class Kind3 {
+    }
+
+    public static class Kind4 extends Kind3 {
+    }
+
+    public static class InitOrder {
+        static String log = "";
+    }
+
+    public static class FirstInitialized {
+        static final int value;
+
+        static {
+            InitOrder.log = InitOrder.log + "first";
+            value = 1;
+        }
+    }
+
+    public static class SecondInitialized {
+        static final int value;
+
+        static {
+            InitOrder.log = InitOrder.log + "second";
+            value = FirstInitialized.value + 1;
+        }
+    }
+
+    private static Object[] instances() {
+        return new Object[] {new Kind0(), new Kind1(), new Kind2(), new Kind3(), new Kind4(), "str", new StringBuilder()};
+    }
+
+    @Test
+    public void testGetClassMatchesLiteral() {
+        final Class[] expected = {Kind0.class, Kind1.class, Kind2.class, Kind3.class, Kind4.class, String.class, StringBuilder.class};
+        final Object[] instances = instances();
+        for (int i = 0; i < instances.length; i++) {
+            Assert.assertSame(expected[i], instances[i].getClass());
+        }
+    }
+
+    @Test
+    public void testGetClassDiffersPerClass() {
+        final Object[] instances = instances();
+        for (int i = 0; i < instances.length; i++) {
+            for (int j = 0; j < instances.length; j++) {
+                Assert.assertEquals(i == j, instances[i].getClass() == instances[j].getClass());
+            }
+        }
+        Assert.assertSame(new Kind2().getClass(), new Kind2().getClass());
+    }
+
+    @Test
+    public void testClassNames() {
+        Assert.assertEquals("de.mirkosertic.bytecoder.core.RuntimeTypeOfTest$Kind2", new Kind2().getClass().getName());
+        Assert.assertEquals("de.mirkosertic.bytecoder.core.RuntimeTypeOfTest$Kind4", new Kind4().getClass().getName());
+        Assert.assertEquals("java.lang.String", "x".getClass().getName());
+    }
+
+    @Test
+    public void testClassInitialization() {
+        final SecondInitialized second = new SecondInitialized();
+        Assert.assertEquals(2, SecondInitialized.value);
+        Assert.assertEquals("secondfirst", InitOrder.log);
+        Assert.assertSame(SecondInitialized.class, second.getClass());
+        final FirstInitialized first = new FirstInitialized();
+        Assert.assertSame(FirstInitialized.class, first.getClass());
+        Assert.assertEquals("secondfirst", InitOrder.log);
+    }
+}
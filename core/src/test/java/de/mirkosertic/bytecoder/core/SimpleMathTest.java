@@ -47,6 +47,10 @@ public class SimpleMathTest {
         return a % b;
     }
 
+    public static int ushr(int a, int b) {
+        return a >>> b;
+    }
+
     public static long longSum(long a, long b) {
         return a + b;
     }
@@ -129,6 +133,18 @@ public class SimpleMathTest {
         Assert.assertEquals(3, c, 0);
     }
 
+    @Test
+    public void testUnsignedShiftRight() {
+        Assert.assertEquals(-1, ushr(-1, 0));
+        Assert.assertEquals(-1, ushr(-1, 32));
+        Assert.assertEquals(1, ushr(-1, 31));
+        Assert.assertEquals(Integer.MAX_VALUE, ushr(-1, 1));
+        final int minusOne = getInt() - 241;
+        Assert.assertTrue((minusOne >>> 0) < 0);
+        Assert.assertTrue((minusOne >>> 32) == -1);
+        Assert.assertEquals(-1L, (long) (minusOne >>> (getInt() - 208)));
+    }
+
     @Test
     public void testComputedLength() {
         // Value is 57119.86598277577
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core;
+
+import de.mirkosertic.bytecoder.core.test.UnitTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(UnitTestRunner.class)
+public class StringLiteralTest {
+
+    public static String[] literals() {
+        return new String[] {
+                "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel",
+                "india", "juliett", "kilo", "lima", "mike", "november", "oscar", "papa",
+                "quebec", "romeo", "sierra", "tango", "uniform", "victor", "whiskey", "xray",
+                "yankee", "zulu", "zero", "one", "two", "three", "four", "five",
+                "six", "seven", "eight", "nine", "\u00e4\u00f6\u00fc", "line\nbreak", "'quoted'", ""
+        };
+    }
+
+    private static String literal() {
+        return "lazy";
+    }
+
+    @Test
+    public void testLiteralsHaveTheirValue() {
+        final String[] literals = literals();
+        Assert.assertEquals(40, literals.length);
+        Assert.assertEquals("alpha", literals[0]);
+        Assert.assertEquals(4, literals[1].length() - 1);
+        Assert.assertEquals('\u00e4', literals[36].charAt(0));
+        Assert.assertEquals('\n', literals[37].charAt(4));
+        Assert.assertEquals('\'', literals[38].charAt(0));
+        Assert.assertTrue(literals[39].isEmpty());
+    }
+
+    @Test
+    public void testLiteralIsCreatedOnce() {
+        Assert.assertSame(literal(), literal());
+        Assert.assertSame("lazy", literal());
+    }
+}
@@ -88,6 +88,34 @@ public class StringTest {
         Assert.assertTrue(2683 == hashCode);
     }
 
+    @Test
+    public void testHashCodeOverflow() {
+        Assert.assertEquals(126078893, "The quick brown fox \u00e4\u00f6\u00fc".hashCode());
+    }
+
+    @Test
+    public void testCompareTo() {
+        Assert.assertEquals(0, "123abc".compareTo(getString() + "abc"));
+        Assert.assertEquals(-1, "abc".compareTo("abd"));
+        Assert.assertEquals(1, "abd".compareTo("abc"));
+        Assert.assertEquals(-2, "ab".compareTo("abcd"));
+        Assert.assertEquals(2, "abcd".compareTo("ab"));
+        Assert.assertTrue("a".compareTo("\u00e4") < 0);
+    }
+
+    @Test
+    public void testIndexOfSupplementaryCodePoint() {
+        final String str = new String(new int[] {'a', 0x1F600, 'b', 0x1F600}, 0, 4);
+        Assert.assertEquals(6, str.length(), 0);
+        Assert.assertEquals(1, str.indexOf(0x1F600), 0);
+        Assert.assertEquals(4, str.lastIndexOf(0x1F600), 0);
+        Assert.assertEquals(-1, str.indexOf(0x1F601), 0);
+        Assert.assertEquals(-1, str.lastIndexOf(0x1F601), 0);
+        Assert.assertEquals(3, str.indexOf('b'), 0);
+        Assert.assertEquals(2, str.indexOf(0xDE00), 0);
+        Assert.assertEquals(5, str.lastIndexOf(0xDE00), 0);
+    }
+
     @Test
     public void testStringSwitch() {
         int x;
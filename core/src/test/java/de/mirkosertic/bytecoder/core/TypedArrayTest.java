@@ -0,0 +1,128 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core;
+
+import de.mirkosertic.bytecoder.core.test.UnitTestRunner;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+
+@RunWith(UnitTestRunner.class)
+public class TypedArrayTest {
+
+    private static int intValue(final int value) {
+        return value;
+    }
+
+    @Test
+    public void testStoresWrap() {
+        final byte[] bytes = new byte[2];
+        bytes[0] = (byte) intValue(200);
+        bytes[1] = (byte) (bytes[0] - 100);
+        Assert.assertEquals(-56, bytes[0]);
+        Assert.assertEquals(100, bytes[1]);
+
+        final short[] shorts = new short[2];
+        shorts[0] = (short) intValue(40000);
+        shorts[1] = (short) (shorts[0] * 2);
+        Assert.assertEquals(-25536, shorts[0]);
+        Assert.assertEquals(14464, shorts[1]);
+
+        final char[] chars = new char[2];
+        chars[0] = (char) intValue(70000);
+        chars[1] = (char) (chars[0] - 5000);
+        Assert.assertEquals(4464, chars[0]);
+        Assert.assertEquals(65000, chars[1]);
+    }
+
+    @Test
+    public void testNewArraysAreZero() {
+        Assert.assertEquals(0, (new byte[3])[2]);
+        Assert.assertEquals(0, (new char[3])[2]);
+        Assert.assertEquals(0, (new int[3])[2]);
+        Assert.assertEquals(0f, (new float[3])[2], 0);
+        Assert.assertEquals(0d, (new double[3])[2], 0);
+        Assert.assertFalse((new boolean[3])[2]);
+    }
+
+    @Test
+    public void testFloatRounding() {
+        final float[] floats = new float[2];
+        floats[0] = intValue(16777217);
+        floats[1] = floats[0] + 1;
+        Assert.assertEquals(16777216f, floats[0], 0);
+        Assert.assertEquals(16777216f, floats[1], 0);
+
+        final double[] doubles = new double[1];
+        doubles[0] = intValue(16777217);
+        Assert.assertEquals(16777217d, doubles[0], 0);
+    }
+
+    @Test
+    public void testArrayCopyOverlapping() {
+        final int[] forward = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        System.arraycopy(forward, 0, forward, 2, 5);
+        Assert.assertArrayEquals(new int[] {0, 1, 0, 1, 2, 3, 4, 7, 8, 9}, forward);
+
+        final int[] backward = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+        System.arraycopy(backward, 3, backward, 1, 5);
+        Assert.assertArrayEquals(new int[] {0, 3, 4, 5, 6, 7, 6, 7, 8, 9}, backward);
+
+        final char[] chars = {'a', 'b', 'c', 'd'};
+        System.arraycopy(chars, 0, chars, 1, 3);
+        Assert.assertArrayEquals(new char[] {'a', 'a', 'b', 'c'}, chars);
+    }
+
+    @Test
+    public void testArrayCopyBetweenArrays() {
+        final double[] source = {1.5, 2.5, 3.5};
+        final double[] target = new double[5];
+        System.arraycopy(source, 1, target, 2, 2);
+        Assert.assertArrayEquals(new double[] {0, 0, 2.5, 3.5, 0}, target, 0);
+    }
+
+    @Test
+    public void testFillRanges() {
+        final int[] ints = new int[6];
+        Arrays.fill(ints, 1, 4, 7);
+        Assert.assertArrayEquals(new int[] {0, 7, 7, 7, 0, 0}, ints);
+
+        final char[] chars = new char[4];
+        Arrays.fill(chars, 2, 4, 'x');
+        Assert.assertArrayEquals(new char[] {0, 0, 'x', 'x'}, chars);
+
+        final byte[] bytes = new byte[4];
+        Arrays.fill(bytes, 0, 1, (byte) -3);
+        Assert.assertArrayEquals(new byte[] {-3, 0, 0, 0}, bytes);
+
+        final Object marker = new Object();
+        final Object[] objects = new Object[3];
+        Arrays.fill(objects, 1, 3, marker);
+        Assert.assertNull(objects[0]);
+        Assert.assertSame(marker, objects[1]);
+        Assert.assertSame(marker, objects[2]);
+
+        final short[] shorts = new short[2];
+        Arrays.fill(shorts, (short) -1);
+        Assert.assertArrayEquals(new short[] {-1, -1}, shorts);
+
+        final float[] floats = new float[2];
+        Arrays.fill(floats, 0.5f);
+        Assert.assertArrayEquals(new float[] {0.5f, 0.5f}, floats, 0);
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend;
+
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import de.mirkosertic.bytecoder.core.backend.js.JSBackend;
+import de.mirkosertic.bytecoder.core.backend.js.JSIntrinsics;
+import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
+import de.mirkosertic.bytecoder.core.loader.BytecoderLoader;
+import de.mirkosertic.bytecoder.core.optimizer.Optimizations;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class InstanceOfTypesTest {
+
+    private static final int DEPTH = 100;
+
+    private static final int[] TESTED_LEVELS = {0, 50, DEPTH - 1};
+
+    /**
+     * Generates a chain of DEPTH classes and a main class testing against some of them.
+     */
+    private static class HierarchyClassLoader extends ClassLoader {
+
+        HierarchyClassLoader(final ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        public InputStream getResourceAsStream(final String name) {
+            if (name.equals("gen/Main.class")) {
+                return new ByteArrayInputStream(mainClass());
+            }
+            if (name.startsWith("gen/Level") && name.endsWith(".class")) {
+                final int level = Integer.parseInt(name.substring("gen/Level".length(), name.length() - ".class".length()));
+                return new ByteArrayInputStream(levelClass(level));
+            }
+            return super.getResourceAsStream(name);
+        }
+    }
+
+    private static String levelName(final int level) {
+        return "gen/Level" + level;
+    }
+
+    private static byte[] levelClass(final int level) {
+        final String superName = level == 0 ? "java/lang/Object" : levelName(level - 1);
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, levelName(level), null, superName, null);
+        final MethodVisitor init = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        init.visitCode();
+        init.visitVarInsn(Opcodes.ALOAD, 0);
+        init.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+        init.visitInsn(Opcodes.RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static byte[] mainClass() {
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "gen/Main", null, "java/lang/Object", null);
+        final MethodVisitor test = cw.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "test", "()I", null, null);
+        test.visitCode();
+        test.visitTypeInsn(Opcodes.NEW, levelName(DEPTH - 1));
+        test.visitInsn(Opcodes.DUP);
+        test.visitMethodInsn(Opcodes.INVOKESPECIAL, levelName(DEPTH - 1), "<init>", "()V", false);
+        test.visitVarInsn(Opcodes.ASTORE, 0);
+        test.visitInsn(Opcodes.ICONST_0);
+        for (final int level : TESTED_LEVELS) {
+            test.visitVarInsn(Opcodes.ALOAD, 0);
+            test.visitTypeInsn(Opcodes.INSTANCEOF, levelName(level));
+            test.visitInsn(Opcodes.IADD);
+        }
+        test.visitInsn(Opcodes.IRETURN);
+        test.visitMaxs(0, 0);
+        test.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private CompileUnit compileHierarchy() {
+        final ClassLoader loader = new HierarchyClassLoader(getClass().getClassLoader());
+        final CompileUnit compileUnit = new CompileUnit(new BytecoderLoader(loader, null), new Slf4JLogger(), new JSIntrinsics());
+        compileUnit.resolveMainMethod(Type.getObjectType("gen/Main"), "test", Type.getMethodType(Type.INT_TYPE));
+        compileUnit.finalizeLinkingHierarchy();
+        return compileUnit;
+    }
+
+    @Test
+    public void bitsetsOnlyCoverTestedTypes() {
+        final CompileUnit compileUnit = compileHierarchy();
+        final List<ResolvedClass> resolvedClasses = compileUnit.computeClassDependencies();
+        final InstanceOfTypes instanceOfTypes = new InstanceOfTypes(compileUnit, resolvedClasses);
+
+        final ResolvedClass level0 = compileUnit.findClass(Type.getObjectType(levelName(0)));
+        final ResolvedClass level50 = compileUnit.findClass(Type.getObjectType(levelName(50)));
+        final ResolvedClass deepest = compileUnit.findClass(Type.getObjectType(levelName(DEPTH - 1)));
+        assertTrue(instanceOfTypes.isTested(level0));
+        assertTrue(instanceOfTypes.isTested(level50));
+        assertTrue(instanceOfTypes.isTested(deepest));
+        assertFalse(instanceOfTypes.isTested(compileUnit.findClass(Type.getObjectType(levelName(1)))));
+
+        // With a type id per class, the deepest class would need DEPTH / 32 words
+        final int maxWords = (instanceOfTypes.size() + 31) / 32;
+        int totalWords = 0;
+        for (final ResolvedClass cl : resolvedClasses) {
+            final int[] bitset = instanceOfTypes.bitsetFor(cl);
+            assertTrue(cl.type + " has " + bitset.length + " words", bitset.length <= maxWords);
+            totalWords += bitset.length;
+        }
+        assertTrue("Got " + totalWords + " words", totalWords <= resolvedClasses.size() * maxWords);
+        assertTrue(resolvedClasses.size() > DEPTH);
+        assertTrue(instanceOfTypes.size() < 32);
+
+        final int all = (1 << instanceOfTypes.bitIndexOf(level0)) | (1 << instanceOfTypes.bitIndexOf(level50)) | (1 << instanceOfTypes.bitIndexOf(deepest));
+        assertArrayEquals(new int[] {all}, instanceOfTypes.bitsetFor(deepest));
+        assertArrayEquals(new int[] {1 << instanceOfTypes.bitIndexOf(level0)}, instanceOfTypes.bitsetFor(compileUnit.findClass(Type.getObjectType(levelName(49)))));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void typeNeverTestedHasNoBitIndex() {
+        final CompileUnit compileUnit = compileHierarchy();
+        final InstanceOfTypes instanceOfTypes = new InstanceOfTypes(compileUnit, compileUnit.computeClassDependencies());
+        instanceOfTypes.bitIndexOf(compileUnit.findClass(Type.getObjectType(levelName(1))));
+    }
+
+    @Test
+    public void jsOutputGrowsLinearlyWithTheHierarchy() throws IOException {
+        final CompileUnit compileUnit = compileHierarchy();
+        final Slf4JLogger logger = new Slf4JLogger();
+        final CompileOptions options = new CompileOptions(logger, Optimizations.DISABLED, new String[0], "bytecoder", false);
+        final StringBuilder code = new StringBuilder();
+        for (final CompileResult.Content c : new JSBackend().generateCodeFor(compileUnit, options).getContent()) {
+            if (c instanceof CompileResult.StringContent) {
+                code.append(c.asString());
+            }
+        }
+        final String js = code.toString();
+
+        int bitsetCount = 0;
+        for (int i = js.indexOf("bytecoder.newRuntimeClassFor("); i >= 0; i = js.indexOf("bytecoder.newRuntimeClassFor(", i + 1)) {
+            final int start = js.indexOf("[", i);
+            final String bitset = js.substring(start + 1, js.indexOf("]", start));
+            assertFalse(bitset, bitset.contains(","));
+            bitsetCount++;
+        }
+        assertEquals(compileUnit.computeClassDependencies().size(), bitsetCount);
+    }
+}
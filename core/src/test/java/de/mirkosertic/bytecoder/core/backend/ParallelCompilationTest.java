@@ -0,0 +1,136 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend;
+
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import de.mirkosertic.bytecoder.core.backend.js.JSBackend;
+import de.mirkosertic.bytecoder.core.backend.js.JSIntrinsics;
+import de.mirkosertic.bytecoder.core.backend.wasm.WasmBackend;
+import de.mirkosertic.bytecoder.core.backend.wasm.WasmIntrinsics;
+import de.mirkosertic.bytecoder.core.complex.JBox2DTest;
+import de.mirkosertic.bytecoder.core.complex.JSONParserTest;
+import de.mirkosertic.bytecoder.core.complex.LuaTest;
+import de.mirkosertic.bytecoder.core.loader.BytecoderLoader;
+import de.mirkosertic.bytecoder.core.optimizer.Optimizations;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import de.mirkosertic.bytecoder.core.parser.Intrinsic;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Optimizing methods in parallel must not change the generated code. All optimizers run, as
+ * every one of them claims to support parallel optimization.
+ */
+public class ParallelCompilationTest {
+
+    private enum Backend {
+        JS {
+            @Override
+            Intrinsic intrinsics() {
+                return new JSIntrinsics();
+            }
+
+            @Override
+            CompileResult<?> compile(final CompileUnit compileUnit, final CompileOptions options) {
+                return new JSBackend().generateCodeFor(compileUnit, options);
+            }
+        },
+        WASM {
+            @Override
+            Intrinsic intrinsics() {
+                return new WasmIntrinsics();
+            }
+
+            @Override
+            CompileResult<?> compile(final CompileUnit compileUnit, final CompileOptions options) {
+                return new WasmBackend().generateCodeFor(compileUnit, options);
+            }
+        };
+
+        abstract Intrinsic intrinsics();
+
+        abstract CompileResult<?> compile(CompileUnit compileUnit, CompileOptions options);
+    }
+
+    private Map<String, byte[]> compile(final Backend backend, final Class<?> testClass, final String testMethod, final boolean parallel) throws IOException {
+        final Slf4JLogger logger = new Slf4JLogger();
+        final CompileUnit compileUnit = new CompileUnit(new BytecoderLoader(testClass.getClassLoader()), logger, backend.intrinsics());
+        compileUnit.resolveMainMethod(Type.getType(testClass), testMethod, Type.getMethodType(Type.VOID_TYPE));
+        compileUnit.finalizeLinkingHierarchy();
+
+        final CompileOptions options = new CompileOptions(logger, Optimizations.ALL, new String[0], "bytecoder", false, parallel);
+        final Map<String, byte[]> files = new LinkedHashMap<>();
+        for (final CompileResult.Content c : backend.compile(compileUnit, options).getContent()) {
+            if (c instanceof CompileResult.URLContent) {
+                continue;
+            }
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            c.writeTo(bos);
+            files.put(c.getFileName(), bos.toByteArray());
+        }
+        return files;
+    }
+
+    private void assertSameOutput(final Backend backend, final Class<?> testClass, final String testMethod) throws IOException {
+        final Map<String, byte[]> sequential = compile(backend, testClass, testMethod, false);
+        final Map<String, byte[]> parallel = compile(backend, testClass, testMethod, true);
+
+        assertTrue(Optimizations.ALL.supportsParallelOptimization());
+        assertEquals(sequential.keySet(), parallel.keySet());
+        for (final Map.Entry<String, byte[]> entry : sequential.entrySet()) {
+            assertArrayEquals(entry.getKey(), entry.getValue(), parallel.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void jbox2dJS() throws IOException {
+        assertSameOutput(Backend.JS, JBox2DTest.class, "testNewWorld");
+    }
+
+    @Test
+    public void jbox2dWasm() throws IOException {
+        assertSameOutput(Backend.WASM, JBox2DTest.class, "testNewWorld");
+    }
+
+    @Test
+    public void jsonParserJS() throws IOException {
+        assertSameOutput(Backend.JS, JSONParserTest.class, "run");
+    }
+
+    @Test
+    public void jsonParserWasm() throws IOException {
+        assertSameOutput(Backend.WASM, JSONParserTest.class, "run");
+    }
+
+    @Test
+    public void luaJS() throws IOException {
+        assertSameOutput(Backend.JS, LuaTest.class, "testLuaReturnIntegerAdd");
+    }
+
+    @Test
+    public void luaWasm() throws IOException {
+        assertSameOutput(Backend.WASM, LuaTest.class, "testLuaReturnIntegerAdd");
+    }
+}
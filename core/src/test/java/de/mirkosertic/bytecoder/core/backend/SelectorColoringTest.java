@@ -0,0 +1,195 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend;
+
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import de.mirkosertic.bytecoder.core.backend.wasm.WasmIntrinsics;
+import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
+import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
+import de.mirkosertic.bytecoder.core.loader.BytecoderLoader;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class SelectorColoringTest {
+
+    public interface Shape {
+        int area();
+
+        int corners();
+    }
+
+    public interface Named {
+        String name();
+    }
+
+    public static class Square implements Shape {
+        @Override
+        public int area() {
+            return 4;
+        }
+
+        @Override
+        public int corners() {
+            return 4;
+        }
+
+        public int side() {
+            return 2;
+        }
+    }
+
+    public static class NamedSquare extends Square implements Named {
+        @Override
+        public String name() {
+            return "square";
+        }
+
+        public int color() {
+            return 1;
+        }
+    }
+
+    public static class Person implements Named {
+        @Override
+        public String name() {
+            return "person";
+        }
+
+        public int age() {
+            return 42;
+        }
+    }
+
+    public static void run() {
+        final Shape s = new NamedSquare();
+        s.area();
+        s.corners();
+        final NamedSquare ns = (NamedSquare) s;
+        ns.side();
+        ns.color();
+        final Named n = ns;
+        n.name();
+        final Person p = new Person();
+        p.age();
+        final Named n2 = p;
+        n2.name();
+        s.toString();
+    }
+
+    private CompileUnit compileUnit;
+    private List<ResolvedClass> classes;
+    private VTableResolver vTableResolver;
+    private MethodToIDMapper methodToIDMapper;
+    private SelectorColoring coloring;
+
+    @Before
+    public void setup() {
+        compileUnit = new CompileUnit(new BytecoderLoader(getClass().getClassLoader()), new Slf4JLogger(), new WasmIntrinsics());
+        compileUnit.resolveMainMethod(Type.getType(SelectorColoringTest.class), "run", Type.getMethodType(Type.VOID_TYPE));
+        compileUnit.finalizeLinkingHierarchy();
+        classes = compileUnit.computeClassDependencies();
+        methodToIDMapper = new MethodToIDMapper();
+        vTableResolver = new VTableResolver(methodToIDMapper);
+        coloring = new SelectorColoring(classes, vTableResolver, methodToIDMapper);
+    }
+
+    private Set<Integer> selectorsOf(final ResolvedClass cl) {
+        final Set<Integer> selectors = new HashSet<>(vTableResolver.resolveFor(cl).getMethods().keySet());
+        for (final ResolvedMethod m : cl.abstractResolvedMethods()) {
+            selectors.add(methodToIDMapper.resolveIdFor(m));
+        }
+        return selectors;
+    }
+
+    private ResolvedClass classOf(final Class<?> javaClass) {
+        final ResolvedClass cl = compileUnit.findClass(Type.getType(javaClass));
+        assertNotNull(cl);
+        return cl;
+    }
+
+    private int slotOf(final Class<?> owner, final String name) {
+        for (final ResolvedMethod m : classOf(owner).resolvedMethods) {
+            if (m.methodNode.name.equals(name)) {
+                return coloring.slotFor(methodToIDMapper.resolveIdFor(m));
+            }
+        }
+        throw new IllegalStateException("No method " + name + " in " + owner);
+    }
+
+    @Test
+    public void slotsNeverCollideWithinAClass() {
+        for (final ResolvedClass cl : classes) {
+            final Map<Integer, Integer> selectorPerSlot = new HashMap<>();
+            for (final Integer selector : selectorsOf(cl)) {
+                final Integer previous = selectorPerSlot.put(coloring.slotFor(selector), selector);
+                assertTrue("Slot collision in " + cl.type.getClassName() + " between " + previous + " and " + selector, previous == null);
+            }
+        }
+    }
+
+    @Test
+    public void inheritedAndInterfaceMethodsGetDistinctSlots() {
+        final Set<Integer> slots = new HashSet<>();
+        slots.add(slotOf(Shape.class, "area"));
+        slots.add(slotOf(Shape.class, "corners"));
+        slots.add(slotOf(Square.class, "side"));
+        slots.add(slotOf(Named.class, "name"));
+        slots.add(slotOf(NamedSquare.class, "color"));
+        slots.add(slotOf(Object.class, "toString"));
+        assertEquals(6, slots.size());
+    }
+
+    @Test
+    public void unrelatedClassesShareSlots() {
+        // No class implements both, so the coloring may reuse the slot
+        assertNotEquals(slotOf(Person.class, "age"), slotOf(Person.class, "name"));
+        final Set<Integer> squareOnly = new HashSet<>();
+        squareOnly.add(slotOf(Shape.class, "area"));
+        squareOnly.add(slotOf(Shape.class, "corners"));
+        squareOnly.add(slotOf(Square.class, "side"));
+        squareOnly.add(slotOf(NamedSquare.class, "color"));
+        assertTrue(squareOnly.contains(slotOf(Person.class, "age")));
+    }
+
+    @Test
+    public void dispatchTablePlacesEveryMethodAtItsSlot() {
+        for (final ResolvedClass cl : classes) {
+            final Set<Integer> methodIds = vTableResolver.resolveFor(cl).getMethods().keySet();
+            final int[] table = coloring.dispatchTableFor(methodIds);
+            int used = 0;
+            for (int i = 0; i < table.length; i++) {
+                if (table[i] != -1) {
+                    assertEquals(i, coloring.slotFor(table[i]));
+                    used++;
+                }
+            }
+            assertEquals(methodIds.size(), used);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend.js;
+
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import de.mirkosertic.bytecoder.core.StringLiteralTest;
+import de.mirkosertic.bytecoder.core.backend.CompileOptions;
+import de.mirkosertic.bytecoder.core.backend.CompileResult;
+import de.mirkosertic.bytecoder.core.loader.BytecoderLoader;
+import de.mirkosertic.bytecoder.core.optimizer.Optimizations;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import de.mirkosertic.bytecoder.core.parser.ConstantPool;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JSStringLiteralsTest {
+
+    @Test
+    public void literalsAreOnlyCreatedOnFirstAccess() throws IOException {
+        final Slf4JLogger logger = new Slf4JLogger();
+        final CompileUnit compileUnit = new CompileUnit(new BytecoderLoader(getClass().getClassLoader()), logger, new JSIntrinsics());
+        compileUnit.resolveMainMethod(Type.getType(StringLiteralTest.class), "literals", Type.getMethodType(Type.getType(String[].class)));
+        compileUnit.finalizeLinkingHierarchy();
+
+        final CompileOptions options = new CompileOptions(logger, Optimizations.DEFAULT, new String[0], "bytecoder", false);
+        final StringBuilder code = new StringBuilder();
+        for (final CompileResult.Content c : new JSBackend().generateCodeFor(compileUnit, options).getContent()) {
+            if (c instanceof CompileResult.StringContent) {
+                code.append(c.asString());
+            }
+        }
+        final String js = code.toString();
+
+        // No String instance is created while the script loads
+        assertFalse(js.contains("bytecoder.toBytecoderString('"));
+
+        final ConstantPool constantPool = compileUnit.getConstantPool();
+        final List<String> pooledStrings = constantPool.getPooledStrings();
+        final int tableStart = js.indexOf("bytecoder.stringliterals = [");
+        assertTrue(tableStart >= 0);
+        final String table = js.substring(tableStart, js.indexOf("];", tableStart));
+        assertEquals(pooledStrings.size(), table.split("\n").length - 1);
+
+        for (final String literal : StringLiteralTest.literals()) {
+            assertTrue(literal, js.contains("bytecoder.stringconstant(" + constantPool.indexOf(literal) + ")"));
+        }
+        assertTrue(table.contains("  'alpha',\n"));
+        assertTrue(table.contains("  'line\\nbreak',\n"));
+        assertTrue(table.contains("  '\\'quoted\\'',\n"));
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend.sequencer;
+
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import de.mirkosertic.bytecoder.core.ir.EdgeType;
+import de.mirkosertic.bytecoder.core.ir.Graph;
+import de.mirkosertic.bytecoder.core.ir.If;
+import de.mirkosertic.bytecoder.core.ir.Projection;
+import de.mirkosertic.bytecoder.core.ir.Region;
+import de.mirkosertic.bytecoder.core.ir.StandardProjections;
+import de.mirkosertic.bytecoder.core.ir.TryCatch;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DominatorTreeTest {
+
+    private static final Projection BACK = new Projection.DefaultProjection(EdgeType.BACK);
+
+    @Test
+    public void diamond() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region start = g.newStartRegion();
+        final If cond = g.newIf();
+        final Region onTrue = g.newRegion("T");
+        final Region onFalse = g.newRegion("F");
+        final Region join = g.newRegion("J");
+        start.addControlFlowTo(StandardProjections.DEFAULT, cond);
+        cond.addControlFlowTo(StandardProjections.TRUE, onTrue);
+        cond.addControlFlowTo(StandardProjections.FALSE, onFalse);
+        onTrue.addControlFlowTo(StandardProjections.DEFAULT, join);
+        onFalse.addControlFlowTo(StandardProjections.DEFAULT, join);
+
+        final DominatorTree tree = new DominatorTree(g);
+
+        assertSame(start, tree.getIDom(start));
+        assertSame(start, tree.getIDom(cond));
+        assertSame(cond, tree.getIDom(onTrue));
+        assertSame(cond, tree.getIDom(onFalse));
+        assertSame(cond, tree.getIDom(join));
+
+        assertTrue(tree.dominates(start, join));
+        assertTrue(tree.dominates(cond, join));
+        assertTrue(tree.dominates(join, join));
+        assertFalse(tree.dominates(onTrue, join));
+        assertFalse(tree.dominates(onFalse, join));
+        assertFalse(tree.dominates(onTrue, onFalse));
+        assertFalse(tree.dominates(join, cond));
+    }
+
+    @Test
+    public void loopWithBackEdge() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region start = g.newStartRegion();
+        final Region header = g.newRegion("H");
+        final If cond = g.newIf();
+        final Region body = g.newRegion("B");
+        final Region exit = g.newRegion("E");
+        start.addControlFlowTo(StandardProjections.DEFAULT, header);
+        header.addControlFlowTo(StandardProjections.DEFAULT, cond);
+        cond.addControlFlowTo(StandardProjections.TRUE, body);
+        cond.addControlFlowTo(StandardProjections.FALSE, exit);
+        body.addControlFlowTo(BACK, header);
+
+        final DominatorTree tree = new DominatorTree(g);
+
+        assertSame(start, tree.getIDom(header));
+        assertSame(header, tree.getIDom(cond));
+        assertSame(cond, tree.getIDom(body));
+        assertSame(cond, tree.getIDom(exit));
+
+        assertTrue(tree.dominates(header, body));
+        assertTrue(tree.dominates(header, exit));
+        assertFalse(tree.dominates(body, header));
+        assertFalse(tree.dominates(body, exit));
+        assertFalse(tree.dominates(exit, body));
+    }
+
+    @Test
+    public void nestedLoops() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region start = g.newStartRegion();
+        final Region outer = g.newRegion("O");
+        final If outerCond = g.newIf();
+        final Region inner = g.newRegion("I");
+        final If innerCond = g.newIf();
+        final Region innerBody = g.newRegion("IB");
+        final Region outerLatch = g.newRegion("OL");
+        final Region exit = g.newRegion("E");
+        start.addControlFlowTo(StandardProjections.DEFAULT, outer);
+        outer.addControlFlowTo(StandardProjections.DEFAULT, outerCond);
+        outerCond.addControlFlowTo(StandardProjections.TRUE, inner);
+        outerCond.addControlFlowTo(StandardProjections.FALSE, exit);
+        inner.addControlFlowTo(StandardProjections.DEFAULT, innerCond);
+        innerCond.addControlFlowTo(StandardProjections.TRUE, innerBody);
+        innerCond.addControlFlowTo(StandardProjections.FALSE, outerLatch);
+        innerBody.addControlFlowTo(BACK, inner);
+        outerLatch.addControlFlowTo(BACK, outer);
+
+        final DominatorTree tree = new DominatorTree(g);
+
+        assertSame(start, tree.getIDom(outer));
+        assertSame(outer, tree.getIDom(outerCond));
+        assertSame(outerCond, tree.getIDom(inner));
+        assertSame(outerCond, tree.getIDom(exit));
+        assertSame(inner, tree.getIDom(innerCond));
+        assertSame(innerCond, tree.getIDom(innerBody));
+        assertSame(innerCond, tree.getIDom(outerLatch));
+
+        assertTrue(tree.dominates(outer, innerBody));
+        assertTrue(tree.dominates(outer, exit));
+        assertTrue(tree.dominates(inner, outerLatch));
+        assertFalse(tree.dominates(inner, exit));
+        assertFalse(tree.dominates(inner, outer));
+        assertFalse(tree.dominates(innerBody, outerLatch));
+        assertFalse(tree.dominates(outerLatch, inner));
+    }
+
+    @Test
+    public void unreachableNode() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region start = g.newStartRegion();
+        final Region a = g.newRegion("A");
+        final Region b = g.newRegion("B");
+        final Region dead = g.newRegion("D");
+        start.addControlFlowTo(StandardProjections.DEFAULT, a);
+        a.addControlFlowTo(StandardProjections.DEFAULT, b);
+        dead.addControlFlowTo(StandardProjections.DEFAULT, b);
+
+        final DominatorTree tree = new DominatorTree(g);
+
+        assertSame(a, tree.getIDom(b));
+        assertNull(tree.getIDom(dead));
+
+        assertTrue(tree.dominates(a, b));
+        assertTrue(tree.dominates(dead, dead));
+        // The previous implementation walked the idom chain forever for unreachable dominators
+        assertFalse(tree.dominates(dead, b));
+        assertFalse(tree.dominates(start, dead));
+        assertFalse(tree.dominates(b, dead));
+    }
+
+    @Test
+    public void tryCatchEdges() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region start = g.newStartRegion();
+        final TryCatch tryCatch = g.newTryCatch("TC");
+        final Region guarded = g.newRegion("G1");
+        final Region guardedNext = g.newRegion("G2");
+        final Region handler = g.newRegion("H");
+        final Region exit = g.newRegion("E");
+        final Type throwable = Type.getType(Throwable.class);
+        start.addControlFlowTo(StandardProjections.DEFAULT, tryCatch);
+        tryCatch.addControlFlowTo(StandardProjections.TRYCATCHGUARD, guarded);
+        tryCatch.addControlFlowTo(StandardProjections.TRYCATCHEXIT, exit);
+        guarded.addControlFlowTo(StandardProjections.DEFAULT, guardedNext);
+        guarded.addControlFlowTo(new Projection.ExceptionHandler(throwable, 0), handler);
+        guardedNext.addControlFlowTo(new Projection.ExceptionHandler(throwable, 0), handler);
+        guardedNext.addControlFlowTo(StandardProjections.DEFAULT, exit);
+        handler.addControlFlowTo(StandardProjections.DEFAULT, exit);
+
+        final DominatorTree tree = new DominatorTree(g);
+
+        assertSame(start, tree.getIDom(tryCatch));
+        assertSame(tryCatch, tree.getIDom(guarded));
+        assertSame(guarded, tree.getIDom(guardedNext));
+        assertSame(guarded, tree.getIDom(handler));
+        assertSame(tryCatch, tree.getIDom(exit));
+
+        assertTrue(tree.dominates(tryCatch, handler));
+        assertTrue(tree.dominates(guarded, handler));
+        assertFalse(tree.dominates(guardedNext, handler));
+        assertFalse(tree.dominates(guarded, exit));
+        assertFalse(tree.dominates(handler, exit));
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend.wasm;
+
+import de.mirkosertic.bytecoder.core.parser.ConstantPool;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WasmStringPoolTest {
+
+    @Test
+    public void latin1OrUTF16IsSelectedPerString() {
+        final WasmStringPool pool = new WasmStringPool(Arrays.asList("abc", "\u00e9\u00ff", "\u0100", "a\u20ac", ""), WasmBackend.PAGE_SIZE);
+
+        assertTrue(pool.isLatin1(0));
+        assertTrue(pool.isLatin1(1));
+        assertFalse(pool.isLatin1(2));
+        assertFalse(pool.isLatin1(3));
+        assertTrue(pool.isLatin1(4));
+    }
+
+    @Test
+    public void stringsAreLaidOutAfterTheFirstPage() {
+        final WasmStringPool pool = new WasmStringPool(Arrays.asList("ab", "\u20acx", "c", "d\u20ac", ""), WasmBackend.PAGE_SIZE);
+
+        assertEquals(WasmBackend.PAGE_SIZE, pool.getBaseOffset());
+        assertEquals(5, pool.size());
+        // Latin-1 at the start of the page
+        assertEquals(WasmBackend.PAGE_SIZE, pool.offsetOf(0));
+        // UTF-16 right after it, as the offset is already even
+        assertEquals(WasmBackend.PAGE_SIZE + 2, pool.offsetOf(1));
+        assertEquals(WasmBackend.PAGE_SIZE + 6, pool.offsetOf(2));
+        // UTF-16 after an odd offset is padded to the next even one
+        assertEquals(WasmBackend.PAGE_SIZE + 8, pool.offsetOf(3));
+        assertEquals(WasmBackend.PAGE_SIZE + 12, pool.offsetOf(4));
+
+        assertEquals(2, pool.lengthOf(0));
+        assertEquals(2, pool.lengthOf(1));
+        assertEquals(2, pool.lengthOf(3));
+        assertEquals(0, pool.lengthOf(4));
+
+        assertArrayEquals(new byte[] {
+                'a', 'b',
+                (byte) 0xac, 0x20, 'x', 0,
+                'c',
+                0,
+                'd', 0, (byte) 0xac, 0x20
+        }, pool.getData());
+    }
+
+    @Test
+    public void utf16StringsAreAlwaysAligned() {
+        final WasmStringPool pool = new WasmStringPool(Arrays.asList("a", "\u0100", "bcd", "\u0101", "\u0102"), WasmBackend.PAGE_SIZE);
+
+        for (int i = 0; i < pool.size(); i++) {
+            if (!pool.isLatin1(i)) {
+                assertEquals(0, pool.offsetOf(i) % 2);
+            }
+        }
+        assertEquals(WasmBackend.PAGE_SIZE + 2, pool.offsetOf(1));
+        assertEquals(WasmBackend.PAGE_SIZE + 4, pool.offsetOf(2));
+        assertEquals(WasmBackend.PAGE_SIZE + 8, pool.offsetOf(3));
+        assertEquals(WasmBackend.PAGE_SIZE + 10, pool.offsetOf(4));
+    }
+
+    @Test
+    public void emptyPool() {
+        final WasmStringPool pool = new WasmStringPool(Collections.emptyList(), WasmBackend.PAGE_SIZE);
+
+        assertEquals(0, pool.size());
+        assertEquals(0, pool.getData().length);
+    }
+
+    @Test
+    public void constantPoolDeduplicatesStrings() {
+        final ConstantPool constantPool = new ConstantPool();
+        assertEquals(0, constantPool.resolveFromPool("hello").index);
+        assertEquals(1, constantPool.resolveFromPool("w\u00f6rld").index);
+        assertEquals(0, constantPool.resolveFromPool("hello").index);
+        assertEquals(2, constantPool.resolveFromPool("\u20ac").index);
+
+        assertEquals(0, constantPool.indexOf("hello"));
+        assertEquals(1, constantPool.indexOf("w\u00f6rld"));
+        assertEquals(2, constantPool.indexOf("\u20ac"));
+        assertEquals(-1, constantPool.indexOf("unknown"));
+
+        final WasmStringPool pool = new WasmStringPool(constantPool.getPooledStrings(), WasmBackend.PAGE_SIZE);
+        assertEquals(3, pool.size());
+        assertEquals(WasmBackend.PAGE_SIZE + 5, pool.offsetOf(constantPool.indexOf("w\u00f6rld")));
+        // The UTF-16 string after 5 + 5 Latin-1 bytes starts at an even offset
+        assertEquals(WasmBackend.PAGE_SIZE + 10, pool.offsetOf(constantPool.indexOf("\u20ac")));
+        assertEquals(12, pool.getData().length);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.backend.wasm;
+
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import de.mirkosertic.bytecoder.core.backend.wasm.ast.Module;
+import de.mirkosertic.bytecoder.core.backend.wasm.ast.StructType;
+import de.mirkosertic.bytecoder.core.backend.wasm.ast.TypesSection;
+import de.mirkosertic.bytecoder.core.ir.AbstractVar;
+import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
+import de.mirkosertic.bytecoder.core.ir.Graph;
+import de.mirkosertic.bytecoder.core.ir.Node;
+import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
+import de.mirkosertic.bytecoder.core.loader.BytecoderLoader;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class WasmTypeInferenceTest {
+
+    public static class Base {
+    }
+
+    public static class A extends Base {
+    }
+
+    public static class B extends Base {
+    }
+
+    public interface Shape {
+    }
+
+    public static class Square implements Shape {
+    }
+
+    public static class Circle implements Shape {
+    }
+
+    public static class Methods {
+
+        public static Base joinOfSubclasses(final boolean flag) {
+            final Base b;
+            if (flag) {
+                b = new A();
+            } else {
+                b = new B();
+            }
+            return b;
+        }
+
+        static Shape shape() {
+            return new Square();
+        }
+
+        public static Shape interfaceResult() {
+            final Shape s = shape();
+            return s;
+        }
+
+        public static Shape joinOfImplementations(final boolean flag) {
+            final Shape s;
+            if (flag) {
+                s = new Square();
+            } else {
+                s = new Circle();
+            }
+            return s;
+        }
+
+        public static int arrayReassignedInLoop(final int n) {
+            int[] data = new int[1];
+            for (int i = 0; i < n; i++) {
+                final int[] grown = new int[data.length * 2];
+                data = grown;
+            }
+            return data.length;
+        }
+    }
+
+    private CompileUnit compileUnit;
+    private Module module;
+    private Map<ResolvedClass, StructType> objectTypeMappings;
+    private StructType objectType;
+
+    @Before
+    public void setup() {
+        compileUnit = new CompileUnit(new BytecoderLoader(getClass().getClassLoader()), new Slf4JLogger(), new WasmIntrinsics());
+        module = new Module("bytecoder", "bytecoder.wasm.map");
+        objectTypeMappings = new HashMap<>();
+
+        final TypesSection types = module.getTypes();
+        objectType = map(Object.class, types.structType("java.lang.Object", new ArrayList<>()));
+        final StructType base = map(Base.class, types.structSubtype("Base", objectType, new ArrayList<>()));
+        map(A.class, types.structSubtype("A", base, new ArrayList<>()));
+        map(B.class, types.structSubtype("B", base, new ArrayList<>()));
+        // Even with a struct for it, an interface type must not be used for variables
+        map(Shape.class, types.structSubtype("Shape", objectType, new ArrayList<>()));
+        map(Square.class, types.structSubtype("Square", objectType, new ArrayList<>()));
+        map(Circle.class, types.structSubtype("Circle", objectType, new ArrayList<>()));
+        types.structSubtype("i32_array", objectType, new ArrayList<>());
+    }
+
+    private StructType map(final Class<?> javaClass, final StructType type) {
+        objectTypeMappings.put(compileUnit.resolveClass(Type.getType(javaClass), new AnalysisStack()), type);
+        return type;
+    }
+
+    private StructType structOf(final Class<?> javaClass) {
+        return objectTypeMappings.get(compileUnit.findClass(Type.getType(javaClass)));
+    }
+
+    private Graph parse(final String methodName, final Type methodType) {
+        final ResolvedClass cl = compileUnit.resolveClass(Type.getType(Methods.class), new AnalysisStack());
+        final Graph g = cl.resolveMethod(methodName, methodType, new AnalysisStack()).methodBody;
+        compileUnit.finalizeLinkingHierarchy();
+        return g;
+    }
+
+    private static List<AbstractVar> referenceVariables(final Graph g, final Type type) {
+        final List<AbstractVar> result = new ArrayList<>();
+        for (final Node n : g.nodes()) {
+            if (n instanceof AbstractVar && ((AbstractVar) n).type.equals(type)) {
+                result.add((AbstractVar) n);
+            }
+        }
+        return result;
+    }
+
+    private static AbstractVar mergeOf(final List<AbstractVar> variables) {
+        AbstractVar merge = null;
+        for (final AbstractVar v : variables) {
+            if (v.incomingDataFlows.length > 1) {
+                assertNull("Only one merge expected", merge);
+                merge = v;
+            }
+        }
+        return merge;
+    }
+
+    @Test
+    public void subclassesJoinToCommonSupertype() {
+        final Graph g = parse("joinOfSubclasses", Type.getMethodType(Type.getType(Base.class), Type.BOOLEAN_TYPE));
+        final WasmTypeInference inference = new WasmTypeInference(compileUnit, module, objectTypeMappings, g);
+
+        final AbstractVar merge = mergeOf(referenceVariables(g, Type.getType(A.class)));
+        assertSame(structOf(Base.class), inference.typeOf(merge));
+        assertSame(structOf(Base.class), inference.exactTypeOf(merge));
+
+        for (final AbstractVar v : referenceVariables(g, Type.getType(B.class))) {
+            assertSame(structOf(B.class), inference.typeOf(v));
+        }
+        for (final AbstractVar v : referenceVariables(g, Type.getType(Base.class))) {
+            assertSame(structOf(Base.class), inference.typeOf(v));
+        }
+    }
+
+    @Test
+    public void interfaceTypedValueFallsBackToObject() {
+        final Graph g = parse("interfaceResult", Type.getMethodType(Type.getType(Shape.class)));
+        final WasmTypeInference inference = new WasmTypeInference(compileUnit, module, objectTypeMappings, g);
+
+        final List<AbstractVar> variables = referenceVariables(g, Type.getType(Shape.class));
+        assertFalse(variables.isEmpty());
+        for (final AbstractVar v : variables) {
+            assertNull(inference.typeOf(v));
+            assertSame(objectType, inference.exactTypeOf(v));
+        }
+    }
+
+    @Test
+    public void implementationsOfInterfaceJoinToObject() {
+        final Graph g = parse("joinOfImplementations", Type.getMethodType(Type.getType(Shape.class), Type.BOOLEAN_TYPE));
+        final WasmTypeInference inference = new WasmTypeInference(compileUnit, module, objectTypeMappings, g);
+
+        final AbstractVar merge = mergeOf(referenceVariables(g, Type.getType(Square.class)));
+        assertNull(inference.typeOf(merge));
+        assertSame(objectType, inference.exactTypeOf(merge));
+        for (final AbstractVar v : referenceVariables(g, Type.getType(Circle.class))) {
+            assertSame(structOf(Circle.class), inference.typeOf(v));
+        }
+    }
+
+    @Test
+    public void arrayReassignedInLoopKeepsArrayType() {
+        final Graph g = parse("arrayReassignedInLoop", Type.getMethodType(Type.INT_TYPE, Type.INT_TYPE));
+        final WasmTypeInference inference = new WasmTypeInference(compileUnit, module, objectTypeMappings, g);
+
+        final StructType i32Array = module.getTypes().structTypeByName("i32_array");
+        final List<AbstractVar> variables = referenceVariables(g, Type.getType(int[].class));
+        // The loop header merges the initial array and the one created in the loop body
+        final AbstractVar merge = mergeOf(variables);
+        assertSame(i32Array, inference.typeOf(merge));
+        for (final AbstractVar v : variables) {
+            assertSame(i32Array, inference.typeOf(v));
+        }
+        assertEquals(true, inference.isArrayType(i32Array));
+    }
+}
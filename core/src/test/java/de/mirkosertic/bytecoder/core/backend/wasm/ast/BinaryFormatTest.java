@@ -23,9 +23,12 @@ import org.junit.Test;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.Assert.assertTrue;
+
 public class BinaryFormatTest {
 
     @Test
@@ -141,4 +144,114 @@ public class BinaryFormatTest {
             exporter.export(module, pw);
         }
     }
+
+    @Test
+    public void testBranchTable() throws IOException {
+        final Module module = new Module("test", "");
+
+        final Param value = ConstExpressions.param("value", PrimitiveType.i32);
+        final List<Param> params = new ArrayList<>();
+        params.add(value);
+
+        final ExportableFunction f = module.getFunctions().newFunction("lala", params, PrimitiveType.i32);
+        final Block defaultBlock = f.flow.block("default");
+        final Block case1 = defaultBlock.flow.block("case1");
+        final Block case0 = case1.flow.block("case0");
+
+        final List<LabeledContainer> targets = new ArrayList<>();
+        targets.add(case0);
+        targets.add(case1);
+        targets.add(case0);
+        case0.flow.branchTable(targets, defaultBlock, ConstExpressions.getLocal(value));
+        case1.flow.ret(ConstExpressions.i32.c(10));
+        defaultBlock.flow.ret(ConstExpressions.i32.c(20));
+        f.flow.ret(ConstExpressions.i32.c(30));
+
+        f.exportAs("test");
+
+        final CompileOptions options = new CompileOptions(new Slf4JLogger(), Optimizations.DISABLED, new String[0], "prefix", true);
+        final Exporter exporter = new Exporter(options);
+
+        try (final FileOutputStream fos = new FileOutputStream("target/testfile.wasm")) {
+            exporter.export(module, fos);
+        }
+
+        try (final PrintWriter pw = new PrintWriter(new FileOutputStream("target/testfile.wat"))) {
+            exporter.export(module, pw);
+        }
+    }
+
+    @Test
+    public void testPackedArray() throws IOException {
+        final Module module = new Module("test", "");
+
+        final Param value = ConstExpressions.param("value", PrimitiveType.i32);
+        final List<Param> params = new ArrayList<>();
+        params.add(value);
+
+        final ArrayType arr = module.getTypes().arrayType(PrimitiveType.i8);
+
+        final ExportableFunction f = module.getFunctions().newFunction("lala", params, PrimitiveType.i32);
+        final Local data = f.newLocal("data", ConstExpressions.ref.type(arr, false));
+        final List<WasmValue> arrayValues = new ArrayList<>();
+        arrayValues.add(ConstExpressions.getLocal(value));
+        f.flow.setLocal(data, ConstExpressions.array.newInstance(arr, arrayValues));
+        f.flow.ret(ConstExpressions.i32.add(
+                ConstExpressions.array.get_s(arr, ConstExpressions.getLocal(data), ConstExpressions.i32.c(0)),
+                ConstExpressions.i32.shl(
+                        ConstExpressions.array.get_u(arr, ConstExpressions.getLocal(data), ConstExpressions.i32.c(0)),
+                        ConstExpressions.i32.c(16))));
+
+        f.exportAs("test");
+
+        final CompileOptions options = new CompileOptions(new Slf4JLogger(), Optimizations.DISABLED, new String[0], "prefix", true);
+        final Exporter exporter = new Exporter(options);
+
+        try (final FileOutputStream fos = new FileOutputStream("target/testfile.wasm")) {
+            exporter.export(module, fos);
+        }
+
+        try (final PrintWriter pw = new PrintWriter(new FileOutputStream("target/testfile.wat"))) {
+            exporter.export(module, pw);
+        }
+
+        final StringWriter wat = new StringWriter();
+        try (final PrintWriter pw = new PrintWriter(wat)) {
+            exporter.export(module, pw);
+        }
+        assertTrue(wat.toString(), wat.toString().contains("(array (mut i8))"));
+        assertTrue(wat.toString(), wat.toString().contains("array.get_s "));
+        assertTrue(wat.toString(), wat.toString().contains("array.get_u "));
+    }
+
+    @Test
+    public void testRefTest() throws IOException {
+        final Module module = new Module("test", "");
+        final List<StructType.Field> fields = new ArrayList<>();
+        fields.add(new StructType.Field("field1", PrimitiveType.i32));
+        final StructType str = module.getTypes().structType("str", fields);
+        final StructSubtype sub = module.getTypes().structSubtype("sub", str, new ArrayList<>());
+
+        final Param value = ConstExpressions.param("value", ConstExpressions.ref.type(str, true));
+        final List<Param> params = new ArrayList<>();
+        params.add(value);
+
+        final ExportableFunction f = module.getFunctions().newFunction("lala", params, PrimitiveType.i32);
+        f.flow.ret(ConstExpressions.ref.test(sub, ConstExpressions.getLocal(value)));
+
+        f.exportAs("test");
+
+        final CompileOptions options = new CompileOptions(new Slf4JLogger(), Optimizations.DISABLED, new String[0], "prefix", true);
+        final Exporter exporter = new Exporter(options);
+
+        try (final FileOutputStream fos = new FileOutputStream("target/testfile.wasm")) {
+            exporter.export(module, fos);
+        }
+
+        final StringWriter wat = new StringWriter();
+        try (final PrintWriter pw = new PrintWriter(wat)) {
+            exporter.export(module, pw);
+        }
+        assertTrue(wat.toString(), wat.toString().contains("(ref.test (ref $sub) (local.get $value))"));
+    }
 }
@@ -10,8 +10,14 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
 
 public class ModuleTest {
 
@@ -55,4 +61,47 @@ public class ModuleTest {
         System.out.println(theStringWriter);
     }
 
+    @Test
+    public void testFunctionAndGlobalIndex() {
+        final Module module = new Module("bytecoder", "bytecoder" + ".wasm.map");
+
+        final ExportableFunction defined = module.getFunctions().newFunction("defined", PrimitiveType.i32);
+        final Function imported = module.getImports().importFunction(new ImportReference("mod", "obj"), "imported", PrimitiveType.i32);
+
+        // Imported functions are always numbered before the defined ones
+        final FunctionIndex functionIndex = module.functionIndex();
+        assertEquals(0, functionIndex.indexOf(imported));
+        assertEquals(1, functionIndex.indexOf(defined));
+        assertSame(defined, functionIndex.get(1));
+        assertSame(defined, functionIndex.firstByLabel("DEFINED"));
+        assertSame(imported, functionIndex.firstByLabel("imported"));
+
+        final Global a = module.getGlobals().newConstantGlobal("a", PrimitiveType.i32, ConstExpressions.i32.c(10));
+        final Global b = module.getGlobals().newMutableGlobal("b", PrimitiveType.i32, ConstExpressions.i32.c(20));
+        assertSame(b, module.globalsIndex().globalByLabel("b"));
+        assertEquals(0, module.globalsIndex().indexOf(a));
+        assertEquals(1, module.globalsIndex().indexOf(b));
+    }
+
+    @Test
+    public void testFunctionTypesAreSharedBySignature() {
+        final TypesSection types = new Module("bytecoder", "bytecoder" + ".wasm.map").getTypes();
+
+        final FunctionType full = types.functionType(Arrays.asList(PrimitiveType.i32, PrimitiveType.f32), PrimitiveType.i32);
+        final FunctionType noResult = types.functionType(Arrays.asList(PrimitiveType.i32, PrimitiveType.f32));
+        final FunctionType noParameter = types.functionType(PrimitiveType.i32);
+        final FunctionType noParameterList = types.functionType(Collections.emptyList(), PrimitiveType.i32);
+
+        assertSame(full, types.functionType(new ArrayList<>(Arrays.asList(PrimitiveType.i32, PrimitiveType.f32)), PrimitiveType.i32));
+        assertSame(noResult, types.functionType(Arrays.asList(PrimitiveType.i32, PrimitiveType.f32)));
+        assertSame(noParameter, types.functionType(PrimitiveType.i32));
+        assertSame(noParameterList, types.functionType(Collections.emptyList(), PrimitiveType.i32));
+
+        assertNotSame(full, noResult);
+        assertNotSame(full, types.functionType(Arrays.asList(PrimitiveType.f32, PrimitiveType.i32), PrimitiveType.i32));
+        // A missing parameter list is distinct from an empty one, as in FunctionType.matches()
+        assertNotSame(noParameter, noParameterList);
+        assertEquals(0, types.indexOf(full));
+        assertEquals(1, types.indexOf(noResult));
+    }
 }
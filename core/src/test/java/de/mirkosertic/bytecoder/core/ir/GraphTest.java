@@ -0,0 +1,225 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.ir;
+
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GraphTest {
+
+    @Test
+    public void usagesAreTrackedPerIncomingDataFlow() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final PrimitiveInt a = g.newInt(10);
+        final PrimitiveInt b = g.newInt(20);
+
+        final Add add = g.newAdd(Type.INT_TYPE);
+        add.addIncomingData(a, a);
+        final Sub sub = g.newSub(Type.INT_TYPE);
+        sub.addIncomingData(a, b);
+
+        assertArrayEquals(new Node[] {add, sub}, g.outgoingDataFlowsFor(a));
+        assertArrayEquals(new Node[] {sub}, b.outgoingDataFlows());
+
+        g.remapDataFlow(a, b);
+
+        assertEquals(0, g.outgoingDataFlowsFor(a).length);
+        assertArrayEquals(new Node[] {sub, add}, g.outgoingDataFlowsFor(b));
+        assertSame(b, add.incomingDataFlows[0]);
+        assertSame(b, add.incomingDataFlows[1]);
+    }
+
+    @Test
+    public void deletedNodesAreNoLongerUsages() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final PrimitiveInt a = g.newInt(10);
+
+        final Variable v = g.newVariable(Type.INT_TYPE);
+        final Copy copy = g.newCopy();
+        copy.addIncomingData(a);
+        v.addIncomingData(copy);
+
+        assertArrayEquals(new Node[] {copy}, g.outgoingDataFlowsFor(a));
+        assertArrayEquals(new Node[] {v}, g.outgoingDataFlowsFor(copy));
+
+        assertTrue(g.contains(copy));
+
+        g.deleteNode(copy);
+
+        assertEquals(0, g.outgoingDataFlowsFor(a).length);
+        assertEquals(2, g.nodes().size());
+        assertFalse(g.contains(copy));
+        assertTrue(g.contains(v));
+    }
+
+    @Test
+    public void typeReferencesAreShared() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final TypeReference t1 = g.newTypeReference(Type.getType(Object.class));
+        final TypeReference t2 = g.newTypeReference(Type.getType(Object.class));
+        assertSame(t1, t2);
+        assertEquals(1, g.nodes().size());
+    }
+
+    @Test
+    public void deletedNodeKeepsTrueAndFalseProjectionsOfPredecessor() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final If ifNode = g.newIf();
+        final Copy onTrue = g.newCopy();
+        final Copy onFalse = g.newCopy();
+        final Region trueTarget = g.newRegion("T");
+        final Region falseTarget = g.newRegion("F");
+
+        final Projection.TrueProjection trueProjection = new Projection.TrueProjection(EdgeType.FORWARD);
+        final Projection.FalseProjection falseProjection = new Projection.FalseProjection(EdgeType.FORWARD);
+        ifNode.addControlFlowTo(trueProjection, onTrue);
+        ifNode.addControlFlowTo(falseProjection, onFalse);
+        onTrue.addControlFlowTo(StandardProjections.DEFAULT, trueTarget);
+        onFalse.addControlFlowTo(StandardProjections.DEFAULT, falseTarget);
+
+        onTrue.deleteFromControlFlow();
+        onFalse.deleteFromControlFlow();
+
+        assertEquals(2, ifNode.controlFlowsTo.size());
+        assertSame(trueTarget, ifNode.controlFlowsTo.get(trueProjection));
+        assertSame(falseTarget, ifNode.controlFlowsTo.get(falseProjection));
+        assertEquals(Collections.singleton(ifNode), trueTarget.controlComingFrom);
+        assertEquals(Collections.singleton(ifNode), falseTarget.controlComingFrom);
+        assertTrue(onTrue.controlFlowsTo.isEmpty());
+        assertTrue(onTrue.controlComingFrom.isEmpty());
+    }
+
+    @Test
+    public void deletedNodeKeepsGuardedProjectionOfPredecessor() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final TryCatch tryCatch = g.newTryCatch("TC");
+        final Copy copy = g.newCopy();
+        final Region guarded = g.newRegion("G");
+
+        final Projection.TryCatchGuardedProjection projection = new Projection.TryCatchGuardedProjection(EdgeType.FORWARD);
+        tryCatch.addControlFlowTo(projection, copy);
+        copy.addControlFlowTo(StandardProjections.DEFAULT, guarded);
+
+        copy.deleteFromControlFlow();
+
+        assertEquals(1, tryCatch.controlFlowsTo.size());
+        assertSame(guarded, tryCatch.controlFlowsTo.get(projection));
+        assertEquals(Collections.singleton(tryCatch), guarded.controlComingFrom);
+    }
+
+    @Test
+    public void deletedNodeKeepsBackEdgeOfOutgoingFlow() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region loopHeader = g.newRegion("L");
+        final If ifNode = g.newIf();
+        final Copy copy = g.newCopy();
+
+        loopHeader.addControlFlowTo(StandardProjections.DEFAULT, ifNode);
+        ifNode.addControlFlowTo(new Projection.TrueProjection(EdgeType.FORWARD), copy);
+        copy.addControlFlowTo(StandardProjections.DEFAULT.withEdgeType(EdgeType.BACK), loopHeader);
+
+        copy.deleteFromControlFlow();
+
+        assertEquals(1, ifNode.controlFlowsTo.size());
+        final Map.Entry<Projection, ControlTokenConsumer> entry = ifNode.controlFlowsTo.entrySet().iterator().next();
+        assertTrue(entry.getKey() instanceof Projection.TrueProjection);
+        assertEquals(EdgeType.BACK, entry.getKey().edgeType());
+        assertSame(loopHeader, entry.getValue());
+        assertTrue(loopHeader.hasIncomingBackEdges());
+    }
+
+    @Test
+    public void onlyNodesWithExactlyOneOutgoingFlowCanBeDeleted() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region start = g.newRegion("S");
+        final If ifNode = g.newIf();
+        start.addControlFlowTo(StandardProjections.DEFAULT, ifNode);
+        ifNode.addControlFlowTo(new Projection.TrueProjection(EdgeType.FORWARD), g.newRegion("T"));
+        ifNode.addControlFlowTo(new Projection.FalseProjection(EdgeType.FORWARD), g.newRegion("F"));
+
+        try {
+            ifNode.deleteFromControlFlow();
+            fail("Deleting a node with two outgoing flows must fail");
+        } catch (final IllegalStateException e) {
+            // Expected
+        }
+        assertEquals(2, ifNode.controlFlowsTo.size());
+        assertSame(ifNode, start.controlFlowsTo.get(StandardProjections.DEFAULT));
+
+        final Copy copy = g.newCopy();
+        ifNode.controlFlowsTo.clear();
+        ifNode.addControlFlowTo(new Projection.TrueProjection(EdgeType.FORWARD), copy);
+        try {
+            copy.deleteFromControlFlow();
+            fail("Deleting a node without outgoing flow must fail");
+        } catch (final IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void branchesReducedToOneFlowCanBeDeleted() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final ControlTokenConsumer[] branches = new ControlTokenConsumer[] {g.newIf(), g.newTableSwitch(0, 1), g.newLookupSwitch()};
+        for (final ControlTokenConsumer branch : branches) {
+            final Region start = g.newRegion("S");
+            final Region taken = g.newRegion("T");
+            start.addControlFlowTo(StandardProjections.DEFAULT, branch);
+            branch.addControlFlowTo(new Projection.KeyedProjection(EdgeType.FORWARD, 1), taken);
+
+            if (branch instanceof If) {
+                ((If) branch).deleteFromControlFlow();
+            } else if (branch instanceof TableSwitch) {
+                ((TableSwitch) branch).deleteFromControlFlow();
+            } else {
+                ((LookupSwitch) branch).deleteFromControlFlow();
+            }
+
+            assertSame(taken, start.controlFlowsTo.get(StandardProjections.DEFAULT));
+            assertEquals(Collections.singleton(start), taken.controlComingFrom);
+            assertTrue(branch.controlFlowsTo.isEmpty());
+        }
+    }
+
+    @Test
+    public void classInitializationAndInvocationCanBeDeleted() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region start = g.newRegion("S");
+        final ClassInitialization init = g.newClassInitialization(Type.getType(Object.class));
+        final MethodInvocation invocation = g.newMethodInvocation(InvocationType.STATIC, null, null);
+        final Return ret = g.newReturnNothing();
+        start.addControlFlowTo(StandardProjections.DEFAULT, init);
+        init.addControlFlowTo(StandardProjections.DEFAULT, invocation);
+        invocation.addControlFlowTo(StandardProjections.DEFAULT, ret);
+
+        init.deleteFromControlFlow();
+        invocation.deleteFromControlFlow();
+
+        assertSame(ret, start.controlFlowsTo.get(StandardProjections.DEFAULT));
+        assertEquals(Collections.singleton(start), ret.controlComingFrom);
+    }
+}
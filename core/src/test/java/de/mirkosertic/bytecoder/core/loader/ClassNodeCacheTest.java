@@ -0,0 +1,133 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.loader;
+
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import de.mirkosertic.bytecoder.core.backend.js.JSIntrinsics;
+import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
+import de.mirkosertic.bytecoder.core.ir.Graph;
+import de.mirkosertic.bytecoder.core.ir.Node;
+import de.mirkosertic.bytecoder.core.ir.Region;
+import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.ClassNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ClassNodeCacheTest {
+
+    public static class Parsed {
+
+        public static int compute(final int[] values) {
+            int result = 0;
+            for (int i = 0; i < values.length; i++) {
+                try {
+                    result += 100 / values[i];
+                } catch (final ArithmeticException e) {
+                    result--;
+                }
+                while (result > 1000) {
+                    result /= 2;
+                }
+            }
+            return result;
+        }
+    }
+
+    @Test
+    public void classIsLoadedOnceAcrossLoaders() throws Exception {
+        final ClassNodeCache cache = new ClassNodeCache();
+        final ClassLoader cl = getClass().getClassLoader();
+
+        final ClassNode first = new BytecoderLoader(cl, cache).loadClassFor(Type.getType(String.class));
+        final ClassNode second = new BytecoderLoader(cl, cache).loadClassFor(Type.getType(String.class));
+
+        assertSame(first, second);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void uncachedLoaderParsesAgain() throws Exception {
+        final ClassLoader cl = getClass().getClassLoader();
+
+        final ClassNode first = new BytecoderLoader(cl, null).loadClassFor(Type.getType(String.class));
+        final ClassNode second = new BytecoderLoader(cl, null).loadClassFor(Type.getType(String.class));
+
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void sharedClassNodeIsParsedConsistentlyByConcurrentUnits() throws Exception {
+        final ClassNodeCache cache = new ClassNodeCache();
+        final ClassLoader cl = getClass().getClassLoader();
+        final Type type = Type.getType(Parsed.class);
+        final Type methodType = Type.getMethodType(Type.INT_TYPE, Type.getType(int[].class));
+
+        final int threads = 8;
+        final CyclicBarrier barrier = new CyclicBarrier(threads);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Set<String>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    final CompileUnit compileUnit = new CompileUnit(new BytecoderLoader(cl, cache), new Slf4JLogger(), new JSIntrinsics());
+                    barrier.await();
+                    final ResolvedClass rc = compileUnit.resolveClass(type, new AnalysisStack());
+                    final Graph graph = rc.resolveMethod("compute", methodType, new AnalysisStack()).methodBody;
+                    final Set<String> labels = new TreeSet<>();
+                    for (final Node n : graph.nodes()) {
+                        if (n instanceof Region) {
+                            labels.add(((Region) n).label);
+                        }
+                    }
+                    return labels;
+                }));
+            }
+
+            final Set<String> expected = results.get(0).get();
+            assertTrue(expected.size() > 1);
+            for (final Future<Set<String>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void keyDependsOnContent() {
+        final byte[] content = new byte[] {1, 2, 3};
+
+        assertEquals(ClassNodeCache.keyFor("a.B", content, null), ClassNodeCache.keyFor("a.B", content.clone(), null));
+        assertNotEquals(ClassNodeCache.keyFor("a.B", content, null), ClassNodeCache.keyFor("a.B", new byte[] {1, 2, 4}, null));
+        assertNotEquals(ClassNodeCache.keyFor("a.B", content, null), ClassNodeCache.keyFor("a.B", content, new byte[] {5}));
+    }
+}
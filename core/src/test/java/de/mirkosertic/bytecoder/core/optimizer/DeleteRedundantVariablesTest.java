@@ -3,10 +3,14 @@ package de.mirkosertic.bytecoder.core.optimizer;
 import de.mirkosertic.bytecoder.core.Slf4JLogger;
 import de.mirkosertic.bytecoder.core.ir.Copy;
 import de.mirkosertic.bytecoder.core.ir.Graph;
+import de.mirkosertic.bytecoder.core.ir.New;
+import de.mirkosertic.bytecoder.core.ir.PrimitiveInt;
 import de.mirkosertic.bytecoder.core.ir.Region;
 import de.mirkosertic.bytecoder.core.ir.ResolvedField;
+import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
 import de.mirkosertic.bytecoder.core.ir.Return;
 import de.mirkosertic.bytecoder.core.ir.SetClassField;
+import de.mirkosertic.bytecoder.core.ir.SetInstanceField;
 import de.mirkosertic.bytecoder.core.ir.StandardProjections;
 import de.mirkosertic.bytecoder.core.ir.Variable;
 import org.junit.Test;
@@ -15,6 +19,10 @@ import org.objectweb.asm.Type;
 import java.io.FileOutputStream;
 import java.io.IOException;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
 public class DeleteRedundantVariablesTest {
 
     @Test
@@ -50,10 +58,58 @@ public class DeleteRedundantVariablesTest {
         copy3.addControlFlowTo(StandardProjections.DEFAULT, setInstanceField);
         setInstanceField.addControlFlowTo(StandardProjections.DEFAULT, ret);
 
-        // TODO: Invoke optimizer
+        optimize(g);
+
+        assertTrue(setInstanceField.incomingDataFlows[0] instanceof PrimitiveInt);
+        assertFalse(g.nodes().contains(v1));
+        assertFalse(g.nodes().contains(v2));
+        assertTrue(g.nodes().contains(v3));
+        assertSame(copy3, startRegion.controlFlowsTo.values().iterator().next());
 
         try (final FileOutputStream fos = new FileOutputStream("test.dot")) {
             g.writeDebugTo(fos);
         }
     }
+
+    @Test
+    public void variablesTargetedByFieldStoresAreKept() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region startRegion = g.newStartRegion();
+
+        final Variable v1 = g.newVariable(Type.getType(Object.class));
+        final Copy copy1 = g.newCopy();
+        final New n = g.newNew(Type.getType(Object.class));
+        copy1.addIncomingData(n);
+        v1.addIncomingData(copy1);
+
+        final Variable v2 = g.newVariable(Type.getType(Object.class));
+        final Copy copy2 = g.newCopy();
+        copy2.addIncomingData(v1);
+        v2.addIncomingData(copy2);
+
+        final ResolvedField f = new ResolvedField(null, "x", Type.INT_TYPE, null, 0);
+        final SetInstanceField setInstanceField = g.newSetInstanceField(f);
+        setInstanceField.addIncomingData(g.newInt(42));
+        v2.addIncomingData(setInstanceField);
+
+        final Return ret = g.newReturnNothing();
+
+        startRegion.addControlFlowTo(StandardProjections.DEFAULT, copy1);
+        copy1.addControlFlowTo(StandardProjections.DEFAULT, copy2);
+        copy2.addControlFlowTo(StandardProjections.DEFAULT, setInstanceField);
+        setInstanceField.addControlFlowTo(StandardProjections.DEFAULT, ret);
+
+        optimize(g);
+
+        assertTrue(g.nodes().contains(v2));
+        assertSame(v2, setInstanceField.outgoingDataFlows()[0]);
+    }
+
+    private void optimize(final Graph g) {
+        final ResolvedMethod method = new ResolvedMethod(null, null, null);
+        method.methodBody = g;
+        while (Optimizations.DEFAULT.optimize(null, method)) {
+            //
+        }
+    }
 }
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.optimizer;
+
+import de.mirkosertic.bytecoder.core.InliningTest;
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import de.mirkosertic.bytecoder.core.backend.js.JSIntrinsics;
+import de.mirkosertic.bytecoder.core.ir.AbstractInvocation;
+import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
+import de.mirkosertic.bytecoder.core.ir.Graph;
+import de.mirkosertic.bytecoder.core.ir.Node;
+import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
+import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
+import de.mirkosertic.bytecoder.core.loader.BytecoderLoader;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class InlinerTest {
+
+    public static class Calculation {
+
+        static int square(final int a) {
+            return a * a;
+        }
+
+        public static int sumOfSquares(final int a, final int b) {
+            return square(a) + square(b);
+        }
+
+        static int cube(final int a) {
+            return a * a * a;
+        }
+    }
+
+    public static class Counter {
+
+        int value;
+
+        final int current() {
+            return value;
+        }
+
+        int currentOfThis() {
+            return current();
+        }
+
+        static int currentOf(final Counter counter) {
+            return counter.current();
+        }
+    }
+
+    public static class NotLinked {
+    }
+
+    private static final Type INT_INT_TO_INT = Type.getMethodType(Type.INT_TYPE, Type.INT_TYPE, Type.INT_TYPE);
+
+    private static final Type INT_TO_INT = Type.getMethodType(Type.INT_TYPE, Type.INT_TYPE);
+
+    private static final Type TO_INT = Type.getMethodType(Type.INT_TYPE);
+
+    private static final Type COUNTER_TO_INT = Type.getMethodType(Type.INT_TYPE, Type.getType(Counter.class));
+
+    private CompileUnit newCompileUnit() {
+        return new CompileUnit(new BytecoderLoader(getClass().getClassLoader()), new Slf4JLogger(), new JSIntrinsics());
+    }
+
+    private static int invocationsIn(final Graph g) {
+        int count = 0;
+        for (final Node n : g.nodes()) {
+            if (n instanceof AbstractInvocation) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void templateIsParsedOncePerCallee() {
+        final CompileUnit compileUnit = newCompileUnit();
+        final ResolvedClass cl = compileUnit.resolveClass(Type.getType(Calculation.class), new AnalysisStack());
+        final ResolvedMethod caller = cl.resolveMethod("sumOfSquares", INT_INT_TO_INT, new AnalysisStack());
+        final ResolvedMethod callee = cl.resolveMethod("square", INT_TO_INT, new AnalysisStack());
+        compileUnit.finalizeLinkingHierarchy();
+
+        final Inliner inliner = new Inliner();
+        inliner.prepare(compileUnit);
+        final Graph template = callee.inliningTemplate;
+        assertNotNull(template);
+        assertEquals(2, invocationsIn(caller.methodBody));
+
+        assertTrue(inliner.optimize(compileUnit, caller));
+
+        assertEquals(0, invocationsIn(caller.methodBody));
+        assertSame(template, callee.inliningTemplate);
+    }
+
+    @Test
+    public void templateIsOnlyParsedForInvokedMethods() {
+        final CompileUnit compileUnit = newCompileUnit();
+        final ResolvedClass cl = compileUnit.resolveClass(Type.getType(Calculation.class), new AnalysisStack());
+        cl.resolveMethod("sumOfSquares", INT_INT_TO_INT, new AnalysisStack());
+        final ResolvedMethod square = cl.resolveMethod("square", INT_TO_INT, new AnalysisStack());
+        final ResolvedMethod cube = cl.resolveMethod("cube", INT_TO_INT, new AnalysisStack());
+        compileUnit.finalizeLinkingHierarchy();
+
+        new Inliner().prepare(compileUnit);
+
+        assertNotNull(square.inliningTemplate);
+        assertNull(cube.inliningTemplate);
+    }
+
+    @Test
+    public void instanceMethodIsOnlyInlinedForThisReceiver() {
+        final CompileUnit compileUnit = newCompileUnit();
+        final ResolvedClass cl = compileUnit.resolveClass(Type.getType(Counter.class), new AnalysisStack());
+        final ResolvedMethod onThis = cl.resolveMethod("currentOfThis", TO_INT, new AnalysisStack());
+        final ResolvedMethod onArgument = cl.resolveMethod("currentOf", COUNTER_TO_INT, new AnalysisStack());
+        compileUnit.finalizeLinkingHierarchy();
+
+        final Inliner inliner = new Inliner();
+        inliner.prepare(compileUnit);
+        final VirtualToDirectInvocation devirtualizer = new VirtualToDirectInvocation();
+        devirtualizer.optimize(compileUnit, onThis);
+        devirtualizer.optimize(compileUnit, onArgument);
+
+        assertTrue(inliner.optimize(compileUnit, onThis));
+        assertEquals(0, invocationsIn(onThis.methodBody));
+
+        // The argument might be null, which must still fail at the invocation
+        assertFalse(inliner.optimize(compileUnit, onArgument));
+        assertEquals(1, invocationsIn(onArgument.methodBody));
+    }
+
+    @Test
+    public void allOptimizationsInlineNestedPrivateInvocation() {
+        final CompileUnit compileUnit = newCompileUnit();
+        final ResolvedClass cl = compileUnit.resolveClass(Type.getType(InliningTest.Point.class), new AnalysisStack());
+        final ResolvedMethod twiceSum = cl.resolveMethod("twiceSum", TO_INT, new AnalysisStack());
+        compileUnit.finalizeLinkingHierarchy();
+        assertEquals(1, invocationsIn(twiceSum.methodBody));
+
+        Optimizations.ALL.prepare(compileUnit);
+        while (Optimizations.ALL.optimize(compileUnit, twiceSum)) {
+            // Run until a fixpoint is reached, as the backends do
+        }
+
+        assertEquals(0, invocationsIn(twiceSum.methodBody));
+    }
+
+    @Test
+    public void noTemplateIsParsedWhileLinkingIsFrozen() {
+        final CompileUnit compileUnit = newCompileUnit();
+        final ResolvedClass cl = compileUnit.resolveClass(Type.getType(Calculation.class), new AnalysisStack());
+        final ResolvedMethod caller = cl.resolveMethod("sumOfSquares", INT_INT_TO_INT, new AnalysisStack());
+        final ResolvedMethod callee = cl.resolveMethod("square", INT_TO_INT, new AnalysisStack());
+        compileUnit.finalizeLinkingHierarchy();
+
+        compileUnit.setLinkingFrozen(true);
+        assertFalse(new Inliner().optimize(compileUnit, caller));
+
+        assertNull(callee.inliningTemplate);
+        assertEquals(2, invocationsIn(caller.methodBody));
+    }
+
+    @Test
+    public void frozenLinkingRejectsNewClasses() {
+        final CompileUnit compileUnit = newCompileUnit();
+        final ResolvedClass cl = compileUnit.resolveClass(Type.getType(Calculation.class), new AnalysisStack());
+
+        compileUnit.setLinkingFrozen(true);
+        // Already known classes can still be looked up
+        assertSame(cl, compileUnit.resolveClass(Type.getType(Calculation.class), new AnalysisStack()));
+        try {
+            compileUnit.resolveClass(Type.getType(NotLinked.class), new AnalysisStack());
+            fail("Resolving a new class must fail");
+        } catch (final IllegalStateException e) {
+            // Expected
+        }
+    }
+}
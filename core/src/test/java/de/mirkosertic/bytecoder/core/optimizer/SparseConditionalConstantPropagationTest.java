@@ -0,0 +1,362 @@
+package de.mirkosertic.bytecoder.core.optimizer;
+
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import de.mirkosertic.bytecoder.core.backend.js.JSIntrinsics;
+import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
+import de.mirkosertic.bytecoder.core.ir.Copy;
+import de.mirkosertic.bytecoder.core.ir.Graph;
+import de.mirkosertic.bytecoder.core.ir.If;
+import de.mirkosertic.bytecoder.core.ir.MethodArgument;
+import de.mirkosertic.bytecoder.core.ir.Mul;
+import de.mirkosertic.bytecoder.core.ir.Node;
+import de.mirkosertic.bytecoder.core.ir.NodeType;
+import de.mirkosertic.bytecoder.core.ir.NumericalTest;
+import de.mirkosertic.bytecoder.core.ir.PrimitiveInt;
+import de.mirkosertic.bytecoder.core.ir.PrimitiveLong;
+import de.mirkosertic.bytecoder.core.ir.Region;
+import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
+import de.mirkosertic.bytecoder.core.ir.ResolvedMethod;
+import de.mirkosertic.bytecoder.core.ir.ReturnValue;
+import de.mirkosertic.bytecoder.core.ir.SHL;
+import de.mirkosertic.bytecoder.core.ir.StandardProjections;
+import de.mirkosertic.bytecoder.core.ir.Variable;
+import de.mirkosertic.bytecoder.core.loader.BytecoderLoader;
+import de.mirkosertic.bytecoder.core.parser.CompileUnit;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SparseConditionalConstantPropagationTest {
+
+    public static class Samples {
+
+        public static int tableSwitch() {
+            int x = 2;
+            switch (x) {
+                case 1:
+                    return 10;
+                case 2:
+                    return 20;
+                case 3:
+                    return 30;
+                default:
+                    return 0;
+            }
+        }
+
+        public static int lookupSwitch() {
+            int x = 1000;
+            switch (x) {
+                case 1:
+                    return 10;
+                case 1000:
+                    return 20;
+                case 100000:
+                    return 30;
+                default:
+                    return 0;
+            }
+        }
+
+        public static int lookupSwitchDefault() {
+            int x = 7;
+            switch (x) {
+                case 1:
+                    return 10;
+                case 1000:
+                    return 20;
+                case 100000:
+                    return 30;
+                default:
+                    return 0;
+            }
+        }
+
+        public static long longArithmetic() {
+            long a = 1;
+            a = a << 40;
+            return a * 3 + 7 - (a >>> 3);
+        }
+
+        public static int longComparison() {
+            long a = 5;
+            long b = 7;
+            if (a < b) {
+                return 1;
+            }
+            return 2;
+        }
+
+        public static int intOverflow() {
+            int a = Integer.MAX_VALUE;
+            return a + 1;
+        }
+
+        public static int intMultiplicationOverflow() {
+            int a = 65536;
+            return a * a + 3;
+        }
+
+        public static int intDivisionByZero() {
+            int a = 10;
+            int b = 0;
+            return a / b;
+        }
+
+        public static int intRemainderByZero() {
+            int a = 10;
+            int b = 0;
+            return a % b;
+        }
+
+        public static long longDivisionByZero() {
+            long a = 10;
+            long b = 0;
+            return a / b;
+        }
+
+        public static int countedLoop() {
+            int i = 0;
+            while (i < 10) {
+                i++;
+            }
+            return i;
+        }
+
+        public static int loopInvariant(final int n) {
+            int k = 5;
+            for (int i = 0; i < n; i++) {
+                k = 5;
+            }
+            return k;
+        }
+    }
+
+    private static final Type TO_INT = Type.getMethodType(Type.INT_TYPE);
+
+    private static final Type TO_LONG = Type.getMethodType(Type.LONG_TYPE);
+
+    private static Graph optimizedSample(final String name, final Type signature) {
+        final CompileUnit compileUnit = new CompileUnit(new BytecoderLoader(SparseConditionalConstantPropagationTest.class.getClassLoader()), new Slf4JLogger(), new JSIntrinsics());
+        final ResolvedClass cl = compileUnit.resolveClass(Type.getType(Samples.class), new AnalysisStack());
+        final ResolvedMethod method = cl.resolveMethod(name, signature, new AnalysisStack());
+        compileUnit.finalizeLinkingHierarchy();
+
+        final SparseConditionalConstantPropagation optimizer = new SparseConditionalConstantPropagation();
+        while (optimizer.optimize(compileUnit, method)) {
+            //
+        }
+        return method.methodBody;
+    }
+
+    private static List<Node> returnedValues(final Graph g) {
+        final List<Node> result = new ArrayList<>();
+        for (final Node n : g.nodes()) {
+            if (n instanceof ReturnValue) {
+                result.add(n.incomingDataFlows[0]);
+            }
+        }
+        return result;
+    }
+
+    private static int count(final Graph g, final NodeType nodeType) {
+        int count = 0;
+        for (final Node n : g.nodes()) {
+            if (n.nodeType == nodeType) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static void assertReturnsInt(final Graph g, final int expected) {
+        final List<Node> values = returnedValues(g);
+        assertEquals(1, values.size());
+        assertTrue(values.get(0) instanceof PrimitiveInt);
+        assertEquals(expected, ((PrimitiveInt) values.get(0)).value);
+    }
+
+    @Test
+    public void constantBranchIsFolded() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region startRegion = g.newStartRegion();
+
+        final Variable v1 = g.newVariable(Type.INT_TYPE);
+        final Copy copy1 = g.newCopy();
+        copy1.addIncomingData(g.newInt(10));
+        v1.addIncomingData(copy1);
+
+        final NumericalTest test = g.newNumericalTest(NumericalTest.Operation.GT);
+        test.addIncomingData(v1, g.newInt(5));
+
+        final If ifNode = g.newIf();
+        ifNode.addIncomingData(test);
+
+        final ReturnValue trueReturn = g.newReturnValue();
+        trueReturn.addIncomingData(g.newInt(1));
+
+        final ReturnValue falseReturn = g.newReturnValue();
+        falseReturn.addIncomingData(g.newInt(2));
+
+        startRegion.addControlFlowTo(StandardProjections.DEFAULT, copy1);
+        copy1.addControlFlowTo(StandardProjections.DEFAULT, ifNode);
+        ifNode.addControlFlowTo(StandardProjections.TRUE, trueReturn);
+        ifNode.addControlFlowTo(StandardProjections.FALSE, falseReturn);
+
+        assertTrue(optimize(g));
+
+        assertFalse(g.nodes().contains(ifNode));
+        assertFalse(g.nodes().contains(test));
+        assertFalse(g.nodes().contains(falseReturn));
+        assertTrue(g.nodes().contains(trueReturn));
+        assertSame(trueReturn, copy1.controlFlowsTo.values().iterator().next());
+    }
+
+    @Test
+    public void multiplicationByPowerOfTwoBecomesShift() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region startRegion = g.newStartRegion();
+
+        final MethodArgument arg = g.newMethodArgument(Type.INT_TYPE, 1);
+
+        final Mul mul = g.newMul(Type.INT_TYPE);
+        mul.addIncomingData(arg, g.newInt(8));
+
+        final ReturnValue ret = g.newReturnValue();
+        ret.addIncomingData(mul);
+
+        startRegion.addControlFlowTo(StandardProjections.DEFAULT, ret);
+
+        assertTrue(optimize(g));
+
+        assertFalse(g.nodes().contains(mul));
+        assertTrue(ret.incomingDataFlows[0] instanceof SHL);
+        final SHL shl = (SHL) ret.incomingDataFlows[0];
+        assertSame(arg, shl.incomingDataFlows[0]);
+        assertEquals(3, ((PrimitiveInt) shl.incomingDataFlows[1]).value);
+    }
+
+    @Test
+    public void unknownBranchIsKept() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region startRegion = g.newStartRegion();
+
+        final MethodArgument arg = g.newMethodArgument(Type.INT_TYPE, 1);
+
+        final NumericalTest test = g.newNumericalTest(NumericalTest.Operation.GT);
+        test.addIncomingData(arg, g.newInt(5));
+
+        final If ifNode = g.newIf();
+        ifNode.addIncomingData(test);
+
+        final ReturnValue trueReturn = g.newReturnValue();
+        trueReturn.addIncomingData(g.newInt(1));
+
+        final ReturnValue falseReturn = g.newReturnValue();
+        falseReturn.addIncomingData(g.newInt(2));
+
+        startRegion.addControlFlowTo(StandardProjections.DEFAULT, ifNode);
+        ifNode.addControlFlowTo(StandardProjections.TRUE, trueReturn);
+        ifNode.addControlFlowTo(StandardProjections.FALSE, falseReturn);
+
+        assertFalse(optimize(g));
+
+        assertTrue(g.nodes().contains(ifNode));
+        assertTrue(g.nodes().contains(trueReturn));
+        assertTrue(g.nodes().contains(falseReturn));
+    }
+
+    @Test
+    public void constantTableSwitchIsFolded() {
+        final Graph g = optimizedSample("tableSwitch", TO_INT);
+
+        assertEquals(0, count(g, NodeType.TableSwitch));
+        assertReturnsInt(g, 20);
+    }
+
+    @Test
+    public void constantLookupSwitchIsFolded() {
+        final Graph g = optimizedSample("lookupSwitch", TO_INT);
+
+        assertEquals(0, count(g, NodeType.LookupSwitch));
+        assertReturnsInt(g, 20);
+    }
+
+    @Test
+    public void lookupSwitchWithoutMatchingKeyTakesDefault() {
+        final Graph g = optimizedSample("lookupSwitchDefault", TO_INT);
+
+        assertEquals(0, count(g, NodeType.LookupSwitch));
+        assertReturnsInt(g, 0);
+    }
+
+    @Test
+    public void longArithmeticIsFolded() {
+        final Graph g = optimizedSample("longArithmetic", TO_LONG);
+
+        final List<Node> values = returnedValues(g);
+        assertEquals(1, values.size());
+        assertTrue(values.get(0) instanceof PrimitiveLong);
+        assertEquals(Samples.longArithmetic(), ((PrimitiveLong) values.get(0)).value);
+    }
+
+    @Test
+    public void longComparisonIsFolded() {
+        final Graph g = optimizedSample("longComparison", TO_INT);
+
+        assertEquals(0, count(g, NodeType.If));
+        assertEquals(0, count(g, NodeType.CMP));
+        assertReturnsInt(g, 1);
+    }
+
+    @Test
+    public void intArithmeticWrapsOnOverflow() {
+        assertReturnsInt(optimizedSample("intOverflow", TO_INT), Integer.MIN_VALUE);
+        assertReturnsInt(optimizedSample("intMultiplicationOverflow", TO_INT), 3);
+    }
+
+    @Test
+    public void divisionByZeroIsNotFolded() {
+        final Graph intDiv = optimizedSample("intDivisionByZero", TO_INT);
+        assertEquals(1, count(intDiv, NodeType.Div));
+        assertFalse(returnedValues(intDiv).get(0).isConstant());
+
+        final Graph intRem = optimizedSample("intRemainderByZero", TO_INT);
+        assertEquals(1, count(intRem, NodeType.Rem));
+        assertFalse(returnedValues(intRem).get(0).isConstant());
+
+        final Graph longDiv = optimizedSample("longDivisionByZero", TO_LONG);
+        assertEquals(1, count(longDiv, NodeType.Div));
+        assertFalse(returnedValues(longDiv).get(0).isConstant());
+    }
+
+    @Test
+    public void loopConditionIsNotFolded() {
+        final Graph g = optimizedSample("countedLoop", TO_INT);
+
+        // The counter has different values on the entry and the back edge
+        assertEquals(1, count(g, NodeType.If));
+        assertFalse(returnedValues(g).get(0).isConstant());
+    }
+
+    @Test
+    public void valueIsConstantAcrossBackEdges() {
+        final Graph g = optimizedSample("loopInvariant", Type.getMethodType(Type.INT_TYPE, Type.INT_TYPE));
+
+        assertEquals(1, count(g, NodeType.If));
+        assertReturnsInt(g, 5);
+    }
+
+    private boolean optimize(final Graph g) {
+        final ResolvedMethod method = new ResolvedMethod(null, null, null);
+        method.methodBody = g;
+        return new SparseConditionalConstantPropagation().optimize(null, method);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.parser;
+
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import de.mirkosertic.bytecoder.core.backend.js.JSIntrinsics;
+import de.mirkosertic.bytecoder.core.ir.Add;
+import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
+import de.mirkosertic.bytecoder.core.ir.ControlTokenConsumer;
+import de.mirkosertic.bytecoder.core.ir.Copy;
+import de.mirkosertic.bytecoder.core.ir.EdgeType;
+import de.mirkosertic.bytecoder.core.ir.Graph;
+import de.mirkosertic.bytecoder.core.ir.Node;
+import de.mirkosertic.bytecoder.core.ir.PHI;
+import de.mirkosertic.bytecoder.core.ir.Projection;
+import de.mirkosertic.bytecoder.core.ir.Region;
+import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
+import de.mirkosertic.bytecoder.core.ir.SetInstanceField;
+import de.mirkosertic.bytecoder.core.ir.StandardProjections;
+import de.mirkosertic.bytecoder.core.ir.TryCatch;
+import de.mirkosertic.bytecoder.core.ir.Variable;
+import de.mirkosertic.bytecoder.core.loader.BytecoderLoader;
+import org.junit.Test;
+import org.objectweb.asm.Type;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class GraphParserTest {
+
+    public static class Methods {
+
+        public static int readAfterLoop(final int n, final int x) {
+            int r = 0;
+            for (int i = 0; i < n; i++) {
+                r += i;
+            }
+            return r + x;
+        }
+
+        public static int notReadAfterLoop(final int n, final int x) {
+            int r = 0;
+            for (int i = 0; i < n; i++) {
+                r += i;
+            }
+            return r;
+        }
+
+        public static int readAfterTryCatch(final int[] a, final int x) {
+            int r;
+            try {
+                r = a[0];
+            } catch (final RuntimeException e) {
+                r = -1;
+            }
+            return r + x;
+        }
+
+        public static int notReadAfterTryCatch(final int[] a, final int x) {
+            int r;
+            try {
+                r = a[0];
+            } catch (final RuntimeException e) {
+                r = -1;
+            }
+            return r;
+        }
+    }
+
+    private static final Type LOOP_TYPE = Type.getMethodType(Type.INT_TYPE, Type.INT_TYPE, Type.INT_TYPE);
+
+    private static final Type CATCH_TYPE = Type.getMethodType(Type.INT_TYPE, Type.getType(int[].class), Type.INT_TYPE);
+
+    private Graph parse(final String methodName, final Type methodType) {
+        final CompileUnit compileUnit = new CompileUnit(new BytecoderLoader(getClass().getClassLoader()), new Slf4JLogger(), new JSIntrinsics());
+        final ResolvedClass cl = compileUnit.resolveClass(Type.getType(Methods.class), new AnalysisStack());
+        return cl.resolveMethod(methodName, methodType, new AnalysisStack()).methodBody;
+    }
+
+    private static int phisIn(final Graph g) {
+        int count = 0;
+        for (final Node n : g.nodes()) {
+            if (n instanceof PHI) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Copy copy(final Graph g, final Node source, final Node target) {
+        final Copy copy = g.newCopy();
+        copy.addIncomingData(source);
+        target.addIncomingData(copy);
+        return copy;
+    }
+
+    @Test
+    public void localNotReadAfterLoopGetsNoPHI() {
+        assertEquals(phisIn(parse("notReadAfterLoop", LOOP_TYPE)) + 1, phisIn(parse("readAfterLoop", LOOP_TYPE)));
+    }
+
+    @Test
+    public void localNotReadAfterTryCatchGetsNoPHI() {
+        assertEquals(phisIn(parse("notReadAfterTryCatch", CATCH_TYPE)) + 1, phisIn(parse("readAfterTryCatch", CATCH_TYPE)));
+    }
+
+    @Test
+    public void loopValuesAreComputedIntoTheirPHIs() {
+        final Graph g = parse("readAfterLoop", LOOP_TYPE);
+        for (final Node n : g.nodes()) {
+            if (n instanceof Copy && n.incomingDataFlows[0] instanceof Variable) {
+                final Node[] targets = g.outgoingDataFlowsFor(n);
+                // The only remaining variables copied into PHIs are read somewhere else, too
+                if (targets.length == 1 && targets[0] instanceof PHI) {
+                    assertTrue(g.outgoingDataFlowsFor(n.incomingDataFlows[0]).length > 1);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void variableOnlyCopiedIntoPHIIsReplacedByPHI() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region start = g.newRegion("S");
+        final Region loopHeader = g.newRegion("L");
+        final PHI counter = g.newPHI(Type.INT_TYPE);
+        final PHI other = g.newPHI(Type.INT_TYPE);
+        final Add increment = g.newAdd(Type.INT_TYPE);
+        increment.addIncomingData(counter, g.newInt(1));
+
+        final Variable next = g.newVariable(Type.INT_TYPE);
+        final Copy definition = copy(g, increment, next);
+        final Copy unrelated = copy(g, g.newInt(42), other);
+        final Copy back = copy(g, next, counter);
+
+        start.addControlFlowTo(StandardProjections.DEFAULT, loopHeader);
+        loopHeader.addControlFlowTo(StandardProjections.DEFAULT, definition);
+        definition.addControlFlowTo(StandardProjections.DEFAULT, unrelated);
+        unrelated.addControlFlowTo(StandardProjections.DEFAULT, back);
+        back.addControlFlowTo(StandardProjections.DEFAULT.withEdgeType(EdgeType.BACK), loopHeader);
+
+        GraphParser.coalesceCopiesIntoPHIs(g);
+
+        assertFalse(g.nodes().contains(next));
+        assertFalse(g.nodes().contains(back));
+        assertArrayEquals(new Node[] {counter}, g.outgoingDataFlowsFor(definition));
+        assertArrayEquals(new Node[] {definition}, counter.incomingDataFlows);
+        assertEquals(1, unrelated.controlFlowsTo.size());
+        final Map.Entry<Projection, ControlTokenConsumer> entry = unrelated.controlFlowsTo.entrySet().iterator().next();
+        assertEquals(EdgeType.BACK, entry.getKey().edgeType());
+        assertSame(loopHeader, entry.getValue());
+        assertTrue(loopHeader.hasIncomingBackEdges());
+    }
+
+    @Test
+    public void phiReadBeforeItsCopyIsNotAssignedEarlier() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region start = g.newRegion("S");
+        final PHI counter = g.newPHI(Type.INT_TYPE);
+        final PHI previous = g.newPHI(Type.INT_TYPE);
+        final Add increment = g.newAdd(Type.INT_TYPE);
+        increment.addIncomingData(counter, g.newInt(1));
+        final Add twice = g.newAdd(Type.INT_TYPE);
+        twice.addIncomingData(counter, counter);
+
+        final Variable next = g.newVariable(Type.INT_TYPE);
+        final Copy definition = copy(g, increment, next);
+        final Copy read = copy(g, twice, previous);
+        final Copy back = copy(g, next, counter);
+
+        start.addControlFlowTo(StandardProjections.DEFAULT, definition);
+        definition.addControlFlowTo(StandardProjections.DEFAULT, read);
+        read.addControlFlowTo(StandardProjections.DEFAULT, back);
+        back.addControlFlowTo(StandardProjections.DEFAULT, g.newRegion("E"));
+
+        final int nodes = g.nodes().size();
+        GraphParser.coalesceCopiesIntoPHIs(g);
+
+        assertEquals(nodes, g.nodes().size());
+        assertArrayEquals(new Node[] {back}, g.outgoingDataFlowsFor(next));
+    }
+
+    @Test
+    public void methodWithExceptionHandlerIsNotChanged() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region start = g.newRegion("S");
+        final TryCatch tryCatch = g.newTryCatch("TC");
+        final PHI target = g.newPHI(Type.INT_TYPE);
+        final Variable value = g.newVariable(Type.INT_TYPE);
+        final Copy definition = copy(g, g.newInt(42), value);
+        final Copy copyToPHI = copy(g, value, target);
+
+        start.addControlFlowTo(StandardProjections.DEFAULT, definition);
+        definition.addControlFlowTo(StandardProjections.DEFAULT, copyToPHI);
+        copyToPHI.addControlFlowTo(StandardProjections.DEFAULT, tryCatch);
+
+        final int nodes = g.nodes().size();
+        GraphParser.coalesceCopiesIntoPHIs(g);
+
+        assertEquals(nodes, g.nodes().size());
+        assertSame(copyToPHI, definition.controlFlowsTo.get(StandardProjections.DEFAULT));
+    }
+
+    @Test
+    public void phiTargetedByFieldStoreIsNotAssignedEarlier() {
+        final Graph g = new Graph(new Slf4JLogger());
+        final Region start = g.newRegion("S");
+        final PHI target = g.newPHI(Type.getType(Object.class));
+        final Variable value = g.newVariable(Type.getType(Object.class));
+        final Copy definition = copy(g, g.newNullReference(), value);
+        final Copy copyToPHI = copy(g, value, target);
+        final SetInstanceField store = g.newSetInstanceField(null);
+        store.addIncomingData(g.newInt(42));
+        target.addIncomingData(store);
+
+        start.addControlFlowTo(StandardProjections.DEFAULT, definition);
+        definition.addControlFlowTo(StandardProjections.DEFAULT, copyToPHI);
+        copyToPHI.addControlFlowTo(StandardProjections.DEFAULT, g.newRegion("E"));
+
+        GraphParser.coalesceCopiesIntoPHIs(g);
+
+        assertTrue(g.nodes().contains(value));
+        assertTrue(g.nodes().contains(copyToPHI));
+    }
+}
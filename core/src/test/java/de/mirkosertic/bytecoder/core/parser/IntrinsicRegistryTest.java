@@ -0,0 +1,144 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.parser;
+
+import de.mirkosertic.bytecoder.core.Slf4JLogger;
+import de.mirkosertic.bytecoder.core.backend.js.JSIntrinsics;
+import de.mirkosertic.bytecoder.core.ir.AbstractInvocation;
+import de.mirkosertic.bytecoder.core.ir.AnalysisStack;
+import de.mirkosertic.bytecoder.core.ir.Graph;
+import de.mirkosertic.bytecoder.core.ir.MathFunction;
+import de.mirkosertic.bytecoder.core.ir.Node;
+import de.mirkosertic.bytecoder.core.ir.ResolvedClass;
+import de.mirkosertic.bytecoder.core.ir.Value;
+import de.mirkosertic.bytecoder.core.loader.BytecoderLoader;
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.MethodInsnNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class IntrinsicRegistryTest {
+
+    public static class Methods {
+
+        static int first() {
+            return 1;
+        }
+
+        static int second() {
+            return 2;
+        }
+
+        public static int callFirstTwiceAndSecondOnce() {
+            return first() + first() + second();
+        }
+
+        public static double mathFunctions(final double a, final int b, final int c) {
+            return Math.sqrt(a) + Math.sqrt(a + 1) + Math.max(b, c) + Math.pow(a, 2);
+        }
+    }
+
+    private static class RecordingIntrinsic implements Intrinsic {
+
+        private final String methodName;
+        private final List<String> invocations;
+
+        RecordingIntrinsic(final String methodName) {
+            this.methodName = methodName;
+            this.invocations = new ArrayList<>();
+        }
+
+        @Override
+        public void register(final IntrinsicRegistry registry) {
+            registry.register(Type.getInternalName(Methods.class), methodName, "()I", this);
+        }
+
+        @Override
+        public Value intrinsifyMethodInvocationWithReturnValue(final CompileUnit compileUnit, final AnalysisStack analysisStack, final MethodInsnNode node, final Value[] incomingData, final Graph graph, final GraphParser graphParser) {
+            invocations.add(node.name);
+            // Not replaced, so the invocation stays in the graph
+            return null;
+        }
+    }
+
+    private static Graph parse(final CompileUnit compileUnit, final String methodName, final Type methodType) {
+        final ResolvedClass cl = compileUnit.resolveClass(Type.getType(Methods.class), new AnalysisStack());
+        final Graph g = cl.resolveMethod(methodName, methodType, new AnalysisStack()).methodBody;
+        compileUnit.finalizeLinkingHierarchy();
+        return g;
+    }
+
+    private static int count(final Graph g, final Class<?> nodeType) {
+        int count = 0;
+        for (final Node n : g.nodes()) {
+            if (nodeType.isInstance(n)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void ownerRegistrationTakesPrecedenceOverAnyOwner() {
+        final IntrinsicRegistry registry = new IntrinsicRegistry();
+        final Intrinsic forOwner = new RecordingIntrinsic("first");
+        final Intrinsic forAnyOwner = new RecordingIntrinsic("second");
+        registry.register("a/Owner", "name", "()I", forOwner);
+        registry.registerForAnyOwner("name", "()I", forAnyOwner);
+
+        assertEquals(Collections.singletonList(forOwner), registry.intrinsicsFor(new MethodInsnNode(Opcodes.INVOKESTATIC, "a/Owner", "name", "()I")));
+        assertEquals(Collections.singletonList(forAnyOwner), registry.intrinsicsFor(new MethodInsnNode(Opcodes.INVOKESTATIC, "another/Owner", "name", "()I")));
+        assertEquals(Collections.emptyList(), registry.intrinsicsFor(new MethodInsnNode(Opcodes.INVOKESTATIC, "a/Owner", "name", "()J")));
+    }
+
+    @Test
+    public void intrinsicsAreOnlyAskedForRegisteredMethods() {
+        final RecordingIntrinsic first = new RecordingIntrinsic("first");
+        final RecordingIntrinsic second = new RecordingIntrinsic("second");
+        final CoreIntrinsics intrinsics = new CoreIntrinsics(first, second);
+        final CompileUnit compileUnit = new CompileUnit(new BytecoderLoader(getClass().getClassLoader()), new Slf4JLogger(), intrinsics);
+
+        final Graph g = parse(compileUnit, "callFirstTwiceAndSecondOnce", Type.getMethodType(Type.INT_TYPE));
+
+        assertEquals(Arrays.asList("first", "first"), first.invocations);
+        assertEquals(Collections.singletonList("second"), second.invocations);
+        assertEquals(3, count(g, AbstractInvocation.class));
+        assertNull(intrinsics.firedIntrinsics().get("de/mirkosertic/bytecoder/core/parser/IntrinsicRegistryTest$Methods.first()I"));
+    }
+
+    @Test
+    public void replacedInvocationsAreCountedPerMethod() {
+        final CoreIntrinsics intrinsics = new JSIntrinsics();
+        final CompileUnit compileUnit = new CompileUnit(new BytecoderLoader(getClass().getClassLoader()), new Slf4JLogger(), intrinsics);
+
+        final Graph g = parse(compileUnit, "mathFunctions", Type.getMethodType(Type.DOUBLE_TYPE, Type.DOUBLE_TYPE, Type.INT_TYPE, Type.INT_TYPE));
+
+        assertEquals(3, count(g, MathFunction.class));
+        // Math.pow has no intrinsic in the JS backend
+        assertEquals(1, count(g, AbstractInvocation.class));
+        assertEquals(Integer.valueOf(2), intrinsics.firedIntrinsics().get("java/lang/Math.sqrt(D)D"));
+        assertEquals(Integer.valueOf(1), intrinsics.firedIntrinsics().get("java/lang/Math.max(II)I"));
+        assertNull(intrinsics.firedIntrinsics().get("java/lang/Math.pow(DD)D"));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2023 Mirko Sertic
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.mirkosertic.bytecoder.core.parser;
+
+import org.junit.Test;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.IincInsnNode;
+import org.objectweb.asm.tree.InsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LocalVariableLivenessTest {
+
+    @Test
+    public void localIsLiveAcrossBackEdge() {
+        final MethodNode m = new MethodNode(Opcodes.ACC_STATIC, "m", "(I)I", null, null);
+        final InsnNode init = new InsnNode(Opcodes.ICONST_5);
+        final VarInsnNode store = new VarInsnNode(Opcodes.ISTORE, 1);
+        final LabelNode loop = new LabelNode();
+        final LabelNode exit = new LabelNode();
+        final IincInsnNode decrement = new IincInsnNode(1, -1);
+        final JumpInsnNode backEdge = new JumpInsnNode(Opcodes.GOTO, loop);
+        m.instructions.add(init);
+        m.instructions.add(store);
+        m.instructions.add(loop);
+        m.instructions.add(new VarInsnNode(Opcodes.ILOAD, 1));
+        m.instructions.add(new JumpInsnNode(Opcodes.IFEQ, exit));
+        m.instructions.add(decrement);
+        m.instructions.add(backEdge);
+        m.instructions.add(exit);
+        m.instructions.add(new VarInsnNode(Opcodes.ILOAD, 0));
+        m.instructions.add(new InsnNode(Opcodes.IRETURN));
+
+        final LocalVariableLiveness liveness = new LocalVariableLiveness(m);
+
+        // The store kills the local, so it is not live before
+        assertFalse(liveness.isLiveAt(init, 1));
+        assertTrue(liveness.isLiveAt(init, 0));
+        assertTrue(liveness.isLiveAt(loop, 1));
+        assertTrue(liveness.isLiveAt(decrement, 1));
+        assertTrue(liveness.isLiveAt(backEdge, 1));
+        assertTrue(liveness.isLiveAt(backEdge, 0));
+        // Not read after the loop
+        assertFalse(liveness.isLiveAt(exit, 1));
+        assertTrue(liveness.isLiveAt(exit, 0));
+    }
+
+    @Test
+    public void localReadByHandlerIsLiveInGuardedRangeOnly() {
+        final MethodNode m = new MethodNode(Opcodes.ACC_STATIC, "m", "()I", null, null);
+        final LabelNode start = new LabelNode();
+        final LabelNode end = new LabelNode();
+        final LabelNode handler = new LabelNode();
+        final InsnNode guarded = new InsnNode(Opcodes.ICONST_2);
+        final VarInsnNode guardedStore = new VarInsnNode(Opcodes.ISTORE, 2);
+        final VarInsnNode afterRange = new VarInsnNode(Opcodes.ILOAD, 2);
+        final InsnNode handlerCode = new InsnNode(Opcodes.POP);
+        m.instructions.add(new InsnNode(Opcodes.ICONST_1));
+        m.instructions.add(new VarInsnNode(Opcodes.ISTORE, 1));
+        m.instructions.add(start);
+        m.instructions.add(guarded);
+        m.instructions.add(guardedStore);
+        m.instructions.add(end);
+        m.instructions.add(afterRange);
+        m.instructions.add(new InsnNode(Opcodes.IRETURN));
+        m.instructions.add(handler);
+        m.instructions.add(handlerCode);
+        m.instructions.add(new VarInsnNode(Opcodes.ILOAD, 1));
+        m.instructions.add(new InsnNode(Opcodes.IRETURN));
+        m.tryCatchBlocks.add(new TryCatchBlockNode(start, end, handler, null));
+
+        final LocalVariableLiveness liveness = new LocalVariableLiveness(m);
+
+        // Every instruction of the range might throw, so the handler reading local 1 is a successor of each
+        assertTrue(liveness.isLiveAt(start, 1));
+        assertTrue(liveness.isLiveAt(guarded, 1));
+        assertTrue(liveness.isLiveAt(guardedStore, 1));
+        assertTrue(liveness.isLiveAt(handler, 1));
+        assertTrue(liveness.isLiveAt(handlerCode, 1));
+        // The end label is exclusive
+        assertFalse(liveness.isLiveAt(end, 1));
+        assertFalse(liveness.isLiveAt(afterRange, 1));
+        assertTrue(liveness.isLiveAt(afterRange, 2));
+        // Local 2 is stored inside the range and not read by the handler
+        assertFalse(liveness.isLiveAt(guarded, 2));
+        assertFalse(liveness.isLiveAt(handler, 2));
+    }
+}
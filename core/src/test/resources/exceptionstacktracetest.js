@@ -0,0 +1,13 @@
+// Imports for the native methods of de.mirkosertic.bytecoder.core.ExceptionStackTraceTest
+var rememberedStack;
+bytecoder.imports['de.mirkosertic.bytecoder.core.ExceptionStackTraceTest'] = {
+    I$hasStack$Ljava$lang$Throwable$: function(t) {
+        return t.stack !== undefined ? 1 : 0;
+    },
+    V$rememberStack$Ljava$lang$Throwable$: function(t) {
+        rememberedStack = t.stack;
+    },
+    I$hasRememberedStack$Ljava$lang$Throwable$: function(t) {
+        return rememberedStack !== undefined && t.stack === rememberedStack ? 1 : 0;
+    },
+};
@@ -20,6 +20,7 @@ import de.mirkosertic.bytecoder.core.backend.js.JSBackend;
 import de.mirkosertic.bytecoder.core.backend.js.JSCompileResult;
 import de.mirkosertic.bytecoder.core.backend.js.JSHelpers;
 import de.mirkosertic.bytecoder.core.backend.js.JSIntrinsics;
+import de.mirkosertic.bytecoder.core.backend.js.JSLongRepresentation;
 import de.mirkosertic.bytecoder.core.backend.wasm.WasmBackend;
 import de.mirkosertic.bytecoder.core.backend.wasm.WasmCompileResult;
 import de.mirkosertic.bytecoder.core.backend.wasm.WasmIntrinsics;
@@ -114,6 +115,25 @@ public class BytecoderMavenMojo extends AbstractMojo {
     @Parameter(required = false)
     protected String[] additionalResources = new String[0];
 
+    /**
+     * Optimize methods in parallel using all available cores.
+     */
+    @Parameter(required = false, defaultValue = "false")
+    protected boolean parallel;
+
+    /**
+     * Exception classes thrown without capturing a JavaScript stack trace. The static type at the throw
+     * site decides, so subclasses are covered, but a listed exception thrown as a more general type is not.
+     */
+    @Parameter(required = false)
+    protected String[] exceptionsWithoutStackTrace = new String[0];
+
+    /**
+     * The representation of long values in the JavaScript backend, either NUMBER or BIGINT.
+     */
+    @Parameter(required = false, defaultValue = "NUMBER")
+    protected String longRepresentation;
+
     @Override
     public void execute() throws MojoExecutionException {
         final File baseDirectory = new File(buildDirectory);
@@ -140,9 +160,9 @@ public class BytecoderMavenMojo extends AbstractMojo {
                 compileUnit.logStatistics();
 
                 final de.mirkosertic.bytecoder.core.backend.CompileOptions compileOptions =
-                        new de.mirkosertic.bytecoder.core.backend.CompileOptions(new Slf4JLogger(), Optimizations.valueOf(optimizationLevel), additionalResources, filenamePrefix, debugOutput);
+                        new de.mirkosertic.bytecoder.core.backend.CompileOptions(new Slf4JLogger(), Optimizations.valueOf(optimizationLevel), additionalResources, filenamePrefix, debugOutput, parallel, exceptionsWithoutStackTrace);
 
-                final JSBackend backend = new JSBackend();
+                final JSBackend backend = new JSBackend(JSLongRepresentation.valueOf(longRepresentation));
                 final JSCompileResult result = backend.generateCodeFor(compileUnit, compileOptions);
 
                 for (final CompileResult.Content content : result.getContent()) {
@@ -167,7 +187,7 @@ public class BytecoderMavenMojo extends AbstractMojo {
                 compileUnit.logStatistics();
 
                 final de.mirkosertic.bytecoder.core.backend.CompileOptions compileOptions =
-                        new de.mirkosertic.bytecoder.core.backend.CompileOptions(new Slf4JLogger(), Optimizations.valueOf(optimizationLevel), additionalResources, filenamePrefix, debugOutput);
+                        new de.mirkosertic.bytecoder.core.backend.CompileOptions(new Slf4JLogger(), Optimizations.valueOf(optimizationLevel), additionalResources, filenamePrefix, debugOutput, parallel, exceptionsWithoutStackTrace);
 
                 final WasmBackend backend = new WasmBackend();
                 final WasmCompileResult result = backend.generateCodeFor(compileUnit, compileOptions);